@@ -0,0 +1,85 @@
+package org.nd4j;
+
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.gradient.DefaultGradient;
+import org.deeplearning4j.nn.gradient.Gradient;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.updater.BaseMultiLayerUpdater;
+import org.deeplearning4j.nn.updater.UpdaterBlock;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a single DL4J parameter update (updater + regularization + parameter subtraction) for networks with many
+ * small layers. With regularizationRuns = true, regularization is applied once per contiguous run of parameters in
+ * each updater block; otherwise it is applied separately for every parameter of every layer. In both cases the updater
+ * and the regularization are separate ops - see {@link UpdaterBlock}.
+ */
+public class MultiLayerUpdaterStep {
+
+    @State(Scope.Thread)
+    public static class SetupState {
+        @Param({"4", "16", "64", "256"})
+        public int layers;
+
+        @Param({"32"})
+        public int layerSize;
+
+        @Param({"true", "false"})
+        public boolean regularizationRuns;
+
+        public MultiLayerNetwork net;
+        public BaseMultiLayerUpdater<?> updater;
+        public Gradient gradient;
+        public INDArray params;
+        public LayerWorkspaceMgr workspaceMgr = LayerWorkspaceMgr.noWorkspaces();
+        public int iteration;
+
+        @Setup
+        public void setup() {
+            NeuralNetConfiguration.ListBuilder b = new NeuralNetConfiguration.Builder()
+                    .seed(12345)
+                    .updater(new Adam(1e-3))
+                    .weightDecay(1e-4)
+                    .weightDecayBias(1e-4)
+                    .list();
+            for (int i = 0; i < layers - 1; i++) {
+                b.layer(new DenseLayer.Builder().nIn(layerSize).nOut(layerSize).activation(Activation.TANH).build());
+            }
+            b.layer(new OutputLayer.Builder().nIn(layerSize).nOut(layerSize).activation(Activation.SOFTMAX)
+                    .lossFunction(LossFunctions.LossFunction.MCXENT).build());
+            MultiLayerConfiguration conf = b.build();
+
+            net = new MultiLayerNetwork(conf);
+            net.init();
+            net.getFlattenedGradients().assign(Nd4j.rand(net.getFlattenedGradients().shape()).subi(0.5));
+
+            updater = (BaseMultiLayerUpdater<?>) net.getUpdater();
+            if (!regularizationRuns) {
+                //Without the block parameter view, regularization is applied separately for each parameter
+                for (UpdaterBlock ub : updater.getUpdaterBlocks()) {
+                    ub.setParamView(null);
+                }
+            }
+            gradient = new DefaultGradient(net.getFlattenedGradients());
+            params = net.params();
+        }
+    }
+
+    @Benchmark @BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void updateAndStep(SetupState state) {
+        state.updater.update(state.gradient, state.iteration++, 0, 1, state.workspaceMgr);
+        state.params.subi(state.gradient.gradient());
+        Nd4j.getExecutioner().commit();
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+
+package org.datavec.local.transforms;
+
+import org.datavec.api.conf.Configuration;
+import org.datavec.api.records.Record;
+import org.datavec.api.records.listener.RecordListener;
+import org.datavec.api.records.metadata.RecordMetaData;
+import org.datavec.api.records.reader.RecordReader;
+import org.datavec.api.split.InputSplit;
+import org.datavec.api.transform.TransformProcess;
+import org.datavec.api.writable.Writable;
+import org.datavec.local.transforms.streaming.StreamingTransformExecutor;
+import org.datavec.local.transforms.streaming.StreamingTransformIterator;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A RecordReader that executes a {@link TransformProcess} on the records of an underlying RecordReader using a
+ * {@link StreamingTransformExecutor}: stateless operations are applied on multiple threads (ahead of the consumer),
+ * and stateful operations (reductions, etc.) are supported for data sets larger than memory.<br>
+ * Can be used directly with RecordReaderDataSetIterator. The TransformProcess must return non-sequence data - see
+ * {@link StreamingTransformProcessSequenceRecordReader} for sequence output.<br>
+ * Note: record metadata is not available for the transformed records.
+ */
+public class StreamingTransformProcessRecordReader implements RecordReader {
+
+    protected RecordReader recordReader;
+    protected TransformProcess transformProcess;
+    protected StreamingTransformExecutor executor;
+    protected StreamingTransformIterator<List<Writable>> iterator;
+
+    /**
+     * @param recordReader     Underlying record reader. Must be a SequenceRecordReader if the TransformProcess
+     *                         initial schema is a sequence schema
+     * @param transformProcess TransformProcess to execute
+     */
+    public StreamingTransformProcessRecordReader(RecordReader recordReader, TransformProcess transformProcess) {
+        this(recordReader, transformProcess, new StreamingTransformExecutor.Builder().build());
+    }
+
+    /**
+     * @param recordReader     Underlying record reader. Must be a SequenceRecordReader if the TransformProcess
+     *                         initial schema is a sequence schema
+     * @param transformProcess TransformProcess to execute
+     * @param executor         Executor to use
+     */
+    public StreamingTransformProcessRecordReader(RecordReader recordReader, TransformProcess transformProcess,
+                                                 StreamingTransformExecutor executor) {
+        this.recordReader = recordReader;
+        this.transformProcess = transformProcess;
+        this.executor = executor;
+    }
+
+    protected StreamingTransformIterator<List<Writable>> iterator() {
+        if (iterator == null) {
+            iterator = executor.execute(recordReader, transformProcess);
+        }
+        return iterator;
+    }
+
+    protected void closeIterator() {
+        if (iterator != null) {
+            iterator.close();
+            iterator = null;
+        }
+    }
+
+    @Override
+    public void initialize(InputSplit split) throws IOException, InterruptedException {
+        closeIterator();
+        recordReader.initialize(split);
+    }
+
+    @Override
+    public void initialize(Configuration conf, InputSplit split) throws IOException, InterruptedException {
+        closeIterator();
+        recordReader.initialize(conf, split);
+    }
+
+    @Override
+    public boolean batchesSupported() {
+        return true;
+    }
+
+    @Override
+    public List<List<Writable>> next(int num) {
+        if (!hasNext())
+            throw new NoSuchElementException("No next element");
+
+        List<List<Writable>> out = new ArrayList<>(num);
+        for (int i = 0; i < num && hasNext(); i++) {
+            out.add(next());
+        }
+        return out;
+    }
+
+    @Override
+    public List<Writable> next() {
+        return iterator().next();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return iterator().hasNext();
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return recordReader.getLabels();
+    }
+
+    @Override
+    public void reset() {
+        closeIterator();
+        recordReader.reset();
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return recordReader.resetSupported();
+    }
+
+    @Override
+    public List<Writable> record(URI uri, DataInputStream dataInputStream) throws IOException {
+        return transformProcess.execute(recordReader.record(uri, dataInputStream));
+    }
+
+    @Override
+    public Record nextRecord() {
+        return new org.datavec.api.records.impl.Record(next(), null);
+    }
+
+    @Override
+    public Record loadFromMetaData(RecordMetaData recordMetaData) throws IOException {
+        throw new UnsupportedOperationException("Loading from metadata is not supported for streaming transform execution");
+    }
+
+    @Override
+    public List<Record> loadFromMetaData(List<RecordMetaData> recordMetaDatas) throws IOException {
+        throw new UnsupportedOperationException("Loading from metadata is not supported for streaming transform execution");
+    }
+
+    @Override
+    public List<RecordListener> getListeners() {
+        return recordReader.getListeners();
+    }
+
+    @Override
+    public void setListeners(RecordListener... listeners) {
+        recordReader.setListeners(listeners);
+    }
+
+    @Override
+    public void setListeners(Collection<RecordListener> listeners) {
+        recordReader.setListeners(listeners);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeIterator();
+        recordReader.close();
+    }
+
+    @Override
+    public void setConf(Configuration conf) {
+        recordReader.setConf(conf);
+    }
+
+    @Override
+    public Configuration getConf() {
+        return recordReader.getConf();
+    }
+}
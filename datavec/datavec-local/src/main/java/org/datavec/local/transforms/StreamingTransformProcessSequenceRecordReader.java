@@ -0,0 +1,216 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+
+package org.datavec.local.transforms;
+
+import org.datavec.api.conf.Configuration;
+import org.datavec.api.records.Record;
+import org.datavec.api.records.SequenceRecord;
+import org.datavec.api.records.listener.RecordListener;
+import org.datavec.api.records.metadata.RecordMetaData;
+import org.datavec.api.records.reader.RecordReader;
+import org.datavec.api.records.reader.SequenceRecordReader;
+import org.datavec.api.split.InputSplit;
+import org.datavec.api.transform.TransformProcess;
+import org.datavec.api.writable.Writable;
+import org.datavec.local.transforms.streaming.StreamingTransformExecutor;
+import org.datavec.local.transforms.streaming.StreamingTransformIterator;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A SequenceRecordReader that executes a {@link TransformProcess} on the records (or sequences) of an underlying
+ * RecordReader using a {@link StreamingTransformExecutor}. The TransformProcess must return sequence data; for
+ * example, it may group non-sequence records into sequences by key.<br>
+ * Can be used directly with SequenceRecordReaderDataSetIterator.<br>
+ * Note: record metadata is not available for the transformed sequences.
+ */
+public class StreamingTransformProcessSequenceRecordReader implements SequenceRecordReader {
+
+    protected RecordReader recordReader;
+    protected TransformProcess transformProcess;
+    protected StreamingTransformExecutor executor;
+    protected StreamingTransformIterator<List<List<Writable>>> iterator;
+
+    /**
+     * @param recordReader     Underlying record reader. Must be a SequenceRecordReader if the TransformProcess
+     *                         initial schema is a sequence schema
+     * @param transformProcess TransformProcess to execute
+     */
+    public StreamingTransformProcessSequenceRecordReader(RecordReader recordReader, TransformProcess transformProcess) {
+        this(recordReader, transformProcess, new StreamingTransformExecutor.Builder().build());
+    }
+
+    /**
+     * @param recordReader     Underlying record reader. Must be a SequenceRecordReader if the TransformProcess
+     *                         initial schema is a sequence schema
+     * @param transformProcess TransformProcess to execute
+     * @param executor         Executor to use
+     */
+    public StreamingTransformProcessSequenceRecordReader(RecordReader recordReader, TransformProcess transformProcess,
+                                                         StreamingTransformExecutor executor) {
+        this.recordReader = recordReader;
+        this.transformProcess = transformProcess;
+        this.executor = executor;
+    }
+
+    protected StreamingTransformIterator<List<List<Writable>>> iterator() {
+        if (iterator == null) {
+            iterator = executor.executeToSequence(recordReader, transformProcess);
+        }
+        return iterator;
+    }
+
+    protected void closeIterator() {
+        if (iterator != null) {
+            iterator.close();
+            iterator = null;
+        }
+    }
+
+    @Override
+    public List<List<Writable>> sequenceRecord() {
+        return iterator().next();
+    }
+
+    @Override
+    public List<List<Writable>> sequenceRecord(URI uri, DataInputStream dataInputStream) throws IOException {
+        throw new UnsupportedOperationException("Loading individual sequences is not supported for streaming transform execution");
+    }
+
+    @Override
+    public SequenceRecord nextSequence() {
+        return new org.datavec.api.records.impl.SequenceRecord(sequenceRecord(), null);
+    }
+
+    @Override
+    public SequenceRecord loadSequenceFromMetaData(RecordMetaData recordMetaData) throws IOException {
+        throw new UnsupportedOperationException("Loading from metadata is not supported for streaming transform execution");
+    }
+
+    @Override
+    public List<SequenceRecord> loadSequenceFromMetaData(List<RecordMetaData> recordMetaDatas) throws IOException {
+        throw new UnsupportedOperationException("Loading from metadata is not supported for streaming transform execution");
+    }
+
+    @Override
+    public void initialize(InputSplit split) throws IOException, InterruptedException {
+        closeIterator();
+        recordReader.initialize(split);
+    }
+
+    @Override
+    public void initialize(Configuration conf, InputSplit split) throws IOException, InterruptedException {
+        closeIterator();
+        recordReader.initialize(conf, split);
+    }
+
+    @Override
+    public boolean batchesSupported() {
+        return false;
+    }
+
+    @Override
+    public List<List<Writable>> next(int num) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<Writable> next() {
+        throw new UnsupportedOperationException("Use sequenceRecord() or nextSequence() for sequence data");
+    }
+
+    @Override
+    public boolean hasNext() {
+        return iterator().hasNext();
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return recordReader.getLabels();
+    }
+
+    @Override
+    public void reset() {
+        closeIterator();
+        recordReader.reset();
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return recordReader.resetSupported();
+    }
+
+    @Override
+    public List<Writable> record(URI uri, DataInputStream dataInputStream) throws IOException {
+        throw new UnsupportedOperationException("Use sequenceRecord(URI, DataInputStream) for sequence data");
+    }
+
+    @Override
+    public Record nextRecord() {
+        throw new UnsupportedOperationException("Use nextSequence() for sequence data");
+    }
+
+    @Override
+    public Record loadFromMetaData(RecordMetaData recordMetaData) throws IOException {
+        throw new UnsupportedOperationException("Loading from metadata is not supported for streaming transform execution");
+    }
+
+    @Override
+    public List<Record> loadFromMetaData(List<RecordMetaData> recordMetaDatas) throws IOException {
+        throw new UnsupportedOperationException("Loading from metadata is not supported for streaming transform execution");
+    }
+
+    @Override
+    public List<RecordListener> getListeners() {
+        return recordReader.getListeners();
+    }
+
+    @Override
+    public void setListeners(RecordListener... listeners) {
+        recordReader.setListeners(listeners);
+    }
+
+    @Override
+    public void setListeners(Collection<RecordListener> listeners) {
+        recordReader.setListeners(listeners);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeIterator();
+        recordReader.close();
+    }
+
+    @Override
+    public void setConf(Configuration conf) {
+        recordReader.setConf(conf);
+    }
+
+    @Override
+    public Configuration getConf() {
+        return recordReader.getConf();
+    }
+}
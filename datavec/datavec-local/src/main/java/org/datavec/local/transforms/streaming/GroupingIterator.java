@@ -0,0 +1,99 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+
+package org.datavec.local.transforms.streaming;
+
+import org.datavec.api.writable.Writable;
+import org.nd4j.common.function.Function;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Stateful (blocking) stage of a streaming transform pipeline: all (non-sequence) records from the upstream iterator
+ * are grouped by key using a {@link SpillingGrouper}, and each group is then converted to a single output element -
+ * for example, a reduced record or a sequence. Groups are produced one partition at a time.
+ */
+public class GroupingIterator implements Iterator<List<List<Writable>>>, Closeable {
+
+    private final Iterator<List<List<Writable>>> upstream;
+    private final SpillingGrouper grouper;
+    private final Function<List<List<Writable>>, List<List<Writable>>> groupFunction;
+
+    private boolean grouped;
+    private int nextPartition;
+    private Iterator<List<List<Writable>>> current;
+
+    /**
+     * @param upstream      Upstream (non-sequence) elements
+     * @param grouper       Grouper to group the records by key with
+     * @param groupFunction Function to convert the records for each key to an output element
+     */
+    public GroupingIterator(Iterator<List<List<Writable>>> upstream, SpillingGrouper grouper,
+                            Function<List<List<Writable>>, List<List<Writable>>> groupFunction) {
+        this.upstream = upstream;
+        this.grouper = grouper;
+        this.groupFunction = groupFunction;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            if (!grouped) {
+                while (upstream.hasNext()) {
+                    List<List<Writable>> element = upstream.next();
+                    if (element.size() != 1) {
+                        throw new IllegalStateException("Cannot group sequence data: expected non-sequence records");
+                    }
+                    grouper.add(element.get(0));
+                }
+                grouper.finish();
+                grouped = true;
+            }
+
+            while ((current == null || !current.hasNext()) && nextPartition < grouper.numPartitions()) {
+                Map<Object, List<List<Writable>>> groups = grouper.readPartition(nextPartition++);
+                List<List<List<Writable>>> out = new ArrayList<>(groups.size());
+                for (List<List<Writable>> group : groups.values()) {
+                    out.add(groupFunction.apply(group));
+                }
+                current = out.iterator();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error grouping records", e);
+        }
+        return current != null && current.hasNext();
+    }
+
+    @Override
+    public List<List<Writable>> next() {
+        if (!hasNext())
+            throw new NoSuchElementException("No next element");
+        return current.next();
+    }
+
+    @Override
+    public void close() throws IOException {
+        grouper.close();
+    }
+}
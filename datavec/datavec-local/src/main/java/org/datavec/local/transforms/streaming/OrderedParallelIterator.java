@@ -0,0 +1,173 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+
+package org.datavec.local.transforms.streaming;
+
+import lombok.extern.slf4j.Slf4j;
+import org.datavec.api.writable.Writable;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Applies a list of {@link StreamingStep}s to the elements of an upstream iterator, in parallel, preserving the order
+ * of the elements.<br>
+ * A single producer thread reads batches of elements from the upstream iterator (which need not be thread safe, for
+ * example when reading from a RecordReader) and submits them to the worker threads. At most queueCapacity batches can
+ * be in flight (being processed, or processed but not yet consumed) at any time: once the queue is full, the producer
+ * blocks until the consumer catches up. This bounds memory use regardless of how fast the upstream produces data.
+ */
+@Slf4j
+public class OrderedParallelIterator implements Iterator<List<List<Writable>>>, Closeable {
+
+    private static final Future<List<List<List<Writable>>>> END = CompletableFuture.completedFuture(null);
+
+    private final Iterator<List<List<Writable>>> upstream;
+    private final List<StreamingStep> steps;
+    private final ExecutorService workers;
+    private final int batchSize;
+    private final BlockingQueue<Future<List<List<List<Writable>>>>> queue;
+
+    private Thread producer;
+    private volatile Throwable producerError;
+    private volatile boolean closed;
+    private boolean finished;
+    private Iterator<List<List<Writable>>> current;
+
+    /**
+     * @param upstream      Source of the elements to process
+     * @param steps         Steps to apply to each element, in order
+     * @param workers       Executor to apply the steps with
+     * @param batchSize     Number of elements to process in each task
+     * @param queueCapacity Maximum number of batches in flight
+     */
+    public OrderedParallelIterator(Iterator<List<List<Writable>>> upstream, List<StreamingStep> steps,
+                                   ExecutorService workers, int batchSize, int queueCapacity) {
+        this.upstream = upstream;
+        this.steps = steps;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    private void start() {
+        producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (!closed && upstream.hasNext()) {
+                        final List<List<List<Writable>>> batch = new ArrayList<>(batchSize);
+                        while (batch.size() < batchSize && upstream.hasNext()) {
+                            batch.add(upstream.next());
+                        }
+                        queue.put(workers.submit(new Callable<List<List<List<Writable>>>>() {
+                            @Override
+                            public List<List<List<Writable>>> call() {
+                                return applySteps(batch);
+                            }
+                        }));
+                    }
+                } catch (InterruptedException e) {
+                    //Closed while waiting for the consumer
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Throwable t) {
+                    producerError = t;
+                }
+                try {
+                    queue.put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "StreamingTransformProducer");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    private List<List<List<Writable>>> applySteps(List<List<List<Writable>>> batch) {
+        List<List<List<Writable>>> current = batch;
+        for (StreamingStep s : steps) {
+            List<List<List<Writable>>> next = new ArrayList<>(current.size());
+            for (List<List<Writable>> element : current) {
+                next.addAll(s.apply(element));
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed)
+            return false;
+        if (producer == null)
+            start();
+
+        while (!finished && (current == null || !current.hasNext())) {
+            Future<List<List<List<Writable>>>> f;
+            try {
+                f = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for transformed records", e);
+            }
+
+            if (f == END) {
+                finished = true;
+                if (producerError != null) {
+                    throw new RuntimeException("Error reading input records", producerError);
+                }
+                break;
+            }
+
+            try {
+                current = f.get().iterator();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for transformed records", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Error executing transform step", e.getCause());
+            }
+        }
+        return current != null && current.hasNext();
+    }
+
+    @Override
+    public List<List<Writable>> next() {
+        if (!hasNext())
+            throw new NoSuchElementException("No next element");
+        return current.next();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (producer != null) {
+            producer.interrupt();
+        }
+        for (Future<?> f : queue) {
+            f.cancel(true);
+        }
+        queue.clear();
+    }
+}
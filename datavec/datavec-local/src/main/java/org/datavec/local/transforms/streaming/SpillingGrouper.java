@@ -0,0 +1,204 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+
+package org.datavec.local.transforms.streaming;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.datavec.api.writable.Writable;
+import org.datavec.api.writable.WritableFactory;
+import org.nd4j.common.function.Function;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups records by key, for stateful operations (reductions, conversion to sequences) on data that may be larger
+ * than memory.<br>
+ * Records are hash partitioned by key. Once more than maxInMemoryRecords are buffered, all buffered records are
+ * appended to one file per partition. Groups are then read back one partition at a time, so only one partition
+ * (and not the full data set) needs to fit in memory.
+ */
+@Slf4j
+public class SpillingGrouper implements Closeable {
+
+    private final Function<List<Writable>, Object> keyFunction;
+    private final File spillDirectory;
+    private final long maxInMemoryRecords;
+
+    private final List<List<List<Writable>>> buffers;
+    private final long[] spilledCounts;
+    private final DataOutputStream[] outputs;
+    private File tempDir;
+    private long inMemoryRecords;
+    private long totalSpilled;
+
+    /**
+     * @param keyFunction        Function to get the key for a record
+     * @param spillDirectory     Directory to create the spill files in. If null: the system temporary directory
+     * @param numPartitions      Number of partitions (spill files)
+     * @param maxInMemoryRecords Maximum number of records to buffer in memory before spilling to disk
+     */
+    public SpillingGrouper(Function<List<Writable>, Object> keyFunction, File spillDirectory, int numPartitions,
+                           long maxInMemoryRecords) {
+        if (numPartitions <= 0)
+            throw new IllegalArgumentException("Number of partitions must be positive, got " + numPartitions);
+        this.keyFunction = keyFunction;
+        this.spillDirectory = spillDirectory;
+        this.maxInMemoryRecords = maxInMemoryRecords;
+        this.buffers = new ArrayList<>(numPartitions);
+        for (int i = 0; i < numPartitions; i++) {
+            buffers.add(new ArrayList<List<Writable>>());
+        }
+        this.spilledCounts = new long[numPartitions];
+        this.outputs = new DataOutputStream[numPartitions];
+    }
+
+    public int numPartitions() {
+        return buffers.size();
+    }
+
+    /**
+     * @return Total number of records written to disk so far
+     */
+    public long getNumSpilledRecords() {
+        return totalSpilled;
+    }
+
+    /**
+     * Add a record to the group for its key
+     */
+    public void add(List<Writable> record) throws IOException {
+        Object key = keyFunction.apply(record);
+        int p = Math.floorMod(key == null ? 0 : key.hashCode(), buffers.size());
+        buffers.get(p).add(record);
+        if (++inMemoryRecords > maxInMemoryRecords) {
+            spill();
+        }
+    }
+
+    /**
+     * Finish adding records. Must be called before reading any partition
+     */
+    public void finish() throws IOException {
+        for (int i = 0; i < outputs.length; i++) {
+            if (outputs[i] != null) {
+                outputs[i].close();
+                outputs[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Read all records for the given partition, grouped by key. The in-memory records for the partition are released.
+     *
+     * @param partition Partition index
+     * @return Records for each key in the partition
+     */
+    public Map<Object, List<List<Writable>>> readPartition(int partition) throws IOException {
+        Map<Object, List<List<Writable>>> out = new LinkedHashMap<>();
+        if (spilledCounts[partition] > 0) {
+            WritableFactory wf = WritableFactory.getInstance();
+            try (DataInputStream dis = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(partitionFile(partition))))) {
+                for (long i = 0; i < spilledCounts[partition]; i++) {
+                    int n = dis.readInt();
+                    List<Writable> record = new ArrayList<>(n);
+                    for (int j = 0; j < n; j++) {
+                        record.add(wf.readWithType(dis));
+                    }
+                    addToGroup(out, record);
+                }
+            }
+        }
+        List<List<Writable>> buffer = buffers.get(partition);
+        for (List<Writable> record : buffer) {
+            addToGroup(out, record);
+        }
+        buffers.set(partition, new ArrayList<List<Writable>>());
+        return out;
+    }
+
+    private void addToGroup(Map<Object, List<List<Writable>>> groups, List<Writable> record) {
+        Object key = keyFunction.apply(record);
+        List<List<Writable>> l = groups.get(key);
+        if (l == null) {
+            l = new ArrayList<>();
+            groups.put(key, l);
+        }
+        l.add(record);
+    }
+
+    protected void spill() throws IOException {
+        if (tempDir == null) {
+            File parent = spillDirectory != null ? spillDirectory : new File(System.getProperty("java.io.tmpdir"));
+            parent.mkdirs();
+            tempDir = Files.createTempDirectory(parent.toPath(), "datavec-spill").toFile();
+            log.info("Spilling records to disk for grouping: {}", tempDir.getAbsolutePath());
+        }
+
+        WritableFactory wf = WritableFactory.getInstance();
+        for (int i = 0; i < buffers.size(); i++) {
+            List<List<Writable>> buffer = buffers.get(i);
+            if (buffer.isEmpty())
+                continue;
+            if (outputs[i] == null) {
+                outputs[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partitionFile(i), true)));
+            }
+            for (List<Writable> record : buffer) {
+                outputs[i].writeInt(record.size());
+                for (Writable w : record) {
+                    wf.writeWithType(w, outputs[i]);
+                }
+            }
+            spilledCounts[i] += buffer.size();
+            totalSpilled += buffer.size();
+            buffer.clear();
+        }
+        inMemoryRecords = 0;
+    }
+
+    private File partitionFile(int partition) {
+        return new File(tempDir, "partition_" + partition + ".bin");
+    }
+
+    /**
+     * Release the buffered records, and delete any spill files
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            for (int i = 0; i < buffers.size(); i++) {
+                buffers.set(i, new ArrayList<List<Writable>>());
+            }
+            if (tempDir != null) {
+                FileUtils.deleteQuietly(tempDir);
+                tempDir = null;
+            }
+        }
+    }
+}
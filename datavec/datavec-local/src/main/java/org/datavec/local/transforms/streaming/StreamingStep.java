@@ -0,0 +1,40 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+
+package org.datavec.local.transforms.streaming;
+
+import org.datavec.api.writable.Writable;
+
+import java.util.List;
+
+/**
+ * A single stateless step of a streaming transform pipeline. Each element is a sequence; non-sequence records are
+ * represented as a sequence of length 1.
+ */
+public interface StreamingStep {
+
+    /**
+     * @param element Input element
+     * @return Output elements: empty if the element was filtered, or more than one if the element was split
+     */
+    List<List<List<Writable>>> apply(List<List<Writable>> element);
+
+}
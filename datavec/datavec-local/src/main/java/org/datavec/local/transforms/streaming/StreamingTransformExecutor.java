@@ -0,0 +1,436 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+
+package org.datavec.local.transforms.streaming;
+
+import lombok.Getter;
+import org.datavec.api.records.reader.RecordReader;
+import org.datavec.api.records.reader.SequenceRecordReader;
+import org.datavec.api.transform.DataAction;
+import org.datavec.api.transform.Transform;
+import org.datavec.api.transform.TransformProcess;
+import org.datavec.api.transform.filter.Filter;
+import org.datavec.api.transform.ops.IAggregableReduceOp;
+import org.datavec.api.transform.reduce.IAssociativeReducer;
+import org.datavec.api.transform.schema.SequenceSchema;
+import org.datavec.api.transform.sequence.ConvertToSequence;
+import org.datavec.api.writable.Writable;
+import org.datavec.local.transforms.LocalTransformExecutor;
+import org.datavec.local.transforms.reduce.MapToPairForReducerFunction;
+import org.datavec.local.transforms.sequence.ConvertToSequenceLengthOne;
+import org.datavec.local.transforms.sequence.LocalGroupToSequenceFunction;
+import org.datavec.local.transforms.sequence.LocalMapToPairByMultipleColumnsFunction;
+import org.datavec.local.transforms.sequence.LocalSequenceFilterFunction;
+import org.datavec.local.transforms.sequence.LocalSequenceTransformFunction;
+import org.datavec.local.transforms.transform.LocalTransformFunction;
+import org.datavec.local.transforms.transform.SequenceSplitFunction;
+import org.datavec.local.transforms.transform.filter.LocalFilterFunction;
+import org.nd4j.common.function.Function;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes a {@link TransformProcess} on the data from a {@link RecordReader} in a streaming fashion, without loading
+ * the full data set into memory (unlike {@link LocalTransformExecutor}) and without Spark.<br>
+ * <br>
+ * The TransformProcess is split into stages at each stateful operation (reductions, and conversion to sequences by
+ * key). Within a stage, the stateless operations (transforms, filters, sequence splits, conversion from sequences)
+ * are applied in parallel by a pool of worker threads, on batches of records. The order of the records is preserved.
+ * The number of batches in flight is bounded, so reading from the RecordReader is throttled (backpressure) if the
+ * consumer of the output is slower than the input.<br>
+ * Stateful operations group the records by key using a {@link SpillingGrouper}: records are hash partitioned by key
+ * and spilled to disk once more than {@link Builder#maxInMemoryRecords(long)} records are buffered. Groups are then
+ * processed one partition at a time. Note that the output order of grouped records (reductions, sequences) is not
+ * defined.<br>
+ * <br>
+ * {@link org.datavec.api.transform.rank.CalculateSortedRank} is not supported, as it requires a global sort.<br>
+ * See also {@link org.datavec.local.transforms.StreamingTransformProcessRecordReader} and
+ * {@link org.datavec.local.transforms.StreamingTransformProcessSequenceRecordReader} for using the output directly
+ * with RecordReaderDataSetIterator/SequenceRecordReaderDataSetIterator.
+ */
+@Getter
+public class StreamingTransformExecutor {
+
+    public static final int DEFAULT_BATCH_SIZE = 64;
+    public static final int DEFAULT_NUM_SPILL_PARTITIONS = 16;
+    public static final long DEFAULT_MAX_IN_MEMORY_RECORDS = 100_000;
+
+    private final int numWorkers;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final File spillDirectory;
+    private final int numSpillPartitions;
+    private final long maxInMemoryRecords;
+
+    protected StreamingTransformExecutor(Builder builder) {
+        this.numWorkers = builder.numWorkers;
+        this.batchSize = builder.batchSize;
+        this.queueCapacity = builder.queueCapacity > 0 ? builder.queueCapacity : 2 * builder.numWorkers;
+        this.spillDirectory = builder.spillDirectory;
+        this.numSpillPartitions = builder.numSpillPartitions;
+        this.maxInMemoryRecords = builder.maxInMemoryRecords;
+    }
+
+    /**
+     * Execute the specified TransformProcess on the data from the given RecordReader.<br>
+     * Note: this method can only be used if the TransformProcess returns non-sequence data. For TransformProcesses
+     * that return a sequence, use {@link #executeToSequence(RecordReader, TransformProcess)}
+     *
+     * @param input            Input data. Must be a {@link SequenceRecordReader} if the TransformProcess initial
+     *                         schema is a sequence schema
+     * @param transformProcess TransformProcess to execute
+     * @return Iterator over the processed data
+     */
+    public StreamingTransformIterator<List<Writable>> execute(RecordReader input, TransformProcess transformProcess) {
+        if (transformProcess.getFinalSchema() instanceof SequenceSchema) {
+            throw new IllegalStateException("Cannot return sequence data with this method");
+        }
+        return execute(input, transformProcess, new Function<List<List<Writable>>, List<Writable>>() {
+            @Override
+            public List<Writable> apply(List<List<Writable>> element) {
+                return element.get(0);
+            }
+        });
+    }
+
+    /**
+     * Execute the specified TransformProcess on the data from the given RecordReader.<br>
+     * Note: this method can only be used if the TransformProcess returns sequence data.
+     *
+     * @param input            Input data. Must be a {@link SequenceRecordReader} if the TransformProcess initial
+     *                         schema is a sequence schema
+     * @param transformProcess TransformProcess to execute
+     * @return Iterator over the processed (sequence) data
+     */
+    public StreamingTransformIterator<List<List<Writable>>> executeToSequence(RecordReader input,
+                                                                             TransformProcess transformProcess) {
+        if (!(transformProcess.getFinalSchema() instanceof SequenceSchema)) {
+            throw new IllegalStateException("Cannot return non-sequence data with this method");
+        }
+        return execute(input, transformProcess, new Function<List<List<Writable>>, List<List<Writable>>>() {
+            @Override
+            public List<List<Writable>> apply(List<List<Writable>> element) {
+                return element;
+            }
+        });
+    }
+
+    protected <T> StreamingTransformIterator<T> execute(RecordReader input, TransformProcess transformProcess,
+                                                        Function<List<List<Writable>>, T> outputFunction) {
+        boolean sequence = transformProcess.getInitialSchema() instanceof SequenceSchema;
+        if (sequence && !(input instanceof SequenceRecordReader)) {
+            throw new IllegalStateException("TransformProcess has a sequence initial schema: input must be a" +
+                    " SequenceRecordReader, got " + input.getClass().getName());
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(numWorkers, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "StreamingTransformWorker-" + count.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        List<Closeable> resources = new ArrayList<>();
+        try {
+            Iterator<List<List<Writable>>> current = source(input, sequence);
+            List<StreamingStep> steps = new ArrayList<>();
+            for (DataAction d : transformProcess.getActionList()) {
+                if (d.getTransform() != null) {
+                    steps.add(transformStep(d.getTransform(), sequence));
+                } else if (d.getFilter() != null) {
+                    steps.add(filterStep(d.getFilter(), sequence));
+                } else if (d.getConvertToSequence() != null) {
+                    ConvertToSequence cts = d.getConvertToSequence();
+                    if (sequence) {
+                        throw new IllegalStateException("Cannot execute ConvertToSequence operation: data is already a sequence");
+                    }
+                    if (cts.isSingleStepSequencesMode()) {
+                        steps.add(singleStepSequenceStep());
+                    } else {
+                        current = parallel(current, steps, workers, resources);
+                        steps = new ArrayList<>();
+                        current = group(current, convertToSequenceKey(cts),
+                                new LocalGroupToSequenceFunction(cts.getComparator()), resources);
+                    }
+                    sequence = true;
+                } else if (d.getConvertFromSequence() != null) {
+                    if (!sequence) {
+                        throw new IllegalStateException("Cannot execute ConvertFromSequence operation: current sequence is null");
+                    }
+                    steps.add(convertFromSequenceStep());
+                    sequence = false;
+                } else if (d.getSequenceSplit() != null) {
+                    if (!sequence) {
+                        throw new IllegalStateException("Error during execution of SequenceSplit: currentSequence is null");
+                    }
+                    final SequenceSplitFunction f = new SequenceSplitFunction(d.getSequenceSplit());
+                    steps.add(new StreamingStep() {
+                        @Override
+                        public List<List<List<Writable>>> apply(List<List<Writable>> element) {
+                            return f.call(element);
+                        }
+                    });
+                } else if (d.getReducer() != null) {
+                    if (sequence) {
+                        throw new IllegalStateException("Error during execution of reduction: current writables are null. "
+                                + "Trying to execute a reduce operation on a sequence?");
+                    }
+                    current = parallel(current, steps, workers, resources);
+                    steps = new ArrayList<>();
+                    current = group(current, reducerKey(d.getReducer()), reduceFunction(d.getReducer()), resources);
+                } else if (d.getCalculateSortedRank() != null) {
+                    throw new UnsupportedOperationException("CalculateSortedRank is not supported for streaming " +
+                            "execution, as it requires a global sort. Use LocalTransformExecutor instead");
+                } else {
+                    throw new RuntimeException("Unknown/not implemented action: " + d);
+                }
+            }
+            current = parallel(current, steps, workers, resources);
+
+            return new StreamingTransformIterator<>(current, outputFunction, resources, workers);
+        } catch (RuntimeException e) {
+            //Invalid TransformProcess: nothing has been started yet
+            workers.shutdownNow();
+            throw e;
+        }
+    }
+
+    private static Iterator<List<List<Writable>>> source(final RecordReader input, final boolean sequence) {
+        return new Iterator<List<List<Writable>>>() {
+            @Override
+            public boolean hasNext() {
+                return input.hasNext();
+            }
+
+            @Override
+            public List<List<Writable>> next() {
+                if (sequence) {
+                    return ((SequenceRecordReader) input).sequenceRecord();
+                }
+                return Collections.singletonList(input.next());
+            }
+        };
+    }
+
+    private Iterator<List<List<Writable>>> parallel(Iterator<List<List<Writable>>> upstream, List<StreamingStep> steps,
+                                                    ExecutorService workers, List<Closeable> resources) {
+        if (steps.isEmpty())
+            return upstream;
+        OrderedParallelIterator iter = new OrderedParallelIterator(upstream, steps, workers, batchSize, queueCapacity);
+        resources.add(iter);
+        return iter;
+    }
+
+    private Iterator<List<List<Writable>>> group(Iterator<List<List<Writable>>> upstream,
+                                                 Function<List<Writable>, Object> keyFunction,
+                                                 Function<List<List<Writable>>, List<List<Writable>>> groupFunction,
+                                                 List<Closeable> resources) {
+        SpillingGrouper grouper = new SpillingGrouper(keyFunction, spillDirectory, numSpillPartitions, maxInMemoryRecords);
+        GroupingIterator iter = new GroupingIterator(upstream, grouper, groupFunction);
+        resources.add(iter);
+        return iter;
+    }
+
+    private static StreamingStep transformStep(Transform t, boolean sequence) {
+        if (sequence) {
+            final LocalSequenceTransformFunction f = new LocalSequenceTransformFunction(t);
+            return new StreamingStep() {
+                @Override
+                public List<List<List<Writable>>> apply(List<List<Writable>> element) {
+                    return Collections.singletonList(f.apply(element));
+                }
+            };
+        }
+        final LocalTransformFunction f = new LocalTransformFunction(t);
+        return new StreamingStep() {
+            @Override
+            public List<List<List<Writable>>> apply(List<List<Writable>> element) {
+                List<Writable> out = f.apply(element.get(0));
+                if (LocalTransformExecutor.isTryCatch() && out.isEmpty()) {
+                    //Error logged in LocalTransformFunction - skip the record
+                    return Collections.emptyList();
+                }
+                return Collections.singletonList(Collections.singletonList(out));
+            }
+        };
+    }
+
+    private static StreamingStep filterStep(Filter filter, boolean sequence) {
+        if (sequence) {
+            final LocalSequenceFilterFunction f = new LocalSequenceFilterFunction(filter);
+            return new StreamingStep() {
+                @Override
+                public List<List<List<Writable>>> apply(List<List<Writable>> element) {
+                    return f.apply(element) ? Collections.singletonList(element) : Collections.<List<List<Writable>>>emptyList();
+                }
+            };
+        }
+        final LocalFilterFunction f = new LocalFilterFunction(filter);
+        return new StreamingStep() {
+            @Override
+            public List<List<List<Writable>>> apply(List<List<Writable>> element) {
+                return f.apply(element.get(0)) ? Collections.singletonList(element) : Collections.<List<List<Writable>>>emptyList();
+            }
+        };
+    }
+
+    private static StreamingStep singleStepSequenceStep() {
+        final ConvertToSequenceLengthOne f = new ConvertToSequenceLengthOne();
+        return new StreamingStep() {
+            @Override
+            public List<List<List<Writable>>> apply(List<List<Writable>> element) {
+                return Collections.singletonList(f.apply(element.get(0)));
+            }
+        };
+    }
+
+    private static StreamingStep convertFromSequenceStep() {
+        return new StreamingStep() {
+            @Override
+            public List<List<List<Writable>>> apply(List<List<Writable>> element) {
+                List<List<List<Writable>>> out = new ArrayList<>(element.size());
+                for (List<Writable> step : element) {
+                    out.add(Collections.singletonList(step));
+                }
+                return out;
+            }
+        };
+    }
+
+    private static Function<List<Writable>, Object> convertToSequenceKey(ConvertToSequence cts) {
+        int[] colIdxs = cts.getInputSchema().getIndexOfColumns(cts.getKeyColumns());
+        final LocalMapToPairByMultipleColumnsFunction f = new LocalMapToPairByMultipleColumnsFunction(colIdxs);
+        return new Function<List<Writable>, Object>() {
+            @Override
+            public Object apply(List<Writable> record) {
+                return f.apply(record).getFirst();
+            }
+        };
+    }
+
+    private static Function<List<Writable>, Object> reducerKey(IAssociativeReducer reducer) {
+        final MapToPairForReducerFunction f = new MapToPairForReducerFunction(reducer);
+        return new Function<List<Writable>, Object>() {
+            @Override
+            public Object apply(List<Writable> record) {
+                return f.apply(record).getFirst();
+            }
+        };
+    }
+
+    private static Function<List<List<Writable>>, List<List<Writable>>> reduceFunction(final IAssociativeReducer reducer) {
+        return new Function<List<List<Writable>>, List<List<Writable>>>() {
+            @Override
+            public List<List<Writable>> apply(List<List<Writable>> records) {
+                IAggregableReduceOp<List<Writable>, List<Writable>> op = reducer.aggregableReducer();
+                for (List<Writable> r : records) {
+                    op.accept(r);
+                }
+                return Collections.singletonList(op.get());
+            }
+        };
+    }
+
+    public static class Builder {
+        private int numWorkers = Runtime.getRuntime().availableProcessors();
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private int queueCapacity = -1;
+        private File spillDirectory;
+        private int numSpillPartitions = DEFAULT_NUM_SPILL_PARTITIONS;
+        private long maxInMemoryRecords = DEFAULT_MAX_IN_MEMORY_RECORDS;
+
+        /**
+         * @param numWorkers Number of threads to apply the stateless operations with. Defaults to the number of
+         *                   available processors
+         */
+        public Builder numWorkers(int numWorkers) {
+            if (numWorkers <= 0)
+                throw new IllegalArgumentException("Number of workers must be positive, got " + numWorkers);
+            this.numWorkers = numWorkers;
+            return this;
+        }
+
+        /**
+         * @param batchSize Number of records (or sequences) processed per task. Default: {@link StreamingTransformExecutor#DEFAULT_BATCH_SIZE}
+         */
+        public Builder batchSize(int batchSize) {
+            if (batchSize <= 0)
+                throw new IllegalArgumentException("Batch size must be positive, got " + batchSize);
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * @param queueCapacity Maximum number of batches in flight for each stage. Reading of the input is blocked
+         *                      once this many batches are waiting to be consumed. Default: 2 * numWorkers
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            if (queueCapacity <= 0)
+                throw new IllegalArgumentException("Queue capacity must be positive, got " + queueCapacity);
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * @param spillDirectory Directory for the temporary files used when grouping records for stateful operations.
+         *                       Default: the system temporary directory
+         */
+        public Builder spillDirectory(File spillDirectory) {
+            this.spillDirectory = spillDirectory;
+            return this;
+        }
+
+        /**
+         * @param numSpillPartitions Number of partitions (files) used when grouping records for stateful operations.
+         *                           Approximately 1/numSpillPartitions of the data must fit in memory.
+         *                           Default: {@link StreamingTransformExecutor#DEFAULT_NUM_SPILL_PARTITIONS}
+         */
+        public Builder numSpillPartitions(int numSpillPartitions) {
+            if (numSpillPartitions <= 0)
+                throw new IllegalArgumentException("Number of spill partitions must be positive, got " + numSpillPartitions);
+            this.numSpillPartitions = numSpillPartitions;
+            return this;
+        }
+
+        /**
+         * @param maxInMemoryRecords Maximum number of records buffered in memory by each stateful operation, before
+         *                           spilling to disk. Default: {@link StreamingTransformExecutor#DEFAULT_MAX_IN_MEMORY_RECORDS}
+         */
+        public Builder maxInMemoryRecords(long maxInMemoryRecords) {
+            this.maxInMemoryRecords = maxInMemoryRecords;
+            return this;
+        }
+
+        public StreamingTransformExecutor build() {
+            return new StreamingTransformExecutor(this);
+        }
+    }
+}
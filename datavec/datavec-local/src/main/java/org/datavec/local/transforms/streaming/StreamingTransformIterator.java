@@ -0,0 +1,99 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+
+package org.datavec.local.transforms.streaming;
+
+import lombok.extern.slf4j.Slf4j;
+import org.datavec.api.writable.Writable;
+import org.nd4j.common.function.Function;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Iterator over the output of a streaming TransformProcess execution - see {@link StreamingTransformExecutor}.<br>
+ * Worker threads and any spill files are released once the iterator is exhausted, or when {@link #close()} is called.
+ * Iterators that are not fully consumed should be closed.
+ *
+ * @param <T> Output type: {@code List<Writable>} for non-sequence data, or {@code List<List<Writable>>} for sequences
+ */
+@Slf4j
+public class StreamingTransformIterator<T> implements Iterator<T>, Closeable {
+
+    private final Iterator<List<List<Writable>>> iterator;
+    private final Function<List<List<Writable>>, T> outputFunction;
+    private final List<Closeable> resources;
+    private final ExecutorService workers;
+    private boolean closed;
+
+    public StreamingTransformIterator(Iterator<List<List<Writable>>> iterator,
+                                      Function<List<List<Writable>>, T> outputFunction,
+                                      List<Closeable> resources, ExecutorService workers) {
+        this.iterator = iterator;
+        this.outputFunction = outputFunction;
+        this.resources = resources;
+        this.workers = workers;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed)
+            return false;
+        boolean hasNext;
+        try {
+            hasNext = iterator.hasNext();
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+        if (!hasNext) {
+            close();
+        }
+        return hasNext;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext())
+            throw new NoSuchElementException("No next element");
+        return outputFunction.apply(iterator.next());
+    }
+
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        for (Closeable c : resources) {
+            try {
+                c.close();
+            } catch (Exception e) {
+                log.warn("Error releasing resources for streaming transform execution", e);
+            }
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,521 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.graph;
+
+import org.deeplearning4j.graph.api.BaseGraph;
+import org.deeplearning4j.graph.api.Edge;
+import org.deeplearning4j.graph.api.Vertex;
+import org.deeplearning4j.graph.data.EdgeLineProcessor;
+import org.deeplearning4j.graph.exception.NoEdgesException;
+import org.deeplearning4j.graph.vertexfactory.VertexFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Immutable graph stored in compressed sparse row (CSR) format: the outgoing edges of vertex i are
+ * {@code targets[offsets[i]]} to {@code targets[offsets[i+1]-1]}, with (for weighted graphs) one float weight per
+ * edge. Compared to {@link Graph}, there are no per-edge or per-vertex objects: a graph with E edges uses 4 bytes per
+ * edge (plus 12 for weighted graphs, including the alias tables), and the arrays may be allocated off-heap.<br>
+ * <br>
+ * Undirected edges are stored once in each direction. Multiple edges between the same pair of vertices are allowed.
+ * Edges returned by {@link #getEdgesOut(int)} are created on demand, as directed edges out of the specified vertex,
+ * with the edge weight (or null, for unweighted graphs) as the value.<br>
+ * <br>
+ * For weighted graphs, an alias table is built for each vertex, so that {@link #sampleWeightedConnectedVertex(int,
+ * Random)} samples a neighbour proportional to the edge weights in O(1), instead of O(degree).<br>
+ * Vertices are created on demand using the vertex factory.<br>
+ * <br>
+ * CSRGraphs are created using {@link Builder}, or loaded from an edge list file using
+ * {@link #load(String, EdgeLineProcessor, VertexFactory, int, boolean, boolean)}. CSRGraph is safe to use from
+ * multiple threads, such as in {@link org.deeplearning4j.graph.models.deepwalk.DeepWalk#fit(
+ * org.deeplearning4j.graph.iterator.parallel.GraphWalkIteratorProvider)}
+ */
+public class CSRGraph<V> extends BaseGraph<V, Double> {
+    private final int numVertices;
+    private final VertexFactory<V> vertexFactory;
+    private final boolean weighted;
+    private final boolean offHeap;
+
+    private final LongBuffer offsets;       //Length numVertices+1
+    private final IntBuffer targets;        //Length numEdges
+    private final FloatBuffer weights;      //Length numEdges; null if not weighted
+    private final FloatBuffer aliasProb;    //Length numEdges; null if not weighted
+    private final IntBuffer alias;          //Length numEdges, relative to the vertex offset; null if not weighted
+
+    //Number of edges added to each vertex so far - used only during construction
+    private int[] cursor;
+
+    protected CSRGraph(int numVertices, VertexFactory<V> vertexFactory, int[] outDegrees, boolean weighted,
+                    boolean offHeap) {
+        if (numVertices <= 0)
+            throw new IllegalArgumentException("Number of vertices must be positive, got " + numVertices);
+        this.numVertices = numVertices;
+        this.vertexFactory = vertexFactory;
+        this.weighted = weighted;
+        this.offHeap = offHeap;
+
+        this.offsets = allocateLong(numVertices + 1L, offHeap);
+        long sum = 0;
+        for (int i = 0; i < numVertices; i++) {
+            offsets.put(i, sum);
+            sum += outDegrees[i];
+        }
+        offsets.put(numVertices, sum);
+        if (sum > (offHeap ? Integer.MAX_VALUE / 4 : Integer.MAX_VALUE - 8))
+            throw new IllegalArgumentException("Too many edges for CSRGraph: " + sum);
+
+        this.targets = allocateInt(sum, offHeap);
+        this.weights = weighted ? allocateFloat(sum, offHeap) : null;
+        this.aliasProb = weighted ? allocateFloat(sum, offHeap) : null;
+        this.alias = weighted ? allocateInt(sum, offHeap) : null;
+        this.cursor = new int[numVertices];
+    }
+
+    /**
+     * Load a CSRGraph from an edge list file, using two passes over the file: the first to count the number of edges
+     * of each vertex, and the second to fill the CSR arrays. Hence no edge objects are retained during loading.
+     *
+     * @param path          Path to the file containing the edges, one per line
+     * @param lineProcessor EdgeLineProcessor used to convert lines of text into edges (or null for comment lines etc).
+     *                      For weighted graphs, edge values must be numbers (the edge weights)
+     * @param vertexFactory Used to create vertices
+     * @param numVertices   Number of vertices in the graph
+     * @param weighted      Whether to store the edge weights
+     * @param offHeap       Whether to store the CSR arrays off-heap
+     * @return CSRGraph
+     */
+    public static <V> CSRGraph<V> load(String path, EdgeLineProcessor<?> lineProcessor, VertexFactory<V> vertexFactory,
+                    int numVertices, boolean weighted, boolean offHeap) throws IOException {
+        int[] degrees = new int[numVertices];
+        try (BufferedReader br = new BufferedReader(new FileReader(new File(path)))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                Edge<?> edge = lineProcessor.processLine(line);
+                if (edge != null) {
+                    checkEdge(edge.getFrom(), edge.getTo(), numVertices);
+                    degrees[edge.getFrom()]++;
+                    if (!edge.isDirected())
+                        degrees[edge.getTo()]++;
+                }
+            }
+        }
+
+        CSRGraph<V> graph = new CSRGraph<>(numVertices, vertexFactory, degrees, weighted, offHeap);
+        try (BufferedReader br = new BufferedReader(new FileReader(new File(path)))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                Edge<?> edge = lineProcessor.processLine(line);
+                if (edge != null) {
+                    float w = weighted ? weightOf(edge) : 1.0f;
+                    graph.put(edge.getFrom(), edge.getTo(), w);
+                    if (!edge.isDirected())
+                        graph.put(edge.getTo(), edge.getFrom(), w);
+                }
+            }
+        }
+        graph.finish();
+        return graph;
+    }
+
+    @Override
+    public int numVertices() {
+        return numVertices;
+    }
+
+    /**
+     * @return Total number of stored edges. Undirected edges are counted twice (once in each direction)
+     */
+    public long numEdges() {
+        return offsets.get(numVertices);
+    }
+
+    /**
+     * @return Whether edge weights are stored (and weighted sampling is available)
+     */
+    public boolean isWeighted() {
+        return weighted;
+    }
+
+    /**
+     * @return Whether the CSR arrays are stored off-heap
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    @Override
+    public Vertex<V> getVertex(int idx) {
+        if (idx < 0 || idx >= numVertices)
+            throw new IllegalArgumentException("Invalid index: " + idx);
+        return vertexFactory.create(idx);
+    }
+
+    @Override
+    public List<Vertex<V>> getVertices(int[] indexes) {
+        List<Vertex<V>> out = new ArrayList<>(indexes.length);
+        for (int i : indexes)
+            out.add(getVertex(i));
+        return out;
+    }
+
+    @Override
+    public List<Vertex<V>> getVertices(int from, int to) {
+        if (to < from || from < 0 || to >= numVertices)
+            throw new IllegalArgumentException("Invalid range: from=" + from + ", to=" + to);
+        List<Vertex<V>> out = new ArrayList<>(to - from + 1);
+        for (int i = from; i <= to; i++)
+            out.add(getVertex(i));
+        return out;
+    }
+
+    /**
+     * Not supported: CSRGraph is immutable. Use {@link Builder} instead
+     */
+    @Override
+    public void addEdge(Edge<Double> edge) {
+        throw new UnsupportedOperationException("CSRGraph is immutable: use CSRGraph.Builder to add edges");
+    }
+
+    @Override
+    public List<Edge<Double>> getEdgesOut(int vertex) {
+        checkVertex(vertex);
+        int start = start(vertex);
+        int degree = getVertexDegree(vertex);
+        if (degree == 0)
+            return Collections.emptyList();
+        List<Edge<Double>> out = new ArrayList<>(degree);
+        for (int i = start; i < start + degree; i++) {
+            Double w = weighted ? (double) weights.get(i) : null;
+            out.add(new Edge<>(vertex, targets.get(i), w, true));
+        }
+        return out;
+    }
+
+    @Override
+    public int getVertexDegree(int vertex) {
+        return (int) (offsets.get(vertex + 1) - offsets.get(vertex));
+    }
+
+    @Override
+    public Vertex<V> getRandomConnectedVertex(int vertex, Random rng) throws NoEdgesException {
+        checkVertex(vertex);
+        int degree = getVertexDegree(vertex);
+        if (degree == 0)
+            throw new NoEdgesException("Cannot generate random connected vertex: vertex " + vertex
+                            + " has no outgoing/undirected edges");
+        return vertexFactory.create(targets.get(start(vertex) + rng.nextInt(degree)));
+    }
+
+    /**
+     * Randomly sample a vertex connected to the given vertex, with probability proportional to the edge weight, in
+     * O(1) time using the alias method. For unweighted graphs, sampling is uniform
+     * (as in {@link #getRandomConnectedVertex(int, Random)})
+     *
+     * @param vertex Vertex to randomly sample from
+     * @param rng    Random number generator to use
+     * @return Index of the sampled vertex
+     * @throws NoEdgesException If the specified vertex has no outgoing edges
+     */
+    public int sampleWeightedConnectedVertex(int vertex, Random rng) throws NoEdgesException {
+        checkVertex(vertex);
+        int degree = getVertexDegree(vertex);
+        if (degree == 0)
+            throw new NoEdgesException("Cannot generate random connected vertex: vertex " + vertex
+                            + " has no outgoing/undirected edges");
+        int start = start(vertex);
+        int k = rng.nextInt(degree);
+        if (!weighted || rng.nextFloat() < aliasProb.get(start + k))
+            return targets.get(start + k);
+        return targets.get(start + alias.get(start + k));
+    }
+
+    @Override
+    public List<Vertex<V>> getConnectedVertices(int vertex) {
+        int[] idxs = getConnectedVertexIndices(vertex);
+        List<Vertex<V>> list = new ArrayList<>(idxs.length);
+        for (int i : idxs)
+            list.add(vertexFactory.create(i));
+        return list;
+    }
+
+    @Override
+    public int[] getConnectedVertexIndices(int vertex) {
+        checkVertex(vertex);
+        int start = start(vertex);
+        int[] out = new int[getVertexDegree(vertex)];
+        for (int i = 0; i < out.length; i++)
+            out[i] = targets.get(start + i);
+        return out;
+    }
+
+    /**
+     * @param vertex Index of the vertex
+     * @return Weights of the outgoing edges of the vertex, in the same order as
+     * {@link #getConnectedVertexIndices(int)}. All 1.0 for unweighted graphs
+     */
+    public float[] getEdgeWeights(int vertex) {
+        checkVertex(vertex);
+        float[] out = new float[getVertexDegree(vertex)];
+        if (!weighted) {
+            Arrays.fill(out, 1.0f);
+            return out;
+        }
+        int start = start(vertex);
+        for (int i = 0; i < out.length; i++)
+            out[i] = weights.get(start + i);
+        return out;
+    }
+
+    private int start(int vertex) {
+        return (int) offsets.get(vertex);
+    }
+
+    private void checkVertex(int vertex) {
+        if (vertex < 0 || vertex >= numVertices)
+            throw new IllegalArgumentException("Invalid vertex index: " + vertex);
+    }
+
+    private void put(int from, int to, float weight) {
+        if (cursor == null)
+            throw new IllegalStateException("CSRGraph has already been built");
+        int idx = start(from) + cursor[from]++;
+        if (idx >= offsets.get(from + 1))
+            throw new IllegalStateException("More edges than expected for vertex " + from
+                            + " - edge source changed between passes?");
+        targets.put(idx, to);
+        if (weighted)
+            weights.put(idx, weight);
+    }
+
+    /**
+     * Build the alias tables (Vose's method) for all vertices, once all edges have been added
+     */
+    private void finish() {
+        for (int i = 0; i < numVertices; i++) {
+            if (cursor[i] != getVertexDegree(i))
+                throw new IllegalStateException("Fewer edges than expected for vertex " + i
+                                + " - edge source changed between passes?");
+        }
+        cursor = null;
+        if (!weighted)
+            return;
+
+        int maxDegree = 0;
+        for (int i = 0; i < numVertices; i++)
+            maxDegree = Math.max(maxDegree, getVertexDegree(i));
+        double[] p = new double[maxDegree];
+        int[] small = new int[maxDegree];
+        int[] large = new int[maxDegree];
+
+        for (int v = 0; v < numVertices; v++) {
+            int start = start(v);
+            int degree = getVertexDegree(v);
+            if (degree == 0)
+                continue;
+
+            double sum = 0;
+            for (int i = 0; i < degree; i++)
+                sum += weights.get(start + i);
+
+            int nSmall = 0;
+            int nLarge = 0;
+            for (int i = 0; i < degree; i++) {
+                p[i] = sum > 0 ? weights.get(start + i) * degree / sum : 1.0;
+                if (p[i] < 1.0)
+                    small[nSmall++] = i;
+                else
+                    large[nLarge++] = i;
+            }
+
+            while (nSmall > 0 && nLarge > 0) {
+                int s = small[--nSmall];
+                int l = large[--nLarge];
+                aliasProb.put(start + s, (float) p[s]);
+                alias.put(start + s, l);
+                p[l] = (p[l] + p[s]) - 1.0;
+                if (p[l] < 1.0)
+                    small[nSmall++] = l;
+                else
+                    large[nLarge++] = l;
+            }
+            //Remaining entries have probability 1 (up to numerical error)
+            while (nLarge > 0) {
+                int l = large[--nLarge];
+                aliasProb.put(start + l, 1.0f);
+                alias.put(start + l, l);
+            }
+            while (nSmall > 0) {
+                int s = small[--nSmall];
+                aliasProb.put(start + s, 1.0f);
+                alias.put(start + s, s);
+            }
+        }
+    }
+
+    private static void checkEdge(int from, int to, int numVertices) {
+        if (from < 0 || to < 0 || from >= numVertices || to >= numVertices)
+            throw new IllegalArgumentException("Invalid edge: " + from + " -> " + to + ", from/to indexes out of range"
+                            + " (number of vertices: " + numVertices + ")");
+    }
+
+    private static float weightOf(Edge<?> edge) {
+        if (!(edge.getValue() instanceof Number))
+            throw new IllegalArgumentException("Weighted CSRGraph requires numerical edge values (weights), got edge "
+                            + edge);
+        float w = ((Number) edge.getValue()).floatValue();
+        if (w < 0 || Float.isNaN(w))
+            throw new IllegalArgumentException("Edge weights must be non-negative, got edge " + edge);
+        return w;
+    }
+
+    private static LongBuffer allocateLong(long length, boolean offHeap) {
+        return offHeap ? ByteBuffer.allocateDirect((int) (length * 8)).order(ByteOrder.nativeOrder()).asLongBuffer()
+                        : LongBuffer.wrap(new long[(int) length]);
+    }
+
+    private static IntBuffer allocateInt(long length, boolean offHeap) {
+        return offHeap ? ByteBuffer.allocateDirect((int) (length * 4)).order(ByteOrder.nativeOrder()).asIntBuffer()
+                        : IntBuffer.wrap(new int[(int) length]);
+    }
+
+    private static FloatBuffer allocateFloat(long length, boolean offHeap) {
+        return offHeap ? ByteBuffer.allocateDirect((int) (length * 4)).order(ByteOrder.nativeOrder()).asFloatBuffer()
+                        : FloatBuffer.wrap(new float[(int) length]);
+    }
+
+    @Override
+    public String toString() {
+        return "CSRGraph(numVertices=" + numVertices + ",numEdges=" + numEdges() + ",weighted=" + weighted
+                        + ",offHeap=" + offHeap + ")";
+    }
+
+    /**
+     * Builder for CSRGraphs. Edges are buffered in primitive arrays (12 bytes per edge) until {@link #build()}
+     */
+    public static class Builder<V> {
+        private final int numVertices;
+        private final VertexFactory<V> vertexFactory;
+        private boolean weighted;
+        private boolean offHeap;
+
+        private int[] from = new int[1024];
+        private int[] to = new int[1024];
+        private float[] weight = new float[1024];
+        private boolean[] directed = new boolean[1024];
+        private int size;
+
+        /**
+         * @param numVertices   Number of vertices in the graph
+         * @param vertexFactory Used to create vertices
+         */
+        public Builder(int numVertices, VertexFactory<V> vertexFactory) {
+            this.numVertices = numVertices;
+            this.vertexFactory = vertexFactory;
+        }
+
+        /**
+         * Whether to store edge weights, for weighted random walks. Default: false
+         */
+        public Builder<V> weighted(boolean weighted) {
+            this.weighted = weighted;
+            return this;
+        }
+
+        /**
+         * Whether to store the CSR arrays off-heap (in direct byte buffers). Default: false
+         */
+        public Builder<V> offHeap(boolean offHeap) {
+            this.offHeap = offHeap;
+            return this;
+        }
+
+        public Builder<V> addEdge(int from, int to, double weight, boolean directed) {
+            checkEdge(from, to, numVertices);
+            if (weight < 0 || Double.isNaN(weight))
+                throw new IllegalArgumentException("Edge weights must be non-negative, got " + weight);
+            if (size == this.from.length) {
+                int newLength = (int) Math.min(Integer.MAX_VALUE - 8, 2L * size);
+                this.from = Arrays.copyOf(this.from, newLength);
+                this.to = Arrays.copyOf(this.to, newLength);
+                this.weight = Arrays.copyOf(this.weight, newLength);
+                this.directed = Arrays.copyOf(this.directed, newLength);
+            }
+            this.from[size] = from;
+            this.to[size] = to;
+            this.weight[size] = (float) weight;
+            this.directed[size] = directed;
+            size++;
+            return this;
+        }
+
+        /**
+         * Add an edge. For weighted graphs, the edge value must be a number (the edge weight)
+         */
+        public Builder<V> addEdge(Edge<?> edge) {
+            return addEdge(edge.getFrom(), edge.getTo(), weighted ? weightOf(edge) : 1.0, edge.isDirected());
+        }
+
+        /**
+         * Add all edges from the specified edge list file
+         *
+         * @param path          Path to the file containing the edges, one per line
+         * @param lineProcessor EdgeLineProcessor used to convert lines of text into edges
+         */
+        public Builder<V> addEdges(String path, EdgeLineProcessor<?> lineProcessor) throws IOException {
+            try (BufferedReader br = new BufferedReader(new FileReader(new File(path)))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    Edge<?> edge = lineProcessor.processLine(line);
+                    if (edge != null)
+                        addEdge(edge);
+                }
+            }
+            return this;
+        }
+
+        public CSRGraph<V> build() {
+            int[] degrees = new int[numVertices];
+            for (int i = 0; i < size; i++) {
+                degrees[from[i]]++;
+                if (!directed[i])
+                    degrees[to[i]]++;
+            }
+
+            CSRGraph<V> graph = new CSRGraph<>(numVertices, vertexFactory, degrees, weighted, offHeap);
+            for (int i = 0; i < size; i++) {
+                graph.put(from[i], to[i], weight[i]);
+                if (!directed[i])
+                    graph.put(to[i], from[i], weight[i]);
+            }
+            graph.finish();
+            return graph;
+        }
+    }
+}
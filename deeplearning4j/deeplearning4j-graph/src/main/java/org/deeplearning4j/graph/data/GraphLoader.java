@@ -20,6 +20,7 @@
 
 package org.deeplearning4j.graph.data;
 
+import org.deeplearning4j.graph.CSRGraph;
 import org.deeplearning4j.graph.api.Edge;
 import org.deeplearning4j.graph.api.Vertex;
 import org.deeplearning4j.graph.data.impl.DelimitedEdgeLineProcessor;
@@ -192,4 +193,21 @@ public class GraphLoader {
 
         return graph;
     }
+
+    /** Load a graph in compressed sparse row format (see {@link CSRGraph}), using a given EdgeLineProcessor.
+     * Assume one edge per line. The file is read twice, and no edge objects are retained - hence this is suitable
+     * for graphs too large to load using {@link #loadGraph(String, EdgeLineProcessor, VertexFactory, int, boolean)}
+     * @param path Path to the file containing the edges, one per line
+     * @param lineProcessor EdgeLineProcessor used to convert lines of text into a graph (or null for comment lines etc)
+     * @param vertexFactory Used to create vertices
+     * @param numVertices number of vertices in the graph
+     * @param weighted whether to store the edge weights. If true, edge values must be numbers
+     * @param offHeap whether to store the graph off-heap
+     * @return CSRGraph
+     */
+    public static <V> CSRGraph<V> loadCSRGraph(String path, EdgeLineProcessor<?> lineProcessor,
+                    VertexFactory<V> vertexFactory, int numVertices, boolean weighted, boolean offHeap)
+                    throws IOException {
+        return CSRGraph.load(path, lineProcessor, vertexFactory, numVertices, weighted, offHeap);
+    }
 }
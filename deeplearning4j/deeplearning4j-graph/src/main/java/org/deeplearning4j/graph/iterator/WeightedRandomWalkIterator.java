@@ -20,6 +20,7 @@
 
 package org.deeplearning4j.graph.iterator;
 
+import org.deeplearning4j.graph.CSRGraph;
 import org.deeplearning4j.graph.api.Edge;
 import org.deeplearning4j.graph.api.IGraph;
 import org.deeplearning4j.graph.api.IVertexSequence;
@@ -103,6 +104,9 @@ public class WeightedRandomWalkIterator<V> implements GraphWalkIterator<V> {
         if (walkLength == 0)
             return new VertexSequence<>(graph, indices);
 
+        if (graph instanceof CSRGraph)
+            return nextCSR((CSRGraph<V>) graph, currVertexIdx, indices);
+
         for (int i = 1; i <= walkLength; i++) {
             List<? extends Edge<? extends Number>> edgeList = graph.getEdgesOut(currVertexIdx);
 
@@ -152,6 +156,33 @@ public class WeightedRandomWalkIterator<V> implements GraphWalkIterator<V> {
         return new VertexSequence<>(graph, indices);
     }
 
+    /**
+     * Weighted random walk on a CSRGraph: O(1) per step using the alias tables of the graph, without creating
+     * any edge objects
+     */
+    private IVertexSequence<V> nextCSR(CSRGraph<V> csr, int currVertexIdx, int[] indices) {
+        for (int i = 1; i <= walkLength; i++) {
+            if (csr.getVertexDegree(currVertexIdx) == 0) {
+                switch (mode) {
+                    case SELF_LOOP_ON_DISCONNECTED:
+                        for (int j = i; j <= walkLength; j++)
+                            indices[j] = currVertexIdx;
+                        return new VertexSequence<>(graph, indices);
+                    case EXCEPTION_ON_DISCONNECTED:
+                        throw new NoEdgesException("Cannot conduct random walk: vertex " + currVertexIdx
+                                        + " has no outgoing edges. "
+                                        + " Set NoEdgeHandling mode to NoEdgeHandlingMode.SELF_LOOP_ON_DISCONNECTED to self loop instead of "
+                                        + "throwing an exception in this situation.");
+                    default:
+                        throw new RuntimeException("Unknown/not implemented NoEdgeHandling mode: " + mode);
+                }
+            }
+            currVertexIdx = csr.sampleWeightedConnectedVertex(currVertexIdx, rng);
+            indices[i] = currVertexIdx;
+        }
+        return new VertexSequence<>(graph, indices);
+    }
+
     @Override
     public boolean hasNext() {
         return position < order.length;
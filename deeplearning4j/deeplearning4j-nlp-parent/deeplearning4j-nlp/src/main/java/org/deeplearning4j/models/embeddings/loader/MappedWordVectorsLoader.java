@@ -0,0 +1,729 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+
+package org.deeplearning4j.models.embeddings.loader;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.javacpp.FloatPointer;
+import org.deeplearning4j.models.embeddings.WeightLookupTable;
+import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
+import org.deeplearning4j.models.embeddings.learning.impl.elements.SkipGram;
+import org.deeplearning4j.models.embeddings.wordvectors.WordVectors;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.Word2Vec;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+import org.deeplearning4j.models.word2vec.wordstore.inmemory.ReadOnlyVocabCache;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.concurrency.AffinityManager;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fast, multi-threaded loader for pretrained word vectors. Compared to {@link WordVectorSerializer#readBinaryModel(InputStream, boolean, boolean)}
+ * and {@link WordVectorSerializer#loadTxt(File)}:
+ * <ul>
+ *     <li>The file is memory mapped, instead of being read through a stream</li>
+ *     <li>Vectors are parsed by multiple threads, directly into one pre-allocated off-heap syn0 array</li>
+ *     <li>The vocabulary is a {@link ReadOnlyVocabCache}: a label array plus a primitive open-addressing index,
+ *     instead of one VocabWord and several map entries per word</li>
+ * </ul>
+ * Supported formats:
+ * <ul>
+ *     <li>Google binary format (as used by GoogleNews-vectors-negative300.bin): {@link #loadBinary(File)}.
+ *     Only uncompressed files can be memory mapped</li>
+ *     <li>Word2vec text format, with or without header line: {@link #loadText(File)}. Words encoded by
+ *     {@link WordVectorSerializer.ReadHelper#encodeB64(String)} are decoded</li>
+ *     <li>Native format, written by {@link #writeNative(WordVectors, File)} or {@link #convertToNative(File, boolean, File)}:
+ *     {@link #loadNative(File)}. Vectors are stored as raw little-endian floats, so loading them is a bulk
+ *     copy from the mapped file into syn0, with no parsing at all</li>
+ * </ul>
+ * Loaded models contain syn0 only (no syn1/Huffman tree), and can't be trained further.
+ */
+@Slf4j
+public class MappedWordVectorsLoader {
+
+    /** "DL4JWV01" */
+    public static final long NATIVE_MAGIC = 0x444C344A57563031L;
+    public static final int NATIVE_VERSION = 1;
+    private static final int NATIVE_HEADER_SIZE = 64;
+
+    private MappedWordVectorsLoader() {
+    }
+
+    private static int defaultThreads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Load a model in Google binary format, using all available processors
+     *
+     * @param file Uncompressed model file
+     * @return Word2Vec model
+     */
+    public static Word2Vec loadBinary(@NonNull File file) {
+        return loadBinary(file, defaultThreads());
+    }
+
+    /**
+     * Load a model in Google binary format: a "numWords vectorLength" header line, followed by (word, space,
+     * vectorLength little-endian floats) records, optionally separated by line breaks.<br>
+     * Record boundaries can't be found in parallel, as the float bytes may contain any value, so the records are
+     * first located by a single thread that only reads the word bytes. Labels and vectors are then decoded in parallel.
+     *
+     * @param file       Uncompressed model file
+     * @param numThreads Number of threads to use
+     * @return Word2Vec model
+     */
+    public static Word2Vec loadBinary(@NonNull File file, int numThreads) {
+        try (MappedBytes bytes = new MappedBytes(file)) {
+            long pos = 0;
+            int eol = bytes.indexOf(pos, (byte) '\n');
+            if (eol < 0)
+                throw new IllegalStateException("Invalid binary model file: no header line in file " + file.getAbsolutePath());
+            String[] header = bytes.string(pos, eol).trim().split("\\s+");
+            if (header.length < 2)
+                throw new IllegalStateException("Invalid binary model header: \"" + bytes.string(pos, eol) + "\"");
+            final int numWords = Integer.parseInt(header[0]);
+            final int vectorLength = Integer.parseInt(header[1]);
+            pos += eol + 1;
+
+            WordVectorSerializer.printOutProjectedMemoryUse(numWords, vectorLength, 1);
+
+            final long[] wordStart = new long[numWords];
+            final int[] wordLength = new int[numWords];
+            final long recordBytes = 4L * vectorLength;
+            for (int i = 0; i < numWords; i++) {
+                while (pos < bytes.length() && (bytes.get(pos) == '\n' || bytes.get(pos) == '\r'))
+                    pos++;
+                int len = bytes.indexOf(pos, (byte) ' ');
+                if (len < 0)
+                    throw new IllegalStateException("Invalid binary model file: unable to find end of word " + i + " of " + numWords);
+                wordStart[i] = pos;
+                wordLength[i] = len;
+                pos += len + 1 + recordBytes;
+                if (pos > bytes.length())
+                    throw new IllegalStateException("Invalid binary model file: file ends within vector " + i + " of " + numWords);
+            }
+
+            final INDArray syn0 = Nd4j.create(DataType.FLOAT, numWords, vectorLength);
+            final String[] labels = new String[numWords];
+            final MappedBytes src = bytes;
+            parallel(numThreads, numWords, new RangeTask() {
+                @Override
+                public void run(int from, int to) {
+                    FloatPointer dst = new FloatPointer(syn0.data().pointer());
+                    float[] row = new float[vectorLength];
+                    for (int i = from; i < to; i++) {
+                        labels[i] = src.string(wordStart[i], wordLength[i]);
+                        src.floats(wordStart[i] + wordLength[i] + 1).get(row);
+                        dst.position((long) i * vectorLength).put(row, 0, vectorLength);
+                    }
+                }
+            });
+
+            return build(syn0, new ReadOnlyVocabCache(labels));
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to load binary model from file " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Load a model in text format, using all available processors
+     *
+     * @param file Uncompressed model file
+     * @return Word2Vec model
+     */
+    public static Word2Vec loadText(@NonNull File file) {
+        return loadText(file, defaultThreads());
+    }
+
+    /**
+     * Load a model in text format: one "word value value ..." line per word, optionally preceded by a
+     * "numWords vectorLength [numDocs]" header line. The file is split into one byte range per thread at line
+     * boundaries; each thread first counts the lines in its range, then parses them into its rows of syn0.
+     *
+     * @param file       Uncompressed model file
+     * @param numThreads Number of threads to use
+     * @return Word2Vec model
+     */
+    public static Word2Vec loadText(@NonNull File file, int numThreads) {
+        try (final MappedBytes bytes = new MappedBytes(file)) {
+            long start = 0;
+            long numDocs = 0;
+            int firstLineLength = bytes.indexOf(0, (byte) '\n');
+            String firstLine = bytes.string(0, firstLineLength < 0 ? (int) Math.min(bytes.length(), 1024) : firstLineLength).trim();
+            String[] headerTokens = firstLine.split("\\s+");
+            if (isHeader(headerTokens)) {
+                if (headerTokens.length == 3)
+                    numDocs = Long.parseLong(headerTokens[2]);
+                start = firstLineLength < 0 ? bytes.length() : firstLineLength + 1;
+            }
+
+            numThreads = Math.max(1, numThreads);
+            final long[] rangeStart = new long[numThreads + 1];
+            rangeStart[0] = start;
+            rangeStart[numThreads] = bytes.length();
+            for (int t = 1; t < numThreads; t++) {
+                long p = Math.max(rangeStart[t - 1], start + (bytes.length() - start) * t / numThreads);
+                // each range starts at the beginning of a line
+                while (p < bytes.length() && p > start && bytes.get(p - 1) != '\n')
+                    p++;
+                rangeStart[t] = p;
+            }
+
+            final int[] linesPerRange = new int[numThreads];
+            parallel(numThreads, numThreads, new RangeTask() {
+                @Override
+                public void run(int from, int to) {
+                    for (int t = from; t < to; t++) {
+                        int count = 0;
+                        long p = rangeStart[t];
+                        while (p < rangeStart[t + 1]) {
+                            long end = lineEnd(bytes, p, rangeStart[t + 1]);
+                            if (!isBlank(bytes, p, end))
+                                count++;
+                            p = end + 1;
+                        }
+                        linesPerRange[t] = count;
+                    }
+                }
+            });
+
+            final int[] firstRow = new int[numThreads + 1];
+            for (int t = 0; t < numThreads; t++)
+                firstRow[t + 1] = firstRow[t] + linesPerRange[t];
+            int numWords = firstRow[numThreads];
+            if (numWords == 0)
+                throw new IllegalStateException("No word vectors found in file " + file.getAbsolutePath());
+
+            // vector length is derived from the first line, header values are not required to be accurate
+            long p = start;
+            while (isBlank(bytes, p, lineEnd(bytes, p, bytes.length())))
+                p = lineEnd(bytes, p, bytes.length()) + 1;
+            final int vectorLength = countValues(bytes, p, lineEnd(bytes, p, bytes.length()));
+            if (vectorLength == 0)
+                throw new IllegalStateException("Invalid text model file: no values in first line of file " + file.getAbsolutePath());
+
+            WordVectorSerializer.printOutProjectedMemoryUse(numWords, vectorLength, 1);
+
+            final INDArray syn0 = Nd4j.create(DataType.FLOAT, numWords, vectorLength);
+            final String[] labels = new String[numWords];
+            parallel(numThreads, numThreads, new RangeTask() {
+                @Override
+                public void run(int from, int to) {
+                    FloatPointer dst = new FloatPointer(syn0.data().pointer());
+                    float[] row = new float[vectorLength];
+                    for (int t = from; t < to; t++) {
+                        int r = firstRow[t];
+                        long p = rangeStart[t];
+                        while (p < rangeStart[t + 1]) {
+                            long end = lineEnd(bytes, p, rangeStart[t + 1]);
+                            if (!isBlank(bytes, p, end)) {
+                                labels[r] = parseLine(bytes, p, end, row, r);
+                                dst.position((long) r * vectorLength).put(row, 0, vectorLength);
+                                r++;
+                            }
+                            p = end + 1;
+                        }
+                    }
+                }
+            });
+
+            return build(syn0, new ReadOnlyVocabCache(labels, numDocs));
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to load text model from file " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Load a model in native format, using all available processors
+     *
+     * @param file Model file, as written by {@link #writeNative(WordVectors, File)}
+     * @return Word2Vec model
+     */
+    public static Word2Vec loadNative(@NonNull File file) {
+        return loadNative(file, defaultThreads());
+    }
+
+    /**
+     * Load a model in native format, as written by {@link #writeNative(WordVectors, File)}
+     *
+     * @param file       Model file
+     * @param numThreads Number of threads to use for copying the vectors
+     * @return Word2Vec model
+     */
+    public static Word2Vec loadNative(@NonNull File file, int numThreads) {
+        try (final MappedBytes bytes = new MappedBytes(file)) {
+            if (bytes.length() < NATIVE_HEADER_SIZE || bytes.slice(0, NATIVE_HEADER_SIZE).getLong(0) != NATIVE_MAGIC)
+                throw new IllegalStateException("File " + file.getAbsolutePath() + " is not a word vectors file in native format");
+            ByteBuffer header = bytes.slice(0, NATIVE_HEADER_SIZE);
+            int version = header.getInt(8);
+            if (version != NATIVE_VERSION)
+                throw new IllegalStateException("Unsupported native word vectors format version: " + version);
+            final int numWords = header.getInt(12);
+            final int vectorLength = header.getInt(16);
+            final long vectorsOffset = header.getLong(24);
+            final long labelsOffset = header.getLong(32);
+            long numDocs = header.getLong(40);
+
+            // labels: numWords + 1 offsets, followed by UTF-8 bytes of all labels
+            final long labelBytesOffset = labelsOffset + 4L * (numWords + 1);
+            final int[] labelOffsets = new int[numWords + 1];
+            int intsPerRead = MappedBytes.OVERLAP / 4;
+            for (int i = 0; i <= numWords; i += intsPerRead) {
+                int n = Math.min(intsPerRead, numWords + 1 - i);
+                bytes.slice(labelsOffset + 4L * i, 4 * n).asIntBuffer().get(labelOffsets, i, n);
+            }
+
+            final INDArray syn0 = Nd4j.create(DataType.FLOAT, numWords, vectorLength);
+            final String[] labels = new String[numWords];
+            final int rowsPerCopy = Math.max(1, MappedBytes.OVERLAP / 4 / Math.max(1, vectorLength));
+            parallel(numThreads, numWords, new RangeTask() {
+                @Override
+                public void run(int from, int to) {
+                    FloatPointer dst = new FloatPointer(syn0.data().pointer());
+                    float[] block = new float[Math.min(rowsPerCopy, to - from) * vectorLength];
+                    for (int i = from; i < to; i += rowsPerCopy) {
+                        int rows = Math.min(rowsPerCopy, to - i);
+                        int length = rows * vectorLength;
+                        bytes.floats(vectorsOffset + 4L * i * vectorLength).get(block, 0, length);
+                        dst.position((long) i * vectorLength).put(block, 0, length);
+                    }
+
+                    for (int i = from; i < to; i++)
+                        labels[i] = bytes.string(labelBytesOffset + labelOffsets[i], labelOffsets[i + 1] - labelOffsets[i]);
+                }
+            });
+
+            return build(syn0, new ReadOnlyVocabCache(labels, numDocs));
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to load native model from file " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * @param file File to check
+     * @return True if the file starts with the native format magic number
+     */
+    public static boolean isNativeFormat(@NonNull File file) {
+        if (!file.isFile() || file.length() < NATIVE_HEADER_SIZE)
+            return false;
+        try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
+            byte[] magic = new byte[8];
+            dis.readFully(magic);
+            return ByteBuffer.wrap(magic).order(ByteOrder.LITTLE_ENDIAN).getLong() == NATIVE_MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Convert a model in Google binary or text format to native format
+     *
+     * @param source Model file in Google binary or text format
+     * @param binary True if the source is in Google binary format, false for text format
+     * @param target File to write the model to, in native format
+     */
+    public static void convertToNative(@NonNull File source, boolean binary, @NonNull File target) {
+        Word2Vec vectors = binary ? loadBinary(source) : loadText(source);
+        writeNative(vectors, target);
+    }
+
+    /**
+     * Write the word vectors (syn0 and labels) in native format, that can be loaded by {@link #loadNative(File)}.<br>
+     * Layout, all values little-endian: 64 byte header (magic, version, numWords, vectorLength, vectors offset,
+     * labels offset, number of documents), numWords x vectorLength floats (row major), numWords + 1 int offsets of
+     * the labels, and the UTF-8 bytes of all labels.
+     *
+     * @param vectors Word vectors to write
+     * @param file    File to write to
+     */
+    public static void writeNative(@NonNull WordVectors vectors, @NonNull File file) {
+        WeightLookupTable<?> lookupTable = vectors.lookupTable();
+        VocabCache<?> vocab = vectors.vocab();
+        INDArray syn0 = lookupTable.getWeights();
+        int numWords = vocab.numWords();
+        int vectorLength = (int) syn0.columns();
+        if (syn0.rows() < numWords)
+            throw new IllegalStateException("Number of rows in syn0 (" + syn0.rows() + ") is less than number of words (" + numWords + ")");
+
+        long vectorsOffset = NATIVE_HEADER_SIZE;
+        long labelsOffset = vectorsOffset + 4L * numWords * vectorLength;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(NATIVE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putLong(NATIVE_MAGIC).putInt(NATIVE_VERSION).putInt(numWords).putInt(vectorLength).putInt(0)
+                    .putLong(vectorsOffset).putLong(labelsOffset).putLong(vocab.totalNumberOfDocs());
+            header.rewind();
+            writeFully(channel, header);
+
+            int rowsPerBlock = Math.max(1, (1 << 22) / Math.max(1, vectorLength));
+            ByteBuffer buffer = ByteBuffer.allocateDirect(4 * rowsPerBlock * vectorLength).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < numWords; i += rowsPerBlock) {
+                int rows = Math.min(rowsPerBlock, numWords - i);
+                float[] data = syn0.get(NDArrayIndex.interval(i, i + rows), NDArrayIndex.all())
+                        .castTo(DataType.FLOAT).dup('c').data().asFloat();
+                buffer.clear();
+                buffer.asFloatBuffer().put(data, 0, rows * vectorLength);
+                buffer.limit(4 * rows * vectorLength);
+                writeFully(channel, buffer);
+            }
+
+            byte[][] labelBytes = new byte[numWords][];
+            ByteBuffer offsets = ByteBuffer.allocate(4 * (numWords + 1)).order(ByteOrder.LITTLE_ENDIAN);
+            long offset = 0;
+            offsets.putInt(0);
+            for (int i = 0; i < numWords; i++) {
+                labelBytes[i] = vocab.wordAtIndex(i).getBytes(StandardCharsets.UTF_8);
+                offset += labelBytes[i].length;
+                if (offset > Integer.MAX_VALUE)
+                    throw new IllegalStateException("Total size of labels exceeds 2GB");
+                offsets.putInt((int) offset);
+            }
+            offsets.rewind();
+            writeFully(channel, offsets);
+
+            ByteBuffer labelBuffer = ByteBuffer.allocate(1 << 16);
+            for (byte[] b : labelBytes) {
+                if (labelBuffer.remaining() < b.length) {
+                    labelBuffer.flip();
+                    writeFully(channel, labelBuffer);
+                    labelBuffer = ByteBuffer.allocate(Math.max(1 << 16, b.length));
+                }
+                labelBuffer.put(b);
+            }
+            labelBuffer.flip();
+            writeFully(channel, labelBuffer);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write native model to file " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    private static Word2Vec build(INDArray syn0, ReadOnlyVocabCache cache) {
+        Nd4j.getAffinityManager().tagLocation(syn0, AffinityManager.Location.HOST);
+
+        InMemoryLookupTable<VocabWord> lookupTable = new InMemoryLookupTable.Builder<VocabWord>()
+                .cache(cache)
+                .useHierarchicSoftmax(false)
+                .vectorLength((int) syn0.columns())
+                .build();
+        lookupTable.setSyn0(syn0);
+
+        Word2Vec ret = new Word2Vec
+                .Builder()
+                .useHierarchicSoftmax(false)
+                .resetModel(false)
+                .layerSize(syn0.columns())
+                .allowParallelTokenization(true)
+                .elementsLearningAlgorithm(new SkipGram<VocabWord>())
+                .learningRate(0.025)
+                .windowSize(5)
+                .workers(1)
+                .build();
+
+        ret.setVocab(cache);
+        ret.setLookupTable(lookupTable);
+        return ret;
+    }
+
+    private static boolean isHeader(String[] tokens) {
+        if (tokens.length < 2 || tokens.length > 3)
+            return false;
+        for (String t : tokens) {
+            for (int i = 0; i < t.length(); i++) {
+                if (!Character.isDigit(t.charAt(i)))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private static long lineEnd(MappedBytes bytes, long from, long limit) {
+        long p = from;
+        while (p < limit && bytes.get(p) != '\n')
+            p++;
+        return p;
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static boolean isBlank(MappedBytes bytes, long from, long to) {
+        for (long p = from; p < to; p++) {
+            if (!isSeparator(bytes.get(p)))
+                return false;
+        }
+        return true;
+    }
+
+    private static int countValues(MappedBytes bytes, long from, long to) {
+        int tokens = 0;
+        boolean inToken = false;
+        for (long p = from; p < to; p++) {
+            boolean sep = isSeparator(bytes.get(p));
+            if (!sep && !inToken)
+                tokens++;
+            inToken = !sep;
+        }
+        return tokens - 1;
+    }
+
+    /**
+     * Parse one "word value value ..." line into the row buffer
+     *
+     * @return decoded word
+     */
+    private static String parseLine(MappedBytes bytes, long from, long to, float[] row, int rowIdx) {
+        long p = from;
+        while (p < to && isSeparator(bytes.get(p)))
+            p++;
+        long wordStart = p;
+        while (p < to && !isSeparator(bytes.get(p)))
+            p++;
+        String word = WordVectorSerializer.ReadHelper.decodeB64(bytes.string(wordStart, (int) (p - wordStart)));
+
+        int n = 0;
+        while (true) {
+            while (p < to && isSeparator(bytes.get(p)))
+                p++;
+            if (p >= to)
+                break;
+            long tokenStart = p;
+            while (p < to && !isSeparator(bytes.get(p)))
+                p++;
+            if (n >= row.length)
+                throw new IllegalStateException("Invalid text model file: line " + rowIdx + " (word \"" + word + "\") has more than " + row.length + " values");
+            row[n++] = parseFloat(bytes, tokenStart, p);
+        }
+        if (n != row.length)
+            throw new IllegalStateException("Invalid text model file: line " + rowIdx + " (word \"" + word + "\") has " + n + " values, expected " + row.length);
+        return word;
+    }
+
+    private static final double[] POW10 = new double[23];
+    static {
+        POW10[0] = 1.0;
+        for (int i = 1; i < POW10.length; i++)
+            POW10[i] = POW10[i - 1] * 10.0;
+    }
+
+    /**
+     * Parse a float without creating a String. Plain decimal values with up to 15 significant digits (and small
+     * exponents) are exact in double precision; anything else falls back to {@link Float#parseFloat(String)}
+     */
+    static float parseFloat(MappedBytes bytes, long from, long to) {
+        long p = from;
+        boolean negative = false;
+        byte b = bytes.get(p);
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            p++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean anyDigit = false;
+        while (p < to && (b = bytes.get(p)) >= '0' && b <= '9') {
+            if (mantissa != 0 || b != '0')
+                digits++;
+            mantissa = mantissa * 10 + (b - '0');
+            anyDigit = true;
+            p++;
+        }
+        if (p < to && bytes.get(p) == '.') {
+            p++;
+            while (p < to && (b = bytes.get(p)) >= '0' && b <= '9') {
+                if (mantissa != 0 || b != '0')
+                    digits++;
+                mantissa = mantissa * 10 + (b - '0');
+                scale--;
+                anyDigit = true;
+                p++;
+            }
+        }
+        if (anyDigit && p < to && ((b = bytes.get(p)) == 'e' || b == 'E')) {
+            p++;
+            boolean negExp = false;
+            if (p < to && ((b = bytes.get(p)) == '-' || b == '+')) {
+                negExp = b == '-';
+                p++;
+            }
+            int exp = 0;
+            boolean anyExpDigit = false;
+            while (p < to && (b = bytes.get(p)) >= '0' && b <= '9' && exp < 10000) {
+                exp = exp * 10 + (b - '0');
+                anyExpDigit = true;
+                p++;
+            }
+            if (!anyExpDigit)
+                anyDigit = false;
+            scale += negExp ? -exp : exp;
+        }
+
+        if (!anyDigit || p != to || digits > 15 || scale < -22 || scale > 22) {
+            return Float.parseFloat(bytes.string(from, (int) (to - from)));
+        }
+
+        double value = scale < 0 ? mantissa / POW10[-scale] : mantissa * POW10[scale];
+        return (float) (negative ? -value : value);
+    }
+
+    private interface RangeTask {
+        void run(int from, int to);
+    }
+
+    private static void parallel(int numThreads, int numItems, final RangeTask task) {
+        numThreads = Math.max(1, Math.min(numThreads, numItems));
+        if (numThreads == 1) {
+            task.run(0, numItems);
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(numThreads);
+            for (int t = 0; t < numThreads; t++) {
+                final int from = (int) ((long) numItems * t / numThreads);
+                final int to = (int) ((long) numItems * (t + 1) / numThreads);
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        task.run(from, to);
+                    }
+                }));
+            }
+            for (Future<?> f : futures)
+                f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Read-only memory mapping of a whole file, including files larger than 2GB. The file is mapped as a sequence of
+     * 1GB chunks, each extended by {@link #OVERLAP} bytes into the next chunk, so that any range of up to OVERLAP bytes
+     * can be accessed as a single ByteBuffer.
+     */
+    static class MappedBytes implements Closeable {
+        static final long CHUNK = 1L << 30;
+        static final int OVERLAP = 1 << 24;
+
+        private final FileChannel channel;
+        private final MappedByteBuffer[] chunks;
+        private final long length;
+
+        MappedBytes(File file) throws IOException {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            this.length = channel.size();
+            int numChunks = (int) Math.max(1, (length + CHUNK - 1) / CHUNK);
+            this.chunks = new MappedByteBuffer[numChunks];
+            for (int i = 0; i < numChunks; i++) {
+                long start = i * CHUNK;
+                long size = Math.min(length - start, CHUNK + OVERLAP);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0, size));
+            }
+        }
+
+        long length() {
+            return length;
+        }
+
+        byte get(long pos) {
+            return chunks[(int) (pos / CHUNK)].get((int) (pos % CHUNK));
+        }
+
+        /**
+         * @return Little-endian ByteBuffer of the given range, with position 0
+         */
+        ByteBuffer slice(long pos, int len) {
+            if (len > OVERLAP)
+                throw new IllegalStateException("Range of " + len + " bytes exceeds maximum of " + OVERLAP + " bytes");
+            int chunk = (int) (pos / CHUNK);
+            ByteBuffer b = chunks[chunk].duplicate();
+            int start = (int) (pos % CHUNK);
+            b.limit(Math.min(b.capacity(), start + len));
+            b.position(start);
+            return b.slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * @return Little-endian float view starting at the given position, covering up to OVERLAP bytes
+         */
+        FloatBuffer floats(long pos) {
+            return slice(pos, (int) Math.min(OVERLAP, length - pos)).asFloatBuffer();
+        }
+
+        String string(long pos, int len) {
+            byte[] b = new byte[len];
+            slice(pos, len).get(b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return Offset of the first occurrence of the byte, relative to pos, or -1 if not found within OVERLAP bytes
+         */
+        int indexOf(long pos, byte value) {
+            long end = Math.min(length, pos + OVERLAP);
+            for (long p = pos; p < end; p++) {
+                if (get(p) == value)
+                    return (int) (p - pos);
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -165,6 +165,7 @@ public class WordVectorSerializer {
 
     /**
      * Read a binary word2vec from input stream.
+     * For large uncompressed files, {@link MappedWordVectorsLoader#loadBinary(File)} is considerably faster.
      *
      * @param inputStream  input stream to read
      * @param linebreaks  if true, the reader expects each word/vector to be in a separate line, terminated
@@ -1579,6 +1580,7 @@ public class WordVectorSerializer {
 
     /**
      * Loads an in memory cache from the given input stream (sets syn0 and the vocab).
+     * For large uncompressed files, {@link MappedWordVectorsLoader#loadText(File)} is considerably faster.
      *
      * @param inputStream  input stream
      * @return a {@link Pair} holding the lookup table and the vocab cache.
@@ -2297,6 +2299,7 @@ public class WordVectorSerializer {
      * 1) Binary model, either compressed or not. Like well-known Google Model
      * 2) Popular CSV word2vec text format
      * 3) DL4j compressed format
+     * 4) Native format, see {@link MappedWordVectorsLoader}
      * <p>
      * Please note: if extended data isn't available, only weights will be loaded instead.
      *
@@ -2309,6 +2312,10 @@ public class WordVectorSerializer {
             throw new ND4JIllegalStateException("File [" + file.getAbsolutePath() + "] doesn't exist");
         }
 
+        if (MappedWordVectorsLoader.isNativeFormat(file)) {
+            return MappedWordVectorsLoader.loadNative(file);
+        }
+
         boolean originalPeriodic = Nd4j.getMemoryManager().isPeriodicGcActive();
         if (originalPeriodic) {
             Nd4j.getMemoryManager().togglePeriodicGc(false);
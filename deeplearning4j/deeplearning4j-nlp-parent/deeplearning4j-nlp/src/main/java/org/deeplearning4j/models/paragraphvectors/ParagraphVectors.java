@@ -1022,6 +1022,7 @@ public class ParagraphVectors extends Word2Vec {
             ret.useAdeGrad = this.useAdaGrad;
             ret.stopWords = this.stopWords;
             ret.workers = this.workers;
+            ret.calculationThreads = this.calculationThreads;
             ret.useUnknown = this.useUnknown;
             ret.unknownElement = this.unknownElement;
             ret.seed = this.seed;
@@ -1358,6 +1359,18 @@ public class ParagraphVectors extends Word2Vec {
             return this;
         }
 
+        /**
+         * This method defines number of Java threads used for vector calculations (Hogwild training)
+         *
+         * @param numThreads
+         * @return
+         */
+        @Override
+        public Builder calculationThreads(int numThreads) {
+            super.calculationThreads(numThreads);
+            return this;
+        }
+
         @Override
         public Builder sequenceLearningAlgorithm(SequenceLearningAlgorithm<VocabWord> algorithm) {
             super.sequenceLearningAlgorithm(algorithm);
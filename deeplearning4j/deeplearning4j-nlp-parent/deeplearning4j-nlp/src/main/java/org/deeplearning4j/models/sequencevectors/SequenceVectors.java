@@ -94,8 +94,7 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
 
     protected boolean enableScavenger = false;
     protected int vocabLimit = 0;
-
-    private BatchSequences<T> batchSequences;
+    protected int calculationThreads = 1;
 
 
     @Setter
@@ -336,13 +335,18 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
             val linesCounter = new AtomicLong(0);
 
 
-            val sequencer = new AsyncSequencer(this.iterator, this.stopWords);
+            int numThreads = Math.max(1, calculationThreads);
+            val sequencer = new AsyncSequencer(this.iterator, this.stopWords, numThreads);
             sequencer.start();
 
             val timer = new AtomicLong(System.currentTimeMillis());
-            val thread = new VectorCalculationsThread(0, currentEpoch, wordsCounter, vocab.totalWordOccurrences(),
-                    linesCounter, sequencer, timer, numEpochs);
-            thread.start();
+            List<VectorCalculationsThread> threads = new ArrayList<>(numThreads);
+            for (int t = 0; t < numThreads; t++) {
+                val thread = new VectorCalculationsThread(t, currentEpoch, wordsCounter, vocab.totalWordOccurrences(),
+                        linesCounter, sequencer, timer, numEpochs);
+                thread.start();
+                threads.add(thread);
+            }
 
             try {
                 sequencer.join();
@@ -350,10 +354,19 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
                 throw new RuntimeException(e);
             }
 
-            try {
-               thread.join();
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+            for (VectorCalculationsThread thread : threads) {
+                try {
+                    thread.join();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            if (numThreads > 1) {
+                for (VectorCalculationsThread thread : threads) {
+                    log.info("Epoch [{}]; thread [{}]: Words vectorized: [{}]; Words/sec: [{}]", currentEpoch,
+                            thread.threadId, thread.threadWords, String.format("%.2f", thread.getWordsPerSecond()));
+                }
             }
 
             // TODO: fix this to non-exclusive termination
@@ -383,7 +396,8 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
     }
 
 
-    protected void trainSequence(@NonNull Sequence<T> sequence, AtomicLong nextRandom, double alpha) {
+    protected void trainSequence(@NonNull Sequence<T> sequence, AtomicLong nextRandom, double alpha,
+                                 BatchSequences<T> batchSequences) {
 
         if (sequence.getElements().isEmpty())
             return;
@@ -437,6 +451,7 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
         protected boolean useAdaGrad = false;
         protected boolean resetModel = true;
         protected int workers = Runtime.getRuntime().availableProcessors();
+        protected int calculationThreads = 1;
         protected boolean useUnknown = false;
         protected boolean useHierarchicSoftmax = true;
         protected int[] variableWindows;
@@ -635,6 +650,22 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
             return this;
         }
 
+        /**
+         * Sets number of Java threads used for vector calculations. Default value: 1<br>
+         * With more than 1 thread, training sequences are sharded across threads: each thread digitizes and subsamples
+         * its own sequences, assembles its own batches, and updates the shared weights without locking (Hogwild).
+         * Native batched SkipGram/CBOW ops then use workers / calculationThreads threads each.
+         *
+         * @param numThreads number of calculation threads
+         * @return
+         */
+        public Builder<T> calculationThreads(int numThreads) {
+            if (numThreads < 1)
+                throw new IllegalArgumentException("Number of calculation threads must be positive, got " + numThreads);
+            this.calculationThreads = numThreads;
+            return this;
+        }
+
         /**
          * Enable/disable hierarchic softmax
          *
@@ -1020,6 +1051,7 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
             vectors.useAdeGrad = this.useAdaGrad;
             vectors.stopWords = this.stopWords;
             vectors.workers = this.workers;
+            vectors.calculationThreads = this.calculationThreads;
 
             vectors.iterator = this.iterator;
             vectors.lookupTable = this.lookupTable;
@@ -1073,21 +1105,29 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
      * It becomes very usefull if text processing pipeline behind iterator is complex, and we're not loading data from simple text file with whitespaces as separator.
      * Since this method allows you to hide preprocessing latency in background.
      *
+     * With more than 1 shard, sequences are distributed over per-shard buffers (one per VectorCalculationsThread),
+     * and conversion to vocabulary elements is done by the consuming thread in {@link #nextSentence(int)}.
+     *
      * This mechanics will be change to PrefetchingSentenceIterator wrapper.
      */
     protected class AsyncSequencer extends Thread implements Runnable {
         private final SequenceIterator<T> iterator;
-        private final LinkedBlockingQueue<Sequence<T>> buffer;
+        private final List<LinkedBlockingQueue<Sequence<T>>> buffers;
         //     private final AtomicLong linesCounter;
         private final int limitUpper;
         private final int limitLower;
         private AtomicBoolean isRunning = new AtomicBoolean(true);
         private AtomicLong nextRandom;
         private Collection<String> stopList;
+        private int nextShard = 0;
 
         private static final int DEFAULT_BUFFER_SIZE = 512;
 
         public AsyncSequencer(SequenceIterator<T> iterator, @NonNull Collection<String> stopList) {
+            this(iterator, stopList, 1);
+        }
+
+        public AsyncSequencer(SequenceIterator<T> iterator, @NonNull Collection<String> stopList, int numShards) {
             this.iterator = iterator;
             //            this.linesCounter = linesCounter;
             this.setName("AsyncSequencer thread");
@@ -1099,7 +1139,11 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
             limitLower = workers * (batchSize < DEFAULT_BUFFER_SIZE ? DEFAULT_BUFFER_SIZE : batchSize);
             limitUpper = limitLower * 2;
 
-            this.buffer = new LinkedBlockingQueue<>(limitUpper);
+            int shardCapacity = Math.max(DEFAULT_BUFFER_SIZE, limitUpper / numShards);
+            this.buffers = new ArrayList<>(numShards);
+            for (int i = 0; i < numShards; i++) {
+                this.buffers.add(new LinkedBlockingQueue<Sequence<T>>(numShards == 1 ? limitUpper : shardCapacity));
+            }
         }
 
         // Preserve order of input sequences to gurantee order of output tokens
@@ -1109,46 +1153,26 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
             while (this.iterator.hasMoreSequences()) {
 
                 // if buffered level is below limitLower, we're going to fetch limitUpper number of strings from fetcher
-                if (buffer.size() < limitLower) {
+                if (bufferedSize() < limitLower) {
                     update();
                     AtomicInteger linesLoaded = new AtomicInteger(0);
                     while (linesLoaded.getAndIncrement() < limitUpper && this.iterator.hasMoreSequences()) {
                         Sequence<T> document = this.iterator.nextSequence();
 
-                        /*
-                            We can't hope/assume that underlying iterator contains synchronized elements
-                            That's why we're going to rebuild sequence from vocabulary
-                          */
-                        Sequence<T> newSequence = new Sequence<>();
-
-                        if (document.getSequenceLabel() != null) {
-                            T newLabel = vocab.wordFor(document.getSequenceLabel().getLabel());
-                            if (newLabel != null)
-                                newSequence.setSequenceLabel(newLabel);
-                        }
-
-                        for (T element : document.getElements()) {
-                            if (stopList.contains(element.getLabel()))
-                                continue;
-                            T realElement = vocab.wordFor(element.getLabel());
-
-                            // please note: this serquence element CAN be absent in vocab, due to minFreq or stopWord or whatever else
-                            if (realElement != null) {
-                                newSequence.addElement(realElement);
-                            } else if (useUnknown && unknownElement != null) {
-                                newSequence.addElement(unknownElement);
+                        try {
+                            if (buffers.size() == 1) {
+                                Sequence<T> newSequence = digitize(document);
+                                // due to subsampling and null words, new sequence size CAN be 0, so there's no need to insert empty sequence into processing chain
+                                if (!newSequence.getElements().isEmpty())
+                                    buffers.get(0).put(newSequence);
+                            } else {
+                                putSharded(document);
                             }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RuntimeException(e);
                         }
 
-                        // due to subsampling and null words, new sequence size CAN be 0, so there's no need to insert empty sequence into processing chain
-                        if (!newSequence.getElements().isEmpty())
-                            try {
-                                buffer.put(newSequence);
-                            } catch (InterruptedException e) {
-                                Thread.currentThread().interrupt();
-                                throw new RuntimeException(e);
-                            }
-
                         linesLoaded.incrementAndGet();
                     }
                 } else {
@@ -1158,18 +1182,90 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
             isRunning.set(false);
         }
 
+        /**
+         * Round-robin over the shards, skipping shards that are full, so a slow consumer doesn't stall the others
+         */
+        private void putSharded(Sequence<T> document) throws InterruptedException {
+            int numShards = buffers.size();
+            for (int i = 0; i < numShards; i++) {
+                int shard = (nextShard + i) % numShards;
+                if (buffers.get(shard).offer(document)) {
+                    nextShard = (shard + 1) % numShards;
+                    return;
+                }
+            }
+
+            buffers.get(nextShard).put(document);
+            nextShard = (nextShard + 1) % numShards;
+        }
+
+        private int bufferedSize() {
+            int size = 0;
+            for (LinkedBlockingQueue<Sequence<T>> buffer : buffers)
+                size += buffer.size();
+            return size;
+        }
+
+        /*
+            We can't hope/assume that underlying iterator contains synchronized elements
+            That's why we're going to rebuild sequence from vocabulary
+          */
+        protected Sequence<T> digitize(Sequence<T> document) {
+            Sequence<T> newSequence = new Sequence<>();
+
+            if (document.getSequenceLabel() != null) {
+                T newLabel = vocab.wordFor(document.getSequenceLabel().getLabel());
+                if (newLabel != null)
+                    newSequence.setSequenceLabel(newLabel);
+            }
+
+            for (T element : document.getElements()) {
+                if (stopList.contains(element.getLabel()))
+                    continue;
+                T realElement = vocab.wordFor(element.getLabel());
+
+                // please note: this serquence element CAN be absent in vocab, due to minFreq or stopWord or whatever else
+                if (realElement != null) {
+                    newSequence.addElement(realElement);
+                } else if (useUnknown && unknownElement != null) {
+                    newSequence.addElement(unknownElement);
+                }
+            }
+
+            return newSequence;
+        }
+
         public boolean hasMoreLines() {
+            return hasMoreLines(0);
+        }
+
+        public boolean hasMoreLines(int shard) {
             // statement order does matter here, since there's possible race condition
-            return !buffer.isEmpty() || isRunning.get();
+            return !buffers.get(shard).isEmpty() || isRunning.get();
         }
 
         public Sequence<T> nextSentence() {
+            return nextSentence(0);
+        }
+
+        /**
+         * @param shard shard to fetch the sequence from
+         * @return next digitized sequence of the shard, or null if none is available (or it was empty after conversion)
+         */
+        public Sequence<T> nextSentence(int shard) {
+            Sequence<T> sequence;
             try {
-                return buffer.poll(3L, TimeUnit.SECONDS);
+                sequence = buffers.get(shard).poll(3L, TimeUnit.SECONDS);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 return null;
             }
+
+            if (sequence == null || buffers.size() == 1)
+                return sequence;
+
+            Sequence<T> newSequence = digitize(sequence);
+            return newSequence.getElements().isEmpty() ? null : newSequence;
         }
     }
 
@@ -1180,6 +1276,8 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
      * Please note, they do not iterate the sentences over and over, each sentence processed only once.
      * Training corpus iteration is implemented in fit() method.
      *
+     * Each thread consumes its own shard of the AsyncSequencer, and builds its own BatchSequences. When more than one
+     * thread is used, shared weights are updated without any synchronization (Hogwild).
      */
     private class VectorCalculationsThread extends Thread implements Runnable {
         private final int threadId;
@@ -1193,6 +1291,8 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
         private final AtomicLong timer;
         private final long startTime;
         private final int totalEpochs;
+        private volatile long threadWords;
+        private volatile long threadEndTime;
 
         /*
                 Long constructors suck, so this should be reduced to something reasonable later
@@ -1223,13 +1323,16 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
             val workspace_id = "sequence_vectors_training_" + java.util.UUID.randomUUID().toString();
 
             Nd4j.getAffinityManager().getDeviceForCurrentThread();
-            while (digitizer.hasMoreLines()) {
+            int numThreads = Math.max(1, calculationThreads);
+            int nativeWorkers = Math.max(1, workers / numThreads);
+            BatchSequences<T> batchSequences = null;
+            while (digitizer.hasMoreLines(threadId)) {
                 try {
                     // get current sentence as list of VocabularyWords
                     List<Sequence<T>> sequences = new ArrayList<>();
                     for (int x = 0; x < batchSize; x++) {
-                        if (digitizer.hasMoreLines()) {
-                            Sequence<T> sequence = digitizer.nextSentence();
+                        if (digitizer.hasMoreLines(threadId)) {
+                            Sequence<T> sequence = digitizer.nextSentence(threadId);
                             if (sequence != null) {
                                 sequences.add(sequence);
                             }
@@ -1256,13 +1359,14 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
                                                 / ((double) this.totalWordsCount) / (numIterations
                                                 * totalEpochs))));
 
-                                trainSequence(sequence, nextRandom, alpha);
+                                trainSequence(sequence, nextRandom, alpha, batchSequences);
 
                                 // increment processed word count, please note: this affects learningRate decay
-                                totalLines.incrementAndGet();
+                                long lines = totalLines.incrementAndGet();
                                 this.wordsCounter.addAndGet(sequence.getElements().size());
+                                threadWords += sequence.getElements().size();
 
-                                if (totalLines.get() % 100000 == 0) {
+                                if (lines % 100000 == 0) {
                                     long currentTime = System.currentTimeMillis();
                                     long timeSpent = currentTime - timer.get();
 
@@ -1288,9 +1392,9 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
                         }
 
                         if (elementsLearningAlgorithm instanceof SkipGram)
-                            ((SkipGram)elementsLearningAlgorithm).setWorkers(workers);
+                            ((SkipGram)elementsLearningAlgorithm).setWorkers(nativeWorkers);
                         else if (elementsLearningAlgorithm instanceof CBOW)
-                            ((CBOW)elementsLearningAlgorithm).setWorkers(workers);
+                            ((CBOW)elementsLearningAlgorithm).setWorkers(nativeWorkers);
 
                         int batchSize = configuration.getBatchSize();
                         if (batchSize > 1 && batchSequences != null) {
@@ -1336,6 +1440,16 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
             if (trainSequenceVectors) {
                 sequenceLearningAlgorithm.finish();
             }
+
+            threadEndTime = System.currentTimeMillis();
+        }
+
+        /**
+         * @return number of words processed by this thread per second, measured from thread start until it finished
+         */
+        public double getWordsPerSecond() {
+            long end = threadEndTime > 0 ? threadEndTime : System.currentTimeMillis();
+            return threadWords / (Math.max(1L, end - startTime) / 1000.0);
         }
     }
 }
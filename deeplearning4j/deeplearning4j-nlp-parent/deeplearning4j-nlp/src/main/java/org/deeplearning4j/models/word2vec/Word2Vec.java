@@ -477,6 +477,18 @@ public class Word2Vec extends SequenceVectors<VocabWord> {
             return this;
         }
 
+        /**
+         * This method defines number of Java threads used for vector calculations (Hogwild training)
+         *
+         * @param numThreads
+         * @return
+         */
+        @Override
+        public Builder calculationThreads(int numThreads) {
+            super.calculationThreads(numThreads);
+            return this;
+        }
+
         /**
          * Sets ModelUtils that gonna be used as provider for utility methods: similarity(), wordsNearest(), accuracy(), etc
          *
@@ -651,6 +663,7 @@ public class Word2Vec extends SequenceVectors<VocabWord> {
             ret.useAdeGrad = this.useAdaGrad;
             ret.stopWords = this.stopWords;
             ret.workers = this.workers;
+            ret.calculationThreads = this.calculationThreads;
             ret.useUnknown = this.useUnknown;
             ret.unknownElement = this.unknownElement;
             ret.variableWindows = this.variableWindows;
@@ -0,0 +1,333 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+
+package org.deeplearning4j.models.word2vec.wordstore.inmemory;
+
+import lombok.NonNull;
+import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable VocabCache for pretrained word vectors, as used by {@link org.deeplearning4j.models.embeddings.loader.MappedWordVectorsLoader}.<br>
+ * Labels are stored in a plain array (label index == row in syn0), and label lookups go through a primitive
+ * open-addressing hash table instead of per-word {@link VocabWord} objects and hash maps. VocabWord instances are
+ * created on demand, and all elements have frequency 1.<br>
+ * All methods that would modify the vocabulary throw {@link UnsupportedOperationException}.
+ */
+public class ReadOnlyVocabCache implements VocabCache<VocabWord> {
+    private static final long serialVersionUID = 1L;
+
+    private final String[] labels;
+    // index + 1 of the label in each slot, 0 for empty slots; linear probing
+    private final int[] slots;
+    private final int mask;
+    private final long totalNumberOfDocs;
+
+    // lazily built, only used for lookups by storage id
+    private transient volatile long[] storageIds;
+    private transient volatile int[] storageIdSlots;
+
+    public ReadOnlyVocabCache(@NonNull String[] labels) {
+        this(labels, 0);
+    }
+
+    /**
+     * @param labels            labels of the elements, in index order. Labels must be unique
+     * @param totalNumberOfDocs number of documents, as stored in some model headers
+     */
+    public ReadOnlyVocabCache(@NonNull String[] labels, long totalNumberOfDocs) {
+        this.labels = labels;
+        this.totalNumberOfDocs = totalNumberOfDocs;
+
+        int capacity = Integer.highestOneBit(Math.max(2, labels.length * 2 - 1)) << 1;
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i] == null)
+                throw new IllegalArgumentException("Null label at index " + i);
+
+            int slot = mix(labels[i].hashCode()) & mask;
+            while (slots[slot] != 0) {
+                if (labels[slots[slot] - 1].equals(labels[i]))
+                    throw new IllegalStateException("Duplicate label [" + labels[i] + "] at indices " + (slots[slot] - 1) + " and " + i);
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+        }
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int mix(long hash) {
+        return mix((int) (hash ^ (hash >>> 32)));
+    }
+
+    /**
+     * @return the labels, in index order. The returned array must not be modified
+     */
+    public String[] labels() {
+        return labels;
+    }
+
+    @Override
+    public int indexOf(String label) {
+        if (label == null)
+            return -2;
+
+        int slot = mix(label.hashCode()) & mask;
+        int idx;
+        while ((idx = slots[slot]) != 0) {
+            if (labels[idx - 1].equals(label))
+                return idx - 1;
+            slot = (slot + 1) & mask;
+        }
+        return -2;
+    }
+
+    private int indexOfStorageId(long id) {
+        if (storageIdSlots == null) {
+            synchronized (this) {
+                if (storageIdSlots == null) {
+                    long[] ids = new long[labels.length];
+                    int[] idSlots = new int[slots.length];
+                    for (int i = 0; i < labels.length; i++) {
+                        ids[i] = SequenceElement.getLongHash(labels[i]);
+                        int slot = mix(ids[i]) & mask;
+                        while (idSlots[slot] != 0)
+                            slot = (slot + 1) & mask;
+                        idSlots[slot] = i + 1;
+                    }
+                    storageIds = ids;
+                    storageIdSlots = idSlots;
+                }
+            }
+        }
+
+        int[] idSlots = storageIdSlots;
+        int slot = mix(id) & mask;
+        int idx;
+        while ((idx = idSlots[slot]) != 0) {
+            if (storageIds[idx - 1] == id)
+                return idx - 1;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private VocabWord element(int index) {
+        if (index < 0 || index >= labels.length)
+            return null;
+
+        VocabWord word = new VocabWord(1.0, labels[index]);
+        word.setIndex(index);
+        return word;
+    }
+
+    @Override
+    public void loadVocab() {
+        // no-op
+    }
+
+    @Override
+    public boolean vocabExists() {
+        return labels.length > 0;
+    }
+
+    @Override
+    public void saveVocab() {
+        throw new UnsupportedOperationException("Not supported for read-only vocabulary");
+    }
+
+    @Override
+    public Collection<String> words() {
+        return Collections.unmodifiableList(Arrays.asList(labels));
+    }
+
+    @Override
+    public void incrementWordCount(String word) {
+        throw new UnsupportedOperationException("Not supported for read-only vocabulary");
+    }
+
+    @Override
+    public void incrementWordCount(String word, int increment) {
+        throw new UnsupportedOperationException("Not supported for read-only vocabulary");
+    }
+
+    @Override
+    public int wordFrequency(String word) {
+        return containsWord(word) ? 1 : 0;
+    }
+
+    @Override
+    public boolean containsWord(String word) {
+        return indexOf(word) >= 0;
+    }
+
+    @Override
+    public String wordAtIndex(int index) {
+        return index < 0 || index >= labels.length ? null : labels[index];
+    }
+
+    @Override
+    public VocabWord elementAtIndex(int index) {
+        return element(index);
+    }
+
+    @Override
+    public Collection<VocabWord> vocabWords() {
+        return elements();
+    }
+
+    private List<VocabWord> elements() {
+        return new AbstractList<VocabWord>() {
+            @Override
+            public VocabWord get(int index) {
+                return element(index);
+            }
+
+            @Override
+            public int size() {
+                return labels.length;
+            }
+        };
+    }
+
+    @Override
+    public long totalWordOccurrences() {
+        return labels.length;
+    }
+
+    @Override
+    public VocabWord wordFor(String word) {
+        return element(indexOf(word));
+    }
+
+    @Override
+    public VocabWord wordFor(long id) {
+        return element(indexOfStorageId(id));
+    }
+
+    @Override
+    public void addWordToIndex(int index, String word) {
+        throw new UnsupportedOperationException("Not supported for read-only vocabulary");
+    }
+
+    @Override
+    public void addWordToIndex(int index, long elementId) {
+        throw new UnsupportedOperationException("Not supported for read-only vocabulary");
+    }
+
+    @Override
+    public void putVocabWord(String word) {
+        throw new UnsupportedOperationException("Not supported for read-only vocabulary");
+    }
+
+    @Override
+    public int numWords() {
+        return labels.length;
+    }
+
+    @Override
+    public int docAppearedIn(String word) {
+        return -1;
+    }
+
+    @Override
+    public void incrementDocCount(String word, long howMuch) {
+        throw new UnsupportedOperationException("Not supported for read-only vocabulary");
+    }
+
+    @Override
+    public void setCountForDoc(String word, long count) {
+        throw new UnsupportedOperationException("Not supported for read-only vocabulary");
+    }
+
+    @Override
+    public long totalNumberOfDocs() {
+        return totalNumberOfDocs;
+    }
+
+    @Override
+    public void incrementTotalDocCount() {
+        throw new UnsupportedOperationException("Not supported for read-only vocabulary");
+    }
+
+    @Override
+    public void incrementTotalDocCount(long by) {
+        throw new UnsupportedOperationException("Not supported for read-only vocabulary");
+    }
+
+    @Override
+    public Collection<VocabWord> tokens() {
+        return elements();
+    }
+
+    @Override
+    public boolean addToken(VocabWord element) {
+        throw new UnsupportedOperationException("Not supported for read-only vocabulary");
+    }
+
+    @Override
+    public VocabWord tokenFor(String word) {
+        return wordFor(word);
+    }
+
+    @Override
+    public VocabWord tokenFor(long id) {
+        return wordFor(id);
+    }
+
+    @Override
+    public boolean hasToken(String token) {
+        return containsWord(token);
+    }
+
+    @Override
+    public void importVocabulary(VocabCache<VocabWord> vocabCache) {
+        throw new UnsupportedOperationException("Not supported for read-only vocabulary");
+    }
+
+    @Override
+    public void updateWordsOccurrences() {
+        // no-op: all frequencies are fixed
+    }
+
+    @Override
+    public void removeElement(String label) {
+        throw new UnsupportedOperationException("Not supported for read-only vocabulary");
+    }
+
+    @Override
+    public void removeElement(VocabWord element) {
+        throw new UnsupportedOperationException("Not supported for read-only vocabulary");
+    }
+}
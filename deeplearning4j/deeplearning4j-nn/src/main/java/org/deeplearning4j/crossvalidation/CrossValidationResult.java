@@ -0,0 +1,55 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.crossvalidation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.nd4j.evaluation.IEvaluation;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class CrossValidationResult implements Serializable {
+
+    /** Evaluations for each fold, in fold order. Same order as the configured evaluations */
+    private List<IEvaluation[]> foldEvaluations;
+    /** Evaluations merged across all folds */
+    private IEvaluation[] evaluations;
+    /** Training time (not including evaluation) for each fold, in milliseconds */
+    private long[] foldTrainingTimesMs;
+    /** Total time for the cross-validation, in milliseconds */
+    private long totalTimeMs;
+
+    public int getNumFolds() {
+        return foldEvaluations.size();
+    }
+
+    /**
+     * @param idx Index of the evaluation, in the configured evaluations order
+     * @return Evaluation merged across all folds
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends IEvaluation> T getEvaluation(int idx) {
+        return (T) evaluations[idx];
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.crossvalidation;
+
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over one or more contiguous example ranges of a DataSet, used for the training and held-out parts of a
+ * cross-validation fold.<br>
+ * Minibatches are views of the underlying DataSet (see {@link DataSet#getRange(int, int)}); only a minibatch that
+ * spans two ranges is copied. As the data is shared between concurrently trained folds, preprocessors (which would
+ * modify the shared data in-place) are not supported.
+ */
+class FoldDataSetIterator implements DataSetIterator {
+
+    private final DataSet data;
+    private final int batchSize;
+    private final int[] ranges;
+    private int rangeIdx;
+    private int cursor;
+
+    /**
+     * @param data      Data to iterate over
+     * @param batchSize Minibatch size
+     * @param ranges    Example ranges as (start, end) pairs: start inclusive, end exclusive. Empty ranges are allowed
+     */
+    FoldDataSetIterator(DataSet data, int batchSize, int... ranges) {
+        if (batchSize <= 0 || ranges.length % 2 != 0) {
+            throw new IllegalArgumentException("Invalid batch size or ranges: batchSize=" + batchSize
+                            + ", number of range values=" + ranges.length);
+        }
+        this.data = data;
+        this.batchSize = batchSize;
+        this.ranges = ranges;
+        reset();
+    }
+
+    /**
+     * @return Total number of examples in all ranges
+     */
+    int numExamples() {
+        int n = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            n += ranges[i + 1] - ranges[i];
+        }
+        return n;
+    }
+
+    @Override
+    public DataSet next(int num) {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No next element");
+        }
+        List<DataSet> parts = new ArrayList<>(1);
+        int remaining = num;
+        while (remaining > 0 && hasNext()) {
+            int end = Math.min(ranges[rangeIdx + 1], cursor + remaining);
+            parts.add((DataSet) data.getRange(cursor, end));
+            remaining -= end - cursor;
+            cursor = end;
+            skipExhaustedRanges();
+        }
+        return parts.size() == 1 ? parts.get(0) : DataSet.merge(parts);
+    }
+
+    @Override
+    public DataSet next() {
+        return next(batchSize);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return rangeIdx < ranges.length;
+    }
+
+    @Override
+    public void reset() {
+        rangeIdx = 0;
+        cursor = ranges.length > 0 ? ranges[0] : 0;
+        skipExhaustedRanges();
+    }
+
+    private void skipExhaustedRanges() {
+        while (rangeIdx < ranges.length && cursor >= ranges[rangeIdx + 1]) {
+            rangeIdx += 2;
+            if (rangeIdx < ranges.length) {
+                cursor = ranges[rangeIdx];
+            }
+        }
+    }
+
+    @Override
+    public int inputColumns() {
+        return data.numInputs();
+    }
+
+    @Override
+    public int totalOutcomes() {
+        return data.numOutcomes();
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        //Minibatches are views: nothing to gain from prefetching
+        return false;
+    }
+
+    @Override
+    public int batch() {
+        return batchSize;
+    }
+
+    @Override
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+        throw new UnsupportedOperationException("Preprocessors are not supported: data is shared between folds");
+    }
+
+    @Override
+    public DataSetPreProcessor getPreProcessor() {
+        return null;
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return data.getLabelNamesList();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.crossvalidation;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.api.NeuralNetwork;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.evaluation.IEvaluation;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.KFoldIterator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * K-fold cross-validation for {@link MultiLayerNetwork} and {@link ComputationGraph}, training the folds
+ * concurrently.<br>
+ * Each fold trains a clone of the provided network (i.e., all folds start from the same parameters), on its own
+ * worker thread. Training and held-out data are iterated as views of the provided DataSet, which is shared (read-only)
+ * by all folds - unlike {@link KFoldIterator}, the training data of each fold is not copied. The folds are the same
+ * as those of {@link KFoldIterator}: for N examples, the first (N % k) folds have (N / k) + 1 examples, and the
+ * remaining folds have (N / k) examples.<br>
+ * Each fold is evaluated on its held-out examples with new instances ({@link IEvaluation#newInstance()}) of the
+ * configured evaluations, which are then merged across folds.<br>
+ * Note that each worker trains a separate network, using the usual (native) threads for each operation: for CPU
+ * training, limiting the number of OpenMP threads (OMP_NUM_THREADS) to roughly the number of cores divided by the
+ * number of workers usually gives the best throughput.
+ */
+@Slf4j
+public class KFoldCrossValidator {
+
+    private final Model model;
+    private final DataSet data;
+    private final int k;
+    private final int numEpochs;
+    private final int batchSize;
+    private final int workers;
+    private final IEvaluation[] evaluations;
+
+    private KFoldCrossValidator(Builder builder) {
+        this.model = builder.model;
+        this.data = builder.data;
+        this.k = builder.k;
+        this.numEpochs = builder.numEpochs;
+        this.batchSize = builder.batchSize;
+        this.workers = builder.workers;
+        this.evaluations = builder.evaluations;
+    }
+
+    /**
+     * @return Start (inclusive) and end (exclusive) example index of each held-out fold: fold i is
+     * [boundaries[i], boundaries[i+1])
+     */
+    public int[] foldBoundaries() {
+        int n = data.numExamples();
+        int baseSize = n / k;
+        int numIncremented = n % k;
+        int[] boundaries = new int[k + 1];
+        for (int i = 1; i <= k; i++) {
+            boundaries[i] = boundaries[i - 1] + baseSize + (i <= numIncremented ? 1 : 0);
+        }
+        return boundaries;
+    }
+
+    /**
+     * Train and evaluate all folds. Blocks until all folds are complete
+     *
+     * @return Per-fold and merged evaluations
+     */
+    public CrossValidationResult fit() {
+        long start = System.currentTimeMillis();
+        final int[] boundaries = foldBoundaries();
+        final long[] trainingTimes = new long[k];
+        int nThreads = Math.min(workers, k);
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads, new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "KFoldCrossValidator-" + count++);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        List<IEvaluation[]> foldEvaluations = new ArrayList<>(k);
+        try {
+            List<Future<IEvaluation[]>> futures = new ArrayList<>(k);
+            for (int i = 0; i < k; i++) {
+                final int fold = i;
+                futures.add(executor.submit(new Callable<IEvaluation[]>() {
+                    @Override
+                    public IEvaluation[] call() {
+                        return fitFold(fold, boundaries, trainingTimes);
+                    }
+                }));
+            }
+            for (int i = 0; i < k; i++) {
+                try {
+                    foldEvaluations.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new RuntimeException("Error training cross-validation fold " + i, cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for cross-validation folds", e);
+        } finally {
+            //Stop any folds still running or queued, if a fold failed
+            executor.shutdownNow();
+        }
+
+        return new CrossValidationResult(foldEvaluations, merge(foldEvaluations), trainingTimes,
+                        System.currentTimeMillis() - start);
+    }
+
+    private IEvaluation[] fitFold(int fold, int[] boundaries, long[] trainingTimes) {
+        int left = boundaries[fold];
+        int right = boundaries[fold + 1];
+        int n = boundaries[k];
+        Model m = cloneModel();
+
+        long start = System.currentTimeMillis();
+        FoldDataSetIterator train = new FoldDataSetIterator(data, batchSize, 0, left, right, n);
+        if (m instanceof MultiLayerNetwork) {
+            ((MultiLayerNetwork) m).fit(train, numEpochs);
+        } else {
+            ((ComputationGraph) m).fit(train, numEpochs);
+        }
+        trainingTimes[fold] = System.currentTimeMillis() - start;
+        log.debug("Trained cross-validation fold {} of {} in {} ms", fold, k, trainingTimes[fold]);
+
+        IEvaluation[] foldEvals = new IEvaluation[evaluations.length];
+        for (int i = 0; i < evaluations.length; i++) {
+            foldEvals[i] = evaluations[i].newInstance();
+        }
+        return ((NeuralNetwork) m).doEvaluation(new FoldDataSetIterator(data, batchSize, left, right), foldEvals);
+    }
+
+    private Model cloneModel() {
+        //Synchronized: clone() initializes the network if required
+        synchronized (model) {
+            if (model instanceof MultiLayerNetwork) {
+                return ((MultiLayerNetwork) model).clone();
+            }
+            return ((ComputationGraph) model).clone();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private IEvaluation[] merge(List<IEvaluation[]> foldEvaluations) {
+        IEvaluation[] merged = new IEvaluation[evaluations.length];
+        for (int i = 0; i < evaluations.length; i++) {
+            merged[i] = evaluations[i].newInstance();
+            for (IEvaluation[] foldEvals : foldEvaluations) {
+                merged[i].merge(foldEvals[i]);
+            }
+        }
+        return merged;
+    }
+
+    public static class Builder {
+
+        private final Model model;
+        private final DataSet data;
+        private int k = 10;
+        private int numEpochs = 1;
+        private int batchSize = 32;
+        private int workers = 1;
+        private IEvaluation[] evaluations;
+
+        /**
+         * @param network Network to cross-validate. Each fold trains a clone of this network; the network itself is
+         *                not modified (other than being initialized, if required)
+         * @param data    All data - split into training and held-out examples for each fold
+         */
+        public Builder(@NonNull MultiLayerNetwork network, @NonNull DataSet data) {
+            this.model = network;
+            this.data = data;
+        }
+
+        /**
+         * @param graph Network to cross-validate. Must have a single input and a single output. Each fold trains a
+         *              clone of this network; the network itself is not modified (other than being initialized, if
+         *              required)
+         * @param data  All data - split into training and held-out examples for each fold
+         */
+        public Builder(@NonNull ComputationGraph graph, @NonNull DataSet data) {
+            this.model = graph;
+            this.data = data;
+        }
+
+        /**
+         * @param k Number of folds. Default: 10
+         */
+        public Builder k(int k) {
+            this.k = k;
+            return this;
+        }
+
+        /**
+         * @param numEpochs Number of epochs to train each fold for. Default: 1
+         */
+        public Builder numEpochs(int numEpochs) {
+            this.numEpochs = numEpochs;
+            return this;
+        }
+
+        /**
+         * @param batchSize Minibatch size for training and evaluation. Default: 32
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * @param workers Maximum number of folds to train concurrently, each on its own thread. Default: 1
+         */
+        public Builder workers(int workers) {
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * @param evaluations Evaluations to perform on the held-out examples of each fold, such as
+         *                    {@link org.nd4j.evaluation.classification.Evaluation}. Used as templates only
+         *                    (via {@link IEvaluation#newInstance()}): these instances are not modified
+         */
+        public Builder evaluations(IEvaluation... evaluations) {
+            this.evaluations = evaluations;
+            return this;
+        }
+
+        public KFoldCrossValidator build() {
+            if (k <= 1 || k > data.numExamples()) {
+                throw new IllegalStateException("Number of folds must be between 2 and the number of examples ("
+                                + data.numExamples() + "), got " + k);
+            }
+            if (numEpochs <= 0 || batchSize <= 0 || workers <= 0) {
+                throw new IllegalStateException("Number of epochs, batch size and workers must be positive, got "
+                                + numEpochs + ", " + batchSize + " and " + workers);
+            }
+            if (evaluations == null || evaluations.length == 0) {
+                throw new IllegalStateException("At least one evaluation must be specified");
+            }
+            return new KFoldCrossValidator(this);
+        }
+    }
+}
@@ -46,6 +46,7 @@ public class EarlyStoppingConfiguration<T extends Model> implements Serializable
     private int evaluateEveryNEpochs;
     private ScoreCalculator<T> scoreCalculator;
     private Supplier<ScoreCalculator> scoreCalculatorSupplier;
+    private boolean asyncEvaluation;
 
     private EarlyStoppingConfiguration(Builder<T> builder) {
         this.modelSaver = builder.modelSaver;
@@ -55,6 +56,7 @@ public class EarlyStoppingConfiguration<T extends Model> implements Serializable
         this.evaluateEveryNEpochs = builder.evaluateEveryNEpochs;
         this.scoreCalculator = builder.scoreCalculator;
         this.scoreCalculatorSupplier = builder.scoreCalculatorSupplier;
+        this.asyncEvaluation = builder.asyncEvaluation;
     }
 
     public ScoreCalculator<T> getScoreCalculator(){
@@ -98,6 +100,7 @@ public class EarlyStoppingConfiguration<T extends Model> implements Serializable
         private int evaluateEveryNEpochs = 1;
         private ScoreCalculator<T> scoreCalculator;
         private Supplier<ScoreCalculator> scoreCalculatorSupplier;
+        private boolean asyncEvaluation = false;
 
 
         /** How should models be saved? (Default: in memory)*/
@@ -158,6 +161,21 @@ public class EarlyStoppingConfiguration<T extends Model> implements Serializable
             return this;
         }
 
+        /** If true: calculate the score on a background thread, while training continues. At each evaluation, the
+         * parameters are copied into a second model instance, which is then scored; the result (score reporting,
+         * best model saving and epoch termination conditions) is applied on the training thread once the score
+         * is available - at the end of a later epoch. At most one evaluation is in progress at any time: training
+         * waits for the previous one to complete before starting the next.<br>
+         * Note that as a consequence, training may run for one or more epochs beyond the epoch at which an epoch
+         * termination condition is met. The score calculator must not use the network being trained, or the
+         * training data iterator.
+         * Only supported for MultiLayerNetwork and ComputationGraph. Default: false
+         */
+        public Builder<T> asyncEvaluation(boolean asyncEvaluation) {
+            this.asyncEvaluation = asyncEvaluation;
+            return this;
+        }
+
         /** Create the early stopping configuration */
         public EarlyStoppingConfiguration<T> build() {
             return new EarlyStoppingConfiguration<>(this);
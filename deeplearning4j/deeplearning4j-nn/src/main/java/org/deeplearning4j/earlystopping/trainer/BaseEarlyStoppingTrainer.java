@@ -31,6 +31,7 @@ import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.deeplearning4j.optimize.api.TrainingListener;
 import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.AsyncDataSetIterator;
 import org.nd4j.linalg.dataset.AsyncMultiDataSetIterator;
 import org.nd4j.linalg.dataset.DataSet;
@@ -46,6 +47,10 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 ;
 
@@ -64,6 +69,13 @@ public abstract class BaseEarlyStoppingTrainer<T extends Model> implements IEarl
     private double bestModelScore = Double.MAX_VALUE;
     private int bestModelEpoch = -1;
 
+    //Asynchronous evaluation (see EarlyStoppingConfiguration.Builder.asyncEvaluation): the copy of the model being
+    // scored, the score being calculated on the evaluation thread, and the epoch it is being calculated for
+    private ExecutorService evaluationExecutor;
+    private T evaluationModel;
+    private Future<Double> pendingScore;
+    private int pendingEpoch = -1;
+
     protected BaseEarlyStoppingTrainer(EarlyStoppingConfiguration<T> earlyStoppingConfiguration, T model,
                                        DataSetIterator train, MultiDataSetIterator trainMulti, EarlyStoppingListener<T> listener) {
         if(train != null && train.asyncSupported()){
@@ -130,6 +142,14 @@ public abstract class BaseEarlyStoppingTrainer<T extends Model> implements IEarl
             bestModelScore = -Double.MAX_VALUE;
         }
 
+        try {
+            return fitEpochs(pretrain, scoreVsEpoch);
+        } finally {
+            shutdownAsyncEvaluation();
+        }
+    }
+
+    private EarlyStoppingResult<T> fitEpochs(boolean pretrain, Map<Integer, Double> scoreVsEpoch) {
         int epochCount = 0;
         while (true) {
             reset();
@@ -155,6 +175,7 @@ public abstract class BaseEarlyStoppingTrainer<T extends Model> implements IEarl
                 } catch (Exception e) {
                     log.warn("Early stopping training terminated due to exception at epoch {}, iteration {}",
                             epochCount, iterCount, e);
+                    awaitPendingScore(scoreVsEpoch, epochCount);
                     //Load best model to return
                     T bestModel;
                     try {
@@ -205,6 +226,7 @@ public abstract class BaseEarlyStoppingTrainer<T extends Model> implements IEarl
                 //Handle termination condition:
                 log.info("Hit per iteration epoch termination condition at epoch {}, iteration {}. Reason: {}",
                         epochCount, iterCount, terminationReason);
+                awaitPendingScore(scoreVsEpoch, epochCount);
 
                 if (esConfig.isSaveLastModel()) {
                     //Save last model:
@@ -242,103 +264,219 @@ public abstract class BaseEarlyStoppingTrainer<T extends Model> implements IEarl
             log.info("Completed training epoch {}", epochCount);
 
 
+            EarlyStoppingResult<T> result = null;
             if ((epochCount == 0 && esConfig.getEvaluateEveryNEpochs() == 1)
                     || epochCount % esConfig.getEvaluateEveryNEpochs() == 0) {
-                //Calculate score at this epoch:
-                ScoreCalculator sc = esConfig.getScoreCalculator();
-                double score = esConfig.getScoreCalculator().calculateScore(model);
-                scoreVsEpoch.put(epochCount, score);
-
-                boolean invalidScore = Double.isNaN(score) || Double.isInfinite(score);
-                if(invalidScore){
-                    log.warn("Score is not finite for epoch {}: score = {}", epochCount, score);
-                }
-
-                if ((sc.minimizeScore() && score < bestModelScore) || (!sc.minimizeScore() && score > bestModelScore) || (bestModelEpoch == -1 && invalidScore)) {
-                    //Save best model:
-                    if (bestModelEpoch == -1) {
-                        //First calculated/reported score
-                        log.info("Score at epoch {}: {}", epochCount, score);
-                    } else {
-                        log.info("New best model: score = {}, epoch = {} (previous: score = {}, epoch = {})", score,
-                                epochCount, bestModelScore, bestModelEpoch);
-                    }
-                    bestModelScore = score;
-                    bestModelEpoch = epochCount;
-
-                    try {
-                        esConfig.getModelSaver().saveBestModel(model, score);
-                    } catch (IOException e) {
-                        throw new RuntimeException("Error saving best model", e);
+                if (esConfig.isAsyncEvaluation()) {
+                    //Apply the previous score (if any) before starting the next evaluation
+                    result = awaitPendingScore(scoreVsEpoch, epochCount);
+                    if (result == null) {
+                        submitAsyncEvaluation(epochCount);
                     }
                 } else {
-                    log.info("Score at epoch {}: {}", epochCount, score);
-                }
-
-                if (esConfig.isSaveLastModel()) {
-                    //Save last model:
-                    try {
-                        esConfig.getModelSaver().saveLatestModel(model, score);
-                    } catch (IOException e) {
-                        throw new RuntimeException("Error saving most recent model", e);
-                    }
+                    //Calculate score at this epoch:
+                    double score = esConfig.getScoreCalculator().calculateScore(model);
+                    result = processScore(epochCount, score, model, epochCount + 1, scoreVsEpoch);
                 }
+            } else if (pendingScore != null && pendingScore.isDone()) {
+                result = awaitPendingScore(scoreVsEpoch, epochCount);
+            }
 
+            if (result != null) {
                 if (listener != null) {
-                    listener.onEpoch(epochCount, score, esConfig, model);
+                    listener.onCompletion(result);
                 }
+                return result;
+            }
+            epochCount++;
 
-                //Check per-epoch termination conditions:
-                boolean epochTerminate = false;
-                EpochTerminationCondition termReason = null;
-                for (EpochTerminationCondition c : esConfig.getEpochTerminationConditions()) {
-                    if (c.terminate(epochCount, score, esConfig.getScoreCalculator().minimizeScore())) {
-                        epochTerminate = true;
-                        termReason = c;
-                        break;
-                    }
-                }
-                if (epochTerminate) {
-                    log.info("Hit epoch termination condition at epoch {}. Details: {}", epochCount,
-                            termReason);
-                    T bestModel;
-                    try {
-                        bestModel = esConfig.getModelSaver().getBestModel();
-                        bestModelScore = bestModel.score();
-                    } catch (IOException e2) {
-                        //Best model does not exist. Just save the current model
-                        if(esConfig.isSaveLastModel()) {
-                            try {
-                                esConfig.getModelSaver().saveBestModel(model,0.0);
-                                bestModel = model;
-                                bestModelScore = bestModel.score();
-                            } catch (IOException e) {
-                                log.error("Unable to save model.",e);
-                                throw new RuntimeException(e);
-                            }
-                        }
-                        else {
-                            log.error("Error with earlystopping",e2);
-                            throw new RuntimeException(e2);
-                        }
+        }
+    }
 
-                    }
+    /**
+     * Report the score for an epoch: save the best (and, if enabled, latest) model, notify the listener and check the
+     * epoch termination conditions
+     *
+     * @param epoch         Epoch the score was calculated at
+     * @param score         Score for the epoch
+     * @param scoredModel   Model the score was calculated for - the model being trained, or a copy of it (async)
+     * @param epochsTrained Total number of epochs trained so far
+     * @return The early stopping result if an epoch termination condition was met, null otherwise
+     */
+    private EarlyStoppingResult<T> processScore(int epoch, double score, T scoredModel, int epochsTrained,
+                                                Map<Integer, Double> scoreVsEpoch) {
+        ScoreCalculator sc = esConfig.getScoreCalculator();
+        scoreVsEpoch.put(epoch, score);
+
+        boolean invalidScore = Double.isNaN(score) || Double.isInfinite(score);
+        if(invalidScore){
+            log.warn("Score is not finite for epoch {}: score = {}", epoch, score);
+        }
 
+        if ((sc.minimizeScore() && score < bestModelScore) || (!sc.minimizeScore() && score > bestModelScore) || (bestModelEpoch == -1 && invalidScore)) {
+            //Save best model:
+            if (bestModelEpoch == -1) {
+                //First calculated/reported score
+                log.info("Score at epoch {}: {}", epoch, score);
+            } else {
+                log.info("New best model: score = {}, epoch = {} (previous: score = {}, epoch = {})", score,
+                        epoch, bestModelScore, bestModelEpoch);
+            }
+            bestModelScore = score;
+            bestModelEpoch = epoch;
 
-                    EarlyStoppingResult<T> result = new EarlyStoppingResult<>(
-                            EarlyStoppingResult.TerminationReason.EpochTerminationCondition,
-                            termReason.toString(), scoreVsEpoch, bestModelEpoch, bestModelScore, epochCount + 1,
-                            bestModel);
-                    if (listener != null) {
-                        listener.onCompletion(result);
-                    }
+            try {
+                esConfig.getModelSaver().saveBestModel(scoredModel, score);
+            } catch (IOException e) {
+                throw new RuntimeException("Error saving best model", e);
+            }
+        } else {
+            log.info("Score at epoch {}: {}", epoch, score);
+        }
+
+        if (esConfig.isSaveLastModel()) {
+            //Save last model:
+            try {
+                esConfig.getModelSaver().saveLatestModel(scoredModel, score);
+            } catch (IOException e) {
+                throw new RuntimeException("Error saving most recent model", e);
+            }
+        }
+
+        if (listener != null) {
+            listener.onEpoch(epoch, score, esConfig, scoredModel);
+        }
 
-                    return result;
+        //Check per-epoch termination conditions:
+        boolean epochTerminate = false;
+        EpochTerminationCondition termReason = null;
+        for (EpochTerminationCondition c : esConfig.getEpochTerminationConditions()) {
+            if (c.terminate(epoch, score, esConfig.getScoreCalculator().minimizeScore())) {
+                epochTerminate = true;
+                termReason = c;
+                break;
+            }
+        }
+        if (!epochTerminate) {
+            return null;
+        }
+
+        log.info("Hit epoch termination condition at epoch {}. Details: {}", epoch, termReason);
+        T bestModel;
+        try {
+            bestModel = esConfig.getModelSaver().getBestModel();
+            bestModelScore = bestModel.score();
+        } catch (IOException e2) {
+            //Best model does not exist. Just save the current model
+            if(esConfig.isSaveLastModel()) {
+                try {
+                    esConfig.getModelSaver().saveBestModel(scoredModel,0.0);
+                    bestModel = scoredModel;
+                    bestModelScore = bestModel.score();
+                } catch (IOException e) {
+                    log.error("Unable to save model.",e);
+                    throw new RuntimeException(e);
                 }
             }
-            epochCount++;
+            else {
+                log.error("Error with earlystopping",e2);
+                throw new RuntimeException(e2);
+            }
 
         }
+
+        return new EarlyStoppingResult<>(EarlyStoppingResult.TerminationReason.EpochTerminationCondition,
+                termReason.toString(), scoreVsEpoch, bestModelEpoch, bestModelScore, epochsTrained, bestModel);
+    }
+
+    /**
+     * Copy the current parameters into the evaluation model, and start calculating its score on the evaluation thread
+     */
+    private void submitAsyncEvaluation(int epoch) {
+        if (evaluationExecutor == null) {
+            evaluationExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "EarlyStoppingEvaluation");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        evaluationModel = snapshot(model, evaluationModel);
+        final T toScore = evaluationModel;
+        final ScoreCalculator<T> sc = esConfig.getScoreCalculator();
+        pendingScore = evaluationExecutor.submit(() -> sc.calculateScore(toScore));
+        pendingEpoch = epoch;
+    }
+
+    /**
+     * Wait for the score currently being calculated on the evaluation thread (if any), and process it
+     *
+     * @param epochCount Current (training) epoch
+     * @return The early stopping result if an epoch termination condition was met, null otherwise
+     */
+    private EarlyStoppingResult<T> awaitPendingScore(Map<Integer, Double> scoreVsEpoch, int epochCount) {
+        if (pendingScore == null) {
+            return null;
+        }
+        double score;
+        try {
+            score = pendingScore.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for score calculation", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error calculating score for epoch " + pendingEpoch, e.getCause());
+        } finally {
+            pendingScore = null;
+        }
+        return processScore(pendingEpoch, score, evaluationModel, epochCount + 1, scoreVsEpoch);
+    }
+
+    /**
+     * Copy the parameters (and updater state) of the model being trained into the model used for asynchronous
+     * evaluation. The copy is created on first use, and reused afterwards.
+     *
+     * @param model    Model being trained
+     * @param previous Model used for the previous evaluation, or null
+     * @return Copy of the model
+     */
+    @SuppressWarnings("unchecked")
+    protected T snapshot(T model, T previous) {
+        if (previous == null) {
+            if (model instanceof MultiLayerNetwork) {
+                return (T) ((MultiLayerNetwork) model).clone();
+            } else if (model instanceof ComputationGraph) {
+                return (T) ((ComputationGraph) model).clone();
+            }
+            throw new UnsupportedOperationException("Asynchronous evaluation is only supported for MultiLayerNetwork"
+                    + " and ComputationGraph models, got " + model.getClass().getName());
+        }
+
+        previous.params().assign(model.params());
+        INDArray updaterState = null;
+        INDArray previousUpdaterState = null;
+        if (model instanceof MultiLayerNetwork) {
+            updaterState = ((MultiLayerNetwork) model).getUpdater().getStateViewArray();
+            previousUpdaterState = ((MultiLayerNetwork) previous).getUpdater().getStateViewArray();
+        } else if (model instanceof ComputationGraph) {
+            updaterState = ((ComputationGraph) model).getUpdater().getStateViewArray();
+            previousUpdaterState = ((ComputationGraph) previous).getUpdater().getStateViewArray();
+        }
+        if (updaterState != null && previousUpdaterState != null) {
+            previousUpdaterState.assign(updaterState);
+        }
+        return previous;
+    }
+
+    private void shutdownAsyncEvaluation() {
+        if (pendingScore != null) {
+            pendingScore.cancel(true);
+            pendingScore = null;
+        }
+        if (evaluationExecutor != null) {
+            evaluationExecutor.shutdownNow();
+            evaluationExecutor = null;
+        }
+        evaluationModel = null;
     }
 
     @Override
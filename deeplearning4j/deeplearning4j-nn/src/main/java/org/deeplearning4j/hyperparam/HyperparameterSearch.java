@@ -0,0 +1,659 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.hyperparam;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.earlystopping.scorecalc.ScoreCalculator;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * In-process hyperparameter search: trains candidate networks (created by a {@link ModelFactory} from hyperparameters
+ * sampled from a {@link HyperparameterSpace}) concurrently on a fixed number of worker threads, and ranks them by the
+ * score of a {@link ScoreCalculator}. See {@link SearchMethod} for the available search methods.<br>
+ * The training data is read from the provided iterator once (including any preprocessing), and the resulting
+ * minibatches are shared, read-only, by all candidates; hence the training data must fit in memory.<br>
+ * Candidates are scored after their last epoch (and, for random search with pruning, after every epoch). Score
+ * calculations are performed one at a time, as score calculators (and their iterators) are not thread safe.<br>
+ * Memory use: random search holds one network per worker plus the best network. Successive halving and Hyperband
+ * hold all candidates of the current rung in memory, and population based training the whole population.<br>
+ * A search instance can be used for one search at a time; {@link #fit()} blocks until the search is complete.
+ */
+@Slf4j
+public class HyperparameterSearch {
+
+    //Minimum number of other candidate scores at the same epoch, for median pruning in random search
+    private static final int MIN_SCORES_FOR_MEDIAN = 3;
+
+    private final ModelFactory modelFactory;
+    private final HyperparameterSpace space;
+    private final DataSetIterator trainData;
+    private final ScoreCalculator scoreCalculator;
+    private final SearchMethod searchMethod;
+    private final int numTrials;
+    private final int minEpochs;
+    private final int maxEpochs;
+    private final int reductionFactor;
+    private final int workers;
+    private final long maxTimeMs;
+    private final boolean pruneBelowMedian;
+    private final int exploitInterval;
+    private final double exploitFraction;
+    private final double perturbationFactor;
+    private final long seed;
+
+    //State of the current search
+    private Random rng;
+    private List<DataSet> cachedData;
+    private List<String> labels;
+    private List<Trial> trials;
+    private ExecutorService executor;
+    private long deadline;
+    private final Map<Integer, List<Double>> scoresByEpoch = new HashMap<>();
+    private final Object bestLock = new Object();
+    private Model bestModel;
+    private double bestScore;
+
+    private HyperparameterSearch(Builder builder) {
+        this.modelFactory = builder.modelFactory;
+        this.space = builder.space;
+        this.trainData = builder.trainData;
+        this.scoreCalculator = builder.scoreCalculator;
+        this.searchMethod = builder.searchMethod;
+        this.numTrials = builder.numTrials;
+        this.minEpochs = builder.minEpochs;
+        this.maxEpochs = builder.maxEpochs;
+        this.reductionFactor = builder.reductionFactor;
+        this.workers = builder.workers;
+        this.maxTimeMs = builder.maxTimeMs;
+        this.pruneBelowMedian = builder.pruneBelowMedian;
+        this.exploitInterval = builder.exploitInterval;
+        this.exploitFraction = builder.exploitFraction;
+        this.perturbationFactor = builder.perturbationFactor;
+        this.seed = builder.seed;
+    }
+
+    /**
+     * Run the search. Blocks until all candidates are complete, or the time limit is reached
+     *
+     * @return Leaderboard and best network
+     */
+    public SearchResult fit() {
+        long start = System.currentTimeMillis();
+        deadline = maxTimeMs > 0 ? start + maxTimeMs : Long.MAX_VALUE;
+        rng = new Random(seed);
+        trials = new ArrayList<>();
+        scoresByEpoch.clear();
+        bestModel = null;
+        bestScore = Double.NaN;
+        cacheData();
+
+        executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "HyperparameterSearch-" + count++);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            switch (searchMethod) {
+                case RANDOM:
+                    runRandom();
+                    break;
+                case SUCCESSIVE_HALVING:
+                    runBracket(newTrials(numTrials), minEpochs);
+                    break;
+                case HYPERBAND:
+                    runHyperband();
+                    break;
+                case POPULATION_BASED:
+                    runPopulationBased();
+                    break;
+                default:
+                    throw new UnsupportedOperationException("Unknown search method: " + searchMethod);
+            }
+        } finally {
+            executor.shutdownNow();
+            executor = null;
+            cachedData = null;
+        }
+
+        List<TrialResult> leaderboard = new ArrayList<>(trials.size());
+        long totalEpochs = 0;
+        for (Trial t : trials) {
+            leaderboard.add(new TrialResult(t.id, t.hyperparameters, t.score, t.epochs, t.status, t.trainingTimeMs,
+                            t.failureReason));
+            totalEpochs += t.epochs;
+        }
+        Collections.sort(leaderboard, new Comparator<TrialResult>() {
+            @Override
+            public int compare(TrialResult o1, TrialResult o2) {
+                if (isBetter(o1.getScore(), o2.getScore())) {
+                    return -1;
+                } else if (isBetter(o2.getScore(), o1.getScore())) {
+                    return 1;
+                }
+                return Integer.compare(o1.getTrialId(), o2.getTrialId());
+            }
+        });
+        trials = null;
+
+        SearchResult result = new SearchResult(leaderboard, bestModel, System.currentTimeMillis() - start,
+                        totalEpochs);
+        bestModel = null;
+        log.info("Hyperparameter search complete: {} trials, {} epochs in {} ms. Best: {}", leaderboard.size(),
+                        totalEpochs, result.getTotalTimeMs(), result.getBestTrial());
+        return result;
+    }
+
+    private void cacheData() {
+        if (trainData.resetSupported()) {
+            trainData.reset();
+        }
+        List<DataSet> list = new ArrayList<>();
+        while (trainData.hasNext()) {
+            //Cached for the whole search: must not remain in (or be reused from) an iterator workspace
+            DataSet ds = trainData.next();
+            ds.detach();
+            list.add(ds);
+        }
+        if (list.isEmpty()) {
+            throw new IllegalStateException("Training data iterator did not return any data");
+        }
+        cachedData = Collections.unmodifiableList(list);
+        labels = trainData.getLabels();
+    }
+
+    private void runRandom() {
+        List<Trial> all = newTrials(numTrials);
+        runAll(all, maxEpochs, pruneBelowMedian, true);
+    }
+
+    private void runHyperband() {
+        int sMax = (int) Math.floor(Math.log((double) maxEpochs / minEpochs) / Math.log(reductionFactor) + 1e-9);
+        for (int s = sMax; s >= 0 && !timeUp(); s--) {
+            int n = (int) Math.ceil((double) (sMax + 1) / (s + 1) * Math.pow(reductionFactor, s));
+            int r = Math.max(1, (int) Math.round(maxEpochs * Math.pow(reductionFactor, -s)));
+            log.debug("Hyperband bracket s={}: {} candidates, {} initial epochs", s, n, r);
+            runBracket(newTrials(n), r);
+        }
+    }
+
+    /**
+     * Successive halving: train all candidates for the initial number of epochs, keep the best 1/reductionFactor of
+     * them and train those for reductionFactor times as many epochs, and so on until maxEpochs
+     */
+    private void runBracket(List<Trial> bracket, int initialEpochs) {
+        List<Trial> alive = bracket;
+        long budget = initialEpochs;
+        while (true) {
+            int target = (int) Math.min(budget, maxEpochs);
+            runAll(alive, target, false, false);
+            alive = active(alive);
+            if (target >= maxEpochs || timeUp()) {
+                break;
+            }
+            if (alive.size() <= 1) {
+                //Train the last candidate to the full number of epochs
+                runAll(alive, maxEpochs, false, false);
+                break;
+            }
+            sortBestFirst(alive);
+            int keep = Math.max(1, alive.size() / reductionFactor);
+            for (Trial t : alive.subList(keep, alive.size())) {
+                t.status = TrialResult.Status.Pruned;
+                t.model = null;
+            }
+            alive = new ArrayList<>(alive.subList(0, keep));
+            budget *= reductionFactor;
+        }
+        for (Trial t : bracket) {
+            finish(t);
+        }
+    }
+
+    private void runPopulationBased() {
+        List<Trial> population = newTrials(numTrials);
+        int target = 0;
+        while (target < maxEpochs && !timeUp()) {
+            target = Math.min(maxEpochs, target + exploitInterval);
+            runAll(population, target, false, false);
+            if (target >= maxEpochs) {
+                break;
+            }
+
+            List<Trial> ranked = active(population);
+            sortBestFirst(ranked);
+            int n = (int) (ranked.size() * exploitFraction);
+            for (int i = 0; i < n; i++) {
+                Trial loser = ranked.get(ranked.size() - 1 - i);
+                Trial winner = ranked.get(rng.nextInt(n));
+                exploit(loser, winner);
+            }
+        }
+        for (Trial t : population) {
+            finish(t);
+        }
+    }
+
+    /**
+     * Replace the loser's network by a copy of the winner's (parameters and updater state), with perturbed
+     * hyperparameters
+     */
+    private void exploit(Trial loser, Trial winner) {
+        Map<String, Object> hp = space.perturb(winner.hyperparameters, rng, perturbationFactor);
+        Model m = createModel(hp);
+        if (m.numParams() != winner.model.numParams()) {
+            throw new IllegalStateException("Population based training requires hyperparameters that do not change"
+                            + " the network parameters: got " + m.numParams() + " parameters for " + hp
+                            + " vs. " + winner.model.numParams() + " for " + winner.hyperparameters);
+        }
+        m.params().assign(winner.model.params());
+        INDArray updaterState = updaterState(winner.model);
+        INDArray newUpdaterState = updaterState(m);
+        if (updaterState != null && newUpdaterState != null && updaterState.length() == newUpdaterState.length()) {
+            newUpdaterState.assign(updaterState);
+        }
+        log.debug("Trial {} (score {}) exploits trial {} (score {}): new hyperparameters {}", loser.id, loser.score,
+                        winner.id, winner.score, hp);
+        loser.model = m;
+        loser.hyperparameters = hp;
+        loser.score = winner.score;
+        loser.epochs = winner.epochs;
+    }
+
+    private static INDArray updaterState(Model m) {
+        if (m instanceof MultiLayerNetwork) {
+            return ((MultiLayerNetwork) m).getUpdater().getStateViewArray();
+        }
+        return ((ComputationGraph) m).getUpdater().getStateViewArray();
+    }
+
+    private List<Trial> newTrials(int n) {
+        List<Trial> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Trial t = new Trial(trials.size(), space.sample(rng));
+            trials.add(t);
+            out.add(t);
+        }
+        return out;
+    }
+
+    /**
+     * Train all active trials (concurrently) to the target number of epochs, and wait for them to finish
+     */
+    private void runAll(List<Trial> toRun, final int targetEpochs, final boolean scoreEachEpoch,
+                    final boolean finishOnCompletion) {
+        List<Future<?>> futures = new ArrayList<>(toRun.size());
+        for (final Trial t : toRun) {
+            if (t.status != null) {
+                continue;
+            }
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    train(t, targetEpochs, scoreEachEpoch);
+                    if (finishOnCompletion) {
+                        finish(t);
+                    }
+                }
+            }));
+        }
+        try {
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted during hyperparameter search", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error during hyperparameter search", e.getCause());
+        }
+    }
+
+    private void train(Trial t, int targetEpochs, boolean scoreEachEpoch) {
+        try {
+            if (t.model == null) {
+                t.model = createModel(t.hyperparameters);
+            }
+            SharedDataSetIterator iter = new SharedDataSetIterator(cachedData, labels);
+            while (t.epochs < targetEpochs) {
+                if (timeUp()) {
+                    t.status = TrialResult.Status.TimeLimit;
+                    return;
+                }
+                long start = System.currentTimeMillis();
+                iter.reset();
+                if (t.model instanceof MultiLayerNetwork) {
+                    ((MultiLayerNetwork) t.model).fit(iter);
+                } else {
+                    ((ComputationGraph) t.model).fit(iter);
+                }
+                t.trainingTimeMs += System.currentTimeMillis() - start;
+                t.epochs++;
+
+                if (scoreEachEpoch || t.epochs == targetEpochs) {
+                    t.score = score(t.model);
+                    if (scoreEachEpoch && shouldPrune(t)) {
+                        log.debug("Pruning trial {} after {} epochs: score {}", t.id, t.epochs, t.score);
+                        t.status = TrialResult.Status.Pruned;
+                        t.model = null;
+                        return;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Hyperparameter search trial {} failed, hyperparameters: {}", t.id, t.hyperparameters, e);
+            t.status = TrialResult.Status.Failed;
+            t.failureReason = e.toString();
+            t.model = null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private double score(Model m) {
+        synchronized (scoreCalculator) {
+            return scoreCalculator.calculateScore(m);
+        }
+    }
+
+    /**
+     * Median stopping rule: prune if the score is worse than the median score of the other candidates after the
+     * same number of epochs
+     */
+    private boolean shouldPrune(Trial t) {
+        List<Double> others;
+        synchronized (scoresByEpoch) {
+            List<Double> l = scoresByEpoch.get(t.epochs);
+            if (l == null) {
+                l = new ArrayList<>();
+                scoresByEpoch.put(t.epochs, l);
+            }
+            others = new ArrayList<>(l);
+            l.add(t.score);
+        }
+        if (t.epochs < minEpochs || t.epochs >= maxEpochs || others.size() < MIN_SCORES_FOR_MEDIAN) {
+            return false;
+        }
+        Collections.sort(others);
+        int n = others.size();
+        double median = (n % 2 == 1 ? others.get(n / 2) : (others.get(n / 2 - 1) + others.get(n / 2)) / 2.0);
+        return isBetter(median, t.score);
+    }
+
+    /**
+     * End a trial: mark it as completed (or stopped by the time limit) if it is still active, offer its network as
+     * the best network, and release it
+     */
+    private void finish(Trial t) {
+        if (t.status == null) {
+            t.status = t.epochs >= maxEpochs ? TrialResult.Status.Completed : TrialResult.Status.TimeLimit;
+        }
+        if (t.model != null) {
+            synchronized (bestLock) {
+                if (isBetter(t.score, bestScore)) {
+                    bestModel = t.model;
+                    bestScore = t.score;
+                }
+            }
+            t.model = null;
+        }
+    }
+
+    private Model createModel(Map<String, Object> hyperparameters) {
+        Model m = modelFactory.create(hyperparameters);
+        if (!(m instanceof MultiLayerNetwork) && !(m instanceof ComputationGraph)) {
+            throw new IllegalStateException("ModelFactory must return a MultiLayerNetwork or ComputationGraph, got "
+                            + (m == null ? null : m.getClass().getName()));
+        }
+        m.init();
+        return m;
+    }
+
+    private boolean timeUp() {
+        return System.currentTimeMillis() >= deadline;
+    }
+
+    private static List<Trial> active(List<Trial> list) {
+        List<Trial> out = new ArrayList<>(list.size());
+        for (Trial t : list) {
+            if (t.status == null) {
+                out.add(t);
+            }
+        }
+        return out;
+    }
+
+    private void sortBestFirst(List<Trial> list) {
+        Collections.sort(list, new Comparator<Trial>() {
+            @Override
+            public int compare(Trial o1, Trial o2) {
+                if (isBetter(o1.score, o2.score)) {
+                    return -1;
+                } else if (isBetter(o2.score, o1.score)) {
+                    return 1;
+                }
+                return Integer.compare(o1.id, o2.id);
+            }
+        });
+    }
+
+    /**
+     * @return True if score a is better than score b. NaN scores are worse than any other score
+     */
+    private boolean isBetter(double a, double b) {
+        if (Double.isNaN(a)) {
+            return false;
+        }
+        if (Double.isNaN(b)) {
+            return true;
+        }
+        return scoreCalculator.minimizeScore() ? a < b : a > b;
+    }
+
+    private static class Trial {
+        private final int id;
+        private Map<String, Object> hyperparameters;
+        private Model model;
+        private int epochs;
+        private double score = Double.NaN;
+        //Null while the trial is active
+        private TrialResult.Status status;
+        private long trainingTimeMs;
+        private String failureReason;
+
+        private Trial(int id, Map<String, Object> hyperparameters) {
+            this.id = id;
+            this.hyperparameters = hyperparameters;
+        }
+    }
+
+    public static class Builder {
+
+        private final ModelFactory modelFactory;
+        private final HyperparameterSpace space;
+        private final DataSetIterator trainData;
+        private final ScoreCalculator scoreCalculator;
+        private SearchMethod searchMethod = SearchMethod.RANDOM;
+        private int numTrials = 20;
+        private int minEpochs = 1;
+        private int maxEpochs = 10;
+        private int reductionFactor = 3;
+        private int workers = 1;
+        private long maxTimeMs = 0;
+        private boolean pruneBelowMedian = true;
+        private int exploitInterval = 1;
+        private double exploitFraction = 0.25;
+        private double perturbationFactor = 0.2;
+        private long seed = System.currentTimeMillis();
+
+        /**
+         * @param modelFactory    Creates the network for each candidate
+         * @param space           Hyperparameters to search over
+         * @param trainData       Training data. Read once, at the start of the search, and cached in memory
+         * @param scoreCalculator Score calculator, used to rank (and prune) candidates - usually calculated on
+         *                        held-out data
+         */
+        public Builder(@NonNull ModelFactory modelFactory, @NonNull HyperparameterSpace space,
+                        @NonNull DataSetIterator trainData, @NonNull ScoreCalculator<?> scoreCalculator) {
+            this.modelFactory = modelFactory;
+            this.space = space;
+            this.trainData = trainData;
+            this.scoreCalculator = scoreCalculator;
+        }
+
+        /**
+         * @param searchMethod Search method. Default: {@link SearchMethod#RANDOM}
+         */
+        public Builder searchMethod(@NonNull SearchMethod searchMethod) {
+            this.searchMethod = searchMethod;
+            return this;
+        }
+
+        /**
+         * @param numTrials Number of candidates, for random search and successive halving. Population size, for
+         *                  population based training. Not used for Hyperband. Default: 20
+         */
+        public Builder numTrials(int numTrials) {
+            this.numTrials = numTrials;
+            return this;
+        }
+
+        /**
+         * @param minEpochs Number of epochs in the first rung of successive halving and Hyperband. For random
+         *                  search: minimum number of epochs before a candidate can be pruned. Default: 1
+         */
+        public Builder minEpochs(int minEpochs) {
+            this.minEpochs = minEpochs;
+            return this;
+        }
+
+        /**
+         * @param maxEpochs Maximum number of epochs to train each candidate for. Default: 10
+         */
+        public Builder maxEpochs(int maxEpochs) {
+            this.maxEpochs = maxEpochs;
+            return this;
+        }
+
+        /**
+         * @param reductionFactor Reduction factor (eta) for successive halving and Hyperband: only 1/eta of the
+         *                        candidates are kept after each rung. Default: 3
+         */
+        public Builder reductionFactor(int reductionFactor) {
+            this.reductionFactor = reductionFactor;
+            return this;
+        }
+
+        /**
+         * @param workers Number of candidates to train concurrently, each on its own thread. Default: 1
+         */
+        public Builder workers(int workers) {
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * @param maxTime Maximum search time. After this time, no new epochs are started; candidates that did not
+         *                finish are reported with status {@link TrialResult.Status#TimeLimit}
+         */
+        public Builder maxTime(long maxTime, @NonNull TimeUnit unit) {
+            this.maxTimeMs = unit.toMillis(maxTime);
+            return this;
+        }
+
+        /**
+         * @param pruneBelowMedian For random search: if true, score candidates after every epoch, and prune those
+         *                         with a score worse than the median score of (at least 3) other candidates after
+         *                         the same number of epochs. Default: true
+         */
+        public Builder pruneBelowMedian(boolean pruneBelowMedian) {
+            this.pruneBelowMedian = pruneBelowMedian;
+            return this;
+        }
+
+        /**
+         * @param exploitInterval For population based training: number of epochs between exploit/explore steps.
+         *                        Default: 1
+         */
+        public Builder exploitInterval(int exploitInterval) {
+            this.exploitInterval = exploitInterval;
+            return this;
+        }
+
+        /**
+         * @param exploitFraction For population based training: fraction of the population that is replaced by
+         *                        (perturbed copies of) the same fraction of best candidates, in each exploit step.
+         *                        Must be in (0, 0.5]. Default: 0.25
+         */
+        public Builder exploitFraction(double exploitFraction) {
+            this.exploitFraction = exploitFraction;
+            return this;
+        }
+
+        /**
+         * @param perturbationFactor For population based training: perturbation factor for the explore step - see
+         *                           {@link HyperparameterSpace#perturb(Map, Random, double)}. Default: 0.2
+         */
+        public Builder perturbationFactor(double perturbationFactor) {
+            this.perturbationFactor = perturbationFactor;
+            return this;
+        }
+
+        /**
+         * @param seed Seed for sampling (and perturbing) hyperparameters
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public HyperparameterSearch build() {
+            if (numTrials <= 0 || workers <= 0) {
+                throw new IllegalStateException("Number of trials and workers must be positive, got " + numTrials
+                                + " and " + workers);
+            }
+            if (minEpochs <= 0 || maxEpochs < minEpochs) {
+                throw new IllegalStateException("Invalid number of epochs: minEpochs=" + minEpochs + ", maxEpochs="
+                                + maxEpochs + " (must have 0 < minEpochs <= maxEpochs)");
+            }
+            if (reductionFactor < 2) {
+                throw new IllegalStateException("Reduction factor must be at least 2, got " + reductionFactor);
+            }
+            if (exploitInterval <= 0 || !(exploitFraction > 0 && exploitFraction <= 0.5)) {
+                throw new IllegalStateException("Invalid population based training configuration: exploitInterval="
+                                + exploitInterval + ", exploitFraction=" + exploitFraction);
+            }
+            return new HyperparameterSearch(this);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.hyperparam;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * The hyperparameters to search over, and their ranges.<br>
+ * Values are sampled as Double (for {@link Builder#uniform(String, double, double)} and
+ * {@link Builder#logUniform(String, double, double)}), Integer (for {@link Builder#integer(String, int, int)}), or
+ * one of the provided values (for {@link Builder#discrete(String, Object...)}).
+ */
+public class HyperparameterSpace implements Serializable {
+
+    private final Map<String, Range> ranges;
+
+    private HyperparameterSpace(Builder builder) {
+        this.ranges = Collections.unmodifiableMap(new LinkedHashMap<>(builder.ranges));
+    }
+
+    /**
+     * @return Names of the hyperparameters, in the order they were added
+     */
+    public Set<String> getNames() {
+        return ranges.keySet();
+    }
+
+    /**
+     * Sample a value for each hyperparameter, uniformly (or log-uniformly) within its range
+     *
+     * @param rng Random number generator to use
+     * @return Hyperparameter values, by name
+     */
+    public Map<String, Object> sample(Random rng) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (Map.Entry<String, Range> e : ranges.entrySet()) {
+            out.put(e.getKey(), e.getValue().sample(rng));
+        }
+        return out;
+    }
+
+    /**
+     * Perturb the given hyperparameter values, as used in the explore step of population based training: continuous
+     * values are multiplied by (1 - factor) or (1 + factor), integers are changed by up to factor times their range
+     * (and at least 1), and discrete values are replaced by an adjacent value. All values stay within their range.
+     *
+     * @param values Values to perturb
+     * @param rng    Random number generator to use
+     * @param factor Perturbation factor, for example 0.2
+     * @return New (perturbed) hyperparameter values
+     */
+    public Map<String, Object> perturb(Map<String, Object> values, Random rng, double factor) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (Map.Entry<String, Range> e : ranges.entrySet()) {
+            out.put(e.getKey(), e.getValue().perturb(values.get(e.getKey()), rng, factor));
+        }
+        return out;
+    }
+
+    private interface Range extends Serializable {
+
+        Object sample(Random rng);
+
+        Object perturb(Object value, Random rng, double factor);
+    }
+
+    @AllArgsConstructor
+    @Data
+    private static class ContinuousRange implements Range {
+        private final double min;
+        private final double max;
+        private final boolean log;
+
+        @Override
+        public Object sample(Random rng) {
+            if (log) {
+                return Math.exp(Math.log(min) + rng.nextDouble() * (Math.log(max) - Math.log(min)));
+            }
+            return min + rng.nextDouble() * (max - min);
+        }
+
+        @Override
+        public Object perturb(Object value, Random rng, double factor) {
+            double d = ((Number) value).doubleValue() * (rng.nextBoolean() ? 1.0 + factor : 1.0 - factor);
+            return Math.max(min, Math.min(max, d));
+        }
+    }
+
+    @AllArgsConstructor
+    @Data
+    private static class IntegerRange implements Range {
+        private final int min;
+        private final int max;
+
+        @Override
+        public Object sample(Random rng) {
+            return min + rng.nextInt(max - min + 1);
+        }
+
+        @Override
+        public Object perturb(Object value, Random rng, double factor) {
+            int delta = Math.max(1, (int) Math.round(factor * (max - min)));
+            int i = ((Number) value).intValue() + (rng.nextBoolean() ? delta : -delta);
+            return Math.max(min, Math.min(max, i));
+        }
+    }
+
+    @AllArgsConstructor
+    @Data
+    private static class DiscreteRange implements Range {
+        private final List<Object> values;
+
+        @Override
+        public Object sample(Random rng) {
+            return values.get(rng.nextInt(values.size()));
+        }
+
+        @Override
+        public Object perturb(Object value, Random rng, double factor) {
+            int idx = values.indexOf(value);
+            if (idx < 0) {
+                return sample(rng);
+            }
+            idx += rng.nextBoolean() ? 1 : -1;
+            return values.get(Math.max(0, Math.min(values.size() - 1, idx)));
+        }
+    }
+
+    public static class Builder {
+
+        private final Map<String, Range> ranges = new LinkedHashMap<>();
+
+        /**
+         * Continuous hyperparameter, sampled uniformly between min and max
+         */
+        public Builder uniform(String name, double min, double max) {
+            if (!(min <= max)) {
+                throw new IllegalArgumentException("Invalid range for hyperparameter \"" + name + "\": min=" + min
+                                + ", max=" + max);
+            }
+            ranges.put(name, new ContinuousRange(min, max, false));
+            return this;
+        }
+
+        /**
+         * Continuous hyperparameter, sampled uniformly between log(min) and log(max) - for example, learning rates
+         */
+        public Builder logUniform(String name, double min, double max) {
+            if (!(min > 0 && min <= max)) {
+                throw new IllegalArgumentException("Invalid range for log-uniform hyperparameter \"" + name
+                                + "\": min=" + min + ", max=" + max + " (min must be positive)");
+            }
+            ranges.put(name, new ContinuousRange(min, max, true));
+            return this;
+        }
+
+        /**
+         * Integer hyperparameter, sampled uniformly between min and max (both inclusive)
+         */
+        public Builder integer(String name, int min, int max) {
+            if (min > max) {
+                throw new IllegalArgumentException("Invalid range for hyperparameter \"" + name + "\": min=" + min
+                                + ", max=" + max);
+            }
+            ranges.put(name, new IntegerRange(min, max));
+            return this;
+        }
+
+        /**
+         * Hyperparameter with a discrete set of values. For population based training, values should be ordered, as
+         * perturbation moves to an adjacent value
+         */
+        public Builder discrete(String name, Object... values) {
+            if (values == null || values.length == 0) {
+                throw new IllegalArgumentException("No values provided for hyperparameter \"" + name + "\"");
+            }
+            ranges.put(name, new DiscreteRange(Arrays.asList(values)));
+            return this;
+        }
+
+        public HyperparameterSpace build() {
+            if (ranges.isEmpty()) {
+                throw new IllegalStateException("No hyperparameters have been added");
+            }
+            return new HyperparameterSpace(this);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.hyperparam;
+
+import org.deeplearning4j.nn.api.Model;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Creates the network for a set of hyperparameter values, sampled from a {@link HyperparameterSpace}.<br>
+ * The returned network must be a {@link org.deeplearning4j.nn.multilayer.MultiLayerNetwork} or a
+ * {@link org.deeplearning4j.nn.graph.ComputationGraph}; it is initialized by the search if required.<br>
+ * Networks are created concurrently from the search worker threads, so implementations must be thread safe.
+ */
+public interface ModelFactory extends Serializable {
+
+    /**
+     * @param hyperparameters Hyperparameter values, by name
+     * @return Network for the hyperparameter values
+     */
+    Model create(Map<String, Object> hyperparameters);
+}
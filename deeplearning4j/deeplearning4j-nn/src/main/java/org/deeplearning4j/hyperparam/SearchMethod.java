@@ -0,0 +1,49 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.hyperparam;
+
+/**
+ * Search method for {@link HyperparameterSearch}
+ */
+public enum SearchMethod {
+    /**
+     * Train randomly sampled candidates for the maximum number of epochs. Optionally, candidates are pruned early
+     * when their score is worse than the median score of the other candidates after the same number of epochs
+     */
+    RANDOM,
+    /**
+     * Successive halving: train all candidates for the minimum number of epochs, keep the best 1/eta (the reduction
+     * factor) of them, train those for eta times as many epochs, and so on up to the maximum number of epochs
+     */
+    SUCCESSIVE_HALVING,
+    /**
+     * Hyperband: successive halving with several brackets, from many candidates with few epochs, to few candidates
+     * trained for the maximum number of epochs. The number of candidates is derived from the minimum and maximum
+     * number of epochs and the reduction factor
+     */
+    HYPERBAND,
+    /**
+     * Population based training: train a population of candidates concurrently; periodically, the worst candidates
+     * copy the parameters of the best ones (exploit) and continue with perturbed hyperparameters (explore).
+     * Hyperparameters must not change the number or shape of the network parameters
+     */
+    POPULATION_BASED
+}
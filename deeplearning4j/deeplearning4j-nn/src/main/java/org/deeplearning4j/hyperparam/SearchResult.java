@@ -0,0 +1,76 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.hyperparam;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.deeplearning4j.nn.api.Model;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class SearchResult implements Serializable {
+
+    /** All trials, best score first. Trials without a score are last */
+    private List<TrialResult> leaderboard;
+    /** Network of the best scoring trial, or null if no trial was scored */
+    private Model bestModel;
+    private long totalTimeMs;
+    /** Total number of epochs trained, over all trials */
+    private long totalEpochs;
+
+    /**
+     * @return Best scoring trial, or null if there are no trials
+     */
+    public TrialResult getBestTrial() {
+        return leaderboard.isEmpty() ? null : leaderboard.get(0);
+    }
+
+    /**
+     * @return Number of trials that were scored at least once, per hour of search time
+     */
+    public double trialsPerHour() {
+        long scored = 0;
+        for (TrialResult r : leaderboard) {
+            if (!Double.isNaN(r.getScore())) {
+                scored++;
+            }
+        }
+        return totalTimeMs <= 0 ? 0.0 : scored * 3600000.0 / totalTimeMs;
+    }
+
+    /**
+     * @return The leaderboard, formatted as a table
+     */
+    public String leaderboardString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-6s %-8s %-10s %-12s %-10s %s%n", "Rank", "Trial", "Status", "Score", "Epochs",
+                        "Hyperparameters"));
+        int rank = 1;
+        for (TrialResult r : leaderboard) {
+            sb.append(String.format("%-6d %-8d %-10s %-12.6g %-10d %s%n", rank++, r.getTrialId(), r.getStatus(),
+                            r.getScore(), r.getEpochs(), r.getHyperparameters()));
+        }
+        return sb.toString();
+    }
+}
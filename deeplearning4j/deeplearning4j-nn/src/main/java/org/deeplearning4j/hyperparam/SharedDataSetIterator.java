@@ -0,0 +1,113 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.hyperparam;
+
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over the minibatches cached (decoded, and preprocessed) by a {@link HyperparameterSearch}, shared
+ * read-only by all candidates. Each candidate has its own iterator instance, and hence its own position.
+ */
+class SharedDataSetIterator implements DataSetIterator {
+
+    private final List<DataSet> data;
+    private final List<String> labels;
+    private int cursor;
+
+    SharedDataSetIterator(List<DataSet> data, List<String> labels) {
+        this.data = data;
+        this.labels = labels;
+    }
+
+    @Override
+    public DataSet next(int num) {
+        throw new UnsupportedOperationException("Only allowed to retrieve cached minibatches");
+    }
+
+    @Override
+    public DataSet next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No next element");
+        }
+        return data.get(cursor++);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return cursor < data.size();
+    }
+
+    @Override
+    public int inputColumns() {
+        return (int) data.get(0).getFeatures().size(1);
+    }
+
+    @Override
+    public int totalOutcomes() {
+        return (int) data.get(0).getLabels().size(1);
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        //Already in memory: nothing to gain from prefetching
+        return false;
+    }
+
+    @Override
+    public void reset() {
+        cursor = 0;
+    }
+
+    @Override
+    public int batch() {
+        return data.isEmpty() ? 0 : data.get(0).numExamples();
+    }
+
+    @Override
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+        throw new UnsupportedOperationException("Preprocessors are not supported: data is shared between candidates");
+    }
+
+    @Override
+    public DataSetPreProcessor getPreProcessor() {
+        return null;
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.hyperparam;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class TrialResult implements Serializable {
+
+    public enum Status {
+        /** Trained for the full number of epochs (or until the end of the search, for population based training) */
+        Completed,
+        /** Stopped early, due to a bad score relative to the other candidates */
+        Pruned,
+        /** Stopped due to the search time limit */
+        TimeLimit,
+        /** Stopped due to an exception during training or scoring */
+        Failed
+    }
+
+    private int trialId;
+    /** Hyperparameters of the candidate. For population based training: the final hyperparameters */
+    private Map<String, Object> hyperparameters;
+    /** Most recent score of the candidate, or NaN if it was never scored */
+    private double score;
+    private int epochs;
+    private Status status;
+    private long trainingTimeMs;
+    /** Exception message, for failed candidates. Null otherwise */
+    private String failureReason;
+
+    @Override
+    public String toString() {
+        return "TrialResult(id=" + trialId + ",status=" + status + ",score=" + score + ",epochs=" + epochs
+                        + ",hyperparameters=" + hyperparameters + ")";
+    }
+}
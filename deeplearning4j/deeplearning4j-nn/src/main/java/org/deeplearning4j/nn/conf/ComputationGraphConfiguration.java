@@ -79,6 +79,14 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
     @Setter
     protected DataType dataType = DataType.FLOAT;   //Default to float for 1.0.0-beta3 and earlier nets
 
+    @Getter
+    @Setter
+    protected MixedPrecision mixedPrecision;        //Null: no mixed precision training
+
+    @Getter
+    @Setter
+    protected GradientCheckpointing gradientCheckpointing;  //Null: no gradient checkpointing
+
     protected boolean validateOutputLayerConfig = true;     //Default for 1.0.0-beta3 and earlier nets
 
     /**
@@ -334,6 +342,8 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
         conf.defaultConfiguration.cacheMode = this.cacheMode;
         conf.validateOutputLayerConfig = this.validateOutputLayerConfig;
         conf.dataType = this.dataType;
+        conf.mixedPrecision = this.mixedPrecision == null ? null : this.mixedPrecision.clone();
+        conf.gradientCheckpointing = this.gradientCheckpointing == null ? null : this.gradientCheckpointing.clone();
 
         return conf;
     }
@@ -584,6 +594,22 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
         return getLayerActivationTypes(addPreprocIfNecessary,true,inputTypes);
     }
 
+    /**
+     * Split the vertices into gradient checkpointing segments - see {@link GradientCheckpointing}
+     *
+     * @param topologicalOrder Names of all vertices (including inputs) in forward pass order
+     * @return Segment index for each vertex, in the specified order
+     */
+    public int[] checkpointSegmentIndices(List<String> topologicalOrder) {
+        Preconditions.checkState(gradientCheckpointing != null, "Gradient checkpointing is not configured");
+        String[] names = topologicalOrder.toArray(new String[topologicalOrder.size()]);
+        boolean[] isLayer = new boolean[names.length];
+        for (int i = 0; i < names.length; i++) {
+            isLayer[i] = vertices.get(names[i]) instanceof LayerVertex;
+        }
+        return gradientCheckpointing.segmentIndices(names, isLayer);
+    }
+
     private Map<String, List<String>> verticesOutputTo() {
         Map<String, List<String>> verticesOutputTo = new HashMap<>(); //Key: vertex. Values: vertices that this node is an input for
         for (Map.Entry<String, GraphVertex> entry : vertices.entrySet()) {
@@ -703,8 +729,54 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
             memoryReportMap.put(s, mr);
         }
 
-        return new NetworkMemoryReport(memoryReportMap, ComputationGraphConfiguration.class, "ComputationGraph",
-                inputTypes);
+        NetworkMemoryReport report = new NetworkMemoryReport(memoryReportMap, ComputationGraphConfiguration.class,
+                "ComputationGraph", inputTypes);
+        if (gradientCheckpointing != null) {
+            report.setRecomputedActivationSegments(checkpointRecomputedVertices(topologicalOrdering));
+        }
+        return report;
+    }
+
+    /**
+     * Gradient checkpointing: determine which vertex activations are discarded after the training forward pass, and
+     * recomputed during backprop - see {@link GradientCheckpointing}.<br>
+     * Activations of vertices in the last segment, network inputs, and any activations used by a vertex in another
+     * segment (or by a network output layer) are kept; all others are recomputed.
+     *
+     * @param topologicalOrder Names of all vertices (including inputs) in forward pass order
+     * @return Names of the vertices whose activations are recomputed, mapped to the segment index they are recomputed in
+     */
+    public Map<String, Integer> checkpointRecomputedVertices(List<String> topologicalOrder) {
+        String[] names = topologicalOrder.toArray(new String[topologicalOrder.size()]);
+        int[] segments = checkpointSegmentIndices(topologicalOrder);
+        int lastSegment = segments.length == 0 ? 0 : segments[segments.length - 1];
+        Map<String, Integer> segmentOf = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            segmentOf.put(names[i], segments[i]);
+        }
+
+        Map<String, List<String>> outputsTo = verticesOutputTo();
+        Map<String, Integer> out = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            String s = names[i];
+            if (segments[i] == lastSegment || networkInputs.contains(s) || networkOutputs.contains(s)) {
+                continue;
+            }
+            boolean keep = false;
+            List<String> consumers = outputsTo.get(s);
+            if (consumers != null) {
+                for (String c : consumers) {
+                    if (segmentOf.get(c) != segments[i] || networkOutputs.contains(c)) {
+                        keep = true;
+                        break;
+                    }
+                }
+            }
+            if (!keep) {
+                out.put(s, segments[i]);
+            }
+        }
+        return out;
     }
 
     @Data
@@ -1201,6 +1273,8 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
             conf.cacheMode = globalConfiguration.cacheMode;
             conf.validateOutputLayerConfig = validateOutputConfig;
             conf.dataType = globalConfiguration.dataType;
+            conf.mixedPrecision = globalConfiguration.mixedPrecision;
+            conf.gradientCheckpointing = globalConfiguration.gradientCheckpointing;
 
             conf.defaultConfiguration = globalConfiguration.build();
 
@@ -0,0 +1,109 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.conf;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.nd4j.common.base.Preconditions;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Gradient checkpointing (activation recomputation) configuration.<br>
+ * The layers (or graph vertices) of the network are split into segments, each starting at a checkpoint. During the
+ * training forward pass, only the checkpointed activations (the inputs to each segment, and any activations used
+ * outside of the segment they were computed in) are kept until backprop. All other activations are discarded after
+ * the forward pass, and are recomputed - one segment at a time - during backprop. The last segment is never
+ * discarded.<br>
+ * This reduces the memory required for activations from the sum of all layer activations, to the sum of the
+ * checkpointed activations plus the activations of the largest segment, at the cost of one additional forward pass
+ * (for all but the last segment) per iteration.<br>
+ * Checkpoints can be set every N layers, and/or at specific layers or graph vertices (by name). A checkpoint at a
+ * layer means that the input to that layer is kept.<br>
+ * Note: gradient checkpointing is used only for standard backprop (not truncated BPTT) with training workspaces
+ * enabled ({@link WorkspaceMode#ENABLED}), and is ignored otherwise. Random operations (such as dropout) produce the
+ * same results in the recomputed forward pass as in the original forward pass.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GradientCheckpointing implements Serializable, Cloneable {
+
+    /** Start a new segment every N layers. 0: disabled (only use {@link #getCheckpoints()}) */
+    private int everyNLayers;
+    /** Names of the layers or vertices that start a new segment */
+    private Set<String> checkpoints = new HashSet<>();
+
+    /**
+     * @param n Number of layers in each segment
+     * @return Configuration with a checkpoint every N layers
+     */
+    public static GradientCheckpointing everyNLayers(int n) {
+        Preconditions.checkArgument(n > 0, "Number of layers per segment must be positive, got %s", n);
+        return new GradientCheckpointing(n, new HashSet<String>());
+    }
+
+    /**
+     * @param layerOrVertexNames Names of the layers (or ComputationGraph vertices) that start a new segment. Note that
+     *                           MultiLayerNetwork layers without a configured name are named "layer0", "layer1", etc
+     * @return Configuration with checkpoints at the specified layers/vertices
+     */
+    public static GradientCheckpointing atLayers(String... layerOrVertexNames) {
+        return new GradientCheckpointing(0, new HashSet<>(Arrays.asList(layerOrVertexNames)));
+    }
+
+    /**
+     * Split the layers or vertices of a network (in forward pass order) into segments
+     *
+     * @param names   Names of the layers/vertices, in forward pass (topological) order
+     * @param isLayer For each position, whether it is a layer (and hence counts for {@link #getEveryNLayers()}).
+     *                May be null, if all positions are layers
+     * @return Segment index for each position, starting at 0 and non-decreasing
+     */
+    public int[] segmentIndices(String[] names, boolean[] isLayer) {
+        int[] out = new int[names.length];
+        int segment = 0;
+        int layerCount = 0;
+        for (int i = 0; i < names.length; i++) {
+            boolean layer = isLayer == null || isLayer[i];
+            if (i > 0) {
+                boolean everyN = layer && everyNLayers > 0 && layerCount > 0 && layerCount % everyNLayers == 0;
+                if (everyN || (checkpoints != null && names[i] != null && checkpoints.contains(names[i]))) {
+                    segment++;
+                }
+            }
+            out[i] = segment;
+            if (layer) {
+                layerCount++;
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public GradientCheckpointing clone() {
+        return new GradientCheckpointing(everyNLayers, checkpoints == null ? null : new HashSet<>(checkpoints));
+    }
+}
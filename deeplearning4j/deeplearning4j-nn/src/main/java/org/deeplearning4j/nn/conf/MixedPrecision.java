@@ -0,0 +1,97 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.conf;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Mixed precision training configuration.<br>
+ * When set on a network with a {@link org.nd4j.linalg.api.buffer.DataType#HALF} or
+ * {@link org.nd4j.linalg.api.buffer.DataType#BFLOAT16} data type, the forward and backward passes are executed in that
+ * (16 bit) data type, while the updater keeps FP32 master weights and FP32 updater state. Parameter updates are
+ * calculated in FP32, and the 16 bit network parameters are set from the master weights after every iteration.<br>
+ * To avoid small gradients underflowing in 16 bit precision, the loss is scaled by the loss scale before backprop, and
+ * the gradients are unscaled (in FP32) before the updater is applied.<br>
+ * With dynamic loss scaling (the default), the loss scale is reduced (by {@link #getBackoffFactor()}) and the
+ * parameter update is skipped whenever an overflow (Infinity or NaN) is detected in the gradients, and increased (by
+ * {@link #getGrowthFactor()}, up to {@link #getMaxLossScale()}) after {@link #getGrowthInterval()} consecutive
+ * iterations without overflow.<br>
+ * For networks with FLOAT or DOUBLE data type, this configuration has no effect.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MixedPrecision implements Serializable, Cloneable {
+
+    /** 2^15: the largest power of 2 that can be represented in FP16 */
+    public static final double DEFAULT_INITIAL_LOSS_SCALE = 32768.0;
+    /** 2^24: the loss scale may grow beyond the initial scale, when the gradients are small enough not to overflow */
+    public static final double DEFAULT_MAX_LOSS_SCALE = 16777216.0;
+    public static final double DEFAULT_GROWTH_FACTOR = 2.0;
+    public static final double DEFAULT_BACKOFF_FACTOR = 0.5;
+    public static final int DEFAULT_GROWTH_INTERVAL = 2000;
+
+    @Builder.Default
+    private double initialLossScale = DEFAULT_INITIAL_LOSS_SCALE;
+    @Builder.Default
+    private boolean dynamicLossScaling = true;
+    @Builder.Default
+    private double growthFactor = DEFAULT_GROWTH_FACTOR;
+    @Builder.Default
+    private double backoffFactor = DEFAULT_BACKOFF_FACTOR;
+    @Builder.Default
+    private int growthInterval = DEFAULT_GROWTH_INTERVAL;
+    @Builder.Default
+    private double minLossScale = 1.0;
+    /** Maximum loss scale. Any scale that causes an overflow of the gradients is reduced again */
+    @Builder.Default
+    private double maxLossScale = DEFAULT_MAX_LOSS_SCALE;
+
+    /**
+     * @return Mixed precision configuration with dynamic loss scaling, using default settings
+     */
+    public static MixedPrecision dynamicLossScaling() {
+        return MixedPrecision.builder().build();
+    }
+
+    /**
+     * @param lossScale Fixed loss scale to use. Iterations with overflow are still skipped, but the scale is not changed
+     * @return Mixed precision configuration with a fixed loss scale
+     */
+    public static MixedPrecision staticLossScaling(double lossScale) {
+        return MixedPrecision.builder().initialLossScale(lossScale).dynamicLossScaling(false).build();
+    }
+
+    @Override
+    public MixedPrecision clone() {
+        try {
+            return (MixedPrecision) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -34,6 +34,7 @@ import org.deeplearning4j.nn.conf.serde.JsonMappers;
 import org.deeplearning4j.nn.weights.IWeightInit;
 import org.deeplearning4j.nn.weights.WeightInit;
 import org.deeplearning4j.util.OutputLayerUtil;
+import org.nd4j.common.base.Preconditions;
 import org.nd4j.linalg.activations.Activation;
 import org.nd4j.linalg.activations.IActivation;
 import org.nd4j.linalg.api.buffer.DataType;
@@ -81,6 +82,14 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
     @Setter
     protected DataType dataType = DataType.FLOAT;   //Default to float for deserialization of beta3 and earlier nets
 
+    @Getter
+    @Setter
+    protected MixedPrecision mixedPrecision;        //Null: no mixed precision training
+
+    @Getter
+    @Setter
+    protected GradientCheckpointing gradientCheckpointing;  //Null: no gradient checkpointing
+
     //Counter for the number of parameter updates so far
     // This is important for learning rate schedules, for example, and is stored here to ensure it is persisted
     // for Spark and model serialization
@@ -392,6 +401,8 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             clone.cacheMode = this.cacheMode;
             clone.validateOutputLayerConfig = this.validateOutputLayerConfig;
             clone.dataType = this.dataType;
+            clone.mixedPrecision = this.mixedPrecision == null ? null : this.mixedPrecision.clone();
+            clone.gradientCheckpointing = this.gradientCheckpointing == null ? null : this.gradientCheckpointing.clone();
 
             return clone;
 
@@ -434,7 +445,38 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             inputType = confs.get(i).getLayer().getOutputType(i, inputType);
         }
 
-        return new NetworkMemoryReport(memoryReportMap, MultiLayerConfiguration.class, "MultiLayerNetwork", inputType);
+        NetworkMemoryReport report = new NetworkMemoryReport(memoryReportMap, MultiLayerConfiguration.class,
+                "MultiLayerNetwork", inputType);
+        if (gradientCheckpointing != null && nLayers > 1) {
+            //Activations of all but the last layer in each discarded segment are recomputed (the output of the last
+            // layer is the input to the next segment, and is kept)
+            int[] segments = checkpointSegmentIndices(nLayers - 2);
+            int lastSegment = segments[segments.length - 1];
+            Map<String, Integer> recomputed = new HashMap<>();
+            for (int i = 0; i < segments.length - 1; i++) {
+                if (segments[i] != lastSegment && segments[i + 1] == segments[i]) {
+                    String layerName = confs.get(i).getLayer().getLayerName();
+                    recomputed.put(layerName == null ? String.valueOf(i) : layerName, segments[i]);
+                }
+            }
+            report.setRecomputedActivationSegments(recomputed);
+        }
+        return report;
+    }
+
+    /**
+     * Split layers 0 to layerIndex (inclusive) into gradient checkpointing segments - see {@link GradientCheckpointing}
+     *
+     * @param layerIndex Index of the last layer to include
+     * @return Segment index for each layer
+     */
+    public int[] checkpointSegmentIndices(int layerIndex) {
+        Preconditions.checkState(gradientCheckpointing != null, "Gradient checkpointing is not configured");
+        String[] names = new String[layerIndex + 1];
+        for (int i = 0; i <= layerIndex; i++) {
+            names[i] = confs.get(i).getLayer().getLayerName();
+        }
+        return gradientCheckpointing.segmentIndices(names, null);
     }
 
     /**
@@ -478,6 +520,8 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
         protected boolean validateOutputConfig = true;
         protected boolean validateTbpttConfig = true;
         protected DataType dataType;
+        protected MixedPrecision mixedPrecision;
+        protected GradientCheckpointing gradientCheckpointing;
         protected boolean overrideNinUponBuild = true;
 
 
@@ -643,6 +687,28 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             return this;
         }
 
+        /**
+         * Enable mixed precision training: FP32 master weights and updater state, with forward and backward passes
+         * executed in the network data type (HALF or BFLOAT16). Has no effect for FLOAT or DOUBLE networks.
+         * See {@link MixedPrecision} for details. Default: null (disabled)
+         * @param mixedPrecision Mixed precision configuration. May be null
+         */
+        public Builder mixedPrecision(MixedPrecision mixedPrecision){
+            this.mixedPrecision = mixedPrecision;
+            return this;
+        }
+
+        /**
+         * Enable gradient checkpointing: discard intermediate activations after the training forward pass, and
+         * recompute them (one segment at a time) during backprop. See {@link GradientCheckpointing} for details.
+         * Default: null (disabled)
+         * @param gradientCheckpointing Gradient checkpointing configuration. May be null
+         */
+        public Builder gradientCheckpointing(GradientCheckpointing gradientCheckpointing){
+            this.gradientCheckpointing = gradientCheckpointing;
+            return this;
+        }
+
 
         public MultiLayerConfiguration build() {
             //Validate BackpropType setting
@@ -750,6 +816,8 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             conf.inferenceWorkspaceMode = inferenceWorkspaceMode;
             conf.cacheMode = cacheMode;
             conf.dataType = dataType;
+            conf.mixedPrecision = mixedPrecision;
+            conf.gradientCheckpointing = gradientCheckpointing;
 
             Nd4j.getRandom().setSeed(conf.getConf(0).getSeed());
 
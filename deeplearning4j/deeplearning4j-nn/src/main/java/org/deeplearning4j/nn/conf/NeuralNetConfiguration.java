@@ -331,6 +331,8 @@ public class NeuralNetConfiguration implements Serializable, Cloneable {
                     .inferenceWorkspaceMode(wsmTest).confs(list).validateOutputLayerConfig(validateOutputConfig)
                     .overrideNinUponBuild(overrideNinUponBuild)
                     .dataType(globalConfig.dataType)
+                    .mixedPrecision(globalConfig.mixedPrecision)
+                    .gradientCheckpointing(globalConfig.gradientCheckpointing)
                     .build();
         }
 
@@ -485,6 +487,8 @@ public class NeuralNetConfiguration implements Serializable, Cloneable {
         protected boolean setIWM = false;
         protected CacheMode cacheMode = CacheMode.NONE;
         protected DataType dataType = DataType.FLOAT;
+        protected MixedPrecision mixedPrecision;
+        protected GradientCheckpointing gradientCheckpointing;
 
         protected ConvolutionMode convolutionMode = ConvolutionMode.Truncate;
         protected ConvolutionLayer.AlgoMode cudnnAlgoMode = ConvolutionLayer.AlgoMode.PREFER_FASTEST;
@@ -1144,15 +1148,44 @@ public class NeuralNetConfiguration implements Serializable, Cloneable {
 
         /**
          * Set the DataType for the network parameters and activations. Must be a floating point type: {@link DataType#DOUBLE},
-         * {@link DataType#FLOAT} or {@link DataType#HALF}.<br>
+         * {@link DataType#FLOAT}, {@link DataType#HALF} or {@link DataType#BFLOAT16}.<br>
+         * For HALF and BFLOAT16 networks, see also {@link #mixedPrecision(MixedPrecision)}
          */
         public Builder dataType(@NonNull DataType dataType){
-            Preconditions.checkState(dataType == DataType.DOUBLE || dataType == DataType.FLOAT || dataType == DataType.HALF,
-                    "Data type must be a floating point type: one of DOUBLE, FLOAT, or HALF. Got datatype: %s", dataType);
+            Preconditions.checkState(dataType == DataType.DOUBLE || dataType == DataType.FLOAT || dataType == DataType.HALF
+                            || dataType == DataType.BFLOAT16,
+                    "Data type must be a floating point type: one of DOUBLE, FLOAT, HALF or BFLOAT16. Got datatype: %s", dataType);
             this.dataType = dataType;
             return this;
         }
 
+        /**
+         * Mixed precision training for HALF and BFLOAT16 networks: the forward and backward passes are executed in the
+         * network data type, while the updater keeps FP32 master weights and FP32 updater state, with (dynamic) loss
+         * scaling to avoid gradient underflow. Has no effect for FLOAT or DOUBLE networks. See {@link MixedPrecision}.<br>
+         * Default: null (disabled - parameters and updater state use the network data type)
+         *
+         * @param mixedPrecision Mixed precision configuration, for example {@link MixedPrecision#dynamicLossScaling()}
+         */
+        public Builder mixedPrecision(MixedPrecision mixedPrecision){
+            this.mixedPrecision = mixedPrecision;
+            return this;
+        }
+
+        /**
+         * Gradient checkpointing (activation recomputation): intermediate activations are discarded after the training
+         * forward pass, and recomputed one segment at a time during backprop - trading additional computation for
+         * reduced activation memory. Checkpoints can be set every N layers, or at specific layers/vertices.
+         * See {@link GradientCheckpointing}.<br>
+         * Default: null (disabled - all activations are kept until backprop)
+         *
+         * @param gradientCheckpointing Gradient checkpointing configuration, for example {@link GradientCheckpointing#everyNLayers(int)}
+         */
+        public Builder gradientCheckpointing(GradientCheckpointing gradientCheckpointing){
+            this.gradientCheckpointing = gradientCheckpointing;
+            return this;
+        }
+
         /**
          * Return a configuration based on this builder
          *
@@ -23,6 +23,7 @@ package org.deeplearning4j.nn.conf.memory;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 import org.deeplearning4j.nn.conf.CacheMode;
 import org.deeplearning4j.nn.conf.inputs.InputType;
 import org.nd4j.linalg.api.buffer.DataBuffer;
@@ -31,6 +32,8 @@ import org.nd4j.shade.jackson.annotation.JsonProperty;
 
 import java.text.DecimalFormat;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -44,6 +47,14 @@ public class NetworkMemoryReport extends MemoryReport {
     private final Class<?> modelClass;
     private final String modelName;
     private final InputType[] networkInputTypes;
+    /**
+     * Gradient checkpointing: the layers/vertices whose activations are discarded after the training forward pass and
+     * recomputed during backprop, mapped to the index of the segment they are recomputed in. Null if gradient
+     * checkpointing is not used
+     */
+    @Setter
+    @JsonProperty("recomputedActivationSegments")
+    private Map<String, Integer> recomputedActivationSegments;
 
     public NetworkMemoryReport(
                     @NonNull @JsonProperty("layerAndVertexReports") Map<String, MemoryReport> layerAndVertexReports,
@@ -82,7 +93,8 @@ public class NetworkMemoryReport extends MemoryReport {
         for (MemoryReport lmr : layerAndVertexReports.values()) {
 
             for (MemoryType mt : MemoryType.values()) {
-                if (mt == MemoryType.WORKING_MEMORY_FIXED || mt == MemoryType.WORKING_MEMORY_VARIABLE) {
+                if (mt == MemoryType.WORKING_MEMORY_FIXED || mt == MemoryType.WORKING_MEMORY_VARIABLE
+                                || mt == MemoryType.ACTIVATIONS) {
                     continue;
                 }
                 totalBytes += lmr.getMemoryBytes(mt, minibatchSize, memoryUseMode, cacheMode, dataType);
@@ -101,12 +113,17 @@ public class NetworkMemoryReport extends MemoryReport {
             }
         }
 
+        totalBytes += getActivationsBytes(minibatchSize, memoryUseMode, cacheMode, dataType);
+
         return totalBytes + maxWorkingFixed + maxWorkingVariable;
     }
 
     @Override
     public long getMemoryBytes(MemoryType memoryType, int minibatchSize, MemoryUseMode memoryUseMode,
                     CacheMode cacheMode, DataType dataType) {
+        if (memoryType == MemoryType.ACTIVATIONS) {
+            return getActivationsBytes(minibatchSize, memoryUseMode, cacheMode, dataType);
+        }
         long totalBytes = 0;
         for (MemoryReport lmr : layerAndVertexReports.values()) {
 
@@ -122,6 +139,34 @@ public class NetworkMemoryReport extends MemoryReport {
         return totalBytes;
     }
 
+    /**
+     * Activations memory. When gradient checkpointing is used for training, only the checkpointed activations, plus
+     * the activations of one recomputed segment (the largest) are held in memory at once
+     */
+    private long getActivationsBytes(int minibatchSize, MemoryUseMode memoryUseMode, CacheMode cacheMode,
+                    DataType dataType) {
+        boolean checkpointing = memoryUseMode == MemoryUseMode.TRAINING && recomputedActivationSegments != null;
+        long totalBytes = 0;
+        Map<Integer, Long> segmentBytes = new HashMap<>();
+        for (Map.Entry<String, MemoryReport> e : layerAndVertexReports.entrySet()) {
+            long bytes = e.getValue().getMemoryBytes(MemoryType.ACTIVATIONS, minibatchSize, memoryUseMode, cacheMode,
+                            dataType);
+            Integer segment = checkpointing ? recomputedActivationSegments.get(e.getKey()) : null;
+            if (segment == null) {
+                totalBytes += bytes;
+            } else {
+                Long soFar = segmentBytes.get(segment);
+                segmentBytes.put(segment, soFar == null ? bytes : soFar + bytes);
+            }
+        }
+
+        long maxSegment = 0;
+        for (Long l : segmentBytes.values()) {
+            maxSegment = Math.max(maxSegment, l);
+        }
+        return totalBytes + maxSegment;
+    }
+
     @Override
     public String toString() {
 
@@ -155,6 +200,12 @@ public class NetworkMemoryReport extends MemoryReport {
                         .append("  # Layers:                           ").append(layerAndVertexReports.size())
                         .append("\n").append("  Layer Types:                        ").append(sbLayerCounts)
                         .append("\n");
+        if (recomputedActivationSegments != null) {
+            sb.append("  Gradient Checkpointing:             ")
+                            .append(new HashSet<>(recomputedActivationSegments.values()).size())
+                            .append(" recomputed segments, ").append(recomputedActivationSegments.size())
+                            .append(" recomputed activations\n");
+        }
 
         appendFixedPlusVariable(sb, "  Inference Memory (FP32)             ", fixedMemBytes, perEx);
         appendFixedPlusVariable(sb, "  Training Memory (FP32):             ", fixedMemBytesTrain, perExTrain);
@@ -54,8 +54,10 @@ import org.deeplearning4j.nn.layers.FrozenLayer;
 import org.deeplearning4j.nn.layers.FrozenLayerWithBackprop;
 import org.deeplearning4j.nn.layers.recurrent.BidirectionalLayer;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.updater.LossScaler;
 import org.deeplearning4j.nn.updater.graph.ComputationGraphUpdater;
 import org.deeplearning4j.nn.workspace.ArrayType;
+import org.deeplearning4j.nn.workspace.CheckpointSegment;
 import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
 import org.deeplearning4j.optimize.Solver;
 import org.deeplearning4j.optimize.api.ConvexOptimizer;
@@ -116,6 +118,8 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
     @Setter
     protected Gradient gradient;
     protected double score;
+    //Mixed precision: the loss scale actually applied to the current gradients (1.0 for external epsilon backprop)
+    protected double gradientLossScale = 1.0;
     @Setter
     private boolean initDone = false;
     @Getter
@@ -125,6 +129,11 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
     @Getter
     protected transient Map<String,Pointer> helperWorkspaces = new HashMap<>();
 
+    //Gradient checkpointing: segments discarded in the current forward pass (to be recomputed during backprop), and
+    // the segment index of each vertex (by vertex index)
+    protected transient List<CheckpointSegment> checkpointSegments;
+    protected transient int[] checkpointSegmentOfVertex;
+
     private transient final AtomicLong occupiedBy = new AtomicLong(-1);
 
     /**
@@ -142,6 +151,12 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
      */
     protected static final String WS_RNN_LOOP_WORKING_MEM = "WS_RNN_LOOP_WORKING_MEM";
 
+    /**
+     * Workspace for the activations of one gradient checkpointing segment - opened and closed once per segment in the
+     * forward pass, and again when the segment is recomputed during backprop
+     */
+    protected static final String WS_CHECKPOINT_SEGMENT = "WS_CHECKPOINT_SEGMENT";
+
     /**
      * Workspace for output methods that use OutputAdapter
      */
@@ -1381,8 +1396,14 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
 
         //Calculate activations (which are stored in each layer, and used in backprop)
         try(MemoryWorkspace wsAllActivations = workspaceMgr.notifyScopeEntered(ArrayType.ACTIVATIONS)) {
-            Map<String, INDArray> activations = ffToLayerActivationsInWS(true, -1, getOutputLayerIndices(),
-                    fwdType, tbptt, inputs, inputMaskArrays, labelMaskArrays, false);
+            Map<String, INDArray> activations;
+            if (!tbptt && useGradientCheckpointing()) {
+                //Note: with gradient checkpointing, discarded activations are not included in the map
+                activations = ffToLayerActivationsCheckpointed(inputs, inputMaskArrays, labelMaskArrays);
+            } else {
+                activations = ffToLayerActivationsInWS(true, -1, getOutputLayerIndices(),
+                        fwdType, tbptt, inputs, inputMaskArrays, labelMaskArrays, false);
+            }
             if (!trainingListeners.isEmpty()) {
                 try (MemoryWorkspace workspace = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
                     for (TrainingListener tl : trainingListeners) {
@@ -1390,7 +1411,12 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                     }
                 }
             }
-            calcBackpropGradients(false,false);
+            try {
+                calcBackpropGradients(false, false);
+            } finally {
+                checkpointSegments = null;
+                checkpointSegmentOfVertex = null;
+            }
 
             workspaceMgr.assertCurrentWorkspace(ArrayType.ACTIVATIONS, null);
 
@@ -2197,6 +2223,216 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
     }
 
 
+    /**
+     * @return True if gradient checkpointing is configured, and can be used for (non-TBPTT) training
+     */
+    protected boolean useGradientCheckpointing() {
+        if (configuration.getGradientCheckpointing() == null) {
+            return false;
+        }
+        if (configuration.getTrainingWorkspaceMode() == WorkspaceMode.NONE) {
+            OneTimeLogger.warn(log, "Gradient checkpointing requires training workspace mode ENABLED - checkpointing will not be used");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Feed-forward through the network at training time with gradient checkpointing (see {@link GradientCheckpointing}).
+     * As per {@link #ffToLayerActivationsInWS(boolean, int, int[], FwdPassType, boolean, INDArray[], INDArray[], INDArray[], boolean)}
+     * (excluding output layers), except that only the network inputs, the activations of the last segment, and any
+     * activations used by vertices in another segment are kept in WS_ALL_LAYERS_ACT. All other activations are computed
+     * in WS_CHECKPOINT_SEGMENT (closed at the end of each segment) and are recomputed during backprop.<br>
+     * Requires that WS_ALL_LAYERS_ACT is open externally.
+     *
+     * @param input Input feature arrays
+     * @param fMask Feature mask arrays. May be null.
+     * @param lMask Label mask array. May be null.
+     * @return Map of kept activations (including the input), in workspace WS_ALL_LAYERS_ACT
+     */
+    protected synchronized Map<String,INDArray> ffToLayerActivationsCheckpointed(INDArray[] input, INDArray[] fMask, INDArray[] lMask) {
+        setInputs(input);
+        setLayerMaskArrays(fMask, lMask);
+        WorkspaceUtils.assertOpenAndActive(WS_ALL_LAYERS_ACT, "ffToLayerActivationsCheckpointed method requires workspace WS_ALL_LAYERS_ACT to be open");
+
+        LayerWorkspaceMgr workspaceMgr = LayerWorkspaceMgr.builder()
+                .with(ArrayType.ACTIVATIONS, WS_ALL_LAYERS_ACT, WS_ALL_LAYERS_ACT_CONFIG)
+                .with(ArrayType.INPUT, WS_ALL_LAYERS_ACT, WS_ALL_LAYERS_ACT_CONFIG)
+                .with(ArrayType.FF_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG)
+                .with(ArrayType.RNN_FF_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM_CONFIG)
+                .build();
+        if(input[0].isAttached()){
+            //Don't leverage out of async DataMultiSetIterator workspaces
+            workspaceMgr.setNoLeverageOverride(input[0].data().getParentWorkspace().getId());
+        }
+        if(configuration.getCacheMode() != CacheMode.NONE){
+            workspaceMgr.setWorkspace(ArrayType.FF_CACHE, WS_ALL_LAYERS_ACT, WS_ALL_LAYERS_ACT_CONFIG);
+        }
+        workspaceMgr.setHelperWorkspacePointers(helperWorkspaces);
+        LayerWorkspaceMgr segmentMgr = checkpointSegmentWorkspaceMgr();
+
+        List<String> order = new ArrayList<>(topologicalOrder.length);
+        for (int idx : topologicalOrder) {
+            order.add(vertices[idx].getVertexName());
+        }
+        int[] segmentIdx = configuration.checkpointSegmentIndices(order);
+        Map<String, Integer> recomputed = configuration.checkpointRecomputedVertices(order);
+        int lastSegment = segmentIdx[segmentIdx.length - 1];
+        int[] outputIdxs = getOutputLayerIndices();
+
+        checkpointSegmentOfVertex = new int[vertices.length];
+        for (int i = 0; i < topologicalOrder.length; i++) {
+            checkpointSegmentOfVertex[topologicalOrder[i]] = segmentIdx[i];
+        }
+        checkpointSegments = new ArrayList<>();
+
+        Map<String, INDArray> activations = new HashMap<>();
+        MemoryWorkspace wsSegment = null;
+        try {
+            for (int i = 0; i < topologicalOrder.length; i++) {
+                GraphVertex current = vertices[topologicalOrder[i]];
+                String vName = current.getVertexName();
+                int vIdx = current.getVertexIndex();
+                int segment = segmentIdx[i];
+                boolean discard = segment != lastSegment;
+
+                if (i == 0 || segmentIdx[i - 1] != segment) {
+                    if (wsSegment != null) {
+                        wsSegment.close();
+                        wsSegment = null;
+                    }
+                    if (discard) {
+                        //Start of a discarded segment: store the state required to recompute it during backprop
+                        int end = i;
+                        while (segmentIdx[end + 1] == segment) {
+                            end++;
+                        }
+                        checkpointSegments.add(new CheckpointSegment(segment, i, end, null,
+                                Nd4j.getRandom().rootState(), Nd4j.getRandom().nodeState()));
+                        wsSegment = segmentMgr.notifyScopeEntered(ArrayType.ACTIVATIONS);
+                    }
+                }
+
+                if (ArrayUtils.contains(outputIdxs, vIdx)) {
+                    continue;
+                }
+
+                LayerWorkspaceMgr mgr = discard ? segmentMgr : workspaceMgr;
+                try (MemoryWorkspace wsFFWorking = mgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)) {
+                    INDArray out;
+                    if (current.isInputVertex()) {
+                        out = inputs[vIdx];
+                    } else {
+                        out = current.doForward(true, mgr);
+                        validateArrayWorkspaces(mgr, out, ArrayType.ACTIVATIONS, vName, false, "Feed forward (training, checkpointed)");
+                    }
+
+                    boolean keep = !discard || !recomputed.containsKey(vName);
+                    if (discard && keep && !current.isInputVertex()) {
+                        //Checkpoint: used outside of this segment, so kept until backprop
+                        out = workspaceMgr.leverageTo(ArrayType.ACTIVATIONS, out);
+                    }
+                    if (keep) {
+                        activations.put(vName, out);
+                    }
+
+                    VertexIndices[] inputsTo = current.getOutputVertices();
+                    if (inputsTo != null) {
+                        for (VertexIndices v : inputsTo) {
+                            int inputToIndex = v.getVertexIndex();
+                            boolean sameSegment = discard && checkpointSegmentOfVertex[inputToIndex] == segment
+                                    && !ArrayUtils.contains(outputIdxs, inputToIndex);
+                            vertices[inputToIndex].setInput(v.getVertexEdgeNumber(), out, sameSegment ? segmentMgr : workspaceMgr);
+                        }
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            checkpointSegments = null;
+            checkpointSegmentOfVertex = null;
+            throw e;
+        } finally {
+            if (wsSegment != null) {
+                wsSegment.close();
+            }
+        }
+        return activations;
+    }
+
+    /**
+     * Workspace manager for the vertex inputs and activations (and cache, if used) of one gradient checkpointing segment
+     */
+    private LayerWorkspaceMgr checkpointSegmentWorkspaceMgr() {
+        LayerWorkspaceMgr mgr = LayerWorkspaceMgr.builder()
+                .with(ArrayType.ACTIVATIONS, WS_CHECKPOINT_SEGMENT, WS_ALL_LAYERS_ACT_CONFIG)
+                .with(ArrayType.INPUT, WS_CHECKPOINT_SEGMENT, WS_ALL_LAYERS_ACT_CONFIG)
+                .with(ArrayType.FF_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG)
+                .with(ArrayType.RNN_FF_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM_CONFIG)
+                .build();
+        if(inputs != null && inputs[0] != null && inputs[0].isAttached()){
+            mgr.setNoLeverageOverride(inputs[0].data().getParentWorkspace().getId());
+        }
+        if(configuration.getCacheMode() != CacheMode.NONE){
+            mgr.setWorkspace(ArrayType.FF_CACHE, WS_CHECKPOINT_SEGMENT, WS_ALL_LAYERS_ACT_CONFIG);
+        }
+        mgr.setHelperWorkspacePointers(helperWorkspaces);
+        return mgr;
+    }
+
+    /**
+     * Recompute the forward pass for a gradient checkpointing segment, with the same RNG state as the original forward
+     * pass. Inputs to vertices in the segment are set in a newly opened WS_CHECKPOINT_SEGMENT workspace, which is
+     * returned and must be closed by the caller once backprop for the segment is complete
+     */
+    private MemoryWorkspace recomputeCheckpointSegment(CheckpointSegment segment, MemoryWorkspace initialWorkspace) {
+        LayerWorkspaceMgr mgr = checkpointSegmentWorkspaceMgr();
+        MemoryWorkspace ws = mgr.notifyScopeEntered(ArrayType.ACTIVATIONS);
+        //Not nested with the activation gradient workspaces - see calcBackpropGradients
+        ws.setPreviousWorkspace(initialWorkspace);
+
+        int[] outputIdxs = getOutputLayerIndices();
+        long rngRoot = Nd4j.getRandom().rootState();
+        long rngNode = Nd4j.getRandom().nodeState();
+        segment.restoreRngState(Nd4j.getRandom());
+        try {
+            for (int i = segment.getStart(); i <= segment.getEnd(); i++) {
+                GraphVertex current = vertices[topologicalOrder[i]];
+                if (current.isInputVertex() || ArrayUtils.contains(outputIdxs, current.getVertexIndex())) {
+                    continue;
+                }
+                try (MemoryWorkspace wsFFWorking = mgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)) {
+                    if (current instanceof LayerVertex) {
+                        int inputIdx = current.getInputVertices()[0].getVertexIndex();
+                        if (vertices[inputIdx].isInputVertex() || checkpointSegmentOfVertex[inputIdx] != segment.getIndex()) {
+                            //Vertex input is not recomputed (and is still set), but the layer input - after preprocessing
+                            // and dropout - was in the closed segment workspace
+                            ((LayerVertex) current).applyPreprocessorAndSetInput(mgr);
+                        }
+                    }
+                    INDArray out = current.doForward(true, mgr);
+
+                    VertexIndices[] inputsTo = current.getOutputVertices();
+                    if (inputsTo != null) {
+                        for (VertexIndices v : inputsTo) {
+                            int inputToIndex = v.getVertexIndex();
+                            if (checkpointSegmentOfVertex[inputToIndex] == segment.getIndex() && !ArrayUtils.contains(outputIdxs, inputToIndex)) {
+                                vertices[inputToIndex].setInput(v.getVertexEdgeNumber(), out, mgr);
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            ws.close();
+            throw e;
+        } finally {
+            Nd4j.getRandom().setStates(rngRoot, rngNode);
+        }
+        //Segment workspace stays open (but not current) until backprop of the segment is complete
+        Nd4j.getMemoryManager().setCurrentWorkspace(initialWorkspace);
+        return ws;
+    }
+
     /**
      * Provide the output of the specified layers, detached from any workspace. This is most commonly used at inference/test
      * time, and is more memory efficient than {@link #ffToLayerActivationsDetached(boolean, FwdPassType, boolean, int, int[], INDArray[], INDArray[], INDArray[], boolean)}
@@ -2670,15 +2906,34 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         MemoryWorkspace initialWorkspace = Nd4j.getMemoryManager().getCurrentWorkspace();
 
         boolean traceLog = log.isTraceEnabled();
+        double lossScale = getMixedPrecisionLossScale();
+        gradientLossScale = 1.0;
+        MemoryWorkspace wsRecompute = null;
+        CheckpointSegment recomputed = null;
 
         Throwable t = null;
         try {
             for (int i = topologicalOrder.length - 1; i >= 0; i--) {
                 boolean hitFrozen = false;
+                boolean isOutputLayer = false;
                 GraphVertex current = vertices[topologicalOrder[i]];
                 int vIdx = current.getVertexIndex();
                 String vertexName = current.getVertexName();
 
+                if (checkpointSegments != null) {
+                    //Gradient checkpointing: recompute the activations for a segment before backprop of its last vertex
+                    if (wsRecompute != null && i < recomputed.getStart()) {
+                        wsRecompute.close();
+                        wsRecompute = null;
+                    }
+                    for (CheckpointSegment s : checkpointSegments) {
+                        if (s.getEnd() == i) {
+                            recomputed = s;
+                            wsRecompute = recomputeCheckpointSegment(s, initialWorkspace);
+                        }
+                    }
+                }
+
                 if (traceLog) {
                     log.trace("About backprop: {} (\"{}\") - {}", i, vertexName, current.getClass().getSimpleName());
                 }
@@ -2745,6 +3000,7 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
 
                         INDArray currLabels = labels[thisOutputNumber];
                         outputLayer.setLabels(currLabels);
+                        isOutputLayer = true;
                     } else {
                         if ((externalEpsilons == null || externalEpsilons.length == 0)
                                 && labels[thisOutputNumber] != null) {
@@ -2784,6 +3040,12 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                     pair = current.doBackward(truncatedBPTT, workspaceMgr);
                     epsilons = pair.getSecond();
 
+                    if (isOutputLayer) {
+                        //Mixed precision: scale the loss, to avoid underflow of small gradients
+                        LossScaler.scaleOutputGradients(pair.getFirst(), epsilons, lossScale);
+                        gradientLossScale = lossScale;
+                    }
+
                     //Validate workspace location for the activation gradients:
                     //validateArrayWorkspaces(LayerWorkspaceMgr mgr, INDArray array, ArrayType arrayType, String vertexName, boolean isInputVertex, String op){
                     for (INDArray epsilon : epsilons) {
@@ -2851,6 +3113,17 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         } catch (Throwable t2){
             t = t2;
         } finally {
+            if(wsRecompute != null){
+                try {
+                    wsRecompute.close();
+                } catch (Throwable t2){
+                    if(t != null){
+                        log.error("Encountered second exception while trying to close workspace after initial exception");
+                        log.error("Original exception:", t);
+                        throw t2;
+                    }
+                }
+            }
             //Close all open workspaces... usually this list will be empty, but not if an exception is thrown
             for(MemoryWorkspace ws : openActivationsWorkspaces.keySet()){
                 try{
@@ -2998,6 +3271,40 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         return getUpdater(true);
     }
 
+    /**
+     * @return The loss scale applied to the gradients during backprop, for mixed precision training (see
+     * {@link MixedPrecision}), or 1.0 if mixed precision training is not used. Only gradients computed from the output
+     * layer are scaled: see {@link #getGradientLossScale()}
+     */
+    public double getMixedPrecisionLossScale() {
+        MixedPrecision mp = configuration.getMixedPrecision();
+        if (flattenedParams == null || !LossScaler.isMixedPrecision(mp, flattenedParams.dataType())) {
+            return 1.0;
+        }
+        ComputationGraphUpdater u = getUpdater(false);
+        if (u != null) {
+            return u.getLossScale();
+        }
+        //Updater not yet created: first iteration
+        return mp.getInitialLossScale();
+    }
+
+    /**
+     * @return The loss scale that was applied to the current {@link #gradient()} during the last backprop, for mixed
+     * precision training. This is {@link #getMixedPrecisionLossScale()} if the output layer was backpropagated, or 1.0
+     * if backprop started from externally provided epsilons (which are not loss scaled)
+     */
+    public double getGradientLossScale() {
+        return gradientLossScale;
+    }
+
+    private void syncMixedPrecisionMasterParams() {
+        ComputationGraphUpdater u = getUpdater(false);
+        if (u != null) {
+            u.syncMasterParams();
+        }
+    }
+
     /**
      * Get the ComputationGraphUpdater for this network
      * @param initializeIfAbsent If true: create the updater if one is absent. False: return null if absent.
@@ -3346,6 +3653,7 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
 
         if (this.flattenedParams != null && this.flattenedParams.length() == params.length()) {
             this.flattenedParams.assign(params);
+            syncMixedPrecisionMasterParams();
             return;
         }
 
@@ -3490,6 +3798,7 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
             INDArray arrNew = paramTable.get(s);
             arrCurrent.assign(arrNew);
         }
+        syncMixedPrecisionMasterParams();
     }
 
     @Override
@@ -48,8 +48,11 @@ import org.deeplearning4j.nn.layers.FrozenLayerWithBackprop;
 import org.deeplearning4j.nn.layers.LayerHelper;
 import org.deeplearning4j.nn.layers.recurrent.BidirectionalLayer;
 import org.deeplearning4j.nn.layers.wrapper.BaseWrapperLayer;
+import org.deeplearning4j.nn.updater.BaseMultiLayerUpdater;
+import org.deeplearning4j.nn.updater.LossScaler;
 import org.deeplearning4j.nn.updater.UpdaterCreator;
 import org.deeplearning4j.nn.workspace.ArrayType;
+import org.deeplearning4j.nn.workspace.CheckpointSegment;
 import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
 import org.deeplearning4j.optimize.Solver;
 import org.deeplearning4j.optimize.api.ConvexOptimizer;
@@ -119,6 +122,8 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
     @Setter
     protected Gradient gradient;
     protected double score;
+    //Mixed precision: the loss scale actually applied to the current gradients (1.0 for external epsilon backprop)
+    protected double gradientLossScale = 1.0;
     @Setter
     protected boolean initDone = false;
     protected INDArray flattenedParams; //Params for all layers are a view/subset of this array
@@ -137,6 +142,9 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
     @Getter
     protected transient Map<String,Pointer> helperWorkspaces = new HashMap<>();
 
+    //Gradient checkpointing: segments discarded in the current forward pass, to be recomputed during backprop
+    protected transient List<CheckpointSegment> checkpointSegments;
+
 
     /**
      * Workspace for working memory for a single layer: forward pass and backward pass
@@ -167,6 +175,12 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
      */
     protected static final String WS_RNN_LOOP_WORKING_MEM = "WS_RNN_LOOP_WORKING_MEM";
 
+    /**
+     * Workspace for the activations of one gradient checkpointing segment - opened and closed once per segment in the
+     * forward pass, and again when the segment is recomputed during backprop
+     */
+    protected static final String WS_CHECKPOINT_SEGMENT = "WS_CHECKPOINT_SEGMENT";
+
 
     protected WorkspaceConfiguration WS_LAYER_WORKING_MEM_CONFIG;
 
@@ -561,6 +575,7 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
             INDArray toSet = paramTable.get(s);
             curr.assign(toSet);
         }
+        syncMixedPrecisionMasterParams();
     }
 
     /**
@@ -1180,6 +1195,174 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         return out;
     }
 
+    /**
+     * @return True if gradient checkpointing is configured, and can be used for (non-TBPTT) training
+     */
+    protected boolean useGradientCheckpointing() {
+        if (layerWiseConfigurations.getGradientCheckpointing() == null || layers.length < 3) {
+            return false;
+        }
+        if (layerWiseConfigurations.getTrainingWorkspaceMode() == WorkspaceMode.NONE) {
+            OneTimeLogger.warn(log, "Gradient checkpointing requires training workspace mode ENABLED - checkpointing will not be used");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Feed-forward through the network at training time with gradient checkpointing (see {@link GradientCheckpointing}).
+     * As per {@link #ffToLayerActivationsInWs(int, FwdPassType, boolean, INDArray, INDArray, INDArray)}, except that
+     * only the activations at the end of each segment, and all activations of the last segment, are kept in
+     * WS_ALL_LAYERS_ACT. The other activations are computed in WS_CHECKPOINT_SEGMENT (closed at the end of each segment)
+     * and are recomputed during backprop.<br>
+     * Requires that WS_ALL_LAYERS_ACT is open externally.
+     *
+     * @param layerIndex Index (inclusive) to stop forward pass at
+     * @param input      Input to network
+     * @param fMask      Feature mask array. May be null
+     * @param lMask      Label mask array. May be null
+     * @return List of activations (including the input), with null for activations that have been discarded
+     */
+    protected synchronized List<INDArray> ffToLayerActivationsCheckpointed(int layerIndex, @NonNull INDArray input,
+                                                                           INDArray fMask, INDArray lMask) {
+        setInput(input);
+        setLayerMaskArrays(fMask, lMask);
+        WorkspaceUtils.assertOpenAndActive(WS_ALL_LAYERS_ACT, "ffToLayerActivationsCheckpointed method requires workspace WS_ALL_LAYERS_ACT to be open");
+
+        LayerWorkspaceMgr workspaceMgr = LayerWorkspaceMgr.builder()
+                .with(ArrayType.INPUT, WS_ALL_LAYERS_ACT, WS_ALL_LAYERS_ACT_CONFIG)
+                .with(ArrayType.ACTIVATIONS, WS_ALL_LAYERS_ACT, WS_ALL_LAYERS_ACT_CONFIG)
+                .with(ArrayType.FF_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG)
+                .with(ArrayType.RNN_FF_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM_CONFIG)
+                .build();
+        if(input.isAttached()){
+            //Don't leverage out of async DataSetIterator workspaces
+            workspaceMgr.setNoLeverageOverride(input.data().getParentWorkspace().getId());
+        }
+        if(layerWiseConfigurations.getCacheMode() != CacheMode.NONE){
+            workspaceMgr.setWorkspace(ArrayType.FF_CACHE, WS_ALL_LAYERS_ACT, WS_ALL_LAYERS_ACT_CONFIG);
+            workspaceMgr.setWorkspace(ArrayType.BP_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG);
+        }
+        workspaceMgr.setHelperWorkspacePointers(helperWorkspaces);
+        LayerWorkspaceMgr segmentMgr = checkpointSegmentWorkspaceMgr(input);
+
+        int[] segmentIdx = layerWiseConfigurations.checkpointSegmentIndices(layerIndex);
+        int lastSegment = segmentIdx[layerIndex];
+
+        List<INDArray> out = new ArrayList<>();
+        out.add(workspaceMgr.leverageTo(ArrayType.INPUT, input));    //Probably unnecessary usually
+
+        checkpointSegments = new ArrayList<>();
+        MemoryWorkspace wsSegment = null;
+        try {
+            for (int i = 0; i <= layerIndex; i++) {
+                boolean discard = segmentIdx[i] != lastSegment;
+                boolean segmentEnd = discard && segmentIdx[i + 1] != segmentIdx[i];
+                if (discard && (i == 0 || segmentIdx[i - 1] != segmentIdx[i])) {
+                    //Start of a discarded segment: store the state required to recompute it during backprop
+                    int end = i;
+                    while (segmentIdx[end + 1] == segmentIdx[i]) {
+                        end++;
+                    }
+                    checkpointSegments.add(new CheckpointSegment(segmentIdx[i], i, end, input,
+                            Nd4j.getRandom().rootState(), Nd4j.getRandom().nodeState()));
+                    wsSegment = segmentMgr.notifyScopeEntered(ArrayType.ACTIVATIONS);
+                }
+
+                input = activateLayerForTraining(i, input, discard ? segmentMgr : workspaceMgr, "Feed forward to layer (training, checkpointed)");
+
+                if (segmentEnd) {
+                    //Checkpoint: the input to the next segment is kept until backprop
+                    input = workspaceMgr.leverageTo(ArrayType.ACTIVATIONS, input);
+                    wsSegment.close();
+                    wsSegment = null;
+                }
+                out.add(discard && !segmentEnd ? null : input);
+            }
+        } catch (RuntimeException e) {
+            checkpointSegments = null;
+            throw e;
+        } finally {
+            if (wsSegment != null) {
+                wsSegment.close();
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Apply the input preprocessor (if any) and then do a training forward pass for the specified layer
+     */
+    private INDArray activateLayerForTraining(int i, INDArray input, LayerWorkspaceMgr workspaceMgr, String op) {
+        try (MemoryWorkspace wsFFWorking = workspaceMgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)) {
+            if (getLayerWiseConfigurations().getInputPreProcess(i) != null) {
+                input = getLayerWiseConfigurations().getInputPreProcess(i).preProcess(input, getInputMiniBatchSize(), workspaceMgr);
+                validateArrayWorkspaces(workspaceMgr, input, ArrayType.ACTIVATIONS, i, true, op);
+            }
+
+            input = layers[i].activate(input, true, workspaceMgr);
+            if (input == null) {
+                throw new IllegalStateException("Layer " + i + " returned null activations");
+            }
+
+            validateArrayWorkspaces(workspaceMgr, input, ArrayType.ACTIVATIONS, i, false, op);
+            validateArrayWorkspaces(workspaceMgr, layers[i].input(), ArrayType.INPUT, i, false, op);
+            return input;
+        }
+    }
+
+    /**
+     * Workspace manager for the layer inputs and activations (and cache, if used) of one gradient checkpointing segment
+     */
+    private LayerWorkspaceMgr checkpointSegmentWorkspaceMgr(INDArray input) {
+        LayerWorkspaceMgr mgr = LayerWorkspaceMgr.builder()
+                .with(ArrayType.INPUT, WS_CHECKPOINT_SEGMENT, WS_ALL_LAYERS_ACT_CONFIG)
+                .with(ArrayType.ACTIVATIONS, WS_CHECKPOINT_SEGMENT, WS_ALL_LAYERS_ACT_CONFIG)
+                .with(ArrayType.FF_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG)
+                .with(ArrayType.RNN_FF_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM_CONFIG)
+                .build();
+        if(input.isAttached()){
+            mgr.setNoLeverageOverride(input.data().getParentWorkspace().getId());
+        }
+        if(layerWiseConfigurations.getCacheMode() != CacheMode.NONE){
+            mgr.setWorkspace(ArrayType.FF_CACHE, WS_CHECKPOINT_SEGMENT, WS_ALL_LAYERS_ACT_CONFIG);
+            mgr.setWorkspace(ArrayType.BP_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG);
+        }
+        mgr.setHelperWorkspacePointers(helperWorkspaces);
+        return mgr;
+    }
+
+    /**
+     * Recompute the forward pass for a gradient checkpointing segment, with the same RNG state as the original forward
+     * pass. The layer inputs are set in a newly opened WS_CHECKPOINT_SEGMENT workspace, which is returned and must be
+     * closed by the caller once backprop for the segment is complete
+     */
+    private MemoryWorkspace recomputeCheckpointSegment(CheckpointSegment segment, MemoryWorkspace initialWorkspace) {
+        LayerWorkspaceMgr mgr = checkpointSegmentWorkspaceMgr(segment.getInput());
+        MemoryWorkspace ws = mgr.notifyScopeEntered(ArrayType.ACTIVATIONS);
+        //Not nested with the activation gradient workspaces - see calcBackpropGradients
+        ws.setPreviousWorkspace(initialWorkspace);
+
+        long rngRoot = Nd4j.getRandom().rootState();
+        long rngNode = Nd4j.getRandom().nodeState();
+        segment.restoreRngState(Nd4j.getRandom());
+        try {
+            INDArray in = segment.getInput();
+            for (int i = segment.getStart(); i <= segment.getEnd(); i++) {
+                in = activateLayerForTraining(i, in, mgr, "Recompute checkpoint segment (training)");
+            }
+        } catch (RuntimeException e) {
+            ws.close();
+            throw e;
+        } finally {
+            Nd4j.getRandom().setStates(rngRoot, rngNode);
+        }
+        //Segment workspace stays open (but not current) until backprop of the segment is complete
+        Nd4j.getMemoryManager().setCurrentWorkspace(initialWorkspace);
+        return ws;
+    }
+
     /**
      * Provide the output of the specified layer, detached from any workspace. This is most commonly used at inference/test
      * time, and is more memory efficient than {@link #ffToLayerActivationsDetached(boolean, FwdPassType, boolean, int, INDArray, INDArray, INDArray, boolean)}
@@ -1575,6 +1758,7 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         if (flattenedParams != null && params.length() == flattenedParams.length()) {
             if (params != flattenedParams) {
                 flattenedParams.assign(params);
+                syncMixedPrecisionMasterParams();
             }
         } else {
             if (flattenedParams == null)
@@ -1952,9 +2136,13 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         Pair<Gradient, INDArray> currPair = null;
         MemoryWorkspace wsActGradCloseNext = null;
         MemoryWorkspace wsActGradTemp = null;
+        MemoryWorkspace wsRecompute = null;
+        CheckpointSegment recomputed = null;
         MemoryWorkspace initialWorkspace = Nd4j.getMemoryManager().getCurrentWorkspace();
 
         boolean traceLog = log.isTraceEnabled();
+        double lossScale = withOutputLayer ? getMixedPrecisionLossScale() : 1.0;
+        gradientLossScale = lossScale;
 
         Throwable t = null;
         try {
@@ -1963,6 +2151,20 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
                     break;
                 }
 
+                if (checkpointSegments != null) {
+                    //Gradient checkpointing: recompute the activations for a segment before backprop of its last layer
+                    if (wsRecompute != null && i < recomputed.getStart()) {
+                        wsRecompute.close();
+                        wsRecompute = null;
+                    }
+                    for (CheckpointSegment s : checkpointSegments) {
+                        if (s.getEnd() == i) {
+                            recomputed = s;
+                            wsRecompute = recomputeCheckpointSegment(s, initialWorkspace);
+                        }
+                    }
+                }
+
                 if (traceLog) {
                     log.trace("About to backprop: {} - {}", i, layers[i].getClass().getSimpleName());
                 }
@@ -2006,6 +2208,11 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
                         }
                     }
 
+                    if (withOutputLayer && i == layers.length - 1) {
+                        //Mixed precision: scale the loss, to avoid underflow of small gradients
+                        LossScaler.scaleOutputGradients(currPair, lossScale);
+                    }
+
                     if (currPair.getSecond() != null) {
                         //Edge case: may be null for Embedding layer, for example
                         validateArrayWorkspaces(workspaceMgr, currPair.getSecond(), ArrayType.ACTIVATION_GRAD, i,
@@ -2050,6 +2257,17 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         } catch (Throwable thr ){
             t = thr;
         } finally {
+            if(wsRecompute != null){
+                try {
+                    wsRecompute.close();
+                } catch (Throwable t2){
+                    if(t != null){
+                        log.error("Encountered second exception while trying to close workspace after initial exception");
+                        log.error("Original exception:", t);
+                        throw t2;
+                    }
+                }
+            }
             if(wsActGradCloseNext != null){
                 try {
                     wsActGradCloseNext.close();
@@ -2795,9 +3013,15 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
             //First: do a feed-forward through the network
             //Note that we don't actually need to do the full forward pass through the output layer right now; but we do
             // need the input to the output layer to be set (such that backprop can be done)
-            List<INDArray> activations = ffToLayerActivationsInWs(layers.length - 2, fwdType, tbptt, input, mask, null);
+            List<INDArray> activations;
+            if (!tbptt && useGradientCheckpointing()) {
+                activations = ffToLayerActivationsCheckpointed(layers.length - 2, input, mask, null);
+            } else {
+                activations = ffToLayerActivationsInWs(layers.length - 2, fwdType, tbptt, input, mask, null);
+            }
             if (!trainingListeners.isEmpty()) {
                 //TODO: We possibly do want output layer activations in some cases here...
+                //Note: with gradient checkpointing, discarded activations are null here
                 for (TrainingListener tl : trainingListeners) {
                     tl.onForwardPass(this, activations);
                 }
@@ -2810,7 +3034,12 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
             }
             getOutputLayer().setInput(inputToOutputLayer, mgr);
             //Then: compute gradients
-            Pair<Gradient, INDArray> pair = calcBackpropGradients(null, true, false, false);
+            Pair<Gradient, INDArray> pair;
+            try {
+                pair = calcBackpropGradients(null, true, false, false);
+            } finally {
+                checkpointSegments = null;
+            }
             this.gradient = (pair == null ? null : pair.getFirst());
 
             //Calculate score
@@ -3269,6 +3498,40 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         return ffToLayerActivationsDetached(training, FwdPassType.RNN_ACTIVATE_WITH_STORED_STATE, storeLastForTBPTT, layers.length-1, input, mask, null, false);
     }
 
+    /**
+     * @return The loss scale applied to the gradients during backprop, for mixed precision training (see
+     * {@link MixedPrecision}), or 1.0 if mixed precision training is not used. Only gradients computed from the output
+     * layer are scaled: see {@link #getGradientLossScale()}
+     */
+    public double getMixedPrecisionLossScale() {
+        MixedPrecision mp = layerWiseConfigurations.getMixedPrecision();
+        if (flattenedParams == null || !LossScaler.isMixedPrecision(mp, flattenedParams.dataType())) {
+            return 1.0;
+        }
+        Updater u = getUpdater(false);
+        if (u instanceof BaseMultiLayerUpdater) {
+            return ((BaseMultiLayerUpdater<?>) u).getLossScale();
+        }
+        //Updater not yet created: first iteration
+        return mp.getInitialLossScale();
+    }
+
+    /**
+     * @return The loss scale that was applied to the current {@link #gradient()} during the last backprop, for mixed
+     * precision training. This is {@link #getMixedPrecisionLossScale()} if the output layer was backpropagated, or 1.0
+     * if backprop started from externally provided epsilons (which are not loss scaled)
+     */
+    public double getGradientLossScale() {
+        return gradientLossScale;
+    }
+
+    private void syncMixedPrecisionMasterParams() {
+        Updater u = getUpdater(false);
+        if (u instanceof BaseMultiLayerUpdater) {
+            ((BaseMultiLayerUpdater<?>) u).syncMasterParams();
+        }
+    }
+
     /** Get the updater for this MultiLayerNetwork
      * @return Updater for MultiLayerNetwork
      */
@@ -0,0 +1,415 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.pruning;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.graph.vertex.GraphVertex;
+import org.deeplearning4j.nn.layers.OutputLayer;
+import org.deeplearning4j.nn.layers.feedforward.dense.DenseLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.deeplearning4j.optimize.api.TrainingListener;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.conditions.Conditions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Weight pruning for MultiLayerNetwork and ComputationGraph.<br>
+ * Pruning sets the smallest weights of each dense and output layer (see {@link #isPrunable(Layer)}) to zero, either
+ * individually or in blocks (see {@link PruningMethod}), until the target sparsity is reached. This is done in place,
+ * either in one shot ({@link #prune(MultiLayerNetwork)}), or gradually over a number of pruning steps with
+ * fine-tuning after each step ({@link #pruneAndFineTune(MultiLayerNetwork, DataSetIterator)}). For gradual pruning,
+ * the sparsity after step t of n is {@code target * (1 - (1 - t/n)^3)}: most of the weights are removed in the early
+ * steps, when the network can best recover from it.<br>
+ * The pruned network is still a dense network: the pruned weights are stored (and multiplied) as zeros.
+ * <pre>
+ * {@code
+ * NetworkPruner p = new NetworkPruner.Builder()
+ *         .method(PruningMethod.BLOCK).blockSize(4, 4)
+ *         .targetSparsity(0.8).pruningSteps(4).epochsPerStep(1)
+ *         .build();
+ * p.pruneAndFineTune(net, trainIter);
+ * }
+ * </pre>
+ */
+@Slf4j
+@Getter
+public class NetworkPruner {
+
+    private final double targetSparsity;
+    private final PruningMethod method;
+    private final int blockIn;
+    private final int blockOut;
+    private final int pruningSteps;
+    private final int epochsPerStep;
+    private final Set<String> excludedLayers;
+
+    private NetworkPruner(Builder builder) {
+        this.targetSparsity = builder.targetSparsity;
+        this.method = builder.method;
+        this.blockIn = builder.blockIn;
+        this.blockOut = builder.blockOut;
+        this.pruningSteps = builder.pruningSteps;
+        this.epochsPerStep = builder.epochsPerStep;
+        this.excludedLayers = Collections.unmodifiableSet(new HashSet<>(builder.excludedLayers));
+    }
+
+    /**
+     * Prune the specified network in place to the target sparsity, in one shot, without fine-tuning
+     *
+     * @param net Network to prune
+     * @return Pruning masks, by layer index (as a String)
+     */
+    public Map<String, INDArray> prune(@NonNull MultiLayerNetwork net) {
+        return prune(net, prunableLayers(net));
+    }
+
+    /**
+     * Prune the specified network in place to the target sparsity, in one shot, without fine-tuning
+     *
+     * @param net Network to prune
+     * @return Pruning masks, by layer name
+     */
+    public Map<String, INDArray> prune(@NonNull ComputationGraph net) {
+        return prune(net, prunableLayers(net));
+    }
+
+    /**
+     * Prune the specified network in place, gradually over {@link #getPruningSteps()} steps, fitting the network for
+     * {@link #getEpochsPerStep()} epochs after each step. Pruned weights are kept at zero during fine-tuning (see
+     * {@link PruningMaskListener})
+     *
+     * @param net  Network to prune
+     * @param data Training data for fine-tuning. Must support reset if more than one epoch is used in total
+     * @return Final pruning masks, by layer index (as a String)
+     */
+    public Map<String, INDArray> pruneAndFineTune(@NonNull MultiLayerNetwork net, @NonNull DataSetIterator data) {
+        return pruneAndFineTune(net, prunableLayers(net), net.getListeners(), e -> net.fit(data, e));
+    }
+
+    /**
+     * Prune the specified network in place, gradually over {@link #getPruningSteps()} steps, fitting the network for
+     * {@link #getEpochsPerStep()} epochs after each step. Pruned weights are kept at zero during fine-tuning (see
+     * {@link PruningMaskListener})
+     *
+     * @param net  Network to prune
+     * @param data Training data for fine-tuning. Must support reset if more than one epoch is used in total
+     * @return Final pruning masks, by layer name
+     */
+    public Map<String, INDArray> pruneAndFineTune(@NonNull ComputationGraph net, @NonNull DataSetIterator data) {
+        return pruneAndFineTune(net, prunableLayers(net), net.getListeners(), e -> net.fit(data, e));
+    }
+
+    private Map<String, INDArray> prune(Model net, Map<String, Layer> layers) {
+        Map<String, INDArray> masks = computeMasks(layers, targetSparsity);
+        new PruningMaskListener(masks).applyMasks(net);
+        return masks;
+    }
+
+    private Map<String, INDArray> pruneAndFineTune(Model net, Map<String, Layer> layers,
+                                                   Collection<TrainingListener> listeners, IntConsumer fitEpochs) {
+        List<TrainingListener> original = listeners == null ? new ArrayList<>() : new ArrayList<>(listeners);
+        Map<String, INDArray> masks = Collections.emptyMap();
+        try {
+            for (int step = 1; step <= pruningSteps; step++) {
+                double sparsity = sparsitySchedule(targetSparsity, step, pruningSteps);
+                masks = computeMasks(layers, sparsity);
+                PruningMaskListener l = new PruningMaskListener(masks);
+                l.applyMasks(net);
+                log.info("Pruning step {} of {}: pruned {} layers to sparsity {}", step, pruningSteps, masks.size(), sparsity);
+
+                if (epochsPerStep > 0) {
+                    List<TrainingListener> withMasks = new ArrayList<>(original);
+                    withMasks.add(l);
+                    net.setListeners(withMasks);
+                    fitEpochs.accept(epochsPerStep);
+                }
+            }
+        } finally {
+            net.setListeners(original);
+        }
+        return masks;
+    }
+
+    private Map<String, INDArray> computeMasks(Map<String, Layer> layers, double sparsity) {
+        Map<String, INDArray> masks = new LinkedHashMap<>();
+        for (Map.Entry<String, Layer> e : layers.entrySet()) {
+            INDArray w = e.getValue().getParam(DefaultParamInitializer.WEIGHT_KEY);
+            INDArray mask = method == PruningMethod.BLOCK ? blockMask(w, sparsity, blockIn, blockOut) : magnitudeMask(w, sparsity);
+            masks.put(e.getKey(), mask);
+        }
+        return masks;
+    }
+
+    private Map<String, Layer> prunableLayers(MultiLayerNetwork net) {
+        Map<String, Layer> out = new LinkedHashMap<>();
+        Layer[] layers = net.getLayers();
+        for (int i = 0; i < layers.length; i++) {
+            String key = String.valueOf(i);
+            if (isPrunable(layers[i]) && !isExcluded(layers[i].conf().getLayer().getLayerName(), key)) {
+                out.put(key, layers[i]);
+            }
+        }
+        return out;
+    }
+
+    private Map<String, Layer> prunableLayers(ComputationGraph net) {
+        Map<String, Layer> out = new LinkedHashMap<>();
+        for (GraphVertex gv : net.getVertices()) {
+            String name = gv.getVertexName();
+            if (gv.hasLayer() && isPrunable(gv.getLayer()) && !isExcluded(name, name)) {
+                out.put(name, gv.getLayer());
+            }
+        }
+        return out;
+    }
+
+    private boolean isExcluded(String name, String key) {
+        return excludedLayers.contains(key) || (name != null && excludedLayers.contains(name));
+    }
+
+    /**
+     * @return True if the layer can be pruned: dense and output layers without layer normalization
+     */
+    public static boolean isPrunable(Layer layer) {
+        Class<?> c = layer.getClass();
+        if (c == DenseLayer.class) {
+            return !((DenseLayer) layer).hasLayerNorm();
+        }
+        return c == OutputLayer.class;
+    }
+
+    /**
+     * Sparsity after the specified step of a gradual pruning schedule: {@code target * (1 - (1 - step/numSteps)^3)}
+     *
+     * @param target   Final sparsity
+     * @param step     Pruning step, 1 to numSteps
+     * @param numSteps Total number of pruning steps
+     */
+    public static double sparsitySchedule(double target, int step, int numSteps) {
+        double remaining = 1.0 - step / (double) numSteps;
+        return target * (1.0 - remaining * remaining * remaining);
+    }
+
+    /**
+     * @return Fraction of zero weights for each dense and output layer of the network, by layer index (as a String)
+     */
+    public static Map<String, Double> sparsity(@NonNull MultiLayerNetwork net) {
+        Map<String, Double> out = new LinkedHashMap<>();
+        Layer[] layers = net.getLayers();
+        for (int i = 0; i < layers.length; i++) {
+            if (isPrunable(layers[i])) {
+                out.put(String.valueOf(i), sparsity(layers[i].getParam(DefaultParamInitializer.WEIGHT_KEY)));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @return Fraction of zero weights for each dense and output layer of the network, by layer name
+     */
+    public static Map<String, Double> sparsity(@NonNull ComputationGraph net) {
+        Map<String, Double> out = new LinkedHashMap<>();
+        for (GraphVertex gv : net.getVertices()) {
+            if (gv.hasLayer() && isPrunable(gv.getLayer())) {
+                out.put(gv.getVertexName(), sparsity(gv.getLayer().getParam(DefaultParamInitializer.WEIGHT_KEY)));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @return Fraction of zero values in the array
+     */
+    public static double sparsity(@NonNull INDArray arr) {
+        return arr.length() == 0 ? 0.0 : arr.scan(Conditions.equals(0.0)).doubleValue() / arr.length();
+    }
+
+    /**
+     * Unstructured magnitude pruning mask: 0 for the round(sparsity * length) values with the smallest absolute value,
+     * 1 otherwise. Values with the same absolute value as the largest pruned value are also pruned
+     *
+     * @param w        Weights
+     * @param sparsity Fraction of values to prune, in range [0, 1]
+     * @return Mask with the same shape and data type as the weights
+     */
+    public static INDArray magnitudeMask(@NonNull INDArray w, double sparsity) {
+        Preconditions.checkArgument(sparsity >= 0 && sparsity <= 1, "Sparsity must be in range [0, 1], got %s", sparsity);
+        float[] values = w.castTo(DataType.FLOAT).dup('c').data().asFloat();
+        int k = (int) Math.round(sparsity * values.length);
+        float[] mask = new float[values.length];
+        if (k == 0) {
+            Arrays.fill(mask, 1.0f);
+        } else {
+            float[] sorted = new float[values.length];
+            for (int i = 0; i < values.length; i++) {
+                sorted[i] = Math.abs(values[i]);
+            }
+            Arrays.sort(sorted);
+            float threshold = sorted[k - 1];
+            for (int i = 0; i < values.length; i++) {
+                mask[i] = Math.abs(values[i]) > threshold ? 1.0f : 0.0f;
+            }
+        }
+        return Nd4j.create(mask, w.shape(), 'c').castTo(w.dataType());
+    }
+
+    /**
+     * Structured block pruning mask for [nIn, nOut] weights: 0 for the round(sparsity * numBlocks) blocks of
+     * {@code blockIn x blockOut} values with the smallest L2 norm, 1 otherwise. Blocks at the edges may be smaller.
+     *
+     * @param w        Weights, shape [nIn, nOut]
+     * @param sparsity Fraction of blocks to prune, in range [0, 1]
+     * @param blockIn  Size of each block along the nIn dimension
+     * @param blockOut Size of each block along the nOut dimension
+     * @return Mask with the same shape and data type as the weights
+     */
+    public static INDArray blockMask(@NonNull INDArray w, double sparsity, int blockIn, int blockOut) {
+        Preconditions.checkArgument(sparsity >= 0 && sparsity <= 1, "Sparsity must be in range [0, 1], got %s", sparsity);
+        Preconditions.checkArgument(w.rank() == 2, "Expected rank 2 [nIn, nOut] weights, got shape %ndShape", w);
+        Preconditions.checkArgument(blockIn > 0 && blockOut > 0, "Block size must be positive, got [%s, %s]", blockIn, blockOut);
+        int nIn = (int) w.rows();
+        int nOut = (int) w.columns();
+        float[] values = w.castTo(DataType.FLOAT).dup('c').data().asFloat();
+        int numBlocksIn = (nIn + blockIn - 1) / blockIn;
+        int numBlocksOut = (nOut + blockOut - 1) / blockOut;
+
+        double[] norms = new double[numBlocksIn * numBlocksOut];
+        for (int i = 0; i < nIn; i++) {
+            for (int o = 0; o < nOut; o++) {
+                float v = values[i * nOut + o];
+                norms[(i / blockIn) * numBlocksOut + o / blockOut] += v * v;
+            }
+        }
+
+        Integer[] order = new Integer[norms.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(norms[a], norms[b]));
+        boolean[] pruned = new boolean[norms.length];
+        int k = (int) Math.round(sparsity * norms.length);
+        for (int i = 0; i < k; i++) {
+            pruned[order[i]] = true;
+        }
+
+        float[] mask = new float[values.length];
+        for (int i = 0; i < nIn; i++) {
+            for (int o = 0; o < nOut; o++) {
+                mask[i * nOut + o] = pruned[(i / blockIn) * numBlocksOut + o / blockOut] ? 0.0f : 1.0f;
+            }
+        }
+        return Nd4j.create(mask, w.shape(), 'c').castTo(w.dataType());
+    }
+
+    public static class Builder {
+        private double targetSparsity = 0.5;
+        private PruningMethod method = PruningMethod.MAGNITUDE;
+        private int blockIn = 4;
+        private int blockOut = 4;
+        private int pruningSteps = 1;
+        private int epochsPerStep = 1;
+        private Set<String> excludedLayers = new HashSet<>();
+
+        /**
+         * Fraction of the weights (or blocks, for {@link PruningMethod#BLOCK}) of each layer to prune. Default: 0.5
+         */
+        public Builder targetSparsity(double targetSparsity) {
+            Preconditions.checkArgument(targetSparsity >= 0 && targetSparsity <= 1,
+                    "Target sparsity must be in range [0, 1], got %s", targetSparsity);
+            this.targetSparsity = targetSparsity;
+            return this;
+        }
+
+        /**
+         * How weights are selected for pruning. Default: {@link PruningMethod#MAGNITUDE}
+         */
+        public Builder method(@NonNull PruningMethod method) {
+            this.method = method;
+            return this;
+        }
+
+        /**
+         * Block size, for {@link PruningMethod#BLOCK} pruning. Default: 4 x 4
+         *
+         * @param blockIn  Size of each block along the nIn dimension of the weights
+         * @param blockOut Size of each block along the nOut dimension of the weights
+         */
+        public Builder blockSize(int blockIn, int blockOut) {
+            Preconditions.checkArgument(blockIn > 0 && blockOut > 0, "Block size must be positive, got [%s, %s]", blockIn, blockOut);
+            this.blockIn = blockIn;
+            this.blockOut = blockOut;
+            return this;
+        }
+
+        /**
+         * Number of gradual pruning steps, for {@link #pruneAndFineTune(MultiLayerNetwork, DataSetIterator)}.
+         * Default: 1
+         */
+        public Builder pruningSteps(int pruningSteps) {
+            Preconditions.checkArgument(pruningSteps > 0, "Number of pruning steps must be positive, got %s", pruningSteps);
+            this.pruningSteps = pruningSteps;
+            return this;
+        }
+
+        /**
+         * Number of fine-tuning epochs after each pruning step, for
+         * {@link #pruneAndFineTune(MultiLayerNetwork, DataSetIterator)}. Default: 1
+         */
+        public Builder epochsPerStep(int epochsPerStep) {
+            Preconditions.checkArgument(epochsPerStep >= 0, "Number of epochs per step must be non-negative, got %s", epochsPerStep);
+            this.epochsPerStep = epochsPerStep;
+            return this;
+        }
+
+        /**
+         * Layers not to prune, by name (or by index, as a String, for MultiLayerNetwork). Excluding the output layer
+         * often preserves accuracy at little cost in sparsity.
+         */
+        public Builder excludeLayers(String... layers) {
+            this.excludedLayers.addAll(Arrays.asList(layers));
+            return this;
+        }
+
+        public NetworkPruner build() {
+            return new NetworkPruner(this);
+        }
+    }
+}
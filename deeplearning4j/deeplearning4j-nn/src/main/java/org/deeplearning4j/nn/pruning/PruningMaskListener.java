@@ -0,0 +1,79 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.pruning;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.deeplearning4j.optimize.api.BaseTrainingListener;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Training listener that keeps pruned weights at zero during fine-tuning, by multiplying the weights of each pruned
+ * layer by its pruning mask after every iteration. Without this, the updater (momentum, Adam state, etc) would
+ * gradually restore the pruned weights.<br>
+ * Masks are keyed by layer index (as a String) for MultiLayerNetwork, and by layer (vertex) name for ComputationGraph.
+ */
+@Getter
+public class PruningMaskListener extends BaseTrainingListener {
+
+    private final Map<String, INDArray> masks;
+
+    /**
+     * @param masks Masks (1 for kept weights, 0 for pruned weights) with the same shape as the layer weights, by layer
+     */
+    public PruningMaskListener(@NonNull Map<String, INDArray> masks) {
+        this.masks = Collections.unmodifiableMap(masks);
+    }
+
+    @Override
+    public void iterationDone(Model model, int iteration, int epoch) {
+        applyMasks(model);
+    }
+
+    /**
+     * Multiply the weights of each masked layer of the specified network by its mask
+     *
+     * @param model MultiLayerNetwork or ComputationGraph
+     */
+    public void applyMasks(Model model) {
+        for (Map.Entry<String, INDArray> e : masks.entrySet()) {
+            Layer l;
+            if (model instanceof MultiLayerNetwork) {
+                l = ((MultiLayerNetwork) model).getLayer(Integer.parseInt(e.getKey()));
+            } else if (model instanceof ComputationGraph) {
+                l = ((ComputationGraph) model).getLayer(e.getKey());
+            } else {
+                throw new IllegalStateException("Pruning masks can only be applied to MultiLayerNetwork or "
+                        + "ComputationGraph, got " + model.getClass().getName());
+            }
+            INDArray w = l.getParam(DefaultParamInitializer.WEIGHT_KEY);
+            w.muli(e.getValue().castTo(w.dataType()));
+        }
+    }
+}
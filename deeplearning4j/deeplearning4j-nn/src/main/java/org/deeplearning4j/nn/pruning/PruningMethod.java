@@ -0,0 +1,38 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.pruning;
+
+/**
+ * How weights are selected for removal by {@link NetworkPruner}
+ */
+public enum PruningMethod {
+    /**
+     * Unstructured pruning: the individual weights with the smallest magnitude in each layer are set to zero.
+     * Usually gives the best accuracy for a given sparsity, but the remaining weights are scattered
+     */
+    MAGNITUDE,
+    /**
+     * Structured block pruning: the weights are split into rectangular blocks (see
+     * {@link NetworkPruner.Builder#blockSize(int, int)}), and the blocks with the smallest L2 norm in each layer are set
+     * to zero
+     */
+    BLOCK
+}
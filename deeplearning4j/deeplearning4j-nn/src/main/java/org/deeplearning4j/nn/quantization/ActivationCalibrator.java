@@ -0,0 +1,107 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.quantization;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.graph.vertex.GraphVertex;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calibrates the input activation ranges of the quantizable layers in a network, by running forward passes (in
+ * inference mode) over a representative data set. The range of each layer is the maximum absolute value of its
+ * input, over all calibration examples.<br>
+ * Layers are keyed by layer index (as a String) for MultiLayerNetwork, and by vertex name for ComputationGraph.
+ */
+@Slf4j
+public class ActivationCalibrator {
+
+    private ActivationCalibrator() {
+    }
+
+    /**
+     * @param net        Network to calibrate
+     * @param iter       Calibration data
+     * @param maxBatches Maximum number of minibatches to use. Values <= 0: use all data
+     * @return Map of layer index to the maximum absolute value of the layer input
+     */
+    public static Map<String, Double> calibrate(MultiLayerNetwork net, DataSetIterator iter, int maxBatches) {
+        Map<String, Double> ranges = new HashMap<>();
+        if (iter.resetSupported()) {
+            iter.reset();
+        }
+
+        int count = 0;
+        while (iter.hasNext() && (maxBatches <= 0 || count < maxBatches)) {
+            DataSet ds = iter.next();
+            //Activations: index 0 is the network input, index i+1 is the output of layer i
+            List<INDArray> activations = net.feedForward(ds.getFeatures(), false);
+            for (int i = 0; i < net.getnLayers(); i++) {
+                if (FakeQuantizedLayer.isQuantizable(net.getLayer(i))) {
+                    ranges.merge(String.valueOf(i), activations.get(i).amaxNumber().doubleValue(), Math::max);
+                }
+            }
+            count++;
+        }
+        log.debug("Calibrated {} layer input ranges using {} minibatches", ranges.size(), count);
+        return ranges;
+    }
+
+    /**
+     * @param net        Network to calibrate. Must have a single input
+     * @param iter       Calibration data
+     * @param maxBatches Maximum number of minibatches to use. Values <= 0: use all data
+     * @return Map of layer vertex name to the maximum absolute value of the layer input
+     */
+    public static Map<String, Double> calibrate(ComputationGraph net, DataSetIterator iter, int maxBatches) {
+        Map<String, Double> ranges = new HashMap<>();
+        if (iter.resetSupported()) {
+            iter.reset();
+        }
+
+        GraphVertex[] vertices = net.getVertices();
+        int count = 0;
+        while (iter.hasNext() && (maxBatches <= 0 || count < maxBatches)) {
+            DataSet ds = iter.next();
+            Map<String, INDArray> activations = net.feedForward(ds.getFeatures(), false);
+            for (GraphVertex gv : vertices) {
+                if (!gv.hasLayer() || !FakeQuantizedLayer.isQuantizable(gv.getLayer())) {
+                    continue;
+                }
+                String inputName = vertices[gv.getInputVertices()[0].getVertexIndex()].getVertexName();
+                INDArray in = activations.get(inputName);
+                if (in != null) {
+                    ranges.merge(gv.getVertexName(), in.amaxNumber().doubleValue(), Math::max);
+                }
+            }
+            count++;
+        }
+        log.debug("Calibrated {} layer input ranges using {} minibatches", ranges.size(), count);
+        return ranges;
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.quantization;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.deeplearning4j.exception.DL4JInvalidInputException;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.conf.CNN2DFormat;
+import org.deeplearning4j.nn.conf.ConvolutionMode;
+import org.deeplearning4j.nn.gradient.Gradient;
+import org.deeplearning4j.nn.layers.AbstractLayer;
+import org.deeplearning4j.nn.layers.BaseOutputLayer;
+import org.deeplearning4j.nn.layers.convolution.ConvolutionLayer;
+import org.deeplearning4j.nn.layers.feedforward.dense.DenseLayer;
+import org.deeplearning4j.nn.layers.wrapper.BaseWrapperLayer;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.deeplearning4j.nn.workspace.ArrayType;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.deeplearning4j.util.ConvolutionUtils;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.shape.Shape;
+import org.nd4j.linalg.convolution.Convolution;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.common.primitives.Pair;
+
+import java.util.Arrays;
+
+/**
+ * Inference-only wrapper that simulates ("fake quantizes") int8 execution of a dense or 2d convolution layer.<br>
+ * The input activations are quantized with a calibrated per-tensor scale, multiplied with the per-channel quantized
+ * weights ({@link Int8Weights}), and the accumulators are rescaled by {@code inputScale * weightScale[channel]}
+ * before the (FP32) bias and activation function are applied. This gives the numerics of int8 inference, so that the
+ * accuracy of a quantized deployment can be measured.<br>
+ * Note that this is simulated quantization, not an int8 kernel: libnd4j has no int8 GEMM, so the integer valued
+ * operands are multiplied with an FP32 (or INT32) GEMM - see {@link Int8GemmMode}. The GEMM weight operand is
+ * converted once, when the layer is created, but the activations still need to be quantized on every forward pass.
+ * The wrapped layer also keeps its FP32 parameters. Consequently a fake quantized network uses more memory than the
+ * original FP32 network, and is usually slightly slower: see {@link QuantizationReport#getQuantizedLayerBytes()} and
+ * {@link QuantizationReport#getSpeedup()}.<br>
+ * Use {@link PostTrainingQuantizer} to create quantized networks, rather than creating instances directly.
+ */
+@Getter
+public class FakeQuantizedLayer extends BaseWrapperLayer {
+
+    private final Int8Weights weights;
+    private final double inputScale;
+    private final Int8GemmMode gemmMode;
+    /** Integer valued weights in the GEMM data type, as a 2d [nIn (x kH x kW), nOut] matrix */
+    private final INDArray gemmWeights;
+    /** Per-channel rescaling of the GEMM output: inputScale * weightScale, shape [1, nOut] */
+    private final INDArray outputScale;
+
+    public FakeQuantizedLayer(@NonNull Layer underlying, @NonNull Int8Weights weights, double inputScale, @NonNull Int8GemmMode gemmMode) {
+        super(underlying);
+        if (!isQuantizable(underlying)) {
+            throw new IllegalArgumentException("Layer of type " + underlying.getClass().getName() + " cannot be quantized");
+        }
+        this.weights = weights;
+        this.inputScale = inputScale;
+        this.gemmMode = gemmMode;
+
+        try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+            INDArray w = weights.getValues();
+            if (underlying instanceof ConvolutionLayer) {
+                //[outDepth, inDepth, kH, kW] to the im2col weight layout [kW * kH * inDepth, outDepth]
+                w = w.permute(3, 2, 1, 0).reshape('f', w.size(3) * w.size(2) * w.size(1), w.size(0));
+            }
+            this.gemmWeights = w.castTo(gemmDataType()).dup('f');
+            this.outputScale = weights.getScales().mul(inputScale).reshape(1, weights.getScales().length());
+        }
+    }
+
+    /**
+     * @return True if the layer can be executed by a FakeQuantizedLayer: dense and output layers without layer
+     * normalization, and standard 2d convolution layers
+     */
+    public static boolean isQuantizable(Layer layer) {
+        Class<?> c = layer.getClass();
+        if (c == DenseLayer.class) {
+            return !((DenseLayer) layer).hasLayerNorm();
+        }
+        return c == org.deeplearning4j.nn.layers.OutputLayer.class || c == ConvolutionLayer.class;
+    }
+
+    /**
+     * @return Dimension of the output channels for the weights of the specified (quantizable) layer
+     */
+    public static int weightChannelDimension(Layer layer) {
+        return layer instanceof ConvolutionLayer ? 0 : 1;
+    }
+
+    @Override
+    public INDArray activate(boolean training, LayerWorkspaceMgr workspaceMgr) {
+        INDArray input = ((AbstractLayer<?>) underlying).getInput();
+        if (input == null) {
+            throw new IllegalStateException("Cannot perform forward pass with null input " + underlying.conf().getLayer().getLayerName());
+        }
+
+        INDArray bias = underlying.getParam(DefaultParamInitializer.BIAS_KEY);
+        INDArray z;
+        if (underlying instanceof ConvolutionLayer) {
+            z = preOutputConv(input, bias);
+        } else {
+            z = preOutputDense(input);
+            if (bias != null) {
+                z.addiRowVector(bias.castTo(z.dataType()));
+            }
+            if (underlying.getMaskArray() != null) {
+                z.muliColumnVector(underlying.getMaskArray().castTo(z.dataType()));
+            }
+        }
+
+        org.deeplearning4j.nn.conf.layers.BaseLayer conf = (org.deeplearning4j.nn.conf.layers.BaseLayer) underlying.conf().getLayer();
+        INDArray out = conf.getActivationFn().getActivation(z, training);
+        return workspaceMgr.leverageTo(ArrayType.ACTIVATIONS, out.castTo(underlying.getParam(DefaultParamInitializer.WEIGHT_KEY).dataType()));
+    }
+
+    @Override
+    public INDArray activate(INDArray input, boolean training, LayerWorkspaceMgr workspaceMgr) {
+        setInput(input, workspaceMgr);
+        return activate(training, workspaceMgr);
+    }
+
+    @Override
+    public Pair<Gradient, INDArray> backpropGradient(INDArray epsilon, LayerWorkspaceMgr workspaceMgr) {
+        throw new UnsupportedOperationException("Quantized layers are inference only: cannot perform backprop");
+    }
+
+    @Override
+    public void fit() {
+        throw new UnsupportedOperationException("Quantized layers are inference only: cannot fit");
+    }
+
+    @Override
+    public void fit(INDArray data, LayerWorkspaceMgr workspaceMgr) {
+        throw new UnsupportedOperationException("Quantized layers are inference only: cannot fit");
+    }
+
+    /**
+     * Multiply quantized activations and weights, and rescale the accumulators to FP32. Returns [rows, nOut]
+     */
+    protected INDArray int8Gemm(INDArray quantizedInput2d) {
+        INDArray z = quantizedInput2d.mmul(gemmWeights).castTo(DataType.FLOAT);
+        return z.muliRowVector(outputScale);
+    }
+
+    protected DataType gemmDataType() {
+        return gemmMode == Int8GemmMode.INT32 ? DataType.INT32 : DataType.FLOAT;
+    }
+
+    /**
+     * @return Number of bytes held by this layer: the FP32 weights of the wrapped layer, the int8 weights and scales,
+     * and the GEMM weight operand
+     */
+    public long sizeBytes() {
+        INDArray w = underlying.getParam(DefaultParamInitializer.WEIGHT_KEY);
+        return w.length() * w.dataType().width() + weights.sizeBytes()
+                + gemmWeights.length() * gemmWeights.dataType().width();
+    }
+
+    protected INDArray preOutputDense(INDArray input) {
+        INDArray w = weights.getValues();
+        if (input.rank() != 2 || input.columns() != w.rows()) {
+            throw new DL4JInvalidInputException("Invalid input for quantized dense layer: expected rank 2 input with "
+                    + w.rows() + " columns, got shape " + Arrays.toString(input.shape()));
+        }
+        return int8Gemm(Int8Weights.quantizeActivations(input, inputScale, gemmDataType()));
+    }
+
+    protected INDArray preOutputConv(INDArray input, INDArray bias) {
+        org.deeplearning4j.nn.conf.layers.ConvolutionLayer conf = (org.deeplearning4j.nn.conf.layers.ConvolutionLayer) underlying.conf().getLayer();
+        if (input.rank() != 4) {
+            throw new DL4JInvalidInputException("Invalid input for quantized convolution layer: expected rank 4 input, got shape "
+                    + Arrays.toString(input.shape()));
+        }
+        if (conf.getCnn2dDataFormat() == CNN2DFormat.NHWC) {
+            input = input.permute(0, 3, 1, 2); //NHWC to NCHW
+        }
+
+        INDArray w = weights.getValues();
+        long miniBatch = input.size(0);
+        long outDepth = w.size(0);
+        long inDepth = w.size(1);
+        long kH = w.size(2);
+        long kW = w.size(3);
+        if (input.size(1) != inDepth) {
+            throw new DL4JInvalidInputException("Invalid input for quantized convolution layer: expected " + inDepth
+                    + " input channels, got shape " + Arrays.toString(input.shape()));
+        }
+
+        int[] kernel = conf.getKernelSize();
+        int[] strides = conf.getStride();
+        int[] dilation = conf.getDilation();
+        ConvolutionMode mode = conf.getConvolutionMode();
+        int[] pad;
+        int[] outSize;
+        if (mode == ConvolutionMode.Same) {
+            outSize = ConvolutionUtils.getOutputSize(input, kernel, strides, null, mode, dilation, CNN2DFormat.NCHW);
+            pad = ConvolutionUtils.getSameModeTopLeftPadding(outSize, new int[]{(int) input.size(2), (int) input.size(3)},
+                    kernel, strides, dilation);
+        } else {
+            pad = conf.getPadding();
+            outSize = ConvolutionUtils.getOutputSize(input, kernel, strides, pad, mode, dilation, CNN2DFormat.NCHW);
+        }
+        int outH = outSize[0];
+        int outW = outSize[1];
+
+        //Same im2col layout as ConvolutionLayer: [miniBatch,outH,outW,depthIn,kH,kW] in c order, then 2d
+        INDArray qIn = Int8Weights.quantizeActivations(input, inputScale, DataType.FLOAT);
+        INDArray col = Nd4j.createUninitialized(DataType.FLOAT, new long[]{miniBatch, outH, outW, inDepth, kH, kW}, 'c');
+        Convolution.im2col(qIn, (int) kH, (int) kW, strides[0], strides[1], pad[0], pad[1], dilation[0], dilation[1],
+                mode == ConvolutionMode.Same, col.permute(0, 3, 4, 5, 1, 2));
+        INDArray im2col2d = Shape.newShapeNoCopy(col, new long[]{miniBatch * outH * outW, inDepth * kH * kW}, false);
+
+        INDArray z = int8Gemm(im2col2d.castTo(gemmDataType()));
+        if (bias != null) {
+            z.addiRowVector(bias.castTo(z.dataType()));
+        }
+
+        //Rows of z: minibatch varies slowest, outW fastest - i.e., [miniBatch,outH,outW,outDepth] in c order
+        z = z.dup('c').reshape('c', miniBatch, outH, outW, outDepth);
+        return conf.getCnn2dDataFormat() == CNN2DFormat.NHWC ? z : z.permute(0, 3, 1, 2).dup('c');
+    }
+
+    /**
+     * @return True if the wrapped layer is an output layer
+     */
+    public boolean isOutputLayer() {
+        return underlying instanceof BaseOutputLayer;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.quantization;
+
+/**
+ * How the int8 x int8 matrix multiplications of a {@link FakeQuantizedLayer} are accumulated.<br>
+ * INT32: operands are widened to INT32 and multiplied with integer accumulation. Results are exact, but the
+ * integer GEMM does not go through BLAS.<br>
+ * FP32: the (integer valued) operands are multiplied with an FP32 BLAS GEMM. This is usually the fastest option
+ * on CPU; accumulation error is limited to FP32 rounding of very long dot products.
+ */
+public enum Int8GemmMode {
+    INT32,
+    FP32
+}
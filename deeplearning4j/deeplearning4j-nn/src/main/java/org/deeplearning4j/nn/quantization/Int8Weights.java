@@ -0,0 +1,127 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.quantization;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.impl.broadcast.BroadcastDivOp;
+import org.nd4j.linalg.api.ops.impl.broadcast.BroadcastMulOp;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.BooleanIndexing;
+import org.nd4j.linalg.indexing.conditions.Conditions;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+import java.io.Serializable;
+
+/**
+ * Symmetric, per-channel int8 quantized weights.<br>
+ * For channel c, the original weights are approximated by {@code values[c] * scales[c]}, where values are in the
+ * range [-127, 127] and stored as {@link DataType#BYTE}. Scales are stored as FLOAT, one per channel along
+ * {@link #getChannelDimension()}.
+ */
+@Getter
+public class Int8Weights implements Serializable {
+
+    public static final int QMAX = 127;
+
+    private final INDArray values;
+    private final INDArray scales;
+    private final int channelDimension;
+
+    private Int8Weights(INDArray values, INDArray scales, int channelDimension) {
+        this.values = values;
+        this.scales = scales;
+        this.channelDimension = channelDimension;
+    }
+
+    /**
+     * Quantize the specified weights with one scale per slice along the specified dimension.
+     *
+     * @param weights          Floating point weights to quantize
+     * @param channelDimension Dimension of the output channels: 1 for dense [nIn,nOut] weights, 0 for convolution
+     *                         [nOut,nIn,kH,kW] weights
+     * @return Quantized weights, detached from any workspace
+     */
+    public static Int8Weights quantize(@NonNull INDArray weights, int channelDimension) {
+        Preconditions.checkArgument(weights.dataType().isFPType(), "Can only quantize floating point weights, got %s", weights.dataType());
+        Preconditions.checkArgument(channelDimension >= 0 && channelDimension < weights.rank(),
+                "Invalid channel dimension %s for weights with shape %ndShape", channelDimension, weights);
+
+        try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+            INDArray w = weights.castTo(DataType.FLOAT);
+            int[] reduceDims = new int[w.rank() - 1];
+            int j = 0;
+            for (int i = 0; i < w.rank(); i++) {
+                if (i != channelDimension)
+                    reduceDims[j++] = i;
+            }
+
+            INDArray scales = w.amax(reduceDims).divi(QMAX);
+            //All-zero channels: any non-zero scale gives exact (zero) values
+            BooleanIndexing.replaceWhere(scales, 1.0, Conditions.equals(0.0));
+
+            INDArray q = w.ulike();
+            Nd4j.getExecutioner().exec(new BroadcastDivOp(w, scales, q, channelDimension));
+            Transforms.round(q, false);
+            clip(q, QMAX);
+
+            return new Int8Weights(q.castTo(DataType.BYTE), scales.reshape(scales.length()), channelDimension);
+        }
+    }
+
+    /**
+     * @return FP32 approximation of the original weights
+     */
+    public INDArray dequantize() {
+        INDArray f = values.castTo(DataType.FLOAT);
+        return Nd4j.getExecutioner().exec(new BroadcastMulOp(f, scales, f, channelDimension));
+    }
+
+    /**
+     * @return Number of bytes used by the quantized values and the scales
+     */
+    public long sizeBytes() {
+        return values.length() * values.dataType().width() + scales.length() * scales.dataType().width();
+    }
+
+    /**
+     * Quantize an activations array with a single (per tensor) scale: round(x / scale), clipped to [-127, 127].
+     *
+     * @param x     Activations to quantize
+     * @param scale Scale, usually calibrated as maxAbs / 127
+     * @param type  Data type of the returned (integer valued) array
+     */
+    public static INDArray quantizeActivations(INDArray x, double scale, DataType type) {
+        INDArray q = x.castTo(DataType.FLOAT).div(scale);
+        Transforms.round(q, false);
+        clip(q, QMAX);
+        return q.castTo(type);
+    }
+
+    private static void clip(INDArray arr, double max) {
+        Transforms.min(arr, max, false);
+        Transforms.max(arr, -max, false);
+    }
+}
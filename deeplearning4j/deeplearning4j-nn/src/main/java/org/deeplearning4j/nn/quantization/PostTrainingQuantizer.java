@@ -0,0 +1,314 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.quantization;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.graph.vertex.GraphVertex;
+import org.deeplearning4j.nn.graph.vertex.impl.LayerVertex;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.nd4j.evaluation.classification.Evaluation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Accuracy simulation ("fake quantization") of post-training int8 quantization for MultiLayerNetwork and
+ * ComputationGraph.<br>
+ * This is a tool for measuring how much accuracy a network would lose if deployed with int8 weights and activations;
+ * it does not produce a faster or smaller network. The quantized layers reproduce the numerics of int8 inference, but
+ * still multiply with a floating point GEMM and retain their FP32 parameters (see {@link FakeQuantizedLayer}), so no
+ * speedup or memory reduction should be expected: the quantized copy is usually slower, and holds more bytes, than the
+ * original.<br>
+ * Simulation is done in two steps:<br>
+ * (a) Calibration: the input activation range of each quantizable layer is measured on a representative data set
+ * (see {@link ActivationCalibrator})<br>
+ * (b) The network is copied, and the quantizable layers (dense, output and 2d convolution layers - see
+ * {@link FakeQuantizedLayer#isQuantizable(Layer)}) of the copy are replaced by {@link FakeQuantizedLayer}s, with per-channel
+ * int8 weights and a per-tensor int8 input scale. All other layers - including LSTM and other recurrent layers - are
+ * left in FP32 and executed as before.<br>
+ * The original network is not modified. The quantized copy is inference only: use {@link #compare(MultiLayerNetwork, MultiLayerNetwork, DataSetIterator)}
+ * to check the accuracy of the quantized network against the original.
+ * <pre>
+ * {@code
+ * PostTrainingQuantizer q = new PostTrainingQuantizer.Builder().calibrationBatches(20).build();
+ * MultiLayerNetwork quantized = q.quantize(net, calibrationIter);
+ * QuantizationReport r = PostTrainingQuantizer.compare(net, quantized, testIter);
+ * }
+ * </pre>
+ */
+@Slf4j
+@Getter
+public class PostTrainingQuantizer {
+
+    private final int calibrationBatches;
+    private final Int8GemmMode gemmMode;
+    private final Set<String> excludedLayers;
+
+    private PostTrainingQuantizer(Builder builder) {
+        this.calibrationBatches = builder.calibrationBatches;
+        this.gemmMode = builder.gemmMode;
+        this.excludedLayers = Collections.unmodifiableSet(new HashSet<>(builder.excludedLayers));
+    }
+
+    /**
+     * Create a quantized copy of the specified network
+     *
+     * @param net         Network to quantize. Is not modified
+     * @param calibration Calibration data - should be representative of the data used for inference
+     * @return Quantized copy of the network, for inference only
+     */
+    public MultiLayerNetwork quantize(@NonNull MultiLayerNetwork net, @NonNull DataSetIterator calibration) {
+        Map<String, Double> ranges = ActivationCalibrator.calibrate(net, calibration, calibrationBatches);
+
+        MultiLayerNetwork copy = net.clone();
+        Layer[] layers = copy.getLayers();
+        int count = 0;
+        for (int i = 0; i < layers.length; i++) {
+            String name = layers[i].conf().getLayer().getLayerName();
+            String key = String.valueOf(i);
+            logIfUnsupported(layers[i], key);
+            if (!FakeQuantizedLayer.isQuantizable(layers[i]) || !ranges.containsKey(key) || isExcluded(name, key)) {
+                continue;
+            }
+            layers[i] = quantizeLayer(layers[i], ranges.get(key));
+            count++;
+        }
+        copy.setLayers(layers);
+        log.info("Quantized {} of {} layers to int8", count, layers.length);
+        return copy;
+    }
+
+    /**
+     * Create a quantized copy of the specified network
+     *
+     * @param net         Network to quantize. Must have a single input. Is not modified
+     * @param calibration Calibration data - should be representative of the data used for inference
+     * @return Quantized copy of the network, for inference only
+     */
+    public ComputationGraph quantize(@NonNull ComputationGraph net, @NonNull DataSetIterator calibration) {
+        Map<String, Double> ranges = ActivationCalibrator.calibrate(net, calibration, calibrationBatches);
+
+        ComputationGraph copy = net.clone();
+        Layer[] layers = copy.getLayers();
+        int count = 0;
+        for (GraphVertex gv : copy.getVertices()) {
+            String name = gv.getVertexName();
+            if (gv.hasLayer()) {
+                logIfUnsupported(gv.getLayer(), name);
+            }
+            if (!gv.hasLayer() || !FakeQuantizedLayer.isQuantizable(gv.getLayer()) || !ranges.containsKey(name) || isExcluded(name, name)) {
+                continue;
+            }
+            Layer orig = gv.getLayer();
+            Layer q = quantizeLayer(orig, ranges.get(name));
+            ((LayerVertex) gv).setLayer(q);
+            for (int i = 0; i < layers.length; i++) {
+                if (layers[i] == orig) {
+                    layers[i] = q;
+                }
+            }
+            count++;
+        }
+        log.info("Quantized {} of {} layers to int8", count, layers.length);
+        return copy;
+    }
+
+    private static void logIfUnsupported(Layer layer, String key) {
+        if (layer.numParams() > 0 && !FakeQuantizedLayer.isQuantizable(layer)) {
+            log.info("Layer {} of type {} is not supported for quantization: keeping it in FP32", key,
+                    layer.getClass().getSimpleName());
+        }
+    }
+
+    private boolean isExcluded(String name, String key) {
+        return excludedLayers.contains(key) || (name != null && excludedLayers.contains(name));
+    }
+
+    private FakeQuantizedLayer quantizeLayer(Layer layer, double maxAbsInput) {
+        INDArray w = layer.getParam(DefaultParamInitializer.WEIGHT_KEY);
+        Int8Weights qw = Int8Weights.quantize(w, FakeQuantizedLayer.weightChannelDimension(layer));
+        double inputScale = maxAbsInput > 0 ? maxAbsInput / Int8Weights.QMAX : 1.0;
+        return new FakeQuantizedLayer(layer, qw, inputScale, gemmMode);
+    }
+
+    /**
+     * Compare accuracy and inference latency of an FP32 network and its quantized copy.
+     *
+     * @param fp32      Original network
+     * @param quantized Quantized copy, as returned by {@link #quantize(MultiLayerNetwork, DataSetIterator)}
+     * @param data      Test data. Labels are used for accuracy, hence should be one-hot for classification
+     */
+    public static QuantizationReport compare(@NonNull MultiLayerNetwork fp32, @NonNull MultiLayerNetwork quantized,
+                                             @NonNull DataSetIterator data) {
+        return compare(f -> fp32.output(f), f -> quantized.output(f), fp32.getLayers(), quantized.getLayers(), data);
+    }
+
+    /**
+     * Compare accuracy and inference latency of an FP32 network and its quantized copy.
+     *
+     * @param fp32      Original network. Must have a single input and output
+     * @param quantized Quantized copy, as returned by {@link #quantize(ComputationGraph, DataSetIterator)}
+     * @param data      Test data. Labels are used for accuracy, hence should be one-hot for classification
+     */
+    public static QuantizationReport compare(@NonNull ComputationGraph fp32, @NonNull ComputationGraph quantized,
+                                             @NonNull DataSetIterator data) {
+        return compare(f -> fp32.outputSingle(f), f -> quantized.outputSingle(f), fp32.getLayers(), quantized.getLayers(), data);
+    }
+
+    private static QuantizationReport compare(Function<INDArray, INDArray> fp32, Function<INDArray, INDArray> quantized,
+                                              Layer[] fp32Layers, Layer[] quantizedLayers, DataSetIterator data) {
+        if (data.resetSupported()) {
+            data.reset();
+        }
+
+        Evaluation eFp32 = new Evaluation();
+        Evaluation eQuantized = new Evaluation();
+        long fp32Nanos = 0;
+        long quantizedNanos = 0;
+        double sumAbsDiff = 0.0;
+        long numValues = 0;
+        long disagreements = 0;
+        int examples = 0;
+        int batches = 0;
+        boolean first = true;
+        while (data.hasNext()) {
+            DataSet ds = data.next();
+            INDArray f = ds.getFeatures();
+            if (first) {
+                //Warm up both paths, so that one-off initialization isn't counted as latency
+                fp32.apply(f);
+                quantized.apply(f);
+                first = false;
+            }
+
+            long start = System.nanoTime();
+            INDArray outFp32 = fp32.apply(f);
+            fp32Nanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            INDArray outQuantized = quantized.apply(f);
+            quantizedNanos += System.nanoTime() - start;
+
+            if (ds.getLabels() != null && outFp32.rank() == 2) {
+                eFp32.eval(ds.getLabels(), outFp32);
+                eQuantized.eval(ds.getLabels(), outQuantized);
+            }
+
+            INDArray fp32Cast = outFp32.castTo(outQuantized.dataType());
+            sumAbsDiff += fp32Cast.sub(outQuantized).norm1Number().doubleValue();
+            numValues += outFp32.length();
+            if (outFp32.rank() == 2) {
+                disagreements += Nd4j.argMax(fp32Cast, 1).neq(Nd4j.argMax(outQuantized, 1)).castTo(fp32Cast.dataType()).sumNumber().longValue();
+            }
+            examples += f.size(0);
+            batches++;
+        }
+
+        long fp32Bytes = 0;
+        long quantizedBytes = 0;
+        long quantizedLayerBytes = 0;
+        int numQuantized = 0;
+        for (int i = 0; i < quantizedLayers.length; i++) {
+            if (quantizedLayers[i] instanceof FakeQuantizedLayer) {
+                FakeQuantizedLayer q = (FakeQuantizedLayer) quantizedLayers[i];
+                INDArray w = fp32Layers[i].getParam(DefaultParamInitializer.WEIGHT_KEY);
+                fp32Bytes += w.length() * w.dataType().width();
+                quantizedBytes += q.getWeights().sizeBytes();
+                quantizedLayerBytes += q.sizeBytes();
+                numQuantized++;
+            }
+        }
+
+        QuantizationReport report = QuantizationReport.builder()
+                .numQuantizedLayers(numQuantized)
+                .numExamples(examples)
+                .numBatches(batches)
+                .fp32Accuracy(eFp32.getNumRowCounter() > 0 ? eFp32.accuracy() : Double.NaN)
+                .quantizedAccuracy(eQuantized.getNumRowCounter() > 0 ? eQuantized.accuracy() : Double.NaN)
+                .meanAbsOutputDifference(numValues == 0 ? 0.0 : sumAbsDiff / numValues)
+                .argMaxDisagreement(examples == 0 ? 0.0 : disagreements / (double) examples)
+                .fp32MsPerBatch(batches == 0 ? 0.0 : fp32Nanos / 1e6 / batches)
+                .quantizedMsPerBatch(batches == 0 ? 0.0 : quantizedNanos / 1e6 / batches)
+                .fp32WeightBytes(fp32Bytes)
+                .quantizedWeightBytes(quantizedBytes)
+                .quantizedLayerBytes(quantizedLayerBytes)
+                .build();
+        if (batches > 0 && report.getSpeedup() < 1.0) {
+            log.warn("Quantized network is slower than the FP32 network ({} vs. {} ms per minibatch): quantized layers " +
+                    "are simulated with a floating point GEMM, see FakeQuantizedLayer", report.getQuantizedMsPerBatch(),
+                    report.getFp32MsPerBatch());
+        }
+        if (quantizedLayerBytes > fp32Bytes) {
+            log.warn("Quantized layers hold {} bytes vs. {} bytes for the FP32 weights: the FP32 parameters are retained " +
+                    "by FakeQuantizedLayer", quantizedLayerBytes, fp32Bytes);
+        }
+        return report;
+    }
+
+    public static class Builder {
+        private int calibrationBatches = -1;
+        private Int8GemmMode gemmMode = Int8GemmMode.FP32;
+        private Set<String> excludedLayers = new HashSet<>();
+
+        /**
+         * Maximum number of minibatches to use for calibration. Values <= 0: use the whole calibration iterator.
+         * Default: -1
+         */
+        public Builder calibrationBatches(int calibrationBatches) {
+            this.calibrationBatches = calibrationBatches;
+            return this;
+        }
+
+        /**
+         * How the int8 matrix multiplications are accumulated. Default: {@link Int8GemmMode#FP32}
+         */
+        public Builder gemmMode(@NonNull Int8GemmMode gemmMode) {
+            this.gemmMode = gemmMode;
+            return this;
+        }
+
+        /**
+         * Layers to keep in floating point, by name (or by index, as a String, for MultiLayerNetwork).
+         * Excluding the first and last layers is often a good accuracy/latency tradeoff.
+         */
+        public Builder excludeLayers(String... layers) {
+            this.excludedLayers.addAll(Arrays.asList(layers));
+            return this;
+        }
+
+        public PostTrainingQuantizer build() {
+            return new PostTrainingQuantizer(this);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.quantization;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Accuracy vs. latency comparison of an FP32 network and its int8 quantized copy, as produced by
+ * {@link PostTrainingQuantizer#compare(org.deeplearning4j.nn.multilayer.MultiLayerNetwork, org.deeplearning4j.nn.multilayer.MultiLayerNetwork, org.nd4j.linalg.dataset.api.iterator.DataSetIterator)}
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuantizationReport implements Serializable {
+
+    private int numQuantizedLayers;
+    private int numExamples;
+    private int numBatches;
+
+    private double fp32Accuracy;
+    private double quantizedAccuracy;
+    /** Mean over all output values of |fp32 - quantized| */
+    private double meanAbsOutputDifference;
+    /** Fraction of examples for which the argmax of the output differs */
+    private double argMaxDisagreement;
+
+    private double fp32MsPerBatch;
+    private double quantizedMsPerBatch;
+
+    /** Bytes of the weights of the quantized layers, in the original network */
+    private long fp32WeightBytes;
+    /** Bytes of the int8 weights and scales of the quantized layers */
+    private long quantizedWeightBytes;
+    /**
+     * Bytes actually held by the quantized layers: the retained FP32 weights, the int8 weights and scales, and the
+     * GEMM weight operand. See {@link FakeQuantizedLayer#sizeBytes()}
+     */
+    private long quantizedLayerBytes;
+
+    public double getSpeedup() {
+        return quantizedMsPerBatch <= 0 ? 0.0 : fp32MsPerBatch / quantizedMsPerBatch;
+    }
+
+    public double getAccuracyDelta() {
+        return quantizedAccuracy - fp32Accuracy;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        String f = "%-32s%-16s%-16s\n";
+        sb.append("----- Quantization Report -----\n");
+        sb.append("Quantized layers: ").append(numQuantizedLayers)
+                .append(", examples: ").append(numExamples)
+                .append(", minibatches: ").append(numBatches).append("\n");
+        sb.append(String.format(f, "", "FP32", "INT8"));
+        sb.append(String.format(f, "Accuracy", String.format("%.4f", fp32Accuracy), String.format("%.4f", quantizedAccuracy)));
+        sb.append(String.format(f, "Latency (ms/minibatch)", String.format("%.3f", fp32MsPerBatch), String.format("%.3f", quantizedMsPerBatch)));
+        sb.append(String.format(f, "Weight bytes (quantized layers)", fp32WeightBytes, quantizedWeightBytes));
+        sb.append(String.format(f, "Bytes held (quantized layers)", fp32WeightBytes, quantizedLayerBytes));
+        sb.append(String.format("Speedup: %.2fx, accuracy delta: %.4f\n", getSpeedup(), getAccuracyDelta()));
+        sb.append(String.format("Mean |output difference|: %.6f, argmax disagreement: %.4f\n", meanAbsOutputDifference, argMaxDisagreement));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,533 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.transferlearning;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.AsyncDataSetIterator;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.common.util.ArrayUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * DataSetIterator over the featurized version of a dataset (see {@link TransferLearningHelper#featurize(DataSet)}),
+ * cached on disk.<br>
+ * On the first use, the source iterator is featurized once through the frozen part of the network, and the
+ * featurized examples are written to a cache file. Loading of the source data, the forward pass through the frozen
+ * layers and writing to disk are pipelined on separate threads. All epochs (including the first) are then served
+ * from the cache file using memory-mapped reads, optionally shuffled at the example level each epoch, so the frozen
+ * layers are never run again. If the cache file already exists, it is reused without featurizing.<br>
+ * <br>
+ * Features can be stored as 16-bit floats ({@link DataType#HALF}) to halve the size of the cache. Labels and label
+ * masks are always stored as 32-bit floats. All examples must have the same feature and label shapes. Usage:
+ * <pre>
+ * {@code
+ * DataSetIterator featurized = new CachedFeaturizedDataSetIterator.Builder(helper, trainIter)
+ *         .cacheFile(new File("featurized.bin"))
+ *         .storageDataType(DataType.HALF)
+ *         .shuffle(12345)
+ *         .build();
+ * for (int i = 0; i < nEpochs; i++) {
+ *     helper.fitFeaturized(featurized);
+ * }
+ * }
+ * </pre>
+ */
+@Slf4j
+public class CachedFeaturizedDataSetIterator implements DataSetIterator {
+    private static final int MAGIC = 0x444C3446;       //"DL4F"
+    private static final int VERSION = 1;
+
+    @Getter
+    private final File cacheFile;
+    private final int batchSize;
+    private final Random rng;
+
+    @Getter
+    private long numExamples;
+    private DataType storageType;
+    private DataType featureType;
+    private long[] featureShape;        //Per example shape
+    private long[] labelShape;          //Per example shape
+    private long[] maskShape;           //Per example shape; null if no label masks
+    private boolean hasLabelMask;
+    private long featureLength;
+    private long labelLength;
+    private long maskLength;
+    private long recordBytes;
+    private long dataOffset;
+    private List<String> labels;
+
+    private MappedByteBuffer[] segments;
+    private long recordsPerSegment;
+    private int[] order;
+    private int position;
+    private DataSetPreProcessor preProcessor;
+
+    protected CachedFeaturizedDataSetIterator(TransferLearningHelper helper, DataSetIterator source, File cacheFile,
+                    DataType storageType, int batchSize, Long shuffleSeed) throws IOException {
+        Preconditions.checkArgument(storageType == DataType.FLOAT || storageType == DataType.HALF,
+                        "Storage data type must be FLOAT or HALF, got %s", storageType);
+        this.cacheFile = cacheFile;
+        this.rng = shuffleSeed == null ? null : new Random(shuffleSeed);
+        this.labels = source == null ? null : source.getLabels();
+
+        if (!cacheFile.exists() || cacheFile.length() == 0) {
+            Preconditions.checkState(helper != null && source != null, "Cache file %s does not exist, and no " +
+                            "TransferLearningHelper and source iterator were provided to create it", cacheFile);
+            this.storageType = storageType;
+            write(helper, source);
+        }
+        open();
+        this.batchSize = batchSize > 0 ? batchSize : (source != null && source.batch() > 0 ? source.batch() : 32);
+        reset();
+    }
+
+    /**
+     * Featurize all examples from the source iterator, and write them to the cache file. The file is written to a
+     * temporary file first, so an interrupted featurization never leaves a partial cache file behind
+     */
+    private void write(TransferLearningHelper helper, DataSetIterator source) throws IOException {
+        File tmp = new File(cacheFile.getAbsolutePath() + ".tmp");
+        if (source.resetSupported())
+            source.reset();
+        DataSetIterator iter = source.asyncSupported() ? new AsyncDataSetIterator(source, 2, false) : source;
+
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        long start = System.currentTimeMillis();
+        try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw"); FileChannel ch = raf.getChannel()) {
+            raf.setLength(0);
+            Future<?> pending = null;
+            while (iter.hasNext()) {
+                DataSet next = iter.next();
+                final DataSet featurized = helper.featurize(next);
+                if (pending != null)
+                    pending.get();
+                pending = writer.submit(() -> {
+                    writeBatch(ch, featurized);
+                    return null;
+                });
+            }
+            if (pending != null)
+                pending.get();
+            Preconditions.checkState(numExamples > 0, "No examples in source iterator");
+
+            ch.position(0);
+            writeHeader(ch);
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        } catch (Exception e) {
+            tmp.delete();
+            throw new IOException("Error featurizing data to cache file " + cacheFile, e);
+        } finally {
+            writer.shutdownNow();
+            if (iter != source)
+                ((AsyncDataSetIterator) iter).shutdown();
+        }
+
+        if (!tmp.renameTo(cacheFile))
+            throw new IOException("Could not move temporary file " + tmp + " to " + cacheFile);
+        log.info("Featurized {} examples to {} ({} bytes) in {} ms", numExamples, cacheFile, cacheFile.length(),
+                        System.currentTimeMillis() - start);
+    }
+
+    private void writeBatch(FileChannel ch, DataSet ds) throws IOException {
+        Preconditions.checkState(ds.getFeaturesMaskArray() == null, "Feature masks are not supported");
+        INDArray f = ds.getFeatures();
+        INDArray l = ds.getLabels();
+        INDArray lm = ds.getLabelsMaskArray();
+        int n = (int) f.size(0);
+        long[] fShape = Arrays.copyOfRange(f.shape(), 1, f.rank());
+        long[] lShape = Arrays.copyOfRange(l.shape(), 1, l.rank());
+        long[] mShape = lm == null ? null : Arrays.copyOfRange(lm.shape(), 1, lm.rank());
+
+        if (featureShape == null) {
+            featureType = f.dataType();
+            featureShape = fShape;
+            labelShape = lShape;
+            maskShape = mShape;
+            hasLabelMask = lm != null;
+            computeLayout();
+            ch.position(dataOffset);
+        } else if (!Arrays.equals(featureShape, fShape) || !Arrays.equals(labelShape, lShape)
+                        || !Arrays.equals(maskShape, mShape)) {
+            throw new IllegalStateException("All examples must have the same shapes: expected features/labels with "
+                            + "shape " + Arrays.toString(featureShape) + "/" + Arrays.toString(labelShape)
+                            + " per example, got " + Arrays.toString(fShape) + "/" + Arrays.toString(lShape));
+        }
+
+        float[] fData = f.castTo(DataType.FLOAT).dup('c').data().asFloat();
+        float[] lData = l.castTo(DataType.FLOAT).dup('c').data().asFloat();
+        float[] mData = hasLabelMask ? lm.castTo(DataType.FLOAT).dup('c').data().asFloat() : null;
+        int mLength = (int) maskLength;
+
+        ByteBuffer bb = ByteBuffer.allocate((int) (recordBytes * n)).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < n; i++) {
+            int fo = (int) (i * featureLength);
+            for (int j = 0; j < featureLength; j++) {
+                if (storageType == DataType.HALF)
+                    bb.putShort(toHalf(fData[fo + j]));
+                else
+                    bb.putFloat(fData[fo + j]);
+            }
+            int lo = (int) (i * labelLength);
+            for (int j = 0; j < labelLength; j++)
+                bb.putFloat(lData[lo + j]);
+            for (int j = 0; j < mLength; j++)
+                bb.putFloat(mData[i * mLength + j]);
+        }
+        bb.flip();
+        while (bb.hasRemaining())
+            ch.write(bb);
+        numExamples += n;
+    }
+
+    private void writeHeader(FileChannel ch) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate((int) dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+        bb.putInt(MAGIC).putInt(VERSION);
+        bb.putInt(storageType.ordinal()).putInt(featureType.ordinal());
+        bb.putLong(numExamples);
+        bb.put((byte) (hasLabelMask ? 1 : 0));
+        bb.putInt(featureShape.length);
+        for (long l : featureShape)
+            bb.putLong(l);
+        bb.putInt(labelShape.length);
+        for (long l : labelShape)
+            bb.putLong(l);
+        if (hasLabelMask) {
+            bb.putInt(maskShape.length);
+            for (long l : maskShape)
+                bb.putLong(l);
+        }
+        bb.flip();
+        while (bb.hasRemaining())
+            ch.write(bb);
+    }
+
+    private void computeLayout() {
+        featureLength = ArrayUtil.prodLong(featureShape);
+        labelLength = ArrayUtil.prodLong(labelShape);
+        maskLength = hasLabelMask ? ArrayUtil.prodLong(maskShape) : 0;
+        recordBytes = featureLength * storageType.width() + (labelLength + maskLength) * 4;
+        dataOffset = 4 * 4 + 8 + 1 + 4 + 8 * featureShape.length + 4 + 8 * labelShape.length
+                        + (hasLabelMask ? 4 + 8 * maskShape.length : 0);
+    }
+
+    private void open() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(cacheFile, "r"); FileChannel ch = raf.getChannel()) {
+            ByteBuffer bb = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+            ch.read(bb, 0);
+            bb.flip();
+            if (bb.getInt() != MAGIC)
+                throw new IOException("File " + cacheFile + " is not a featurized dataset cache file");
+            int version = bb.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported featurized dataset cache version: " + version);
+            storageType = DataType.values()[bb.getInt()];
+            featureType = DataType.values()[bb.getInt()];
+            numExamples = bb.getLong();
+            hasLabelMask = bb.get() != 0;
+            featureShape = new long[bb.getInt()];
+            for (int i = 0; i < featureShape.length; i++)
+                featureShape[i] = bb.getLong();
+            labelShape = new long[bb.getInt()];
+            for (int i = 0; i < labelShape.length; i++)
+                labelShape[i] = bb.getLong();
+            if (hasLabelMask) {
+                maskShape = new long[bb.getInt()];
+                for (int i = 0; i < maskShape.length; i++)
+                    maskShape[i] = bb.getLong();
+            }
+            computeLayout();
+
+            if (dataOffset + numExamples * recordBytes > ch.size())
+                throw new IOException("Featurized dataset cache file " + cacheFile + " is truncated");
+            Preconditions.checkState(numExamples <= Integer.MAX_VALUE, "Too many examples: %s", numExamples);
+
+            //MappedByteBuffers are limited to 2GB: map the records in segments of whole records
+            recordsPerSegment = Math.max(1, Integer.MAX_VALUE / recordBytes);
+            int nSegments = (int) ((numExamples + recordsPerSegment - 1) / recordsPerSegment);
+            segments = new MappedByteBuffer[nSegments];
+            for (int i = 0; i < nSegments; i++) {
+                long first = i * recordsPerSegment;
+                long count = Math.min(recordsPerSegment, numExamples - first);
+                segments[i] = ch.map(FileChannel.MapMode.READ_ONLY, dataOffset + first * recordBytes,
+                                count * recordBytes);
+                segments[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+    }
+
+    @Override
+    public DataSet next(int num) {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        int n = Math.min(num, order.length - position);
+        int mLength = (int) maskLength;
+        float[] f = new float[(int) (n * featureLength)];
+        float[] l = new float[(int) (n * labelLength)];
+        float[] m = hasLabelMask ? new float[n * mLength] : null;
+
+        for (int i = 0; i < n; i++) {
+            int example = order[position++];
+            ByteBuffer bb = segments[(int) (example / recordsPerSegment)].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            bb.position((int) ((example % recordsPerSegment) * recordBytes));
+            int fo = (int) (i * featureLength);
+            for (int j = 0; j < featureLength; j++)
+                f[fo + j] = storageType == DataType.HALF ? fromHalf(bb.getShort()) : bb.getFloat();
+            int lo = (int) (i * labelLength);
+            for (int j = 0; j < labelLength; j++)
+                l[lo + j] = bb.getFloat();
+            for (int j = 0; j < mLength; j++)
+                m[i * mLength + j] = bb.getFloat();
+        }
+
+        INDArray features = Nd4j.create(f, ArrayUtil.combine(new long[]{n}, featureShape), 'c');
+        if (featureType != DataType.FLOAT)
+            features = features.castTo(featureType);
+        INDArray labelArr = Nd4j.create(l, ArrayUtil.combine(new long[]{n}, labelShape), 'c');
+        INDArray maskArr = hasLabelMask ? Nd4j.create(m, ArrayUtil.combine(new long[]{n}, maskShape), 'c') : null;
+        DataSet ds = new DataSet(features, labelArr, null, maskArr);
+        if (preProcessor != null)
+            preProcessor.preProcess(ds);
+        return ds;
+    }
+
+    @Override
+    public DataSet next() {
+        return next(batchSize);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return position < order.length;
+    }
+
+    @Override
+    public int inputColumns() {
+        return (int) featureShape[0];
+    }
+
+    @Override
+    public int totalOutcomes() {
+        return (int) labelShape[0];
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        return true;
+    }
+
+    /**
+     * Reset the iterator. If shuffling is enabled, the order of the examples is shuffled
+     */
+    @Override
+    public void reset() {
+        position = 0;
+        if (order == null) {
+            order = new int[(int) numExamples];
+            for (int i = 0; i < order.length; i++)
+                order[i] = i;
+        }
+        if (rng != null) {
+            for (int i = order.length - 1; i > 0; i--) {
+                int j = rng.nextInt(i + 1);
+                int temp = order[j];
+                order[j] = order[i];
+                order[i] = temp;
+            }
+        }
+    }
+
+    @Override
+    public int batch() {
+        return batchSize;
+    }
+
+    @Override
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+        this.preProcessor = preProcessor;
+    }
+
+    @Override
+    public DataSetPreProcessor getPreProcessor() {
+        return preProcessor;
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    /**
+     * Convert a float to IEEE 754 half precision (binary16) bits, rounding to nearest
+     */
+    protected static short toHalf(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int abs = bits & 0x7fffffff;
+        if (abs >= 0x7f800000)                          //Infinity or NaN
+            return (short) (sign | 0x7c00 | (abs > 0x7f800000 ? 0x200 : 0));
+        if (abs >= 0x477ff000)                          //Overflow: rounds to infinity
+            return (short) (sign | 0x7c00);
+        if (abs >= 0x38800000) {                        //Normal half
+            int rounded = abs + 0x0fff + ((abs >>> 13) & 1);
+            return (short) (sign | ((rounded - 0x38000000) >>> 13));
+        }
+        if (abs < 0x33000000)                           //Underflow: rounds to zero
+            return (short) sign;
+        //Subnormal half
+        int exp = abs >>> 23;
+        int mantissa = (abs & 0x7fffff) | 0x800000;
+        int shift = 126 - exp;
+        int half = mantissa >>> shift;
+        int remainder = mantissa & ((1 << shift) - 1);
+        int midpoint = 1 << (shift - 1);
+        if (remainder > midpoint || (remainder == midpoint && (half & 1) != 0))
+            half++;
+        return (short) (sign | half);
+    }
+
+    /**
+     * Convert IEEE 754 half precision (binary16) bits to a float
+     */
+    protected static float fromHalf(short half) {
+        int h = half & 0xffff;
+        int sign = (h & 0x8000) << 16;
+        int exp = (h >>> 10) & 0x1f;
+        int mantissa = h & 0x3ff;
+        if (exp == 0x1f)
+            return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+        if (exp == 0) {
+            if (mantissa == 0)
+                return Float.intBitsToFloat(sign);
+            //Subnormal: normalize
+            exp = 1;
+            while ((mantissa & 0x400) == 0) {
+                mantissa <<= 1;
+                exp--;
+            }
+            mantissa &= 0x3ff;
+        }
+        return Float.intBitsToFloat(sign | ((exp + 112) << 23) | (mantissa << 13));
+    }
+
+    public static class Builder {
+        private final TransferLearningHelper helper;
+        private final DataSetIterator source;
+        private File cacheFile;
+        private DataType storageType = DataType.FLOAT;
+        private int batchSize;
+        private Long shuffleSeed;
+
+        /**
+         * @param helper TransferLearningHelper used to featurize the source data
+         * @param source Iterator over the original (not featurized) data. Not used if the cache file already exists
+         */
+        public Builder(@NonNull TransferLearningHelper helper, @NonNull DataSetIterator source) {
+            this.helper = helper;
+            this.source = source;
+        }
+
+        /**
+         * Cache file for the featurized data. If the file exists, it is reused without featurizing the source data.
+         * Default: a new temporary file, deleted on exit
+         *
+         * @param cacheFile Cache file
+         */
+        public Builder cacheFile(@NonNull File cacheFile) {
+            this.cacheFile = cacheFile;
+            return this;
+        }
+
+        /**
+         * Data type used to store the features in the cache file: {@link DataType#FLOAT} (default), or
+         * {@link DataType#HALF} to halve the size of the cache at the cost of precision
+         *
+         * @param storageType Storage data type
+         */
+        public Builder storageDataType(@NonNull DataType storageType) {
+            this.storageType = storageType;
+            return this;
+        }
+
+        /**
+         * Minibatch size of the returned DataSets. Default: the batch size of the source iterator
+         *
+         * @param batchSize Minibatch size
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Shuffle the examples (individually, not whole minibatches) on every reset. Default: no shuffling
+         *
+         * @param seed Seed for shuffling
+         */
+        public Builder shuffle(long seed) {
+            this.shuffleSeed = seed;
+            return this;
+        }
+
+        public CachedFeaturizedDataSetIterator build() {
+            try {
+                File f = cacheFile;
+                if (f == null) {
+                    f = File.createTempFile("featurized_", ".bin");
+                    f.delete();
+                    f.deleteOnExit();
+                }
+                return new CachedFeaturizedDataSetIterator(helper, source, f, storageType, batchSize, shuffleSeed);
+            } catch (IOException e) {
+                throw new RuntimeException("Error creating featurized dataset cache", e);
+            }
+        }
+    }
+}
@@ -25,9 +25,11 @@ import org.deeplearning4j.nn.api.Model;
 import org.deeplearning4j.nn.api.Trainable;
 import org.deeplearning4j.nn.api.Updater;
 import org.deeplearning4j.nn.conf.GradientNormalization;
+import org.deeplearning4j.nn.conf.MixedPrecision;
 import org.deeplearning4j.nn.gradient.DefaultGradient;
 import org.deeplearning4j.nn.gradient.Gradient;
 import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.memory.MemoryWorkspace;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.api.ops.CustomOp;
@@ -53,6 +55,14 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
     protected boolean initializedMinibatchDivision;
     protected List<INDArray> gradientsForMinibatchDivision;
 
+    //Mixed precision training: FP32 master copies of the parameters and gradients. Null if mixed precision is not used
+    protected LossScaler lossScaler;
+    protected INDArray masterParams;
+    protected INDArray masterGradients;
+    protected List<INDArray> masterGradientsForMinibatchDivision;
+    protected List<INDArray> masterLayerGradientViews;
+    protected List<Gradient> masterLayerGradients;
+
     public BaseMultiLayerUpdater(T network) {
         this(network, null);
     }
@@ -140,14 +150,22 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
             }
         }
 
+        //Mixed precision: updater state is kept in FP32, regardless of the (16 bit) network data type
+        MixedPrecision mixedPrecision = getMixedPrecision();
+        DataType stateDataType = paramsView.dataType();
+        if (LossScaler.isMixedPrecision(mixedPrecision, paramsView.dataType())) {
+            lossScaler = new LossScaler(mixedPrecision);
+            stateDataType = DataType.FLOAT;
+        }
+
         //Initialize the updater state, if required
         boolean updaterRequiresInit = false;
         if (updaterState != null) {
-            updaterStateViewArray = updaterState;
+            updaterStateViewArray = updaterState.dataType() == stateDataType ? updaterState : updaterState.castTo(stateDataType);
             updaterRequiresInit = false;
         } else if (updaterStateSize > 0) {
             //May be 0 if all SGD or NONE updaters, for example
-            updaterStateViewArray = Nd4j.createUninitialized(network.params().dataType(), new long[] { updaterStateSize}, Nd4j.order());
+            updaterStateViewArray = Nd4j.createUninitialized(stateDataType, new long[] { updaterStateSize}, Nd4j.order());
             updaterRequiresInit = true;
         }
 
@@ -171,6 +189,8 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
                 INDArray gradientViewSubset = gradientView.reshape(gradientView.length()).get(
                         NDArrayIndex.interval(paramsViewSoFar, paramsViewSoFar + gradSize));
                 ub.setGradientView(gradientViewSubset);
+                ub.setParamView(paramsView.reshape(paramsView.length()).get(
+                        NDArrayIndex.interval(paramsViewSoFar, paramsViewSoFar + gradSize)));
             }
 
             ub.init();
@@ -202,6 +222,62 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
      */
     protected abstract boolean isMiniBatch();
 
+    /**
+     * @return The mixed precision configuration for the model, or null if mixed precision training is not configured
+     */
+    protected MixedPrecision getMixedPrecision() {
+        return null;
+    }
+
+    /**
+     * @return The loss scale that was actually applied to the gradients passed to {@link #update(Gradient, int, int, int, LayerWorkspaceMgr)}.
+     * By default this is the current loss scale; models override this, as gradients computed from external epsilons
+     * (with no output layer backprop) are not loss scaled
+     */
+    protected double getGradientLossScale() {
+        return getLossScale();
+    }
+
+    /**
+     * @return True if mixed precision training is used: FP32 master parameters and updater state, for a HALF or
+     * BFLOAT16 network. See {@link MixedPrecision}
+     */
+    public boolean isMixedPrecision() {
+        return lossScaler != null;
+    }
+
+    /**
+     * @return The current loss scale for mixed precision training, or 1.0 if mixed precision is not used
+     */
+    public double getLossScale() {
+        return lossScaler == null ? 1.0 : lossScaler.getLossScale();
+    }
+
+    /**
+     * Mixed precision training only: update the FP32 master parameters from the (16 bit) network parameters.<br>
+     * Must be called after the network parameters are modified outside of this updater (for example, after parameter
+     * averaging), otherwise these modifications will be overwritten by the next update. No-op if mixed precision
+     * is not used, or no update has been done yet.
+     */
+    public synchronized void syncMasterParams() {
+        if (masterParams != null) {
+            INDArray params = getParams();
+            masterParams.assign(params.reshape(params.length()));
+        }
+    }
+
+    /**
+     * Mixed precision training only: set the (16 bit) network parameters from the FP32 master parameters.<br>
+     * Used after the master parameters are modified outside of this updater (for example, after averaging the master
+     * parameters of multiple model replicas). No-op if mixed precision is not used, or no update has been done yet.
+     */
+    public synchronized void applyMasterParams() {
+        if (masterParams != null) {
+            INDArray params = getParams();
+            params.reshape(params.length()).assign(masterParams);
+        }
+    }
+
     /**
      * Set the view array. Note that this does an assign operation - the provided array is not stored internally.
      *
@@ -260,18 +336,24 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
      */
     public synchronized void update(Gradient gradient, int iteration, int epoch, int batchSize, LayerWorkspaceMgr workspaceMgr) {
 
+        if (lossScaler != null) {
+            updateMixedPrecision(gradient, iteration, epoch, batchSize, workspaceMgr);
+            return;
+        }
+
         //First: check if gradient is standard or external...
         //In a MultiLayerNetwork, the INDArray returned by .gradient() is always the standard full view array
         // hence should be the same object under normal circumstances
         boolean isExternal = gradient.gradient() != getFlattenedGradientsView();
 
-        //Split up the gradients on a per-layer basis, for pre-apply
+        //Split up the gradients on a per-layer basis, for pre-apply. Not required if no layer has gradient normalization
         Map<String, Gradient> layerGradients = new HashMap<>();
 
         Trainable[] layers = getOrderedLayers();
-        if (layers.length == 1 && isSingleLayerUpdater()) {
+        boolean preApply = hasGradientNormalization(layers);
+        if (preApply && layers.length == 1 && isSingleLayerUpdater()) {
             layerGradients.put(layers[0].getConfig().getLayerName(), gradient);
-        } else {
+        } else if (preApply) {
             for (Map.Entry<String, INDArray> gradientPair : gradient.gradientForVariable().entrySet()) {
                 String key = gradientPair.getKey();
                 int idx = key.lastIndexOf('_');
@@ -326,6 +408,104 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
         }
     }
 
+    /**
+     * Mixed precision update. The (loss scaled, 16 bit) gradients are copied to the FP32 master gradients, and checked
+     * for overflow. If an overflow is found, the update is skipped and the loss scale is reduced. Otherwise, the
+     * gradients are unscaled, and the updater and the update are applied to the FP32 master parameters, which are then
+     * copied back to the network parameters.<br>
+     * The network gradient array is zeroed, as the update has already been applied to the network parameters.
+     */
+    protected void updateMixedPrecision(Gradient gradient, int iteration, int epoch, int batchSize, LayerWorkspaceMgr workspaceMgr) {
+        if (masterParams == null) {
+            initMasterArrays();
+        }
+
+        INDArray halfGradient = gradient.gradient();
+        halfGradient = halfGradient.reshape(halfGradient.length());
+        masterGradients.assign(halfGradient);
+
+        if (!Double.isFinite(masterGradients.sumNumber().doubleValue())) {
+            //Infinity or NaN: skip this update entirely
+            lossScaler.overflow();
+            halfGradient.assign(0);
+            return;
+        }
+
+        //Unscale the gradients (only if the loss scale was applied), and divide by minibatch size where required
+        double divisor = (isMiniBatch() ? batchSize : 1) * getGradientLossScale();
+        if (divisor != 1.0) {
+            for (INDArray arr : masterGradientsForMinibatchDivision) {
+                arr.divi(divisor);
+            }
+        }
+
+        //PRE apply (gradient clipping, etc): done on a per-layer basis, in FP32
+        Trainable[] layers = getOrderedLayers();
+        for (int i = 0; i < layers.length; i++) {
+            preApply(layers[i], masterLayerGradients.get(i), iteration, masterLayerGradientViews.get(i));
+        }
+
+        if(getClass() != LayerUpdater.class){
+            workspaceMgr.assertNotOpen(ArrayType.UPDATER_WORKING_MEM, "Updater working memory");
+        }
+        for (UpdaterBlock ub : updaterBlocks) {
+            if (ub.skipDueToPretrainConfig(this instanceof LayerUpdater)) {
+                continue;
+            }
+            try(MemoryWorkspace ws = workspaceMgr.notifyScopeEntered(ArrayType.UPDATER_WORKING_MEM)){
+                ub.updateExternalGradient(iteration, epoch, masterGradients, masterParams);
+            }
+        }
+
+        //Apply the update to the master params, and copy back to the network params
+        masterParams.subi(masterGradients);
+        INDArray params = getParams();
+        params.reshape(params.length()).assign(masterParams);
+        halfGradient.assign(0);
+        lossScaler.stepSucceeded();
+    }
+
+    protected void initMasterArrays() {
+        try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+            INDArray params = getParams();
+            masterParams = params.reshape(params.length()).castTo(DataType.FLOAT);
+            masterGradients = Nd4j.zeros(DataType.FLOAT, params.length());
+            masterGradientsForMinibatchDivision = getMinibatchDivisionSubsets(masterGradients);
+
+            //Per layer and per parameter FP32 gradient views, for gradient normalization
+            masterLayerGradientViews = new ArrayList<>();
+            masterLayerGradients = new ArrayList<>();
+            long offset = 0;
+            for (Trainable t : getOrderedLayers()) {
+                long start = offset;
+                Gradient g = new DefaultGradient();
+                Map<String, INDArray> paramTable = t.paramTable(false);
+                for (Map.Entry<String, INDArray> e : paramTable.entrySet()) {
+                    long length = e.getValue().length();
+                    g.setGradientFor(e.getKey(), masterGradients.get(NDArrayIndex.interval(offset, offset + length)));
+                    offset += length;
+                }
+                masterLayerGradientViews.add(offset > start ? masterGradients.get(NDArrayIndex.interval(start, offset)) : null);
+                masterLayerGradients.add(g);
+            }
+        }
+    }
+
+    /**
+     * @param layers Layers to check
+     * @return True if any of the layers has parameters and gradient normalization/clipping configured
+     */
+    protected boolean hasGradientNormalization(Trainable[] layers) {
+        for (Trainable t : layers) {
+            if (t.getConfig() == null || t.numParams() == 0)
+                continue;
+            GradientNormalization gn = t.getConfig().getGradientNormalization();
+            if (gn != null && gn != GradientNormalization.None)
+                return true;
+        }
+        return false;
+    }
+
     protected void divideByMinibatch(boolean isExternal, Gradient gradient, int batchSize){
         //Challenge here: most gradients are actual gradients, and should be divided by the minibatch to get the average
         //However, some 'gradients' are actually updates - an example being BatchNorm mean/variance estimates... these
@@ -393,6 +573,18 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
      * @param iteration The current iteration (i.e., number of parameter updates so far)
      */
     public void preApply(Trainable layer, Gradient gradient, int iteration) {
+        preApply(layer, gradient, iteration, layer.getGradientsViewArray());
+    }
+
+    /**
+     * Pre-apply: Apply gradient normalization/clipping
+     *
+     * @param layer             Layer to apply gradient normalization/clipping for
+     * @param gradient          Gradient to update
+     * @param iteration         The current iteration (i.e., number of parameter updates so far)
+     * @param layerGradientView Gradient view array for all parameters of the layer
+     */
+    protected void preApply(Trainable layer, Gradient gradient, int iteration, INDArray layerGradientView) {
 
         if (layer.getConfig() == null || layer.numParams() == 0) {
             //Layer does not have parameters -> no gradient
@@ -404,7 +596,6 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
             return; //no op
 
         final double threshold = layer.getConfig().getGradientNormalizationThreshold();
-        INDArray layerGradientView = layer.getGradientsViewArray();
 
         switch (normalization) {
             case RenormalizeL2PerLayer:
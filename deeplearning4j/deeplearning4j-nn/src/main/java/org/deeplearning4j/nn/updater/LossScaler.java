@@ -0,0 +1,145 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.updater;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.conf.MixedPrecision;
+import org.deeplearning4j.nn.gradient.Gradient;
+import org.nd4j.common.primitives.Pair;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.io.Serializable;
+
+/**
+ * Loss scale state for mixed precision training - see {@link MixedPrecision}.<br>
+ * With dynamic loss scaling, the scale is multiplied by the backoff factor whenever an overflow is detected in the
+ * gradients (and the update is skipped), and multiplied by the growth factor after growth interval consecutive
+ * iterations without overflow.
+ */
+@Slf4j
+@Getter
+public class LossScaler implements Serializable {
+
+    /** The largest power of 2 that can be represented in FP16: larger loss scales are applied in multiple steps */
+    private static final double MAX_HALF_SCALAR = 32768.0;
+
+    private final MixedPrecision config;
+    private double lossScale;
+    private int stepsSinceOverflow;
+    private long skippedSteps;
+
+    public LossScaler(@NonNull MixedPrecision config) {
+        this.config = config;
+        this.lossScale = config.getInitialLossScale();
+    }
+
+    /**
+     * Called when an overflow (Infinity or NaN) was detected in the gradients. The update is skipped, and - with
+     * dynamic loss scaling - the loss scale is reduced
+     */
+    public void overflow() {
+        skippedSteps++;
+        stepsSinceOverflow = 0;
+        if (config.isDynamicLossScaling()) {
+            double newScale = Math.max(config.getMinLossScale(), lossScale * config.getBackoffFactor());
+            log.debug("Gradient overflow detected: skipping update, reducing loss scale from {} to {}", lossScale, newScale);
+            lossScale = newScale;
+        } else {
+            log.debug("Gradient overflow detected: skipping update (static loss scale {})", lossScale);
+        }
+    }
+
+    /**
+     * Called after an update without overflow. With dynamic loss scaling, the loss scale is increased after
+     * {@link MixedPrecision#getGrowthInterval()} consecutive such updates
+     */
+    public void stepSucceeded() {
+        if (!config.isDynamicLossScaling()) {
+            return;
+        }
+        if (++stepsSinceOverflow >= config.getGrowthInterval()) {
+            lossScale = Math.min(config.getMaxLossScale(), lossScale * config.getGrowthFactor());
+            stepsSinceOverflow = 0;
+        }
+    }
+
+    /**
+     * @param config   Mixed precision configuration. May be null
+     * @param dataType Network parameter data type
+     * @return True if mixed precision training should be used: i.e., the configuration is set and the network data
+     * type is HALF or BFLOAT16
+     */
+    public static boolean isMixedPrecision(MixedPrecision config, DataType dataType) {
+        return config != null && (dataType == DataType.HALF || dataType == DataType.BFLOAT16);
+    }
+
+    /**
+     * Scale the output layer parameter gradients and the output layer epsilon (activation gradients) in-place.
+     * This is equivalent to scaling the loss by the specified value
+     *
+     * @param outputLayerBackprop Output layer gradients and epsilon, as returned by the output layer's backpropGradient method
+     * @param lossScale           Loss scale
+     */
+    public static void scaleOutputGradients(Pair<Gradient, INDArray> outputLayerBackprop, double lossScale) {
+        if (outputLayerBackprop != null) {
+            scaleOutputGradients(outputLayerBackprop.getFirst(), new INDArray[]{outputLayerBackprop.getSecond()}, lossScale);
+        }
+    }
+
+    /**
+     * As per {@link #scaleOutputGradients(Pair, double)}, for output layers with multiple epsilons (ComputationGraph)
+     *
+     * @param gradient  Output layer gradients. May be null
+     * @param epsilons  Output layer epsilons (activation gradients). May be null, or contain null elements
+     * @param lossScale Loss scale
+     */
+    public static void scaleOutputGradients(Gradient gradient, INDArray[] epsilons, double lossScale) {
+        if (lossScale == 1.0) {
+            return;
+        }
+        if (gradient != null) {
+            for (INDArray g : gradient.gradientForVariable().values()) {
+                scale(g, lossScale);
+            }
+        }
+        if (epsilons != null) {
+            for (INDArray eps : epsilons) {
+                if (eps != null) {
+                    scale(eps, lossScale);
+                }
+            }
+        }
+    }
+
+    private static void scale(INDArray arr, double lossScale) {
+        if (arr.dataType() == DataType.HALF) {
+            //The scalar is cast to FP16, so would be Infinity for loss scales of 65536 and above
+            while (lossScale > MAX_HALF_SCALAR) {
+                arr.muli(MAX_HALF_SCALAR);
+                lossScale /= MAX_HALF_SCALAR;
+            }
+        }
+        arr.muli(lossScale);
+    }
+}
@@ -38,6 +38,15 @@ import org.nd4j.linalg.ops.transforms.Transforms;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * A set of consecutive parameters (possibly spanning multiple layers) that share an identical updater configuration,
+ * and hence a single {@link GradientUpdater} and a contiguous updater state view.<br>
+ * Each update of a block runs: pre-updater regularization (L1/L2) once per {@link RegularizationRun}, the updater once
+ * over the whole block (a single native op for updaters such as Adam), and post-updater regularization (weight decay)
+ * once per run. The parameter subtraction is done once for the whole network by the optimizer.<br>
+ * Note that these are separate ops: there is no single-pass kernel that combines regularization, the updater and the
+ * parameter subtraction, as that would need a new libnd4j op for each updater type.
+ */
 @Data
 public class UpdaterBlock {
     private int paramOffsetStart;
@@ -48,6 +57,8 @@ public class UpdaterBlock {
 
     private INDArray updaterView;
     private INDArray gradientView;
+    private INDArray paramView;
+    private List<RegularizationRun> regularizationRuns;
     private boolean updaterViewRequiresInitialization;
 
     private GradientUpdater gradientUpdater;
@@ -64,6 +75,21 @@ public class UpdaterBlock {
         private final INDArray gradView;
     }
 
+    /**
+     * A contiguous run of parameters within an updater block that all have an identical regularization configuration.
+     * Regularization is applied once over the whole run (one op per regularization type), rather than once per
+     * parameter of each layer.
+     */
+    @AllArgsConstructor
+    @Data
+    public static class RegularizationRun {
+        private final List<Regularization> regularization;
+        private final int paramOffsetStart;
+        private final int paramOffsetEnd;
+        private final INDArray paramView;
+        private final INDArray gradView;
+    }
+
     /**
      * @param paramOffsetStart          Start offset of the parameters in this block (relative to overall net params
      *                                  view array)
@@ -167,28 +193,96 @@ public class UpdaterBlock {
 
     protected void applyRegularizationAllVariables(Regularization.ApplyStep applyStep, int iteration, int epoch, boolean externalGradient, INDArray fullNetworkGradientView,
                                                    INDArray fullNetworkParamsArray) {
-        for (ParamState p : layersAndVariablesInBlock) {
+        boolean hasLR = gradientUpdater.getConfig().hasLearningRate();
+        double lr = (hasLR ? gradientUpdater.getConfig().getLearningRate(iteration, epoch) : 1.0);
+        if (!externalGradient && paramView == null) {
+            //No block parameter view available: apply on a per-parameter basis
+            for (ParamState p : layersAndVariablesInBlock) {
+                applyRegularization(applyStep, p.getLayer(), p.getParamName(), p.getGradView(), p.getParamView(), iteration, epoch, lr);
+            }
+            return;
+        }
+
+        List<RegularizationRun> runs = getRegularizationRuns();
+        if (runs.isEmpty())
+            return;
+
+        if (externalGradient) {
+            fullNetworkParamsArray = fullNetworkParamsArray.reshape(fullNetworkParamsArray.length());
+            fullNetworkGradientView = fullNetworkGradientView.reshape(fullNetworkGradientView.length());
+        }
+
+        for (RegularizationRun run : runs) {
             INDArray paramView;
             INDArray gradView;
-            if(fullNetworkParamsArray != null)
-                fullNetworkParamsArray = fullNetworkParamsArray.reshape(fullNetworkParamsArray.length());
             if (externalGradient) {
                 paramView = fullNetworkParamsArray.get(
-                        NDArrayIndex.interval(p.getParamOffsetStart(), p.getParamOffsetEnd()));
-                gradView = fullNetworkGradientView.reshape(fullNetworkGradientView.length()).get(
-                        NDArrayIndex.interval(p.getParamOffsetStart(), p.getParamOffsetEnd()));
+                        NDArrayIndex.interval(run.getParamOffsetStart(), run.getParamOffsetEnd()));
+                gradView = fullNetworkGradientView.get(
+                        NDArrayIndex.interval(run.getParamOffsetStart(), run.getParamOffsetEnd()));
             } else {
                 //Standard case
-                paramView = p.getParamView();
-                gradView = p.getGradView();
+                paramView = run.getParamView();
+                gradView = run.getGradView();
             }
 
-            boolean hasLR = gradientUpdater.getConfig().hasLearningRate();
-            double lr = (hasLR ? gradientUpdater.getConfig().getLearningRate(iteration, epoch) : 1.0);
-            applyRegularization(applyStep, p.getLayer(), p.getParamName(), gradView, paramView, iteration, epoch, lr);
+            for (Regularization r : run.getRegularization()) {
+                if (r.applyStep() == applyStep) {
+                    r.apply(paramView, gradView, lr, iteration, epoch);
+                }
+            }
         }
     }
 
+    /**
+     * Group the parameters in this block into contiguous runs with identical regularization, so that L1/L2/weight
+     * decay can be applied with one op per run instead of one op per parameter.
+     * Parameters without any regularization are not included in any run.
+     *
+     * @return Regularization runs for this block
+     */
+    public List<RegularizationRun> getRegularizationRuns() {
+        if (regularizationRuns == null) {
+            List<RegularizationRun> runs = new ArrayList<>();
+            List<Regularization> current = null;
+            int start = -1;
+            int end = -1;
+            for (ParamState p : layersAndVariablesInBlock) {
+                if (p.getParamOffsetEnd() == p.getParamOffsetStart())
+                    continue;   //No params - doesn't break contiguity
+                List<Regularization> l = p.getLayer().getConfig().getRegularizationByParam(p.getParamName());
+                if (l != null && l.isEmpty())
+                    l = null;
+                if (current != null && current.equals(l) && p.getParamOffsetStart() == end) {
+                    end = p.getParamOffsetEnd();
+                    continue;
+                }
+                if (current != null)
+                    runs.add(createRegularizationRun(current, start, end));
+                current = l;
+                start = p.getParamOffsetStart();
+                end = p.getParamOffsetEnd();
+            }
+            if (current != null)
+                runs.add(createRegularizationRun(current, start, end));
+            regularizationRuns = runs;
+        }
+        return regularizationRuns;
+    }
+
+    private RegularizationRun createRegularizationRun(List<Regularization> regularization, int start, int end) {
+        INDArray runParamView = null;
+        INDArray runGradView = null;
+        if (paramView != null && gradientView != null) {
+            //Offsets are relative to the whole network - views here are relative to this block
+            INDArray p = paramView.reshape(paramView.length());
+            INDArray g = gradientView.reshape(gradientView.length());
+            runParamView = p.get(NDArrayIndex.interval(start - paramOffsetStart, end - paramOffsetStart));
+            runGradView = g.get(NDArrayIndex.interval(start - paramOffsetStart, end - paramOffsetStart));
+        }
+        return new RegularizationRun(regularization, start, end, runParamView, runGradView);
+    }
+
     /**
      * Apply L1 and L2 regularization, if necessary. Note that L1/L2 may differ for different layers in the same block
      *
@@ -198,8 +292,6 @@ public class UpdaterBlock {
      * @param paramsView   Parameter view array for the layer + param
      */
     protected void applyRegularization(Regularization.ApplyStep step, Trainable layer, String paramName, INDArray gradientView, INDArray paramsView, int iter, int epoch, double lr) {
-        //TODO: do this for multiple contiguous params/layers (fewer, larger ops)
-
         List<Regularization> l = layer.getConfig().getRegularizationByParam(paramName);
         if(l != null && !l.isEmpty()){
             for(Regularization r : l){
@@ -0,0 +1,55 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.workspace;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.rng.Random;
+
+/**
+ * A segment of a network whose activations were discarded after the training forward pass, and need to be recomputed
+ * before backprop - see {@link org.deeplearning4j.nn.conf.GradientCheckpointing}.<br>
+ * Start and end are positions (inclusive) in the forward pass order: layer indices for MultiLayerNetwork, or positions
+ * in the topological order for ComputationGraph. The RNG state at the start of the segment is stored so that random
+ * operations (dropout, weight noise) produce the same results when the segment is recomputed.
+ */
+@Data
+@AllArgsConstructor
+public class CheckpointSegment {
+
+    private final int index;
+    private final int start;
+    private final int end;
+    /** Input to the first layer of the segment (MultiLayerNetwork only - null for ComputationGraph) */
+    private final INDArray input;
+    private final long rngRootState;
+    private final long rngNodeState;
+
+    /**
+     * Restore the RNG state from the start of this segment
+     *
+     * @param rng RNG to restore
+     */
+    public void restoreRngState(Random rng) {
+        rng.setStates(rngRootState, rngNodeState);
+    }
+}
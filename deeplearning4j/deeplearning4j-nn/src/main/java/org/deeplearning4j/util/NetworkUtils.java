@@ -24,6 +24,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.deeplearning4j.nn.api.Model;
 import org.deeplearning4j.nn.api.Trainable;
 import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.GradientCheckpointing;
 import org.deeplearning4j.nn.conf.InputPreProcessor;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
@@ -63,6 +64,7 @@ public class NetworkUtils {
 
         ComputationGraphConfiguration.GraphBuilder b = new NeuralNetConfiguration.Builder()
                 .dataType(net.getLayerWiseConfigurations().getDataType())
+                .mixedPrecision(net.getLayerWiseConfigurations().getMixedPrecision())
                 .graphBuilder();
 
         MultiLayerConfiguration origConf = net.getLayerWiseConfigurations().clone();
@@ -84,6 +86,19 @@ public class NetworkUtils {
 
         ComputationGraphConfiguration conf = b.build();
 
+        GradientCheckpointing gc = origConf.getGradientCheckpointing();
+        if (gc != null) {
+            //Vertex names are the layer indices: translate checkpoints at named layers
+            GradientCheckpointing cgGc = new GradientCheckpointing(gc.getEveryNLayers(), new HashSet<String>());
+            for (int i = 0; i < origConf.getConfs().size(); i++) {
+                String name = origConf.getConf(i).getLayer().getLayerName();
+                if (gc.getCheckpoints() != null && name != null && gc.getCheckpoints().contains(name)) {
+                    cgGc.getCheckpoints().add(String.valueOf(i));
+                }
+            }
+            conf.setGradientCheckpointing(cgGc);
+        }
+
         ComputationGraph cg = new ComputationGraph(conf);
         cg.init();
 
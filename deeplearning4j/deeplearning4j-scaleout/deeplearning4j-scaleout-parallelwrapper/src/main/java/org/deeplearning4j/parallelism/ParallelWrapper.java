@@ -34,9 +34,13 @@ import org.deeplearning4j.datasets.iterator.callbacks.InterleavedDataSetCallback
 import org.deeplearning4j.exception.DL4JInvalidConfigException;
 import org.deeplearning4j.nn.api.Model;
 import org.deeplearning4j.nn.api.Updater;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.conf.WorkspaceMode;
 import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.updater.BaseMultiLayerUpdater;
+import org.deeplearning4j.nn.updater.LossScaler;
 import org.deeplearning4j.nn.updater.graph.ComputationGraphUpdater;
 import org.deeplearning4j.optimize.api.TrainingListener;
 import org.deeplearning4j.optimize.listeners.SharedGradient;
@@ -344,13 +348,25 @@ public class ParallelWrapper implements AutoCloseable {
         double score = 0.0;
 
         List<INDArray> params = new ArrayList<>();
+        List<BaseMultiLayerUpdater<?>> mixedPrecisionUpdaters = new ArrayList<>();
         for (int cnt = 0; cnt < workers && cnt < locker.get(); cnt++) {
-            params.add(zoo[cnt].getModel().params());
+            BaseMultiLayerUpdater<?> u = mixedPrecisionUpdater(zoo[cnt].getModel());
+            if (u != null && u.getMasterParams() != null) {
+                //Mixed precision: average the FP32 master parameters, not the 16 bit network parameters
+                params.add(u.getMasterParams());
+                mixedPrecisionUpdaters.add(u);
+            } else {
+                params.add(zoo[cnt].getModel().params());
+            }
             score += zoo[cnt].getModel().score();
         }
 
         Nd4j.averageAndPropagate(null, params);
 
+        for (BaseMultiLayerUpdater<?> u : mixedPrecisionUpdaters) {
+            u.applyMasterParams();
+        }
+
 
         score /= Math.min(workers, locker.get());
 
@@ -361,6 +377,37 @@ public class ParallelWrapper implements AutoCloseable {
         return score;
     }
 
+    /**
+     * @return The updater of the model, if it uses mixed precision training - null otherwise
+     */
+    protected static BaseMultiLayerUpdater<?> mixedPrecisionUpdater(Model model) {
+        Updater u = null;
+        if (model instanceof MultiLayerNetwork) {
+            u = ((MultiLayerNetwork) model).getUpdater(false);
+        } else if (model instanceof ComputationGraph) {
+            u = ((ComputationGraph) model).getUpdater(false);
+        }
+        if (u instanceof BaseMultiLayerUpdater && ((BaseMultiLayerUpdater<?>) u).isMixedPrecision()) {
+            return (BaseMultiLayerUpdater<?>) u;
+        }
+        return null;
+    }
+
+    /**
+     * @return True if the model is configured for mixed precision training. Unlike {@link #mixedPrecisionUpdater(Model)}
+     * this is based on the configuration only, and so does not require the updater to have been created (by fitting)
+     */
+    protected static boolean isMixedPrecision(Model model) {
+        if (model instanceof MultiLayerNetwork) {
+            MultiLayerConfiguration conf = ((MultiLayerNetwork) model).getLayerWiseConfigurations();
+            return LossScaler.isMixedPrecision(conf.getMixedPrecision(), conf.getDataType());
+        } else if (model instanceof ComputationGraph) {
+            ComputationGraphConfiguration conf = ((ComputationGraph) model).getConfiguration();
+            return LossScaler.isMixedPrecision(conf.getMixedPrecision(), conf.getDataType());
+        }
+        return false;
+    }
+
     private void averageUpdatersState(AtomicInteger locker, double score) {
         // averaging updaters state
         if (model instanceof MultiLayerNetwork) {
@@ -899,6 +946,11 @@ public class ParallelWrapper implements AutoCloseable {
          * @return
          */
         public ParallelWrapper build() {
+            if (trainingMode != TrainingMode.AVERAGING && isMixedPrecision(model)) {
+                //Shared gradients are applied directly to the 16 bit parameters, bypassing the FP32 master parameters
+                throw new DL4JInvalidConfigException("Mixed precision training is only supported with TrainingMode.AVERAGING," +
+                        " got training mode " + trainingMode);
+            }
             ParallelWrapper wrapper = new ParallelWrapper(model, workers, prefetchSize);
             wrapper.averagingFrequency = this.averagingFrequency;
             wrapper.reportScore = this.reportScore;
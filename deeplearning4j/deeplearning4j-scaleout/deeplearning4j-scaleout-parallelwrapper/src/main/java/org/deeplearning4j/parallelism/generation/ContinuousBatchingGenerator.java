@@ -0,0 +1,459 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.generation;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.api.layers.RecurrentLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.layers.wrapper.BaseWrapperLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.INDArrayIndex;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.indexing.SpecifiedIndex;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token-by-token sequence generation for many concurrent sequences, using a single recurrent network
+ * (see {@link MultiLayerNetwork#rnnTimeStep(INDArray)} and {@link ComputationGraph#rnnTimeStep(INDArray...)}).<br>
+ * <br>
+ * Instead of one copy of the network (and hence of the RNN state) per sequence, all active sequences are stepped
+ * together as one minibatch: each sequence occupies one row (slot) of the RNN state of the network. New sequences are
+ * admitted, and finished or cancelled sequences are retired, between time steps (continuous batching) - i.e., a
+ * sequence doesn't have to wait for the other sequences in the batch to complete. Prompt tokens are fed one per
+ * time step, so the prompts of new sequences are processed in the same steps as the generation of existing ones.<br>
+ * <br>
+ * Generated tokens are streamed to the caller via {@link GenerationHandle#nextToken()} and/or a {@link TokenListener}.
+ * Generation stops once the maximum number of tokens or the stop token of the sequence has been generated.<br>
+ * <br>
+ * PLEASE NOTE: the generator takes ownership of the RNN state of the network. The network should not be used for
+ * other purposes while the generator is running. Only the state of recurrent layers ({@link RecurrentLayer}) is
+ * tracked per sequence; the network must have a single input and a single output.
+ */
+@Slf4j
+public class ContinuousBatchingGenerator {
+    protected final Model model;
+    protected final int maxBatchSize;
+    protected final InputEncoder inputEncoder;
+    protected final TokenSampler sampler;
+    protected final DataType dataType;
+
+    protected final BlockingQueue<GenerationHandle> pending = new LinkedBlockingQueue<>();
+    // Generator thread only: active.get(i) is the sequence in row i of the RNN state
+    protected final List<GenerationHandle> active = new ArrayList<>();
+    protected volatile int numActive;
+    protected final AtomicLong idCounter = new AtomicLong(0);
+    protected final AtomicLong stepCounter = new AtomicLong(0);
+    protected final AtomicLong tokenCounter = new AtomicLong(0);
+
+    protected volatile boolean running = true;
+    protected final Thread thread;
+
+    protected ContinuousBatchingGenerator(@NonNull Model model, int maxBatchSize, @NonNull InputEncoder inputEncoder,
+                    @NonNull TokenSampler sampler) {
+        if (maxBatchSize < 1)
+            throw new IllegalArgumentException("Maximum batch size must be positive, got " + maxBatchSize);
+        if (model instanceof ComputationGraph) {
+            ComputationGraph cg = (ComputationGraph) model;
+            if (cg.getNumInputArrays() != 1 || cg.getNumOutputArrays() != 1)
+                throw new IllegalArgumentException("Only ComputationGraphs with a single input and a single output "
+                                + "are supported, got " + cg.getNumInputArrays() + " inputs and "
+                                + cg.getNumOutputArrays() + " outputs");
+        } else if (!(model instanceof MultiLayerNetwork)) {
+            throw new IllegalArgumentException("Only MultiLayerNetwork and ComputationGraph models are supported, got "
+                            + model.getClass().getName());
+        }
+
+        this.model = model;
+        this.maxBatchSize = maxBatchSize;
+        this.inputEncoder = inputEncoder;
+        this.sampler = sampler;
+        this.dataType = model.params().dataType();
+        clearState();
+
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "ContinuousBatchingGenerator");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Submit a sequence for generation, without a stop token
+     *
+     * @param prompt    Prompt tokens. Must contain at least one token
+     * @param maxTokens Maximum number of tokens to generate
+     * @return Handle for the generated sequence
+     */
+    public GenerationHandle submit(@NonNull int[] prompt, int maxTokens) {
+        return submit(prompt, maxTokens, -1, null);
+    }
+
+    /**
+     * Submit a sequence for generation
+     *
+     * @param prompt    Prompt tokens. Must contain at least one token
+     * @param maxTokens Maximum number of tokens to generate
+     * @param stopToken Token that ends the sequence, or -1 for none
+     * @param listener  Listener for the generated tokens. May be null
+     * @return Handle for the generated sequence
+     */
+    public GenerationHandle submit(@NonNull int[] prompt, int maxTokens, int stopToken, TokenListener listener) {
+        if (prompt.length == 0)
+            throw new IllegalArgumentException("Prompt must contain at least one token");
+        if (maxTokens < 1)
+            throw new IllegalArgumentException("Maximum number of tokens must be positive, got " + maxTokens);
+        if (!running)
+            throw new IllegalStateException("Generator has been shut down");
+
+        GenerationHandle handle = new GenerationHandle(idCounter.incrementAndGet(), prompt.clone(), maxTokens,
+                        stopToken, listener);
+        pending.add(handle);
+        return handle;
+    }
+
+    /**
+     * @return Number of sequences currently in the batch
+     */
+    public int getActiveCount() {
+        return numActive;
+    }
+
+    /**
+     * @return Number of submitted sequences waiting for a slot in the batch
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return Total number of time steps (forward passes) executed
+     */
+    public long getStepCount() {
+        return stepCounter.get();
+    }
+
+    /**
+     * @return Total number of tokens generated, over all sequences
+     */
+    public long getTokenCount() {
+        return tokenCounter.get();
+    }
+
+    /**
+     * Stop the generator. Sequences that have not completed yet are completed with an error
+     */
+    public void shutdown() {
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        IllegalStateException e = new IllegalStateException("Generator has been shut down");
+        GenerationHandle h;
+        while ((h = pending.poll()) != null)
+            h.complete(e);
+    }
+
+    protected void loop() {
+        while (running) {
+            try {
+                retire(cancelledRows());
+                if (!admit())
+                    continue;
+                step();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Throwable t) {
+                log.error("Generation step failed, failing {} active sequences", active.size(), t);
+                for (GenerationHandle h : active)
+                    h.complete(t);
+                active.clear();
+                numActive = 0;
+                clearState();
+            }
+        }
+
+        IllegalStateException e = new IllegalStateException("Generator has been shut down");
+        for (GenerationHandle h : active)
+            h.complete(e);
+        active.clear();
+        numActive = 0;
+    }
+
+    /**
+     * Admit pending sequences into the free slots of the batch, and add zero (initial) state rows for them
+     *
+     * @return False if there are no sequences to step
+     */
+    protected boolean admit() throws InterruptedException {
+        List<GenerationHandle> admitted = new ArrayList<>();
+        if (active.isEmpty()) {
+            GenerationHandle h = pending.poll(10, TimeUnit.MILLISECONDS);
+            if (h == null)
+                return false;
+            admitted.add(h);
+        }
+        pending.drainTo(admitted, maxBatchSize - active.size() - admitted.size());
+
+        int numNew = 0;
+        for (GenerationHandle h : admitted) {
+            if (h.isCancelled()) {
+                h.complete(null);
+            } else {
+                active.add(h);
+                numNew++;
+            }
+        }
+
+        if (numNew > 0 && active.size() > numNew) {
+            //Existing sequences have state: pad it with the initial (zero) state for the new sequences
+            Map<String, Map<String, INDArray>> states = getStates();
+            for (Map<String, INDArray> layerState : states.values()) {
+                for (Map.Entry<String, INDArray> e : layerState.entrySet()) {
+                    INDArray arr = e.getValue();
+                    checkRows(arr, active.size() - numNew);
+                    long[] shape = arr.shape();
+                    shape[0] = numNew;
+                    e.setValue(Nd4j.concat(0, arr, Nd4j.zeros(arr.dataType(), shape)));
+                }
+            }
+            setStates(states);
+        }
+        numActive = active.size();
+        return !active.isEmpty();
+    }
+
+    /**
+     * Execute one time step for all active sequences
+     */
+    protected void step() {
+        int n = active.size();
+        int[] tokens = new int[n];
+        for (int i = 0; i < n; i++) {
+            GenerationHandle h = active.get(i);
+            tokens[i] = h.promptPosition < h.promptLength() ? h.promptToken(h.promptPosition) : h.lastToken;
+        }
+
+        INDArray out = forward(inputEncoder.encode(tokens, dataType));
+        stepCounter.incrementAndGet();
+
+        List<Integer> finished = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            GenerationHandle h = active.get(i);
+            if (h.promptPosition < h.promptLength()) {
+                h.promptPosition++;
+                if (h.promptPosition < h.promptLength())
+                    continue;       //Still processing the prompt: output is not used
+            }
+
+            int token = sampler.sample(out.getRow(i));
+            h.lastToken = token;
+            h.emit(token);
+            tokenCounter.incrementAndGet();
+            if (token == h.getStopToken() || h.numTokens() >= h.getMaxTokens() || h.isCancelled()) {
+                h.complete(null);
+                finished.add(i);
+            }
+        }
+        retire(finished);
+    }
+
+    protected List<Integer> cancelledRows() {
+        List<Integer> out = new ArrayList<>();
+        for (int i = 0; i < active.size(); i++) {
+            GenerationHandle h = active.get(i);
+            if (h.isCancelled()) {
+                h.complete(null);
+                out.add(i);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Remove the specified (completed) sequences from the batch, and remove their rows from the RNN state
+     */
+    protected void retire(List<Integer> rows) {
+        if (rows.isEmpty())
+            return;
+
+        int n = active.size();
+        Set<Integer> remove = new HashSet<>(rows);
+        long[] keep = new long[n - remove.size()];
+        List<GenerationHandle> remaining = new ArrayList<>(keep.length);
+        for (int i = 0, j = 0; i < n; i++) {
+            if (!remove.contains(i)) {
+                keep[j++] = i;
+                remaining.add(active.get(i));
+            }
+        }
+        active.clear();
+        active.addAll(remaining);
+        numActive = active.size();
+
+        if (keep.length == 0) {
+            clearState();
+            return;
+        }
+
+        Map<String, Map<String, INDArray>> states = getStates();
+        for (Map<String, INDArray> layerState : states.values()) {
+            for (Map.Entry<String, INDArray> e : layerState.entrySet()) {
+                INDArray arr = e.getValue();
+                checkRows(arr, n);
+                INDArrayIndex[] idx = new INDArrayIndex[arr.rank()];
+                idx[0] = new SpecifiedIndex(keep);
+                for (int d = 1; d < idx.length; d++)
+                    idx[d] = NDArrayIndex.all();
+                e.setValue(arr.get(idx));
+            }
+        }
+        setStates(states);
+    }
+
+    protected INDArray forward(INDArray input) {
+        INDArray out;
+        if (model instanceof MultiLayerNetwork) {
+            out = ((MultiLayerNetwork) model).rnnTimeStep(input);
+        } else {
+            out = ((ComputationGraph) model).rnnTimeStep(input)[0];
+        }
+        if (out.rank() == 3) {
+            //[minibatch, size, timeSeriesLength] -> last time step
+            out = out.get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.point(out.size(2) - 1));
+        }
+        return out;
+    }
+
+    protected Map<String, Map<String, INDArray>> getStates() {
+        if (model instanceof ComputationGraph)
+            return ((ComputationGraph) model).rnnGetPreviousStates();
+
+        MultiLayerNetwork net = (MultiLayerNetwork) model;
+        Map<String, Map<String, INDArray>> out = new LinkedHashMap<>();
+        Layer[] layers = net.getLayers();
+        for (int i = 0; i < layers.length; i++) {
+            Layer l = layers[i];
+            if (l instanceof BaseWrapperLayer)
+                l = ((BaseWrapperLayer) l).getUnderlying();
+            if (l instanceof RecurrentLayer)
+                out.put(String.valueOf(i), net.rnnGetPreviousState(i));
+        }
+        return out;
+    }
+
+    protected void setStates(Map<String, Map<String, INDArray>> states) {
+        if (model instanceof ComputationGraph) {
+            ((ComputationGraph) model).rnnSetPreviousStates(states);
+        } else {
+            MultiLayerNetwork net = (MultiLayerNetwork) model;
+            for (Map.Entry<String, Map<String, INDArray>> e : states.entrySet())
+                net.rnnSetPreviousState(Integer.parseInt(e.getKey()), e.getValue());
+        }
+    }
+
+    protected void clearState() {
+        if (model instanceof MultiLayerNetwork)
+            ((MultiLayerNetwork) model).rnnClearPreviousState();
+        else
+            ((ComputationGraph) model).rnnClearPreviousState();
+    }
+
+    private static void checkRows(INDArray state, int expectedRows) {
+        if (state.rank() == 0 || state.size(0) != expectedRows)
+            throw new IllegalStateException("Expected RNN state with " + expectedRows + " rows (one per sequence), "
+                            + "got state with shape " + Arrays.toString(state.shape()));
+    }
+
+    public static class Builder {
+        private final Model model;
+        private int maxBatchSize = 32;
+        private InputEncoder inputEncoder;
+        private TokenSampler sampler = TokenSampler.greedy();
+
+        /**
+         * @param model Network to generate sequences with: a MultiLayerNetwork, or a ComputationGraph with a single
+         *              input and a single output
+         */
+        public Builder(@NonNull Model model) {
+            this.model = model;
+        }
+
+        /**
+         * Maximum number of sequences in the batch. Further submitted sequences wait until a slot is free.
+         * Default: 32
+         *
+         * @param maxBatchSize Maximum number of concurrent sequences
+         */
+        public Builder maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * Encoder for the input tokens. Default for MultiLayerNetwork: {@link InputEncoder#oneHot(int)}, with the
+         * number of inputs of the first layer as the vocabulary size. Required for ComputationGraph
+         *
+         * @param inputEncoder Input encoder
+         */
+        public Builder inputEncoder(@NonNull InputEncoder inputEncoder) {
+            this.inputEncoder = inputEncoder;
+            return this;
+        }
+
+        /**
+         * Sampler for the generated tokens. Default: {@link TokenSampler#greedy()}
+         *
+         * @param sampler Token sampler
+         */
+        public Builder sampler(@NonNull TokenSampler sampler) {
+            this.sampler = sampler;
+            return this;
+        }
+
+        public ContinuousBatchingGenerator build() {
+            InputEncoder encoder = inputEncoder;
+            if (encoder == null) {
+                if (!(model instanceof MultiLayerNetwork))
+                    throw new IllegalStateException("Input encoder must be set for ComputationGraph models");
+                encoder = InputEncoder.oneHot(((MultiLayerNetwork) model).layerInputSize(0));
+            }
+            return new ContinuousBatchingGenerator(model, maxBatchSize, encoder, sampler);
+        }
+    }
+}
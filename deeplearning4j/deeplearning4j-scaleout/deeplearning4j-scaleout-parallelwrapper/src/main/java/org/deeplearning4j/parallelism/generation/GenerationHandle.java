@@ -0,0 +1,188 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.generation;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Handle for a sequence submitted to a {@link ContinuousBatchingGenerator}.<br>
+ * The generated tokens can be consumed as they are generated, using {@link #nextToken()} (or a {@link TokenListener}),
+ * or all at once using {@link #get()}. The prompt is not included in the generated tokens; the stop token, if
+ * generated, is.
+ */
+@Slf4j
+public class GenerationHandle implements Future<int[]> {
+    @Getter
+    private final long id;
+    private final int[] prompt;
+    @Getter
+    private final int maxTokens;
+    @Getter
+    private final int stopToken;
+    private final TokenListener listener;
+
+    private final List<Integer> tokens = new ArrayList<>();
+    private final BlockingQueue<Integer> stream = new LinkedBlockingQueue<>();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+
+    // Generator thread only: number of prompt tokens already fed to the network, and the last token fed or generated
+    protected int promptPosition;
+    protected int lastToken;
+
+    protected GenerationHandle(long id, int[] prompt, int maxTokens, int stopToken, TokenListener listener) {
+        this.id = id;
+        this.prompt = prompt;
+        this.maxTokens = maxTokens;
+        this.stopToken = stopToken;
+        this.listener = listener;
+    }
+
+    /**
+     * @return Copy of the prompt of this sequence
+     */
+    public int[] getPrompt() {
+        return prompt.clone();
+    }
+
+    /**
+     * @return The tokens generated so far
+     */
+    public int[] getTokens() {
+        synchronized (tokens) {
+            int[] out = new int[tokens.size()];
+            for (int i = 0; i < out.length; i++)
+                out[i] = tokens.get(i);
+            return out;
+        }
+    }
+
+    /**
+     * @return Number of tokens generated so far
+     */
+    public int numTokens() {
+        synchronized (tokens) {
+            return tokens.size();
+        }
+    }
+
+    /**
+     * Wait for the next generated token
+     *
+     * @return The next token, or null if the generation has completed and all tokens have been returned
+     */
+    public Integer nextToken() throws InterruptedException {
+        while (true) {
+            Integer token = stream.poll(10, TimeUnit.MILLISECONDS);
+            if (token != null)
+                return token;
+            if (isDone() && stream.isEmpty())
+                return null;
+        }
+    }
+
+    /**
+     * Cancel the generation of this sequence. The sequence is removed from the batch before the next step
+     *
+     * @param mayInterruptIfRunning Not used
+     * @return False if the generation had already completed
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (isDone())
+            return false;
+        cancelled = true;
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    @Override
+    public int[] get() throws InterruptedException, ExecutionException {
+        done.await();
+        return result();
+    }
+
+    @Override
+    public int[] get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit))
+            throw new TimeoutException("Generation of sequence " + id + " did not complete in " + timeout + " " + unit);
+        return result();
+    }
+
+    private int[] result() throws ExecutionException {
+        if (cancelled)
+            throw new CancellationException("Generation of sequence " + id + " was cancelled");
+        if (error != null)
+            throw new ExecutionException(error);
+        return getTokens();
+    }
+
+    protected int promptLength() {
+        return prompt.length;
+    }
+
+    protected int promptToken(int position) {
+        return prompt[position];
+    }
+
+    protected void emit(int token) {
+        synchronized (tokens) {
+            tokens.add(token);
+        }
+        stream.add(token);
+        if (listener != null) {
+            try {
+                listener.onToken(this, token);
+            } catch (Throwable t) {
+                log.warn("Token listener for sequence {} failed", id, t);
+            }
+        }
+    }
+
+    protected void complete(Throwable t) {
+        if (isDone())
+            return;
+        error = t;
+        done.countDown();
+        if (listener != null) {
+            try {
+                listener.onComplete(this);
+            } catch (Throwable t2) {
+                log.warn("Token listener for sequence {} failed", id, t2);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.generation;
+
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+/**
+ * Converts the input tokens of one time step (one token per sequence in the batch) to the network input
+ */
+public interface InputEncoder {
+
+    /**
+     * @param tokens   Input token for each sequence in the batch
+     * @param dataType Data type of the network
+     * @return Network input for a single time step, with shape [tokens.length, ...]
+     */
+    INDArray encode(int[] tokens, DataType dataType);
+
+    /**
+     * One-hot encoding: input with shape [batch, vocabSize]
+     *
+     * @param vocabSize Size of the vocabulary (i.e., number of inputs to the network)
+     */
+    static InputEncoder oneHot(final int vocabSize) {
+        return new InputEncoder() {
+            @Override
+            public INDArray encode(int[] tokens, DataType dataType) {
+                INDArray out = Nd4j.create(dataType, tokens.length, vocabSize);
+                for (int i = 0; i < tokens.length; i++) {
+                    if (tokens[i] < 0 || tokens[i] >= vocabSize)
+                        throw new IllegalArgumentException("Token " + tokens[i] + " is outside of the vocabulary (size "
+                                        + vocabSize + ")");
+                    out.putScalar(i, tokens[i], 1.0);
+                }
+                return out;
+            }
+        };
+    }
+
+    /**
+     * Index encoding, for networks starting with an embedding layer: input with shape [batch, 1]
+     */
+    static InputEncoder index() {
+        return new InputEncoder() {
+            @Override
+            public INDArray encode(int[] tokens, DataType dataType) {
+                INDArray out = Nd4j.create(dataType, tokens.length, 1);
+                for (int i = 0; i < tokens.length; i++) {
+                    out.putScalar(i, 0, tokens[i]);
+                }
+                return out;
+            }
+        };
+    }
+}
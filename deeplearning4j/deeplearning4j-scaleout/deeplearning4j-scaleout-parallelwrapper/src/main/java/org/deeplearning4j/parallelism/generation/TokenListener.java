@@ -0,0 +1,45 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.generation;
+
+/**
+ * Listener for the tokens of a sequence generated by a {@link ContinuousBatchingGenerator}.<br>
+ * Listener methods are called from the generator thread, and should return quickly: the generation of all
+ * sequences in the batch is blocked while a listener is running.
+ */
+public interface TokenListener {
+
+    /**
+     * Called once for each generated token, in order
+     *
+     * @param handle Handle of the sequence
+     * @param token  Generated token
+     */
+    void onToken(GenerationHandle handle, int token);
+
+    /**
+     * Called once the generation of the sequence has completed - whether successfully, by cancellation, or due to
+     * an error (see {@link GenerationHandle#get()})
+     *
+     * @param handle Handle of the sequence
+     */
+    void onComplete(GenerationHandle handle);
+}
@@ -0,0 +1,84 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.generation;
+
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.Random;
+
+/**
+ * Selects the next token of a sequence, from the network output for one time step
+ */
+public interface TokenSampler {
+
+    /**
+     * @param output Network output for the sequence, with shape [vocabSize]. Usually softmax probabilities
+     * @return Selected token
+     */
+    int sample(INDArray output);
+
+    /**
+     * Greedy decoding: selects the token with the highest output
+     */
+    static TokenSampler greedy() {
+        return new TokenSampler() {
+            @Override
+            public int sample(INDArray output) {
+                return output.argMax().getInt(0);
+            }
+        };
+    }
+
+    /**
+     * Sampling from the output probabilities, sharpened (temperature &lt; 1) or flattened (temperature &gt; 1) by
+     * the specified temperature. The network output must be probabilities (for example, softmax output)
+     *
+     * @param temperature Temperature. Must be positive
+     * @param seed        Seed for the random number generator
+     */
+    static TokenSampler temperature(final double temperature, long seed) {
+        if (temperature <= 0)
+            throw new IllegalArgumentException("Temperature must be positive, got " + temperature);
+        final Random rng = new Random(seed);
+        return new TokenSampler() {
+            @Override
+            public int sample(INDArray output) {
+                double[] p = output.castTo(DataType.DOUBLE).toDoubleVector();
+                double sum = 0;
+                for (int i = 0; i < p.length; i++) {
+                    p[i] = Math.pow(Math.max(p[i], 0.0), 1.0 / temperature);
+                    sum += p[i];
+                }
+                if (sum <= 0 || Double.isNaN(sum))
+                    return output.argMax().getInt(0);
+
+                double r = rng.nextDouble() * sum;
+                for (int i = 0; i < p.length; i++) {
+                    r -= p[i];
+                    if (r <= 0)
+                        return i;
+                }
+                return p.length - 1;
+            }
+        };
+    }
+}
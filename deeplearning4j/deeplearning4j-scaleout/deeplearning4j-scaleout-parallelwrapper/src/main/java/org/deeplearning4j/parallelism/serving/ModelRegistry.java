@@ -0,0 +1,540 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.serving;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.util.ModelSerializer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Registry for serving many models (for example, per-customer variants of one architecture) from a single JVM.<br>
+ * <br>
+ * Compared to using one {@link org.deeplearning4j.parallelism.ParallelInference} per model:<br>
+ * - Worker replicas of a model don't have their own copy of the parameters: all replicas are views of one parameter
+ * buffer (as in {@link org.deeplearning4j.parallelism.InplaceParallelInference})<br>
+ * - Models (or versions of a model) with identical parameters share a single parameter buffer<br>
+ * - {@link #register(String, Model)} with the name of an existing model atomically swaps in the new version: new
+ * requests go to the new version immediately, and the old version is released once its in-flight requests have
+ * completed<br>
+ * - If a memory budget is set, the least recently used idle models are evicted to disk once the total size of the
+ * resident parameters exceeds it, and are transparently loaded again on their next request<br>
+ * <br>
+ * PLEASE NOTE: the registry takes ownership of the parameters of registered models. Registered models should not be
+ * modified (or trained) afterwards.
+ */
+@Slf4j
+public class ModelRegistry {
+    protected final int workers;
+    protected final long memoryBudget;
+    protected File spillDirectory;
+
+    protected final Map<String, AtomicReference<ModelVersion>> models = new ConcurrentHashMap<>();
+    protected final ParameterStore parameterStore = new ParameterStore();
+    protected final AtomicLong versionCounter = new AtomicLong(0);
+    protected final Object evictionLock = new Object();
+
+    protected ModelRegistry(int workers, long memoryBudget, File spillDirectory) {
+        if (workers < 1)
+            throw new IllegalArgumentException("Number of workers per model must be positive, got " + workers);
+        if (memoryBudget <= 0)
+            throw new IllegalArgumentException("Memory budget must be positive, got " + memoryBudget);
+
+        this.workers = workers;
+        this.memoryBudget = memoryBudget;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Register a model under the specified name. If a model is already registered under this name, it is replaced
+     * by the new model: this method returns once all in-flight requests to the previous version have completed.
+     *
+     * @param name  Name of the model
+     * @param model Model to register. Must be a MultiLayerNetwork or a ComputationGraph
+     * @return Version of the registered model
+     */
+    public long register(@NonNull String name, @NonNull Model model) {
+        if (!(model instanceof MultiLayerNetwork) && !(model instanceof ComputationGraph))
+            throw new IllegalArgumentException("Only MultiLayerNetwork and ComputationGraph models are supported, got "
+                            + model.getClass().getName());
+
+        ModelVersion version = new ModelVersion(name, versionCounter.incrementAndGet(), model);
+        synchronized (version) {
+            version.load(model);
+        }
+
+        AtomicReference<ModelVersion> ref = models.computeIfAbsent(name, k -> new AtomicReference<ModelVersion>());
+        ModelVersion previous = ref.getAndSet(version);
+        if (previous != null) {
+            previous.retire();
+            log.info("Model [{}] updated from version {} to version {}", name, previous.version, version.version);
+        }
+
+        enforceMemoryBudget(version);
+        return version.version;
+    }
+
+    /**
+     * Remove the model with the specified name from the registry. This method returns once all in-flight requests to
+     * the model have completed.
+     *
+     * @param name Name of the model
+     * @return True if a model with the specified name was registered
+     */
+    public boolean unregister(@NonNull String name) {
+        AtomicReference<ModelVersion> ref = models.remove(name);
+        if (ref == null)
+            return false;
+
+        ModelVersion version = ref.get();
+        if (version != null)
+            version.retire();
+        return true;
+    }
+
+    /**
+     * Forward pass of a single input model (MultiLayerNetwork or ComputationGraph with a single input and output)
+     *
+     * @param name  Name of the model
+     * @param input Input to the model
+     * @return Output of the model
+     */
+    public INDArray output(@NonNull String name, @NonNull INDArray input) {
+        return output(name, new INDArray[]{input}, null)[0];
+    }
+
+    /**
+     * Forward pass of the model with the specified name, in inference mode
+     *
+     * @param name       Name of the model
+     * @param input      Inputs to the model
+     * @param inputMasks Input mask arrays. May be null
+     * @return Outputs of the model
+     */
+    public INDArray[] output(@NonNull String name, @NonNull INDArray[] input, INDArray[] inputMasks) {
+        ModelVersion version = acquire(name);
+        try {
+            if (version.ensureResident())
+                enforceMemoryBudget(version);
+
+            return version.output(input, inputMasks);
+        } finally {
+            version.release();
+        }
+    }
+
+    /**
+     * @return Names of all registered models
+     */
+    public Set<String> getModelNames() {
+        return Collections.unmodifiableSet(new TreeSet<>(models.keySet()));
+    }
+
+    /**
+     * @param name Name of the model
+     * @return Current version of the model, as returned by {@link #register(String, Model)}
+     */
+    public long getVersion(@NonNull String name) {
+        return getCurrentVersion(name).version;
+    }
+
+    /**
+     * @param name Name of the model
+     * @return True if the parameters of the model are currently in memory, false if the model has been evicted to disk
+     */
+    public boolean isResident(@NonNull String name) {
+        ModelVersion version = getCurrentVersion(name);
+        synchronized (version) {
+            return version.resident;
+        }
+    }
+
+    /**
+     * @return Total size in bytes of the parameters of all resident models. Shared parameters are counted once
+     */
+    public long getResidentBytes() {
+        return parameterStore.getTotalBytes();
+    }
+
+    /**
+     * Remove all models from the registry
+     */
+    public void shutdown() {
+        for (String name : new ArrayList<>(models.keySet()))
+            unregister(name);
+    }
+
+    protected ModelVersion getCurrentVersion(String name) {
+        AtomicReference<ModelVersion> ref = models.get(name);
+        ModelVersion version = ref == null ? null : ref.get();
+        if (version == null)
+            throw new IllegalArgumentException("No model registered with name \"" + name + "\"");
+        return version;
+    }
+
+    protected ModelVersion acquire(String name) {
+        while (true) {
+            ModelVersion version = getCurrentVersion(name);
+            // fails only if the version was retired after we got it - in which case a new version is already set
+            if (version.tryAcquire())
+                return version;
+        }
+    }
+
+    /**
+     * Evict least recently used idle models to disk, until the resident parameters fit into the memory budget
+     *
+     * @param keep Model version that should not be evicted
+     */
+    protected void enforceMemoryBudget(ModelVersion keep) {
+        if (memoryBudget == Long.MAX_VALUE)
+            return;
+
+        synchronized (evictionLock) {
+            while (parameterStore.getTotalBytes() > memoryBudget) {
+                ModelVersion lru = null;
+                long lruTime = Long.MAX_VALUE;
+                for (AtomicReference<ModelVersion> ref : models.values()) {
+                    ModelVersion version = ref.get();
+                    if (version == null || version == keep)
+                        continue;
+
+                    long lastUsed = version.idleSince();
+                    if (lastUsed >= 0 && lastUsed < lruTime) {
+                        lru = version;
+                        lruTime = lastUsed;
+                    }
+                }
+
+                if (lru == null || !lru.evict()) {
+                    log.warn("Unable to evict any idle model: {} bytes of parameters resident, memory budget is {}"
+                                    + " bytes", parameterStore.getTotalBytes(), memoryBudget);
+                    return;
+                }
+            }
+        }
+    }
+
+    protected synchronized File getSpillDirectory() throws IOException {
+        if (spillDirectory == null) {
+            spillDirectory = Files.createTempDirectory("dl4j-model-registry").toFile();
+            spillDirectory.deleteOnExit();
+        } else if (!spillDirectory.exists() && !spillDirectory.mkdirs()) {
+            throw new IOException("Unable to create directory " + spillDirectory.getAbsolutePath());
+        }
+        return spillDirectory;
+    }
+
+    /**
+     * A single version of a registered model, with its worker replicas
+     */
+    protected class ModelVersion {
+        protected final String name;
+        protected final long version;
+        protected final boolean isGraph;
+        protected final String configuration;
+
+        // guarded by this
+        protected BlockingQueue<Model> replicas;
+        protected INDArray params;
+        protected File spillFile;
+        protected boolean resident = false;
+        protected boolean retired = false;
+        protected int inFlight = 0;
+        protected long lastUsed = System.nanoTime();
+
+        protected ModelVersion(String name, long version, Model model) {
+            this.name = name;
+            this.version = version;
+            this.isGraph = model instanceof ComputationGraph;
+            this.configuration = isGraph ? ((ComputationGraph) model).getConfiguration().toJson()
+                            : ((MultiLayerNetwork) model).getLayerWiseConfigurations().toJson();
+        }
+
+        protected synchronized boolean tryAcquire() {
+            if (retired)
+                return false;
+
+            inFlight++;
+            lastUsed = System.nanoTime();
+            return true;
+        }
+
+        protected synchronized void release() {
+            if (--inFlight == 0)
+                notifyAll();
+        }
+
+        /**
+         * @return Time this version was last used, or -1 if it is in use or not resident
+         */
+        protected synchronized long idleSince() {
+            return resident && inFlight == 0 && !retired ? lastUsed : -1;
+        }
+
+        /**
+         * Build the worker replicas, all sharing the (possibly deduplicated) parameters of the specified model
+         */
+        protected void load(Model source) {
+            params = parameterStore.acquire(source.params());
+            replicas = new LinkedBlockingQueue<>();
+            for (int i = 0; i < workers; i++) {
+                Model replica;
+                if (isGraph) {
+                    ComputationGraph cg = new ComputationGraph(ComputationGraphConfiguration.fromJson(configuration));
+                    cg.init(params, false);
+                    replica = cg;
+                } else {
+                    MultiLayerNetwork mln = new MultiLayerNetwork(MultiLayerConfiguration.fromJson(configuration));
+                    mln.init(params, false);
+                    replica = mln;
+                }
+                replicas.add(replica);
+            }
+            Nd4j.getExecutioner().commit();
+            resident = true;
+        }
+
+        /**
+         * Load this version from disk, if it was evicted
+         *
+         * @return True if the model was loaded, false if it was already resident
+         */
+        protected synchronized boolean ensureResident() {
+            if (resident)
+                return false;
+
+            try {
+                Model restored = isGraph ? ModelSerializer.restoreComputationGraph(spillFile, false)
+                                : ModelSerializer.restoreMultiLayerNetwork(spillFile, false);
+                load(restored);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to load model [" + name + "] version " + version + " from "
+                                + spillFile.getAbsolutePath(), e);
+            }
+            log.debug("Model [{}] version {} loaded from disk", name, version);
+            return true;
+        }
+
+        protected INDArray[] output(INDArray[] input, INDArray[] inputMasks) {
+            BlockingQueue<Model> pool;
+            synchronized (this) {
+                pool = replicas;
+            }
+
+            Model model;
+            try {
+                model = pool.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+
+            try {
+                if (isGraph)
+                    return ((ComputationGraph) model).output(false, input, inputMasks);
+
+                if (input.length > 1 || (inputMasks != null && inputMasks.length > 1))
+                    throw new IllegalArgumentException("MultiLayerNetwork can't have multiple inputs");
+                return new INDArray[]{((MultiLayerNetwork) model).output(input[0], false,
+                                inputMasks == null ? null : inputMasks[0], null)};
+            } finally {
+                pool.add(model);
+            }
+        }
+
+        /**
+         * Write this version to disk (if not done already), and release its replicas and parameters
+         *
+         * @return True if the version was evicted, false if it is in use
+         */
+        protected synchronized boolean evict() {
+            if (!resident || retired || inFlight > 0)
+                return false;
+
+            try {
+                if (spillFile == null) {
+                    String fileName = name.replaceAll("[^a-zA-Z0-9._-]", "_") + "-v" + version + ".zip";
+                    File f = new File(getSpillDirectory(), fileName);
+                    ModelSerializer.writeModel(replicas.peek(), f, false);
+                    spillFile = f;
+                }
+            } catch (IOException e) {
+                log.warn("Unable to evict model [{}] version {} to disk", name, version, e);
+                return false;
+            }
+
+            unload();
+            log.debug("Model [{}] version {} evicted to {}", name, version, spillFile.getAbsolutePath());
+            return true;
+        }
+
+        /**
+         * Mark this version as retired, wait for in-flight requests to complete, and release its resources
+         */
+        protected synchronized void retire() {
+            retired = true;
+            while (inFlight > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+
+            if (resident)
+                unload();
+            if (spillFile != null && !spillFile.delete())
+                log.warn("Unable to delete file {}", spillFile.getAbsolutePath());
+        }
+
+        protected void unload() {
+            replicas = null;
+            parameterStore.release(params);
+            params = null;
+            resident = false;
+        }
+    }
+
+    /**
+     * Reference counted parameter buffers, deduplicated by content
+     */
+    protected static class ParameterStore {
+        protected final Map<Integer, List<SharedParameters>> parameters = new HashMap<>();
+        protected long totalBytes = 0;
+
+        /**
+         * @param params Parameters of a model
+         * @return Existing parameters with identical content if any, the specified parameters otherwise
+         */
+        public synchronized INDArray acquire(INDArray params) {
+            List<SharedParameters> list = parameters.computeIfAbsent(params.hashCode(),
+                            k -> new ArrayList<SharedParameters>());
+            for (SharedParameters shared : list) {
+                if (shared.params.dataType() == params.dataType() && shared.params.length() == params.length()
+                                && shared.params.equalsWithEps(params, 0.0)) {
+                    shared.references++;
+                    return shared.params;
+                }
+            }
+
+            list.add(new SharedParameters(params));
+            totalBytes += bytes(params);
+            return params;
+        }
+
+        public synchronized void release(INDArray params) {
+            List<SharedParameters> list = parameters.get(params.hashCode());
+            if (list == null)
+                return;
+
+            for (Iterator<SharedParameters> iter = list.iterator(); iter.hasNext(); ) {
+                SharedParameters shared = iter.next();
+                if (shared.params == params) {
+                    if (--shared.references == 0) {
+                        iter.remove();
+                        totalBytes -= bytes(params);
+                    }
+                    break;
+                }
+            }
+
+            if (list.isEmpty())
+                parameters.remove(params.hashCode());
+        }
+
+        public synchronized long getTotalBytes() {
+            return totalBytes;
+        }
+
+        protected static long bytes(INDArray params) {
+            return params.length() * params.dataType().width();
+        }
+    }
+
+    protected static class SharedParameters {
+        protected final INDArray params;
+        protected int references = 1;
+
+        protected SharedParameters(INDArray params) {
+            this.params = params;
+        }
+    }
+
+    public static class Builder {
+        private int workers = 2;
+        private long memoryBudget = Long.MAX_VALUE;
+        private File spillDirectory;
+
+        /**
+         * Number of worker replicas per model, i.e. the maximum number of concurrent requests per model.
+         * Default: 2
+         *
+         * @param workers Number of replicas per model
+         */
+        public Builder workersPerModel(int workers) {
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * Maximum total size, in bytes, of the parameters of resident models. When exceeded, the least recently used
+         * idle models are evicted to disk. Default: no limit
+         *
+         * @param bytes Memory budget, in bytes
+         */
+        public Builder memoryBudget(long bytes) {
+            this.memoryBudget = bytes;
+            return this;
+        }
+
+        /**
+         * Directory to write evicted models to. Default: a new temporary directory
+         *
+         * @param directory Directory for evicted models
+         */
+        public Builder spillDirectory(@NonNull File directory) {
+            this.spillDirectory = directory;
+            return this;
+        }
+
+        public ModelRegistry build() {
+            return new ModelRegistry(workers, memoryBudget, spillDirectory);
+        }
+    }
+}
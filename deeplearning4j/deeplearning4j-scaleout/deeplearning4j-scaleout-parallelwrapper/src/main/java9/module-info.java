@@ -10,8 +10,10 @@ open module deeplearning4j.parallel.wrapper {
     requires nd4j.common;
     exports org.deeplearning4j.parallelism;
     exports org.deeplearning4j.parallelism.factory;
+    exports org.deeplearning4j.parallelism.generation;
     exports org.deeplearning4j.parallelism.inference;
     exports org.deeplearning4j.parallelism.inference.observers;
     exports org.deeplearning4j.parallelism.main;
+    exports org.deeplearning4j.parallelism.serving;
     exports org.deeplearning4j.parallelism.trainer;
 }
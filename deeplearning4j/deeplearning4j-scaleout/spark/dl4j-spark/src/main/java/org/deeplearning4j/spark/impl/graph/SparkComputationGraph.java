@@ -78,11 +78,13 @@ public class SparkComputationGraph extends SparkListenable {
     public static final int DEFAULT_ROC_THRESHOLD_STEPS = 32;
     public static final int DEFAULT_EVAL_SCORE_BATCH_SIZE = 64;
     public static final int DEFAULT_EVAL_WORKERS = 4;
+    public static final int DEFAULT_INFERENCE_WORKERS = 1;
     private transient JavaSparkContext sc;
     private ComputationGraphConfiguration conf;
     private ComputationGraph network;
     private double lastScore;
     private int defaultEvaluationWorkers = DEFAULT_EVAL_WORKERS;
+    private int inferenceWorkers = DEFAULT_INFERENCE_WORKERS;
 
     private transient AtomicInteger iterationsCount = new AtomicInteger(0);
 
@@ -192,6 +194,32 @@ public class SparkComputationGraph extends SparkListenable {
         this.defaultEvaluationWorkers = workers;
     }
 
+    /**
+     * Returns the number of inference workers/threads used within each partition (Spark task) for scoring and feed
+     * forward methods such as scoreExamples and feedForwardWithKey. Each worker uses a separate copy of the network;
+     * copies are cached in each executor JVM and shared by all tasks - see
+     * {@link org.deeplearning4j.spark.impl.inference.InferenceModelCache}.<br>
+     * If it is not set explicitly, {@link #DEFAULT_INFERENCE_WORKERS} will be used
+     *
+     * @return Number of inference workers (threads) per partition
+     */
+    public int getInferenceWorkers(){
+        return inferenceWorkers;
+    }
+
+    /**
+     * Set the number of inference workers/threads used within each partition (Spark task) for scoring and feed
+     * forward methods such as scoreExamples and feedForwardWithKey. Values greater than 1 are useful when there are
+     * more executor cores than concurrently running tasks, for example with large partitions.<br>
+     * If it is not set explicitly, {@link #DEFAULT_INFERENCE_WORKERS} will be used
+     *
+     * @param workers Number of inference workers (threads) per partition
+     */
+    public void setInferenceWorkers(int workers){
+        Preconditions.checkArgument(workers > 0, "Number of workers must be > 0: got %s", workers);
+        this.inferenceWorkers = workers;
+    }
+
     /**
      * Fit the ComputationGraph with the given data set
      *
@@ -477,7 +505,7 @@ public class SparkComputationGraph extends SparkListenable {
     public JavaDoubleRDD scoreExamplesMultiDataSet(JavaRDD<MultiDataSet> data, boolean includeRegularizationTerms,
                     int batchSize) {
         return data.mapPartitionsToDouble(new ScoreExamplesFunction(sc.broadcast(network.params()),
-                        sc.broadcast(conf.toJson()), includeRegularizationTerms, batchSize));
+                        sc.broadcast(conf.toJson()), includeRegularizationTerms, batchSize, inferenceWorkers));
     }
 
     /**
@@ -528,7 +556,7 @@ public class SparkComputationGraph extends SparkListenable {
      */
     public <K> JavaPairRDD<K, INDArray[]> feedForwardWithKey(JavaPairRDD<K, INDArray[]> featuresData, int batchSize) {
         return featuresData.mapPartitionsToPair(new GraphFeedForwardWithKeyFunction<K>(sc.broadcast(network.params()),
-                        sc.broadcast(conf.toJson()), batchSize));
+                        sc.broadcast(conf.toJson()), batchSize, inferenceWorkers));
     }
 
     private void update(int mr, long mg) {
@@ -555,7 +583,7 @@ public class SparkComputationGraph extends SparkListenable {
     public <K> JavaPairRDD<K, Double> scoreExamplesMultiDataSet(JavaPairRDD<K, MultiDataSet> data,
                     boolean includeRegularizationTerms, int batchSize) {
         return data.mapPartitionsToPair(new ScoreExamplesWithKeyFunction<K>(sc.broadcast(network.params()),
-                        sc.broadcast(conf.toJson()), includeRegularizationTerms, batchSize));
+                        sc.broadcast(conf.toJson()), includeRegularizationTerms, batchSize, inferenceWorkers));
     }
 
     /**
@@ -20,13 +20,12 @@
 
 package org.deeplearning4j.spark.impl.graph.scoring;
 
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.spark.api.java.function.FlatMapFunction;
 import org.apache.spark.api.java.function.PairFlatMapFunction;
 import org.apache.spark.broadcast.Broadcast;
-import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
 import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.spark.impl.inference.InferenceModelCache;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.indexing.NDArrayIndex;
@@ -40,13 +39,30 @@ import java.util.Iterator;
 import java.util.List;
 
 @Slf4j
-@AllArgsConstructor
 public class GraphFeedForwardWithKeyFunction<K> implements PairFlatMapFunction<Iterator<Tuple2<K, INDArray[]>>, K, INDArray[]> {
 
     private final Broadcast<INDArray> params;
     private final Broadcast<String> jsonConfig;
     private final int batchSize;
+    private final int numWorkers;
 
+    public GraphFeedForwardWithKeyFunction(Broadcast<INDArray> params, Broadcast<String> jsonConfig, int batchSize) {
+        this(params, jsonConfig, batchSize, 1);
+    }
+
+    /**
+     * @param params     ComputationGraph parameters
+     * @param jsonConfig ComputationGraphConfiguration, as json
+     * @param batchSize  Batch size to use for forward pass (use > 1 for efficiency)
+     * @param numWorkers Number of threads to use for the forward pass within each partition
+     */
+    public GraphFeedForwardWithKeyFunction(Broadcast<INDArray> params, Broadcast<String> jsonConfig, int batchSize,
+                    int numWorkers) {
+        this.params = params;
+        this.jsonConfig = jsonConfig;
+        this.batchSize = batchSize;
+        this.numWorkers = numWorkers;
+    }
 
     @Override
     public Iterator<Tuple2<K, INDArray[]>> call(Iterator<Tuple2<K, INDArray[]>> iterator) throws Exception {
@@ -54,14 +70,6 @@ public class GraphFeedForwardWithKeyFunction<K> implements PairFlatMapFunction<I
             return Collections.emptyIterator();
         }
 
-        ComputationGraph network = new ComputationGraph(ComputationGraphConfiguration.fromJson(jsonConfig.getValue()));
-        network.init();
-        INDArray val = params.value().dup();
-        if (val.length() != network.numParams(false))
-            throw new IllegalStateException(
-                            "Network did not have same number of parameters as the broadcast set parameters");
-        network.setParams(val);
-
         //Issue: for 2d data (MLPs etc) we can just stack the examples.
         //But: for 3d and 4d: in principle the data sizes could be different
         //We could handle that with mask arrays - but it gets messy. The approach used here is simpler but less efficient
@@ -104,6 +112,9 @@ public class GraphFeedForwardWithKeyFunction<K> implements PairFlatMapFunction<I
         List<Tuple2<K, INDArray[]>> output = new ArrayList<>(tupleCount);
         int currentArrayIndex = 0;
 
+        //Batches (start and end index in featuresList, and the merged features) to be processed in parallel
+        List<int[]> batchIndices = new ArrayList<>(numWorkers);
+        List<INDArray[]> batches = new ArrayList<>(numWorkers);
         while (currentArrayIndex < featuresList.size()) {
             int firstIdx = currentArrayIndex;
             int nextIdx = currentArrayIndex;
@@ -146,23 +157,35 @@ public class GraphFeedForwardWithKeyFunction<K> implements PairFlatMapFunction<I
                 }
                 batchFeatures[i] = Nd4j.concat(0, tempArr);
             }
+            batchIndices.add(new int[]{firstIdx, nextIdx});
+            batches.add(batchFeatures);
 
+            currentArrayIndex += (nextIdx - firstIdx);
 
-            INDArray[] out = network.output(false, batchFeatures);
+            if (batches.size() < numWorkers && currentArrayIndex < featuresList.size()) {
+                continue;
+            }
 
-            examplesInBatch = 0;
-            for (int i = firstIdx; i < nextIdx; i++) {
-                long numExamples = origSizeList.get(i);
-                INDArray[] outSubset = new INDArray[out.length];
-                for (int j = 0; j < out.length; j++) {
-                    outSubset[j] = getSubset(examplesInBatch, examplesInBatch + numExamples, out[j]);
-                }
-                examplesInBatch += numExamples;
+            //Up to one minibatch per worker: do forward pass in parallel
+            List<INDArray[]> outputs = InferenceModelCache.getInstance().execute(jsonConfig, params, true, numWorkers,
+                            batches, (ComputationGraph network, INDArray[] in) -> network.output(false, in));
+
+            for (int b = 0; b < outputs.size(); b++) {
+                INDArray[] out = outputs.get(b);
+                examplesInBatch = 0;
+                for (int i = batchIndices.get(b)[0]; i < batchIndices.get(b)[1]; i++) {
+                    long numExamples = origSizeList.get(i);
+                    INDArray[] outSubset = new INDArray[out.length];
+                    for (int j = 0; j < out.length; j++) {
+                        outSubset[j] = getSubset(examplesInBatch, examplesInBatch + numExamples, out[j]);
+                    }
+                    examplesInBatch += numExamples;
 
-                output.add(new Tuple2<>(keyList.get(i), outSubset));
+                    output.add(new Tuple2<>(keyList.get(i), outSubset));
+                }
             }
-
-            currentArrayIndex += (nextIdx - firstIdx);
+            batchIndices.clear();
+            batches.clear();
         }
 
         Nd4j.getExecutioner().commit();
@@ -24,8 +24,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.spark.api.java.function.DoubleFlatMapFunction;
 import org.apache.spark.api.java.function.FlatMapFunction;
 import org.apache.spark.broadcast.Broadcast;
-import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
 import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.spark.impl.inference.InferenceModelCache;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.api.MultiDataSet;
 import org.nd4j.linalg.factory.Nd4j;
@@ -46,13 +46,27 @@ public class ScoreExamplesFunction implements DoubleFlatMapFunction<Iterator<Mul
     private final Broadcast<String> jsonConfig;
     private final boolean addRegularization;
     private final int batchSize;
+    private final int numWorkers;
 
     public ScoreExamplesFunction(Broadcast<INDArray> params, Broadcast<String> jsonConfig,
                     boolean addRegularizationTerms, int batchSize) {
+        this(params, jsonConfig, addRegularizationTerms, batchSize, 1);
+    }
+
+    /**
+     * @param params                 ComputationGraph parameters
+     * @param jsonConfig             ComputationGraphConfiguration, as json
+     * @param addRegularizationTerms if true: add regularization terms (l1/l2) if applicable
+     * @param batchSize              Batch size to use when scoring examples
+     * @param numWorkers             Number of threads to use for scoring within each partition
+     */
+    public ScoreExamplesFunction(Broadcast<INDArray> params, Broadcast<String> jsonConfig,
+                    boolean addRegularizationTerms, int batchSize, int numWorkers) {
         this.params = params;
         this.jsonConfig = jsonConfig;
         this.addRegularization = addRegularizationTerms;
         this.batchSize = batchSize;
+        this.numWorkers = numWorkers;
     }
 
 
@@ -62,38 +76,36 @@ public class ScoreExamplesFunction implements DoubleFlatMapFunction<Iterator<Mul
             return Collections.emptyIterator();
         }
 
-        ComputationGraph network = new ComputationGraph(ComputationGraphConfiguration.fromJson(jsonConfig.getValue()));
-        network.init();
-        INDArray val = params.value().dup();
-        if (val.length() != network.numParams(false))
-            throw new IllegalStateException(
-                            "Network did not have same number of parameters as the broadcast set parameters");
-        network.setParams(val);
-
         List<Double> ret = new ArrayList<>();
 
         List<MultiDataSet> collect = new ArrayList<>(batchSize);
+        List<MultiDataSet> batches = new ArrayList<>(numWorkers);
         int totalCount = 0;
         while (iterator.hasNext()) {
-            collect.clear();
-            int nExamples = 0;
-            while (iterator.hasNext() && nExamples < batchSize) {
-                MultiDataSet ds = iterator.next();
-                val n = ds.getFeatures(0).size(0);
-                collect.add(ds);
-                nExamples += n;
+            //Collect up to one minibatch per worker, and score them in parallel
+            batches.clear();
+            while (iterator.hasNext() && batches.size() < numWorkers) {
+                collect.clear();
+                int nExamples = 0;
+                while (iterator.hasNext() && nExamples < batchSize) {
+                    MultiDataSet ds = iterator.next();
+                    val n = ds.getFeatures(0).size(0);
+                    collect.add(ds);
+                    nExamples += n;
+                }
+                totalCount += nExamples;
+
+                batches.add(org.nd4j.linalg.dataset.MultiDataSet.merge(collect));
             }
-            totalCount += nExamples;
-
-
-            MultiDataSet data = org.nd4j.linalg.dataset.MultiDataSet.merge(collect);
-
 
-            INDArray scores = network.scoreExamples(data, addRegularization);
-            double[] doubleScores = scores.data().asDouble();
+            List<double[]> scores = InferenceModelCache.getInstance().execute(jsonConfig, params, true, numWorkers,
+                            batches, (ComputationGraph network, MultiDataSet data) ->
+                                            network.scoreExamples(data, addRegularization).data().asDouble());
 
-            for (double doubleScore : doubleScores) {
-                ret.add(doubleScore);
+            for (double[] doubleScores : scores) {
+                for (double doubleScore : doubleScores) {
+                    ret.add(doubleScore);
+                }
             }
         }
 
@@ -0,0 +1,253 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.spark.impl.inference;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.spark.broadcast.Broadcast;
+import org.deeplearning4j.config.DL4JSystemProperties;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.common.function.BiFunction;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.util.DeviceLocalNDArray;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JVM-wide (i.e., per executor) cache of networks used for inference (scoring, feed forward) in Spark functions such as
+ * {@link org.deeplearning4j.spark.impl.multilayer.scoring.ScoreExamplesFunction} and
+ * {@link org.deeplearning4j.spark.impl.multilayer.scoring.FeedForwardWithKeyFunction}.<br>
+ * Without the cache, each partition (task) would instantiate the network from the broadcast configuration and
+ * parameters. With the cache, networks are instantiated once per broadcast (keyed by the broadcast ID) and reused by all
+ * tasks on the same executor: the parameters are shared by all instances (one copy per device), and network instances
+ * are pooled, as a network instance can only be used by one thread at a time.<br>
+ * The cache also provides multi-threaded inference within a single task - see
+ * {@link #execute(Broadcast, Broadcast, boolean, int, List, BiFunction)}.<br>
+ * The number of cached broadcasts (networks) is set by the
+ * {@link DL4JSystemProperties#SPARK_INFERENCE_MODEL_CACHE_SIZE_PROPERTY} system property (default:
+ * {@link #DEFAULT_CACHE_SIZE}); least recently used entries are removed first.
+ */
+@Slf4j
+public class InferenceModelCache {
+
+    public static final int DEFAULT_CACHE_SIZE = 4;
+
+    private static final InferenceModelCache INSTANCE = new InferenceModelCache();
+
+    public static InferenceModelCache getInstance() {
+        return INSTANCE;
+    }
+
+    private final int maxEntries;
+    //Keyed by parameters broadcast ID; access order, for least-recently-used removal
+    private final Map<Long, Entry> entries;
+    private ExecutorService executor;
+
+    private InferenceModelCache() {
+        int size = DEFAULT_CACHE_SIZE;
+        String p = System.getProperty(DL4JSystemProperties.SPARK_INFERENCE_MODEL_CACHE_SIZE_PROPERTY);
+        if (p != null) {
+            try {
+                size = Integer.parseInt(p);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value for system property {}: \"{}\" - using default of {}",
+                        DL4JSystemProperties.SPARK_INFERENCE_MODEL_CACHE_SIZE_PROPERTY, p, DEFAULT_CACHE_SIZE);
+            }
+        }
+        this.maxEntries = Math.max(1, size);
+        this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Apply the function to each of the inputs, using networks from the cache.<br>
+     * If numWorkers is 1, the inputs are processed sequentially in the calling thread. Otherwise, up to numWorkers
+     * threads (each with its own network instance) are used.
+     *
+     * @param jsonConfig   Network configuration (MultiLayerConfiguration or ComputationGraphConfiguration), as JSON
+     * @param params       Network parameters
+     * @param isCG         True if ComputationGraph, false if MultiLayerNetwork
+     * @param numWorkers   Maximum number of threads to use
+     * @param inputs       Inputs (usually, minibatches) to process
+     * @param fn           Function to apply to each input
+     * @return Outputs, in the same order as the inputs
+     */
+    public <M extends Model, I, O> List<O> execute(Broadcast<String> jsonConfig, Broadcast<INDArray> params,
+                                                   boolean isCG, int numWorkers, final List<I> inputs,
+                                                   final BiFunction<M, I, O> fn) throws Exception {
+        Preconditions.checkArgument(numWorkers > 0, "Number of workers must be > 0: got %s", numWorkers);
+        final Entry entry = getEntry(jsonConfig, params, isCG);
+
+        if (numWorkers == 1 || inputs.size() <= 1) {
+            List<O> out = new ArrayList<>(inputs.size());
+            M m = entry.borrow();
+            try {
+                for (I in : inputs) {
+                    out.add(fn.apply(m, in));
+                }
+            } finally {
+                entry.release(m);
+            }
+            return out;
+        }
+
+        final Object[] results = new Object[inputs.size()];
+        final AtomicInteger next = new AtomicInteger(0);
+        int nThreads = Math.min(numWorkers, inputs.size());
+        List<Future<?>> futures = new ArrayList<>(nThreads);
+        for (int i = 0; i < nThreads; i++) {
+            futures.add(executor().submit(() -> {
+                M m = entry.borrow();
+                try {
+                    int idx;
+                    while ((idx = next.getAndIncrement()) < inputs.size()) {
+                        results[idx] = fn.apply(m, inputs.get(idx));
+                    }
+                } finally {
+                    entry.release(m);
+                    Nd4j.getExecutioner().commit();
+                }
+                return null;
+            }));
+        }
+
+        try {
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } catch (ExecutionException e) {
+            //Stop processing remaining inputs in other threads
+            next.set(inputs.size());
+            Throwable t = e.getCause();
+            if (t instanceof Exception) {
+                throw (Exception) t;
+            }
+            throw new RuntimeException(t);
+        }
+
+        List<O> out = new ArrayList<>(results.length);
+        for (Object o : results) {
+            out.add((O) o);
+        }
+        return out;
+    }
+
+    /**
+     * Remove all cached networks
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return Number of broadcasts (networks) currently cached
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized Entry getEntry(Broadcast<String> jsonConfig, Broadcast<INDArray> params, boolean isCG) {
+        //Broadcast IDs are only unique within a SparkContext - hence we also check the broadcast values are the same
+        // objects. A broadcast value being re-read (for example, after eviction from the block manager) only results in
+        // the network being instantiated again
+        long id = params.id();
+        String json = jsonConfig.getValue();
+        INDArray p = params.getValue();
+        Entry e = entries.get(id);
+        if (e == null || e.paramsValue != p || e.json != json || e.isCG != isCG) {
+            log.debug("Creating inference model cache entry for broadcast {}", id);
+            e = new Entry(json, p, isCG);
+            entries.put(id, e);
+        }
+        return e;
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "InferenceModelCacheWorker");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return executor;
+    }
+
+    private static class Entry {
+        private final String json;
+        private final INDArray paramsValue;
+        private final boolean isCG;
+        private final DeviceLocalNDArray params;
+        //Network instances not currently in use, by device
+        private final Map<Integer, Queue<Model>> pool = new ConcurrentHashMap<>();
+
+        private Entry(String json, INDArray paramsValue, boolean isCG) {
+            this.json = json;
+            this.paramsValue = paramsValue;
+            this.isCG = isCG;
+            //The broadcast value itself is used on the current device (inference doesn't modify the parameters), so
+            // there is no additional copy of the parameters, other than replicas for other devices. The exception is
+            // local mode, where the broadcast value may be the driver network's parameters - possibly a view, which
+            // can't be used in a DeviceLocalNDArray
+            this.params = new DeviceLocalNDArray(paramsValue.isView() ? paramsValue.dup() : paramsValue);
+        }
+
+        private <M extends Model> M borrow() {
+            Model m = pool(Nd4j.getAffinityManager().getDeviceForCurrentThread()).poll();
+            if (m == null) {
+                m = create();
+            }
+            return (M) m;
+        }
+
+        private void release(Model m) {
+            pool(Nd4j.getAffinityManager().getDeviceForCurrentThread()).add(m);
+        }
+
+        private Queue<Model> pool(Integer device) {
+            return pool.computeIfAbsent(device, k -> new ConcurrentLinkedQueue<>());
+        }
+
+        private Model create() {
+            INDArray p = params.get();
+            if (isCG) {
+                ComputationGraph cg = new ComputationGraph(ComputationGraphConfiguration.fromJson(json));
+                cg.init(p, false);
+                return cg;
+            } else {
+                MultiLayerNetwork net = new MultiLayerNetwork(MultiLayerConfiguration.fromJson(json));
+                net.init(p, false);
+                return net;
+            }
+        }
+    }
+}
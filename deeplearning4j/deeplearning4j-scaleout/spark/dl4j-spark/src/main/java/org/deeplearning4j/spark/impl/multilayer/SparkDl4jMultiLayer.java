@@ -79,11 +79,13 @@ public class SparkDl4jMultiLayer extends SparkListenable {
     public static final int DEFAULT_EVAL_SCORE_BATCH_SIZE = 64;
     public static final int DEFAULT_ROC_THRESHOLD_STEPS = 32;
     public static final int DEFAULT_EVAL_WORKERS = 4;
+    public static final int DEFAULT_INFERENCE_WORKERS = 1;
     private transient JavaSparkContext sc;
     private MultiLayerConfiguration conf;
     private MultiLayerNetwork network;
     private double lastScore;
     private int defaultEvaluationWorkers = DEFAULT_EVAL_WORKERS;
+    private int inferenceWorkers = DEFAULT_INFERENCE_WORKERS;
 
     /**
      * Instantiate a multi layer spark instance
@@ -197,6 +199,32 @@ public class SparkDl4jMultiLayer extends SparkListenable {
         this.defaultEvaluationWorkers = workers;
     }
 
+    /**
+     * Returns the number of inference workers/threads used within each partition (Spark task) for scoring and feed
+     * forward methods such as scoreExamples and feedForwardWithKey. Each worker uses a separate copy of the network;
+     * copies are cached in each executor JVM and shared by all tasks - see
+     * {@link org.deeplearning4j.spark.impl.inference.InferenceModelCache}.<br>
+     * If it is not set explicitly, {@link #DEFAULT_INFERENCE_WORKERS} will be used
+     *
+     * @return Number of inference workers (threads) per partition
+     */
+    public int getInferenceWorkers(){
+        return inferenceWorkers;
+    }
+
+    /**
+     * Set the number of inference workers/threads used within each partition (Spark task) for scoring and feed
+     * forward methods such as scoreExamples and feedForwardWithKey. Values greater than 1 are useful when there are
+     * more executor cores than concurrently running tasks, for example with large partitions.<br>
+     * If it is not set explicitly, {@link #DEFAULT_INFERENCE_WORKERS} will be used
+     *
+     * @param workers Number of inference workers (threads) per partition
+     */
+    public void setInferenceWorkers(int workers){
+        Preconditions.checkArgument(workers > 0, "Number of workers must be > 0: got %s", workers);
+        this.inferenceWorkers = workers;
+    }
+
     /**
      * Set whether training statistics should be collected for debugging purposes. Statistics collection is disabled by default
      *
@@ -431,7 +459,7 @@ public class SparkDl4jMultiLayer extends SparkListenable {
      */
     public JavaDoubleRDD scoreExamples(JavaRDD<DataSet> data, boolean includeRegularizationTerms, int batchSize) {
         return data.mapPartitionsToDouble(new ScoreExamplesFunction(sc.broadcast(network.params()),
-                        sc.broadcast(conf.toJson()), includeRegularizationTerms, batchSize));
+                        sc.broadcast(conf.toJson()), includeRegularizationTerms, batchSize, inferenceWorkers));
     }
 
     /**
@@ -467,7 +495,7 @@ public class SparkDl4jMultiLayer extends SparkListenable {
     public <K> JavaPairRDD<K, Double> scoreExamples(JavaPairRDD<K, DataSet> data, boolean includeRegularizationTerms,
                     int batchSize) {
         return data.mapPartitionsToPair(new ScoreExamplesWithKeyFunction<K>(sc.broadcast(network.params()),
-                        sc.broadcast(conf.toJson()), includeRegularizationTerms, batchSize));
+                        sc.broadcast(conf.toJson()), includeRegularizationTerms, batchSize, inferenceWorkers));
     }
 
     /**
@@ -495,7 +523,7 @@ public class SparkDl4jMultiLayer extends SparkListenable {
     public <K> JavaPairRDD<K, INDArray> feedForwardWithMaskAndKey(JavaPairRDD<K, Tuple2<INDArray,INDArray>> featuresDataAndMask, int batchSize) {
         return featuresDataAndMask
                 .mapPartitionsToPair(new FeedForwardWithKeyFunction<K>(sc.broadcast(network.params()),
-                        sc.broadcast(conf.toJson()), batchSize));
+                        sc.broadcast(conf.toJson()), batchSize, inferenceWorkers));
     }
 
     /**
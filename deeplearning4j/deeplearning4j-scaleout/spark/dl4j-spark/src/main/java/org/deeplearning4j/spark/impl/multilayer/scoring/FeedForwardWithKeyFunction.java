@@ -22,8 +22,8 @@ package org.deeplearning4j.spark.impl.multilayer.scoring;
 
 import org.apache.spark.api.java.function.PairFlatMapFunction;
 import org.apache.spark.broadcast.Broadcast;
-import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.spark.impl.inference.InferenceModelCache;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.api.DataSetUtil;
 import org.nd4j.linalg.factory.Nd4j;
@@ -46,6 +46,7 @@ public class FeedForwardWithKeyFunction<K>
     private final Broadcast<INDArray> params;
     private final Broadcast<String> jsonConfig;
     private final int batchSize;
+    private final int numWorkers;
 
     /**
      * @param params     MultiLayerNetwork parameters
@@ -53,9 +54,21 @@ public class FeedForwardWithKeyFunction<K>
      * @param batchSize  Batch size to use for forward pass (use > 1 for efficiency)
      */
     public FeedForwardWithKeyFunction(Broadcast<INDArray> params, Broadcast<String> jsonConfig, int batchSize) {
+        this(params, jsonConfig, batchSize, 1);
+    }
+
+    /**
+     * @param params     MultiLayerNetwork parameters
+     * @param jsonConfig MultiLayerConfiguration, as json
+     * @param batchSize  Batch size to use for forward pass (use > 1 for efficiency)
+     * @param numWorkers Number of threads to use for the forward pass within each partition
+     */
+    public FeedForwardWithKeyFunction(Broadcast<INDArray> params, Broadcast<String> jsonConfig, int batchSize,
+                    int numWorkers) {
         this.params = params;
         this.jsonConfig = jsonConfig;
         this.batchSize = batchSize;
+        this.numWorkers = numWorkers;
     }
 
 
@@ -65,14 +78,6 @@ public class FeedForwardWithKeyFunction<K>
             return Collections.emptyIterator();
         }
 
-        MultiLayerNetwork network = new MultiLayerNetwork(MultiLayerConfiguration.fromJson(jsonConfig.getValue()));
-        network.init();
-        INDArray val = params.value().dup();
-        if (val.length() != network.numParams(false))
-            throw new IllegalStateException(
-                            "Network did not have same number of parameters as the broadcasted set parameters");
-        network.setParameters(val);
-
         //Issue: for 2d data (MLPs etc) we can just stack the examples.
         //But: for 3d and 4d: in principle the data sizes could be different
         //We could handle that with mask arrays - but it gets messy. The approach used here is simpler but less efficient
@@ -113,6 +118,9 @@ public class FeedForwardWithKeyFunction<K>
         List<Tuple2<K, INDArray>> output = new ArrayList<>(tupleCount);
         int currentArrayIndex = 0;
 
+        //Batches (start and end index in featuresList, and the merged features + mask) to be processed in parallel
+        List<int[]> batchIndices = new ArrayList<>(numWorkers);
+        List<Pair<INDArray,INDArray>> batches = new ArrayList<>(numWorkers);
         while (currentArrayIndex < featuresList.size()) {
             int firstIdx = currentArrayIndex;
             int nextIdx = currentArrayIndex;
@@ -147,18 +155,33 @@ public class FeedForwardWithKeyFunction<K>
 
             Pair<INDArray,INDArray> p = DataSetUtil.mergeFeatures(toMerge.toArray(new INDArray[toMerge.size()]), toMergeMask.toArray(new INDArray[toMergeMask.size()]));
 //            INDArray batchFeatures = Nd4j.concat(0, toMerge.toArray(new INDArray[toMerge.size()]));
-            INDArray out = network.output(p.getFirst(), false, p.getSecond(), null);
+            batchIndices.add(new int[]{firstIdx, nextIdx});
+            batches.add(p);
 
-            examplesInBatch = 0;
-            for (int i = firstIdx; i < nextIdx; i++) {
-                int numExamples = origSizeList.get(i);
-                INDArray outputSubset = getSubset(examplesInBatch, examplesInBatch + numExamples, out);
-                examplesInBatch += numExamples;
+            currentArrayIndex += (nextIdx - firstIdx);
 
-                output.add(new Tuple2<>(keyList.get(i), outputSubset));
+            if (batches.size() < numWorkers && currentArrayIndex < featuresList.size()) {
+                continue;
             }
 
-            currentArrayIndex += (nextIdx - firstIdx);
+            //Up to one minibatch per worker: do forward pass in parallel
+            List<INDArray> outputs = InferenceModelCache.getInstance().execute(jsonConfig, params, false, numWorkers,
+                            batches, (MultiLayerNetwork network, Pair<INDArray,INDArray> in) ->
+                                            network.output(in.getFirst(), false, in.getSecond(), null));
+
+            for (int b = 0; b < outputs.size(); b++) {
+                INDArray out = outputs.get(b);
+                examplesInBatch = 0;
+                for (int i = batchIndices.get(b)[0]; i < batchIndices.get(b)[1]; i++) {
+                    int numExamples = origSizeList.get(i);
+                    INDArray outputSubset = getSubset(examplesInBatch, examplesInBatch + numExamples, out);
+                    examplesInBatch += numExamples;
+
+                    output.add(new Tuple2<>(keyList.get(i), outputSubset));
+                }
+            }
+            batchIndices.clear();
+            batches.clear();
         }
 
         Nd4j.getExecutioner().commit();
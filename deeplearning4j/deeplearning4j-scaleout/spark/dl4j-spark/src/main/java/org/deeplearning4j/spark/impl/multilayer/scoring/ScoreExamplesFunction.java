@@ -23,8 +23,8 @@ package org.deeplearning4j.spark.impl.multilayer.scoring;
 import org.apache.spark.api.java.function.DoubleFlatMapFunction;
 import org.apache.spark.api.java.function.FlatMapFunction;
 import org.apache.spark.broadcast.Broadcast;
-import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.spark.impl.inference.InferenceModelCache;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.factory.Nd4j;
@@ -44,13 +44,27 @@ public class ScoreExamplesFunction implements DoubleFlatMapFunction<Iterator<Dat
     private final Broadcast<String> jsonConfig;
     private final boolean addRegularization;
     private final int batchSize;
+    private final int numWorkers;
 
     public ScoreExamplesFunction(Broadcast<INDArray> params, Broadcast<String> jsonConfig,
                     boolean addRegularizationTerms, int batchSize) {
+        this(params, jsonConfig, addRegularizationTerms, batchSize, 1);
+    }
+
+    /**
+     * @param params                 MultiLayerNetwork parameters
+     * @param jsonConfig             MultiLayerConfiguration, as json
+     * @param addRegularizationTerms if true: add regularization terms (L1, L2) to the score
+     * @param batchSize              Batch size to use when scoring
+     * @param numWorkers             Number of threads to use for scoring within each partition
+     */
+    public ScoreExamplesFunction(Broadcast<INDArray> params, Broadcast<String> jsonConfig,
+                    boolean addRegularizationTerms, int batchSize, int numWorkers) {
         this.params = params;
         this.jsonConfig = jsonConfig;
         this.addRegularization = addRegularizationTerms;
         this.batchSize = batchSize;
+        this.numWorkers = numWorkers;
     }
 
 
@@ -60,37 +74,36 @@ public class ScoreExamplesFunction implements DoubleFlatMapFunction<Iterator<Dat
             return Collections.emptyIterator();
         }
 
-        MultiLayerNetwork network = new MultiLayerNetwork(MultiLayerConfiguration.fromJson(jsonConfig.getValue()));
-        network.init();
-        INDArray val = params.value().dup();
-        if (val.length() != network.numParams(false))
-            throw new IllegalStateException(
-                            "Network did not have same number of parameters as the broadcast set parameters");
-        network.setParameters(val);
-
         List<Double> ret = new ArrayList<>();
 
         List<DataSet> collect = new ArrayList<>(batchSize);
+        List<DataSet> batches = new ArrayList<>(numWorkers);
         int totalCount = 0;
         while (iterator.hasNext()) {
-            collect.clear();
-            int nExamples = 0;
-            while (iterator.hasNext() && nExamples < batchSize) {
-                DataSet ds = iterator.next();
-                int n = ds.numExamples();
-                collect.add(ds);
-                nExamples += n;
+            //Collect up to one minibatch per worker, and score them in parallel
+            batches.clear();
+            while (iterator.hasNext() && batches.size() < numWorkers) {
+                collect.clear();
+                int nExamples = 0;
+                while (iterator.hasNext() && nExamples < batchSize) {
+                    DataSet ds = iterator.next();
+                    int n = ds.numExamples();
+                    collect.add(ds);
+                    nExamples += n;
+                }
+                totalCount += nExamples;
+
+                batches.add(DataSet.merge(collect));
             }
-            totalCount += nExamples;
-
-            DataSet data = DataSet.merge(collect);
-
 
-            INDArray scores = network.scoreExamples(data, addRegularization);
-            double[] doubleScores = scores.data().asDouble();
+            List<double[]> scores = InferenceModelCache.getInstance().execute(jsonConfig, params, false, numWorkers,
+                            batches, (MultiLayerNetwork network, DataSet data) ->
+                                            network.scoreExamples(data, addRegularization).data().asDouble());
 
-            for (double doubleScore : doubleScores) {
-                ret.add(doubleScore);
+            for (double[] doubleScores : scores) {
+                for (double doubleScore : doubleScores) {
+                    ret.add(doubleScore);
+                }
             }
         }
 
@@ -23,8 +23,8 @@ package org.deeplearning4j.spark.impl.multilayer.scoring;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.spark.api.java.function.PairFlatMapFunction;
 import org.apache.spark.broadcast.Broadcast;
-import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.spark.impl.inference.InferenceModelCache;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.factory.Nd4j;
@@ -42,6 +42,7 @@ public class ScoreExamplesWithKeyFunction<K> implements PairFlatMapFunction<Iter
     private final Broadcast<String> jsonConfig;
     private final boolean addRegularization;
     private final int batchSize;
+    private final int numWorkers;
 
     /**
      * @param params                 MultiLayerNetwork parameters
@@ -50,10 +51,23 @@ public class ScoreExamplesWithKeyFunction<K> implements PairFlatMapFunction<Iter
      * @param batchSize              Batch size to use when scoring
      */
     public ScoreExamplesWithKeyFunction(Broadcast<INDArray> params, Broadcast<String> jsonConfig, boolean addRegularizationTerms, int batchSize) {
+        this(params, jsonConfig, addRegularizationTerms, batchSize, 1);
+    }
+
+    /**
+     * @param params                 MultiLayerNetwork parameters
+     * @param jsonConfig             MultiLayerConfiguration, as json
+     * @param addRegularizationTerms if true: add regularization terms (L1, L2) to the score
+     * @param batchSize              Batch size to use when scoring
+     * @param numWorkers             Number of threads to use for scoring within each partition
+     */
+    public ScoreExamplesWithKeyFunction(Broadcast<INDArray> params, Broadcast<String> jsonConfig,
+                    boolean addRegularizationTerms, int batchSize, int numWorkers) {
         this.params = params;
         this.jsonConfig = jsonConfig;
         this.addRegularization = addRegularizationTerms;
         this.batchSize = batchSize;
+        this.numWorkers = numWorkers;
     }
 
 
@@ -63,44 +77,44 @@ public class ScoreExamplesWithKeyFunction<K> implements PairFlatMapFunction<Iter
             return Collections.emptyIterator();
         }
 
-        MultiLayerNetwork network = new MultiLayerNetwork(MultiLayerConfiguration.fromJson(jsonConfig.getValue()));
-        network.init();
-        INDArray val = params.value().dup();
-        if (val.length() != network.numParams(false))
-            throw new IllegalStateException(
-                            "Network did not have same number of parameters as the broadcast set parameters");
-        network.setParameters(val);
-
         List<Tuple2<K, Double>> ret = new ArrayList<>();
 
         List<DataSet> collect = new ArrayList<>(batchSize);
-        List<K> collectKey = new ArrayList<>(batchSize);
+        List<DataSet> batches = new ArrayList<>(numWorkers);
+        List<K> collectKey = new ArrayList<>(batchSize * numWorkers);
         int totalCount = 0;
         while (iterator.hasNext()) {
-            collect.clear();
+            //Collect up to one minibatch per worker, and score them in parallel
+            batches.clear();
             collectKey.clear();
-            int nExamples = 0;
-            while (iterator.hasNext() && nExamples < batchSize) {
-                Tuple2<K, DataSet> t2 = iterator.next();
-                DataSet ds = t2._2();
-                int n = ds.numExamples();
-                if (n != 1)
-                    throw new IllegalStateException("Cannot score examples with one key per data set if "
-                                    + "data set contains more than 1 example (numExamples: " + n + ")");
-                collect.add(ds);
-                collectKey.add(t2._1());
-                nExamples += n;
+            while (iterator.hasNext() && batches.size() < numWorkers) {
+                collect.clear();
+                int nExamples = 0;
+                while (iterator.hasNext() && nExamples < batchSize) {
+                    Tuple2<K, DataSet> t2 = iterator.next();
+                    DataSet ds = t2._2();
+                    int n = ds.numExamples();
+                    if (n != 1)
+                        throw new IllegalStateException("Cannot score examples with one key per data set if "
+                                        + "data set contains more than 1 example (numExamples: " + n + ")");
+                    collect.add(ds);
+                    collectKey.add(t2._1());
+                    nExamples += n;
+                }
+                totalCount += nExamples;
+
+                batches.add(DataSet.merge(collect));
             }
-            totalCount += nExamples;
-
-            DataSet data = DataSet.merge(collect);
-
 
-            INDArray scores = network.scoreExamples(data, addRegularization);
-            double[] doubleScores = scores.data().asDouble();
+            List<double[]> scores = InferenceModelCache.getInstance().execute(jsonConfig, params, false, numWorkers,
+                            batches, (MultiLayerNetwork network, DataSet data) ->
+                                            network.scoreExamples(data, addRegularization).data().asDouble());
 
-            for (int i = 0; i < doubleScores.length; i++) {
-                ret.add(new Tuple2<>(collectKey.get(i), doubleScores[i]));
+            int keyIdx = 0;
+            for (double[] doubleScores : scores) {
+                for (double doubleScore : doubleScores) {
+                    ret.add(new Tuple2<>(collectKey.get(keyIdx++), doubleScore));
+                }
             }
         }
 
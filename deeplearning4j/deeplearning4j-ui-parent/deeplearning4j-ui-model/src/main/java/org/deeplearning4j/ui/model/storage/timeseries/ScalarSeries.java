@@ -0,0 +1,43 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.ui.model.storage.timeseries;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Result of a scalar series range query on a {@link TimeSeriesStatsStorage}.<br>
+ * The resolution is the number of raw values aggregated (by mean) into each returned value: 1 for raw values,
+ * or 10 or 100 for the rolled up levels. Timestamps are the timestamp of the last raw value in each aggregate.
+ */
+@Data
+@AllArgsConstructor
+public class ScalarSeries {
+
+    private final String name;
+    private final int resolution;
+    private final long[] timestamps;
+    private final double[] values;
+
+    public int size() {
+        return timestamps.length;
+    }
+}
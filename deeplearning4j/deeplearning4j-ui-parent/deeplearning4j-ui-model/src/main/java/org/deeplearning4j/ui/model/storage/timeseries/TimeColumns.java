@@ -0,0 +1,171 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.ui.model.storage.timeseries;
+
+import java.util.Arrays;
+
+/**
+ * Append-mostly columnar block of (timestamp, value) pairs, sorted by timestamp.<br>
+ * Timestamps and values are held in two primitive arrays; entries can be removed from the start (oldest first) without
+ * copying, the arrays are compacted only when they need to grow. Values are longs: file offsets for updates, or the
+ * raw bits of a double for scalar series.
+ */
+class TimeColumns {
+
+    private long[] times;
+    private long[] values;
+    private int start;
+    private int end;
+
+    TimeColumns() {
+        this(64);
+    }
+
+    TimeColumns(int initialCapacity) {
+        this.times = new long[Math.max(4, initialCapacity)];
+        this.values = new long[times.length];
+    }
+
+    int size() {
+        return end - start;
+    }
+
+    boolean isEmpty() {
+        return end == start;
+    }
+
+    long time(int i) {
+        return times[start + i];
+    }
+
+    long value(int i) {
+        return values[start + i];
+    }
+
+    double doubleValue(int i) {
+        return Double.longBitsToDouble(values[start + i]);
+    }
+
+    long firstTime() {
+        return times[start];
+    }
+
+    long lastTime() {
+        return times[end - 1];
+    }
+
+    void setValue(int i, long value) {
+        values[start + i] = value;
+    }
+
+    /**
+     * Add an entry. Entries are expected in non-decreasing timestamp order; an out of order entry is inserted at its
+     * sorted position
+     */
+    void add(long time, long value) {
+        if (end == times.length) {
+            ensureCapacity();
+        }
+        if (end > start && time < times[end - 1]) {
+            int idx = start + lowerBound(time);
+            System.arraycopy(times, idx, times, idx + 1, end - idx);
+            System.arraycopy(values, idx, values, idx + 1, end - idx);
+            times[idx] = time;
+            values[idx] = value;
+        } else {
+            times[end] = time;
+            values[end] = value;
+        }
+        end++;
+    }
+
+    void add(long time, double value) {
+        add(time, Double.doubleToRawLongBits(value));
+    }
+
+    void removeFirst() {
+        if (end == start) {
+            throw new IllegalStateException("Cannot remove from empty columns");
+        }
+        start++;
+    }
+
+    /**
+     * @return Index of the first entry with timestamp >= time (or {@link #size()} if no such entry)
+     */
+    int lowerBound(long time) {
+        int lo = start;
+        int hi = end;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo - start;
+    }
+
+    /**
+     * @return Index of the first entry with timestamp > time (or {@link #size()} if no such entry)
+     */
+    int upperBound(long time) {
+        int lo = start;
+        int hi = end;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] <= time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo - start;
+    }
+
+    /**
+     * @return Index of the entry with exactly the specified timestamp, or -1 if not present
+     */
+    int indexOf(long time) {
+        int idx = lowerBound(time);
+        if (idx < size() && time(idx) == time) {
+            return idx;
+        }
+        return -1;
+    }
+
+    private void ensureCapacity() {
+        int size = end - start;
+        if (start > 0 && size <= times.length / 2) {
+            //Reclaim the space of removed entries instead of growing
+            System.arraycopy(times, start, times, 0, size);
+            System.arraycopy(values, start, values, 0, size);
+        } else {
+            long[] newTimes = Arrays.copyOfRange(times, start, start + Math.max(2 * times.length, 4));
+            long[] newValues = Arrays.copyOfRange(values, start, start + newTimes.length);
+            times = newTimes;
+            values = newValues;
+        }
+        start = 0;
+        end = size;
+    }
+}
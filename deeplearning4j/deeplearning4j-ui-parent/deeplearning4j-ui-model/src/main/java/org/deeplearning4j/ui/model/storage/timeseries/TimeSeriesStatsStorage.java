@@ -0,0 +1,993 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.ui.model.storage.timeseries;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.config.DL4JClassLoading;
+import org.deeplearning4j.core.storage.*;
+import org.deeplearning4j.ui.model.stats.api.StatsReport;
+import org.deeplearning4j.ui.model.stats.api.StatsType;
+import org.deeplearning4j.ui.model.stats.api.SummaryType;
+import org.deeplearning4j.ui.model.storage.BaseCollectionStatsStorage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A file-based {@link StatsStorage} for long training runs, that keeps the storage size and the UI query cost bounded
+ * as the number of updates grows.<br>
+ * All records are appended to a single log file; nothing is rewritten in place. On top of the log:<br>
+ * - Updates are located via an in-memory columnar (timestamp, file offset) index per session/type/worker. The most
+ * recent {@code rawRetention} updates are all indexed; older updates are thinned to every 10th, and older still to
+ * every 100th. Range queries ({@link #getAllUpdatesAfter(String, String, String, long)},
+ * {@link #getAllUpdateTimes(String, String, String)} etc) use a binary search on this index, and only decode the
+ * returned updates.<br>
+ * - Histograms are stored with only every {@code histogramFrequency}-th {@link StatsReport} (per worker). The latest
+ * update is always returned with its histograms while the storage remains open.<br>
+ * - Scalar series (score, learning rates, and mean magnitudes of parameters, gradients, updates and activations) are
+ * additionally appended in columnar chunks of {@code chunkSize} values, and kept in memory at 3 resolutions: raw
+ * (last {@code rawRetention} values), the mean of every 10 values (last {@code rawRetention} means), and the mean of
+ * every 100 values (all). See {@link #getScalarSeries(String, String, String, String, long, long, int)}.<br>
+ * The index and the rollups are rebuilt when the file is re-opened, reading only the record headers of updates.<br>
+ * Note that thinning applies to the index only: updates that are no longer indexed are not removed from the file.
+ */
+@Slf4j
+public class TimeSeriesStatsStorage extends BaseCollectionStatsStorage {
+
+    public static final String SCORE_SERIES = "score";
+    public static final String LEARNING_RATE_SERIES_PREFIX = "learningRate/";
+    public static final String MEAN_MAGNITUDE_SERIES_PREFIX = "meanMagnitude/";
+
+    private static final byte RECORD_CLASS = 0;
+    private static final byte RECORD_KEY = 1;
+    private static final byte RECORD_SERIES = 2;
+    private static final byte RECORD_SERIES_CHUNK = 3;
+    private static final byte RECORD_STATIC_INFO = 4;
+    private static final byte RECORD_META_DATA = 5;
+    private static final byte RECORD_UPDATE = 6;
+    //Record header: record type (byte) + payload length (int)
+    private static final int HEADER_BYTES = 5;
+    private static final int LEVELS = 3;
+    private static final int ROLLUP_FACTOR = 10;
+
+    private final File file;
+    private final int rawRetention;
+    private final int histogramFrequency;
+    private final int chunkSize;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private long writePosition;
+    private volatile boolean isClosed = false;
+
+    private final Map<String, Integer> classToInteger = new ConcurrentHashMap<>();
+    private final Map<Integer, String> integerToClass = new ConcurrentHashMap<>();
+    private final Map<SessionTypeWorkerId, Integer> keyToInteger = new HashMap<>();
+    private final List<SessionTypeWorkerId> integerToKey = new ArrayList<>();
+    private final Map<SessionTypeWorkerId, Map<String, RollupSeries>> series = new ConcurrentHashMap<>();
+    private final List<RollupSeries> seriesById = new ArrayList<>();
+
+    public TimeSeriesStatsStorage(File f) {
+        this(new Builder(f));
+    }
+
+    private TimeSeriesStatsStorage(Builder builder) {
+        if (builder.getFile() == null) {
+            throw new IllegalArgumentException("File must be specified for TimeSeriesStatsStorage");
+        }
+        if (builder.getRawRetention() < ROLLUP_FACTOR * ROLLUP_FACTOR) {
+            throw new IllegalArgumentException("Raw retention must be at least " + ROLLUP_FACTOR * ROLLUP_FACTOR
+                            + ", got " + builder.getRawRetention());
+        }
+        if (builder.getHistogramFrequency() <= 0 || builder.getChunkSize() <= 0) {
+            throw new IllegalArgumentException("Histogram frequency and chunk size must be positive, got "
+                            + builder.getHistogramFrequency() + " and " + builder.getChunkSize());
+        }
+        this.file = builder.getFile();
+        this.rawRetention = builder.getRawRetention();
+        this.histogramFrequency = builder.getHistogramFrequency();
+        this.chunkSize = builder.getChunkSize();
+
+        sessionIDs = ConcurrentHashMap.newKeySet();
+        storageMetaData = new ConcurrentHashMap<>();
+        staticInfo = new ConcurrentHashMap<>();
+
+        try {
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            channel = randomAccessFile.getChannel();
+            load();
+        } catch (IOException e) {
+            throw new RuntimeException("Error opening TimeSeriesStatsStorage file " + file, e);
+        }
+    }
+
+    /**
+     * Rebuild the in-memory state (dictionaries, static info, metadata, update index and scalar rollups) from the
+     * file. Update payloads are skipped; an incomplete record at the end of the file (from a crash during a write)
+     * is discarded.
+     */
+    private void load() throws IOException {
+        long length = channel.size();
+        long pos = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            while (pos + HEADER_BYTES <= length) {
+                byte type = in.readByte();
+                int len = in.readInt();
+                if (len < 0 || pos + HEADER_BYTES + len > length) {
+                    break;
+                }
+                long recordPos = pos;
+                pos += HEADER_BYTES + len;
+                if (type == RECORD_UPDATE) {
+                    SessionTypeWorkerId id = integerToKey.get(in.readInt());
+                    long timestamp = in.readLong();
+                    int toSkip = len - 12;
+                    while (toSkip > 0) {
+                        int skipped = in.skipBytes(toSkip);
+                        if (skipped <= 0) {
+                            throw new EOFException("Unexpected end of file reading " + file);
+                        }
+                        toSkip -= skipped;
+                    }
+                    getIndex(id, true).add(timestamp, recordPos, null);
+                } else {
+                    byte[] payload = new byte[len];
+                    in.readFully(payload);
+                    replay(type, payload);
+                }
+            }
+        }
+        if (pos < length) {
+            log.warn("Discarding incomplete record at end of stats storage file {} ({} bytes)", file, length - pos);
+            channel.truncate(pos);
+        }
+        writePosition = pos;
+    }
+
+    private void replay(byte type, byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        switch (type) {
+            case RECORD_CLASS: {
+                int idx = in.readInt();
+                String className = in.readUTF();
+                classToInteger.put(className, idx);
+                integerToClass.put(idx, className);
+                break;
+            }
+            case RECORD_KEY: {
+                in.readInt();
+                SessionTypeWorkerId id = new SessionTypeWorkerId(in.readUTF(), in.readUTF(), in.readUTF());
+                keyToInteger.put(id, integerToKey.size());
+                integerToKey.add(id);
+                break;
+            }
+            case RECORD_SERIES: {
+                in.readInt();
+                SessionTypeWorkerId id = integerToKey.get(in.readInt());
+                registerSeries(id, in.readUTF());
+                break;
+            }
+            case RECORD_SERIES_CHUNK: {
+                RollupSeries s = seriesById.get(in.readInt());
+                int n = in.readInt();
+                long[] times = new long[n];
+                for (int i = 0; i < n; i++) {
+                    times[i] = in.readLong();
+                }
+                for (int i = 0; i < n; i++) {
+                    s.add(times[i], in.readDouble());
+                }
+                break;
+            }
+            case RECORD_STATIC_INFO: {
+                SessionTypeWorkerId id = integerToKey.get(in.readInt());
+                Persistable p = decode(in.readInt(), Arrays.copyOfRange(payload, 8, payload.length));
+                sessionIDs.add(id.getSessionID());
+                staticInfo.put(id, p);
+                break;
+            }
+            case RECORD_META_DATA: {
+                SessionTypeWorkerId id = integerToKey.get(in.readInt());
+                Persistable p = decode(in.readInt(), Arrays.copyOfRange(payload, 8, payload.length));
+                storageMetaData.put(new SessionTypeId(id.getSessionID(), id.getTypeID()), (StorageMetaData) p);
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown record type " + type + " in stats storage file " + file);
+        }
+    }
+
+    @Override
+    protected Map<Long, Persistable> getUpdateMap(String sessionID, String typeID, String workerID,
+                    boolean createIfRequired) {
+        return getIndex(new SessionTypeWorkerId(sessionID, typeID, workerID), createIfRequired);
+    }
+
+    private UpdateIndex getIndex(SessionTypeWorkerId id, boolean createIfRequired) {
+        UpdateIndex index = (UpdateIndex) updates.get(id);
+        if (index == null && createIfRequired) {
+            synchronized (this) {
+                index = (UpdateIndex) updates.get(id);
+                if (index == null) {
+                    index = new UpdateIndex();
+                    updates.put(id, index);
+                }
+            }
+        }
+        return index;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (isClosed) {
+            return;
+        }
+        try {
+            for (RollupSeries s : seriesById) {
+                writeChunk(s);
+            }
+            channel.force(true);
+            randomAccessFile.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Error closing TimeSeriesStatsStorage file " + file, e);
+        } finally {
+            isClosed = true;
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+    // ----- Store new info -----
+
+    @Override
+    public void putStaticInfo(Persistable staticInfo) {
+        List<StatsStorageEvent> sses = checkStorageEvents(staticInfo);
+        SessionTypeWorkerId id = new SessionTypeWorkerId(staticInfo.getSessionID(), staticInfo.getTypeID(),
+                        staticInfo.getWorkerID());
+        synchronized (this) {
+            appendPersistable(RECORD_STATIC_INFO, id, staticInfo, false);
+            sessionIDs.add(staticInfo.getSessionID());
+            this.staticInfo.put(id, staticInfo);
+        }
+
+        StatsStorageEvent sse = null;
+        if (!listeners.isEmpty())
+            sse = new StatsStorageEvent(this, StatsStorageListener.EventType.PostStaticInfo, staticInfo.getSessionID(),
+                            staticInfo.getTypeID(), staticInfo.getWorkerID(), staticInfo.getTimeStamp());
+        for (StatsStorageListener l : listeners) {
+            l.notify(sse);
+        }
+
+        notifyListeners(sses);
+    }
+
+    @Override
+    public void putUpdate(Persistable update) {
+        List<StatsStorageEvent> sses = checkStorageEvents(update);
+        SessionTypeWorkerId id = new SessionTypeWorkerId(update.getSessionID(), update.getTypeID(),
+                        update.getWorkerID());
+        synchronized (this) {
+            UpdateIndex index = getIndex(id, true);
+            Persistable toStore = update;
+            if (update instanceof StatsReport) {
+                StatsReport report = (StatsReport) update;
+                recordScalars(id, report);
+                if (index.getCount() % histogramFrequency != 0) {
+                    toStore = withoutHistograms(report);
+                }
+            }
+            long pos = appendPersistable(RECORD_UPDATE, id, toStore, true);
+            index.add(update.getTimeStamp(), pos, update);
+        }
+
+        StatsStorageEvent sse = null;
+        if (!listeners.isEmpty())
+            sse = new StatsStorageEvent(this, StatsStorageListener.EventType.PostUpdate, update.getSessionID(),
+                            update.getTypeID(), update.getWorkerID(), update.getTimeStamp());
+        for (StatsStorageListener l : listeners) {
+            l.notify(sse);
+        }
+
+        notifyListeners(sses);
+    }
+
+    @Override
+    public void putStorageMetaData(StorageMetaData storageMetaData) {
+        List<StatsStorageEvent> sses = checkStorageEvents(storageMetaData);
+        SessionTypeWorkerId id = new SessionTypeWorkerId(storageMetaData.getSessionID(),
+                        storageMetaData.getTypeID(), storageMetaData.getWorkerID());
+        synchronized (this) {
+            appendPersistable(RECORD_META_DATA, id, storageMetaData, false);
+            this.storageMetaData.put(new SessionTypeId(id.getSessionID(), id.getTypeID()), storageMetaData);
+        }
+
+        StatsStorageEvent sse = null;
+        if (!listeners.isEmpty())
+            sse = new StatsStorageEvent(this, StatsStorageListener.EventType.PostMetaData,
+                            storageMetaData.getSessionID(), storageMetaData.getTypeID(), storageMetaData.getWorkerID(),
+                            storageMetaData.getTimeStamp());
+        for (StatsStorageListener l : listeners) {
+            l.notify(sse);
+        }
+
+        notifyListeners(sses);
+    }
+
+    // ----- Query updates via the index -----
+
+    @Override
+    public Persistable getLatestUpdate(String sessionID, String typeID, String workerID) {
+        UpdateIndex index = getIndex(new SessionTypeWorkerId(sessionID, typeID, workerID), false);
+        return index == null ? null : index.latest();
+    }
+
+    @Override
+    public Persistable getUpdate(String sessionID, String typeID, String workerID, long timestamp) {
+        UpdateIndex index = getIndex(new SessionTypeWorkerId(sessionID, typeID, workerID), false);
+        return index == null ? null : index.get(timestamp);
+    }
+
+    @Override
+    public List<Persistable> getAllUpdatesAfter(String sessionID, String typeID, String workerID, long timestamp) {
+        UpdateIndex index = getIndex(new SessionTypeWorkerId(sessionID, typeID, workerID), false);
+        if (index == null) {
+            return new ArrayList<>();
+        }
+        return index.getAfter(timestamp);
+    }
+
+    @Override
+    public List<Persistable> getAllUpdatesAfter(String sessionID, String typeID, long timestamp) {
+        List<Persistable> list = new ArrayList<>();
+        for (Map.Entry<SessionTypeWorkerId, Map<Long, Persistable>> e : updates.entrySet()) {
+            SessionTypeWorkerId id = e.getKey();
+            if (id.getSessionID().equals(sessionID) && id.getTypeID().equals(typeID)) {
+                list.addAll(((UpdateIndex) e.getValue()).getAfter(timestamp));
+            }
+        }
+
+        //Sort by time stamp
+        Collections.sort(list, new Comparator<Persistable>() {
+            @Override
+            public int compare(Persistable o1, Persistable o2) {
+                return Long.compare(o1.getTimeStamp(), o2.getTimeStamp());
+            }
+        });
+        return list;
+    }
+
+    @Override
+    public long[] getAllUpdateTimes(String sessionID, String typeID, String workerID) {
+        UpdateIndex index = getIndex(new SessionTypeWorkerId(sessionID, typeID, workerID), false);
+        return index == null ? new long[0] : index.times();
+    }
+
+    @Override
+    public List<Persistable> getUpdates(String sessionID, String typeID, String workerID, long[] timestamps) {
+        UpdateIndex index = getIndex(new SessionTypeWorkerId(sessionID, typeID, workerID), false);
+        if (index == null) {
+            return Collections.emptyList();
+        }
+        List<Persistable> ret = new ArrayList<>(timestamps.length);
+        for (long l : timestamps) {
+            Persistable p = index.get(l);
+            if (p != null) {
+                ret.add(p);
+            }
+        }
+        return ret;
+    }
+
+    // ----- Scalar series -----
+
+    /**
+     * @return Names of the scalar series recorded for the given session, type and worker IDs, in sorted order
+     */
+    public List<String> listScalarSeries(String sessionID, String typeID, String workerID) {
+        Map<String, RollupSeries> m = series.get(new SessionTypeWorkerId(sessionID, typeID, workerID));
+        if (m == null) {
+            return Collections.emptyList();
+        }
+        List<String> out = new ArrayList<>(m.keySet());
+        Collections.sort(out);
+        return out;
+    }
+
+    /**
+     * Get the values of a scalar series within a time range, at the finest resolution that covers the start of the
+     * range with at most {@code maxPoints} values. If even the coarsest resolution (mean of every 100 values) has
+     * more than {@code maxPoints} values in the range, it is subsampled.<br>
+     * Note that the rolled up resolutions don't include the most recent values, until 10 (or 100) values are
+     * available for the next mean.
+     *
+     * @param sessionID  Session ID
+     * @param typeID     Type ID
+     * @param workerID   Worker ID
+     * @param seriesName Series name: {@link #SCORE_SERIES}, or one of the names from
+     *                   {@link #listScalarSeries(String, String, String)}
+     * @param fromTime   Start of the time range (inclusive)
+     * @param toTime     End of the time range (inclusive)
+     * @param maxPoints  Maximum number of values to return. 0 or negative: no limit
+     * @return The series values, or null if no such series exists
+     */
+    public ScalarSeries getScalarSeries(String sessionID, String typeID, String workerID, String seriesName,
+                    long fromTime, long toTime, int maxPoints) {
+        Map<String, RollupSeries> m = series.get(new SessionTypeWorkerId(sessionID, typeID, workerID));
+        RollupSeries s = (m == null ? null : m.get(seriesName));
+        if (s == null) {
+            return null;
+        }
+        return s.query(fromTime, toTime, maxPoints <= 0 ? Integer.MAX_VALUE : maxPoints);
+    }
+
+    private void recordScalars(SessionTypeWorkerId id, StatsReport report) {
+        long time = report.getTimeStamp();
+        if (report.hasScore()) {
+            recordScalar(id, SCORE_SERIES, time, report.getScore());
+        }
+        if (report.hasLearningRates()) {
+            recordScalars(id, LEARNING_RATE_SERIES_PREFIX, time, report.getLearningRates());
+        }
+        for (StatsType statsType : StatsType.values()) {
+            if (report.hasSummaryStats(statsType, SummaryType.MeanMagnitudes)) {
+                recordScalars(id, MEAN_MAGNITUDE_SERIES_PREFIX + statsType + "/", time,
+                                report.getMeanMagnitudes(statsType));
+            }
+        }
+    }
+
+    private void recordScalars(SessionTypeWorkerId id, String prefix, long time, Map<String, Double> values) {
+        if (values == null) {
+            return;
+        }
+        for (Map.Entry<String, Double> e : values.entrySet()) {
+            if (e.getValue() != null) {
+                recordScalar(id, prefix + e.getKey(), time, e.getValue());
+            }
+        }
+    }
+
+    private void recordScalar(SessionTypeWorkerId id, String name, long time, double value) {
+        Map<String, RollupSeries> m = series.get(id);
+        RollupSeries s = (m == null ? null : m.get(name));
+        if (s == null) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(baos)) {
+                out.writeInt(seriesById.size());
+                out.writeInt(keyIndex(id));
+                out.writeUTF(name);
+            } catch (IOException e) {
+                throw new RuntimeException(e); //Should never happen
+            }
+            append(RECORD_SERIES, baos.toByteArray());
+            s = registerSeries(id, name);
+        }
+        s.add(time, value);
+        s.pending.add(time, value);
+        if (s.pending.size() >= chunkSize) {
+            writeChunk(s);
+        }
+    }
+
+    private RollupSeries registerSeries(SessionTypeWorkerId id, String name) {
+        RollupSeries s = new RollupSeries(seriesById.size(), name, rawRetention);
+        seriesById.add(s);
+        Map<String, RollupSeries> m = series.get(id);
+        if (m == null) {
+            m = new ConcurrentHashMap<>();
+            series.put(id, m);
+        }
+        m.put(name, s);
+        return s;
+    }
+
+    //Write the buffered values of the series as one columnar chunk: all timestamps, then all values
+    private void writeChunk(RollupSeries s) {
+        int n = s.pending.size();
+        if (n == 0) {
+            return;
+        }
+        ByteBuffer bb = ByteBuffer.allocate(8 + 16 * n);
+        bb.putInt(s.id).putInt(n);
+        for (int i = 0; i < n; i++) {
+            bb.putLong(s.pending.time(i));
+        }
+        for (int i = 0; i < n; i++) {
+            bb.putDouble(s.pending.doubleValue(i));
+        }
+        append(RECORD_SERIES_CHUNK, bb.array());
+        while (!s.pending.isEmpty()) {
+            s.pending.removeFirst();
+        }
+    }
+
+    // ----- Records -----
+
+    private Persistable withoutHistograms(StatsReport report) {
+        boolean any = false;
+        for (StatsType statsType : StatsType.values()) {
+            any |= report.hasHistograms(statsType);
+        }
+        if (!any) {
+            return report;
+        }
+        //Don't modify the original report: it may also be used elsewhere (other routers, or the latest update)
+        StatsReport copy = DL4JClassLoading.createNewInstance(report.getClass().getName());
+        copy.decode(report.encode());
+        for (StatsType statsType : StatsType.values()) {
+            if (copy.hasHistograms(statsType)) {
+                copy.reportHistograms(statsType, null);
+            }
+        }
+        return copy;
+    }
+
+    private long appendPersistable(byte recordType, SessionTypeWorkerId id, Persistable p, boolean withTimestamp) {
+        int keyIdx = keyIndex(id);
+        int classIdx = getIntForClass(p.getClass());
+        byte[] bytes = p.encode();
+        ByteBuffer bb = ByteBuffer.allocate(8 + (withTimestamp ? 8 : 0) + bytes.length);
+        bb.putInt(keyIdx);
+        if (withTimestamp) {
+            bb.putLong(p.getTimeStamp());
+        }
+        bb.putInt(classIdx).put(bytes);
+        return append(recordType, bb.array());
+    }
+
+    private long append(byte recordType, byte[] payload) {
+        if (isClosed) {
+            throw new IllegalStateException("Cannot store data: TimeSeriesStatsStorage has been closed");
+        }
+        ByteBuffer bb = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        bb.put(recordType).putInt(payload.length).put(payload);
+        bb.flip();
+        long recordPos = writePosition;
+        long pos = recordPos;
+        try {
+            while (bb.hasRemaining()) {
+                pos += channel.write(bb, pos);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing to TimeSeriesStatsStorage file " + file, e);
+        }
+        writePosition = pos;
+        return recordPos;
+    }
+
+    private Persistable read(long recordPos) {
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(header, recordPos);
+            byte recordType = header.get();
+            ByteBuffer payload = ByteBuffer.allocate(header.getInt());
+            readFully(payload, recordPos + HEADER_BYTES);
+            payload.getInt();
+            if (recordType == RECORD_UPDATE) {
+                payload.getLong();
+            }
+            int classIdx = payload.getInt();
+            byte[] bytes = new byte[payload.remaining()];
+            payload.get(bytes);
+            return decode(classIdx, bytes);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading from TimeSeriesStatsStorage file " + file, e);
+        }
+    }
+
+    private void readFully(ByteBuffer bb, long pos) throws IOException {
+        while (bb.hasRemaining()) {
+            int n = channel.read(bb, pos + bb.position());
+            if (n < 0) {
+                throw new EOFException("Unexpected end of file reading " + file);
+            }
+        }
+        bb.flip();
+    }
+
+    private Persistable decode(int classIdx, byte[] bytes) {
+        String className = integerToClass.get(classIdx);
+        if (className == null)
+            throw new RuntimeException("Unknown class index: " + classIdx); //Should never happen
+        Persistable persistable = DL4JClassLoading.createNewInstance(className);
+        persistable.decode(bytes);
+        return persistable;
+    }
+
+    private int getIntForClass(Class<?> c) {
+        String str = c.getName();
+        Integer idx = classToInteger.get(str);
+        if (idx != null) {
+            return idx;
+        }
+        idx = classToInteger.size();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeInt(idx);
+            out.writeUTF(str);
+        } catch (IOException e) {
+            throw new RuntimeException(e); //Should never happen
+        }
+        append(RECORD_CLASS, baos.toByteArray());
+        classToInteger.put(str, idx);
+        integerToClass.put(idx, str);
+        return idx;
+    }
+
+    private int keyIndex(SessionTypeWorkerId id) {
+        Integer idx = keyToInteger.get(id);
+        if (idx != null) {
+            return idx;
+        }
+        idx = integerToKey.size();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeInt(idx);
+            out.writeUTF(id.getSessionID());
+            out.writeUTF(id.getTypeID());
+            out.writeUTF(id.getWorkerID());
+        } catch (IOException e) {
+            throw new RuntimeException(e); //Should never happen
+        }
+        append(RECORD_KEY, baos.toByteArray());
+        keyToInteger.put(id, idx);
+        integerToKey.add(id);
+        return idx;
+    }
+
+    @Override
+    public String toString() {
+        return "TimeSeriesStatsStorage(" + file.getPath() + ")";
+    }
+
+    @Data
+    public static class Builder {
+
+        private File file;
+        private int rawRetention = 1000;
+        private int histogramFrequency = 10;
+        private int chunkSize = 128;
+
+        public Builder() {
+            this(null);
+        }
+
+        public Builder(File file) {
+            this.file = file;
+        }
+
+        public Builder file(File file) {
+            this.file = file;
+            return this;
+        }
+
+        /**
+         * @param rawRetention Number of most recent updates (and scalar values) per worker to keep at full
+         *                     resolution. Also the number of 10x rolled up values to keep. Must be at least 100.
+         *                     Default: 1000
+         */
+        public Builder rawRetention(int rawRetention) {
+            this.rawRetention = rawRetention;
+            return this;
+        }
+
+        /**
+         * @param histogramFrequency Store histograms with only every N-th update per worker. 1: store all
+         *                           histograms. Default: 10
+         */
+        public Builder histogramFrequency(int histogramFrequency) {
+            this.histogramFrequency = histogramFrequency;
+            return this;
+        }
+
+        /**
+         * @param chunkSize Number of values per scalar series to buffer before appending them to the file as one
+         *                  chunk. Buffered values are written on {@link TimeSeriesStatsStorage#close()}. Default: 128
+         */
+        public Builder chunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        public TimeSeriesStatsStorage build() {
+            return new TimeSeriesStatsStorage(this);
+        }
+    }
+
+    /**
+     * Index of the updates for one session/type/worker. Tier 0 holds the most recent updates; each time an update is
+     * evicted from tier 0 (or 1), every 10th one is moved to the next tier. Viewed as a map (used by
+     * {@link BaseCollectionStatsStorage}), entries are decoded from the file only when their value is accessed.
+     */
+    private class UpdateIndex extends AbstractMap<Long, Persistable> {
+        private final TimeColumns[] tiers = new TimeColumns[LEVELS];
+        private final long[] evicted = new long[LEVELS];
+        private long count;
+        //Most recent update, as provided (i.e., including histograms). Null after re-opening
+        private Persistable latest;
+
+        private UpdateIndex() {
+            for (int i = 0; i < LEVELS; i++) {
+                tiers[i] = new TimeColumns();
+            }
+        }
+
+        synchronized long getCount() {
+            return count;
+        }
+
+        synchronized void add(long time, long recordPos, Persistable update) {
+            count++;
+            if (update != null && (latest == null || time >= latest.getTimeStamp())) {
+                latest = update;
+            }
+            TimeColumns raw = tiers[0];
+            int idx = raw.indexOf(time);
+            if (idx >= 0) {
+                //Same timestamp as an existing update: replace it
+                raw.setValue(idx, recordPos);
+                return;
+            }
+            raw.add(time, recordPos);
+            for (int i = 0; i < LEVELS - 1; i++) {
+                TimeColumns c = tiers[i];
+                while (c.size() > rawRetention) {
+                    long t = c.time(0);
+                    long v = c.value(0);
+                    c.removeFirst();
+                    if (evicted[i]++ % ROLLUP_FACTOR == 0) {
+                        tiers[i + 1].add(t, v);
+                    }
+                }
+            }
+        }
+
+        private synchronized long find(long time) {
+            for (TimeColumns c : tiers) {
+                int idx = c.indexOf(time);
+                if (idx >= 0) {
+                    return c.value(idx);
+                }
+            }
+            return -1;
+        }
+
+        synchronized long[] times() {
+            long[] out = new long[size()];
+            int j = 0;
+            for (int t = LEVELS - 1; t >= 0; t--) {
+                for (int i = 0; i < tiers[t].size(); i++) {
+                    out[j++] = tiers[t].time(i);
+                }
+            }
+            return out;
+        }
+
+        Persistable latest() {
+            long latestPos;
+            synchronized (this) {
+                if (latest != null) {
+                    return latest;
+                }
+                if (tiers[0].isEmpty()) {
+                    return null;
+                }
+                latestPos = tiers[0].value(tiers[0].size() - 1);
+            }
+            return read(latestPos);
+        }
+
+        List<Persistable> getAfter(long time) {
+            long[] positions;
+            Persistable l;
+            synchronized (this) {
+                int n = 0;
+                for (TimeColumns c : tiers) {
+                    n += c.size() - c.upperBound(time);
+                }
+                positions = new long[n];
+                int j = 0;
+                for (int t = LEVELS - 1; t >= 0; t--) {
+                    TimeColumns c = tiers[t];
+                    for (int i = c.upperBound(time); i < c.size(); i++) {
+                        positions[j++] = c.value(i);
+                    }
+                }
+                l = latest;
+            }
+            List<Persistable> out = new ArrayList<>(positions.length);
+            for (int i = 0; i < positions.length; i++) {
+                if (i == positions.length - 1 && l != null) {
+                    out.add(l);
+                } else {
+                    out.add(read(positions[i]));
+                }
+            }
+            return out;
+        }
+
+        @Override
+        public synchronized int size() {
+            int size = 0;
+            for (TimeColumns c : tiers) {
+                size += c.size();
+            }
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Long && find((Long) key) >= 0;
+        }
+
+        @Override
+        public Persistable get(Object key) {
+            if (!(key instanceof Long)) {
+                return null;
+            }
+            long time = (Long) key;
+            Persistable l;
+            synchronized (this) {
+                l = latest;
+            }
+            if (l != null && l.getTimeStamp() == time) {
+                return l;
+            }
+            long pos = find(time);
+            return pos < 0 ? null : read(pos);
+        }
+
+        @Override
+        public Set<Entry<Long, Persistable>> entrySet() {
+            final long[] times;
+            final long[] positions;
+            synchronized (this) {
+                times = times();
+                positions = new long[times.length];
+                int j = 0;
+                for (int t = LEVELS - 1; t >= 0; t--) {
+                    for (int i = 0; i < tiers[t].size(); i++) {
+                        positions[j++] = tiers[t].value(i);
+                    }
+                }
+            }
+            return new AbstractSet<Entry<Long, Persistable>>() {
+                @Override
+                public Iterator<Entry<Long, Persistable>> iterator() {
+                    return new Iterator<Entry<Long, Persistable>>() {
+                        private int i = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return i < times.length;
+                        }
+
+                        @Override
+                        public Entry<Long, Persistable> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            final int idx = i++;
+                            return new Entry<Long, Persistable>() {
+                                @Override
+                                public Long getKey() {
+                                    return times[idx];
+                                }
+
+                                @Override
+                                public Persistable getValue() {
+                                    return read(positions[idx]);
+                                }
+
+                                @Override
+                                public Persistable setValue(Persistable value) {
+                                    throw new UnsupportedOperationException("Read-only view");
+                                }
+                            };
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return times.length;
+                }
+            };
+        }
+    }
+
+    /**
+     * One scalar series, held in memory at 3 resolutions: raw values, mean of 10 and mean of 100. The two finest
+     * levels are bounded to the most recent {@code retention} values.
+     */
+    private static class RollupSeries {
+        private final int id;
+        private final String name;
+        private final int retention;
+        private final TimeColumns[] levels = new TimeColumns[LEVELS];
+        private final boolean[] truncated = new boolean[LEVELS];
+        private final double[] bucketSum = new double[LEVELS];
+        private final int[] bucketCount = new int[LEVELS];
+        //Values not yet written to the file
+        private final TimeColumns pending = new TimeColumns();
+
+        private RollupSeries(int id, String name, int retention) {
+            this.id = id;
+            this.name = name;
+            this.retention = retention;
+            for (int i = 0; i < LEVELS; i++) {
+                levels[i] = new TimeColumns();
+            }
+        }
+
+        synchronized void add(long time, double value) {
+            add(0, time, value);
+        }
+
+        private void add(int level, long time, double value) {
+            TimeColumns c = levels[level];
+            c.add(time, value);
+            if (level == LEVELS - 1) {
+                return;
+            }
+            if (c.size() > retention) {
+                c.removeFirst();
+                truncated[level] = true;
+            }
+            bucketSum[level] += value;
+            if (++bucketCount[level] == ROLLUP_FACTOR) {
+                double mean = bucketSum[level] / ROLLUP_FACTOR;
+                bucketSum[level] = 0.0;
+                bucketCount[level] = 0;
+                add(level + 1, time, mean);
+            }
+        }
+
+        synchronized ScalarSeries query(long fromTime, long toTime, int maxPoints) {
+            int resolution = 1;
+            for (int level = 0; level < LEVELS; level++, resolution *= ROLLUP_FACTOR) {
+                TimeColumns c = levels[level];
+                boolean coversStart = !truncated[level] || (!c.isEmpty() && c.firstTime() <= fromTime);
+                int first = c.lowerBound(fromTime);
+                int n = Math.max(0, c.upperBound(toTime) - first);
+                if (level < LEVELS - 1 && (!coversStart || n > maxPoints)) {
+                    continue;
+                }
+                int stride = (n <= maxPoints ? 1 : (n + maxPoints - 1) / maxPoints);
+                int count = (n + stride - 1) / stride;
+                long[] times = new long[count];
+                double[] values = new double[count];
+                for (int i = 0; i < count; i++) {
+                    times[i] = c.time(first + i * stride);
+                    values[i] = c.doubleValue(first + i * stride);
+                }
+                return new ScalarSeries(name, resolution, times, values);
+            }
+            throw new IllegalStateException("No resolution level selected"); //Should never happen
+        }
+    }
+}
@@ -44,6 +44,8 @@ import org.nd4j.autodiff.samediff.config.*;
 import org.nd4j.autodiff.samediff.internal.*;
 import org.nd4j.autodiff.samediff.ops.*;
 import org.nd4j.autodiff.samediff.serde.FlatBuffersMapper;
+import org.nd4j.autodiff.samediff.state.CachedState;
+import org.nd4j.autodiff.samediff.state.SequenceSession;
 import org.nd4j.common.base.Preconditions;
 import org.nd4j.common.primitives.AtomicBoolean;
 import org.nd4j.common.primitives.Pair;
@@ -125,6 +127,9 @@ public class SameDiff extends SDBaseOps {
     @Setter
     private Map<String,INDArray[]> sequences = new ConcurrentHashMap<>(); //sequence items
 
+    @Getter
+    private final Map<String, CachedState> cachedStates = new LinkedHashMap<>();     //Key: placeholder name
+
     @Getter
     @Setter
     private ArrayHolder constantArrays = new ThreadSafeArrayHolder(true);
@@ -3078,6 +3083,45 @@ public class SameDiff extends SDBaseOps {
         return ret;
     }
 
+    /**
+     * See {@link #cachedState(String, String, int, CachedState.UpdateMode)} with {@link CachedState.UpdateMode#NEW_ENTRIES}
+     */
+    public CachedState cachedState(@NonNull String placeholder, @NonNull String update, int axis) {
+        return cachedState(placeholder, update, axis, CachedState.UpdateMode.NEW_ENTRIES);
+    }
+
+    /**
+     * Mark a placeholder as cached state, that persists across the steps of a {@link SequenceSession}.<br>
+     * For example, for a decoder-style transformer: the placeholders for the past keys and values of each attention
+     * layer, with the (new or full) keys and values computed by each layer as the updates.<br>
+     * Note that cached states are not currently serialized with the graph.
+     *
+     * @param placeholder Name of the placeholder that is fed with the accumulated state on each step
+     * @param update      Name of the variable used to update the state on each step
+     * @param axis        Axis along which the state grows
+     * @param mode        Whether the update contains only the new entries, or the full new state
+     * @return The cached state
+     */
+    public CachedState cachedState(@NonNull String placeholder, @NonNull String update, int axis,
+                                   @NonNull CachedState.UpdateMode mode) {
+        Preconditions.checkState(variables.containsKey(placeholder) && getVariable(placeholder).isPlaceHolder(),
+                "Cached state \"%s\" must be an existing placeholder", placeholder);
+        Preconditions.checkState(variables.containsKey(update), "No variable with name \"%s\" exists", update);
+        CachedState cs = new CachedState(placeholder, update, axis, mode);
+        cachedStates.put(placeholder, cs);
+        return cs;
+    }
+
+    /**
+     * Create a new session for autoregressive decoding with the cached states of this graph.
+     * See {@link SequenceSession} and {@link #cachedState(String, String, int, CachedState.UpdateMode)}
+     *
+     * @return A new session, for a single sequence
+     */
+    public SequenceSession createSequenceSession() {
+        return new SequenceSession(this);
+    }
+
     /**
      * Variable initialization with a specified {@link WeightInitScheme}
      * This method creates VARIABLE type SDVariable - i.e., must be floating point, and is a trainable parameter. See {@link VariableType} for more details.
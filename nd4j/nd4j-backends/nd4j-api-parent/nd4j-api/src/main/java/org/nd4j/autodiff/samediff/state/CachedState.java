@@ -0,0 +1,60 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff.state;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Declares a placeholder of a SameDiff graph as cached state that persists across {@link SequenceSession#step} calls,
+ * such as the attention keys or values of one layer of an autoregressive (decoder) transformer.<br>
+ * On each step, the placeholder is fed with all state accumulated so far, and the graph variable {@link #getUpdate()}
+ * is used to extend the state along {@link #getAxis()}.<br>
+ * See {@link org.nd4j.autodiff.samediff.SameDiff#cachedState(String, String, int, UpdateMode)}
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CachedState {
+
+    public enum UpdateMode {
+        /**
+         * The update variable contains only the new entries (for example, the keys for the new tokens only), which are
+         * appended to the state
+         */
+        NEW_ENTRIES,
+        /**
+         * The update variable contains the full new state (for example, "present" outputs computed as the
+         * concatenation of the "past" input and the new keys). Only the entries beyond the current state length are
+         * appended, so the state is not copied on every step
+         */
+        FULL_STATE
+    }
+
+    /** Name of the placeholder the accumulated state is fed to */
+    private String placeholder;
+    /** Name of the variable that is used to update the state */
+    private String update;
+    /** Axis (dimension) along which the state grows - usually the sequence axis */
+    private int axis;
+    private UpdateMode mode = UpdateMode.NEW_ENTRIES;
+}
@@ -0,0 +1,183 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff.state;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.INDArrayIndex;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+/**
+ * A pre-allocated buffer that grows along one axis, used to hold cached state (such as attention keys/values) for
+ * a {@link SequenceSession}.<br>
+ * Appending writes into the pre-allocated array, so appending N entries costs O(N) rather than copying all previous
+ * entries. When the capacity is exceeded, the capacity is doubled (amortized O(1) per entry).<br>
+ * Arrays returned by {@link #get()} and {@link #slice(long, long)} are views of the buffer: they are only valid until
+ * the next call that modifies the buffer.
+ */
+public class GrowableStateBuffer {
+
+    @Getter
+    private final DataType dataType;
+    @Getter
+    private final int axis;
+    private final long[] shape;
+    private INDArray buffer;
+    @Getter
+    private long length;
+
+    /**
+     * @param dataType        Data type of the state
+     * @param shape           Shape of the state. The size along the axis is ignored
+     * @param axis            Axis along which the state grows
+     * @param initialCapacity Initial capacity (size along the axis) to pre-allocate
+     */
+    public GrowableStateBuffer(@NonNull DataType dataType, @NonNull long[] shape, int axis, long initialCapacity) {
+        Preconditions.checkArgument(axis >= 0 && axis < shape.length, "Invalid axis %s for state of rank %s",
+                axis, shape.length);
+        Preconditions.checkArgument(initialCapacity > 0, "Initial capacity must be positive, got %s", initialCapacity);
+        for (int i = 0; i < shape.length; i++) {
+            Preconditions.checkArgument(i == axis || shape[i] > 0, "State shape must be fully defined (except for " +
+                    "the axis %s), got %s", axis, shape);
+        }
+
+        this.dataType = dataType;
+        this.axis = axis;
+        this.shape = shape.clone();
+        this.buffer = allocate(initialCapacity);
+    }
+
+    /**
+     * @return The number of entries (the size along the axis) that can be held without reallocation
+     */
+    public long capacity() {
+        return buffer.size(axis);
+    }
+
+    /**
+     * @return The shape of the current state
+     */
+    public long[] shape() {
+        long[] out = shape.clone();
+        out[axis] = length;
+        return out;
+    }
+
+    /**
+     * Append entries to the state
+     *
+     * @param values Values to append. Must have the same shape as the state, except along the axis
+     */
+    public void append(@NonNull INDArray values) {
+        Preconditions.checkArgument(values.rank() == shape.length, "Expected values of rank %s, got array with " +
+                "shape %ndShape", shape.length, values);
+        for (int i = 0; i < shape.length; i++) {
+            Preconditions.checkArgument(i == axis || values.size(i) == shape[i], "Expected values with shape %s " +
+                    "(except for axis %s), got array with shape %ndShape", shape(), axis, values);
+        }
+
+        long n = values.size(axis);
+        if (n == 0)
+            return;
+
+        ensureCapacity(length + n);
+        view(length, length + n).assign(values);
+        length += n;
+    }
+
+    /**
+     * @return View of the current state
+     */
+    public INDArray get() {
+        return slice(0, length);
+    }
+
+    /**
+     * @param from First entry (inclusive)
+     * @param to   Last entry (exclusive)
+     * @return View of the entries [from, to) of the state
+     */
+    public INDArray slice(long from, long to) {
+        Preconditions.checkArgument(from >= 0 && from <= to && to <= length, "Invalid range [%s, %s) for state " +
+                "of length %s", from, to, length);
+        if (from == to) {
+            long[] s = shape.clone();
+            s[axis] = 0;
+            return Nd4j.create(dataType, s);
+        }
+        return view(from, to);
+    }
+
+    /**
+     * Discard all entries after the first {@code newLength} entries. The capacity is not changed.
+     *
+     * @param newLength New length of the state
+     */
+    public void truncate(long newLength) {
+        Preconditions.checkArgument(newLength >= 0 && newLength <= length, "Invalid length %s for state of length %s",
+                newLength, length);
+        length = newLength;
+    }
+
+    /**
+     * Discard all entries. The capacity is not changed.
+     */
+    public void reset() {
+        length = 0;
+    }
+
+    protected void ensureCapacity(long required) {
+        long capacity = capacity();
+        if (required <= capacity)
+            return;
+
+        INDArray newBuffer = allocate(Math.max(2 * capacity, required));
+        if (length > 0)
+            newBuffer.get(indices(0, length)).assign(view(0, length));
+        buffer = newBuffer;
+    }
+
+    protected INDArray allocate(long capacity) {
+        long[] s = shape.clone();
+        s[axis] = capacity;
+        //State persists across calls, so it must never be allocated in a workspace
+        try (MemoryWorkspace ws = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
+            return Nd4j.createUninitializedDetached(dataType, s);
+        }
+    }
+
+    protected INDArray view(long from, long to) {
+        return buffer.get(indices(from, to));
+    }
+
+    protected INDArrayIndex[] indices(long from, long to) {
+        INDArrayIndex[] indices = new INDArrayIndex[shape.length];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i == axis ? NDArrayIndex.interval(from, to) : NDArrayIndex.all();
+        }
+        return indices;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff.state;
+
+import lombok.NonNull;
+import org.nd4j.autodiff.samediff.SDVariable;
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.indexing.INDArrayIndex;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.*;
+
+/**
+ * Inference session for a single sequence, for autoregressive decoding with cached state (for example, a KV-cache
+ * for a decoder-style transformer).<br>
+ * The {@link CachedState}s declared on the SameDiff instance are held in pre-allocated {@link GrowableStateBuffer}s
+ * that persist across {@link #step(Map, String...)} calls. On each step, the accumulated state is fed to the state
+ * placeholders, and the state is extended with the state updates computed by the graph - so each step only needs to
+ * compute the new tokens, rather than recomputing the whole prefix.<br>
+ * Sessions are cheap to create: use one session per sequence. A session is not thread safe, but multiple sessions may
+ * be used concurrently with the same SameDiff instance.
+ */
+public class SequenceSession {
+
+    private final SameDiff sameDiff;
+    private final Map<String, CachedState> cachedStates;
+    private final Map<String, GrowableStateBuffer> states = new LinkedHashMap<>();
+
+    /**
+     * Create a session with the default initial capacity of 64 entries per state, using the declared shapes of the
+     * state placeholders
+     *
+     * @param sameDiff SameDiff instance with cached states
+     */
+    public SequenceSession(@NonNull SameDiff sameDiff) {
+        this(sameDiff, 64, null);
+    }
+
+    /**
+     * @param sameDiff        SameDiff instance with cached states
+     * @param initialCapacity Initial capacity (size along the state axis) to pre-allocate for each state
+     * @param stateShapes     Shapes of the states, by placeholder name. The size along the state axis is ignored.
+     *                        May be null, or not contain all states: the declared placeholder shape is used for the
+     *                        other states, and must be fully defined except for the state axis
+     */
+    public SequenceSession(@NonNull SameDiff sameDiff, long initialCapacity, Map<String, long[]> stateShapes) {
+        Preconditions.checkState(!sameDiff.getCachedStates().isEmpty(), "No cached states have been defined for this " +
+                "SameDiff instance: use SameDiff.cachedState(...) to define them");
+        this.sameDiff = sameDiff;
+        this.cachedStates = new LinkedHashMap<>(sameDiff.getCachedStates());
+
+        for (CachedState cs : cachedStates.values()) {
+            SDVariable ph = sameDiff.getVariable(cs.getPlaceholder());
+            long[] shape = stateShapes == null ? null : stateShapes.get(cs.getPlaceholder());
+            if (shape == null)
+                shape = ph.getShape();
+            Preconditions.checkState(shape != null, "No shape available for state placeholder \"%s\": the shape " +
+                    "must be provided when creating the session", cs.getPlaceholder());
+            states.put(cs.getPlaceholder(),
+                    new GrowableStateBuffer(ph.dataType(), shape, cs.getAxis(), initialCapacity));
+        }
+    }
+
+    /**
+     * Run one step: execute the graph with the specified placeholders plus the accumulated state, and extend the
+     * state with the state updates.
+     *
+     * @param placeholders Placeholder values, excluding the state placeholders
+     * @param outputs      Names of the variables to return
+     * @return The values of the requested outputs
+     */
+    public Map<String, INDArray> step(@NonNull Map<String, INDArray> placeholders, @NonNull String... outputs) {
+        Map<String, INDArray> phs = new HashMap<>(placeholders);
+        for (Map.Entry<String, GrowableStateBuffer> e : states.entrySet()) {
+            Preconditions.checkArgument(!placeholders.containsKey(e.getKey()), "Placeholder \"%s\" is cached state " +
+                    "and is provided by the session", e.getKey());
+            phs.put(e.getKey(), e.getValue().get());
+        }
+
+        Set<String> allOutputs = new LinkedHashSet<>(Arrays.asList(outputs));
+        for (CachedState cs : cachedStates.values())
+            allOutputs.add(cs.getUpdate());
+
+        Map<String, INDArray> out = sameDiff.output(phs, new ArrayList<>(allOutputs));
+
+        for (CachedState cs : cachedStates.values()) {
+            GrowableStateBuffer state = states.get(cs.getPlaceholder());
+            INDArray update = out.get(cs.getUpdate());
+            if (cs.getMode() == CachedState.UpdateMode.FULL_STATE) {
+                update = newEntries(update, state.getLength(), cs.getAxis());
+            }
+            if (update != null)
+                state.append(update);
+        }
+
+        Map<String, INDArray> ret = new LinkedHashMap<>();
+        for (String s : outputs)
+            ret.put(s, out.get(s));
+        return ret;
+    }
+
+    /**
+     * Run one step and return a single output. See {@link #step(Map, String...)}
+     */
+    public INDArray stepSingle(@NonNull Map<String, INDArray> placeholders, @NonNull String output) {
+        return step(placeholders, output).get(output);
+    }
+
+    /**
+     * @return The number of cached entries (for example, tokens) - i.e., the length of the first state
+     */
+    public long getLength() {
+        return states.values().iterator().next().getLength();
+    }
+
+    /**
+     * @param placeholder Name of the state placeholder
+     * @return The state buffer for the specified state
+     */
+    public GrowableStateBuffer getState(@NonNull String placeholder) {
+        GrowableStateBuffer state = states.get(placeholder);
+        Preconditions.checkArgument(state != null, "No cached state for placeholder \"%s\"", placeholder);
+        return state;
+    }
+
+    /**
+     * @return All state buffers, by placeholder name
+     */
+    public Map<String, GrowableStateBuffer> getStates() {
+        return Collections.unmodifiableMap(states);
+    }
+
+    /**
+     * Discard all but the first {@code length} entries of all states - for example, to roll back rejected tokens
+     *
+     * @param length New length of all states
+     */
+    public void truncate(long length) {
+        for (GrowableStateBuffer state : states.values())
+            state.truncate(length);
+    }
+
+    /**
+     * Discard all state, so that the session can be reused for a new sequence. Pre-allocated memory is retained.
+     */
+    public void reset() {
+        for (GrowableStateBuffer state : states.values())
+            state.reset();
+    }
+
+    /**
+     * @return The entries of a full state update beyond the current length, or null if there are none
+     */
+    protected static INDArray newEntries(INDArray fullState, long currentLength, int axis) {
+        long size = fullState.size(axis);
+        Preconditions.checkState(size >= currentLength, "Full state update has length %s along axis %s, which is " +
+                "less than the current state length %s", size, axis, currentLength);
+        if (size == currentLength)
+            return null;
+        INDArrayIndex[] indices = new INDArrayIndex[fullState.rank()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i == axis ? NDArrayIndex.interval(currentLength, size) : NDArrayIndex.all();
+        }
+        return fullState.get(indices);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.evaluation;
+
+import lombok.NonNull;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe evaluation accumulator, that allows multiple threads (for example, the callers of ParallelInference)
+ * to feed one evaluation concurrently.<br>
+ * Internally, the evaluation is split into a number of stripes - independent evaluation instances, each with its own
+ * lock. Each call to eval uses a stripe that is not currently in use by another thread (starting at a stripe
+ * determined by the calling thread), so that concurrent calls do not block each other as long as there are at least
+ * as many stripes as concurrent threads. The stripes are merged only when the result is requested, via
+ * {@link #getResult()}.<br>
+ * Example usage:
+ * <pre>
+ * {@code
+ * ConcurrentEvaluation<Evaluation> eval = new ConcurrentEvaluation<>(new Evaluation(nClasses));
+ * //From any number of threads:
+ * eval.eval(labels, parallelInference.output(features));
+ * //Once all threads are done:
+ * Evaluation result = eval.getResult();
+ * }
+ * </pre>
+ *
+ * @param <T> Type of evaluation
+ */
+public class ConcurrentEvaluation<T extends IEvaluation<T>> {
+
+    private final T prototype;
+    private final T[] stripes;
+    private final ReentrantLock[] locks;
+
+    /**
+     * Create a concurrent evaluation with one stripe per available processor
+     *
+     * @param evaluation Evaluation to accumulate into. Used as the first stripe, and as the template (via
+     *                   {@link IEvaluation#newInstance()}) for the other stripes
+     */
+    public ConcurrentEvaluation(@NonNull T evaluation) {
+        this(evaluation, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param evaluation Evaluation to accumulate into. Used as the first stripe, and as the template (via
+     *                   {@link IEvaluation#newInstance()}) for the other stripes
+     * @param numStripes Number of stripes. Should usually be at least the number of threads calling eval concurrently
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentEvaluation(@NonNull T evaluation, int numStripes) {
+        Preconditions.checkArgument(numStripes > 0, "Number of stripes must be positive, got %s", numStripes);
+        this.prototype = evaluation.newInstance();
+        this.stripes = (T[]) new IEvaluation[numStripes];
+        this.locks = new ReentrantLock[numStripes];
+        stripes[0] = evaluation;
+        for (int i = 0; i < numStripes; i++) {
+            if (i > 0)
+                stripes[i] = evaluation.newInstance();
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @return Number of stripes
+     */
+    public int numStripes() {
+        return stripes.length;
+    }
+
+    /**
+     * See {@link IEvaluation#eval(INDArray, INDArray)}. Safe to call from multiple threads concurrently
+     */
+    public void eval(INDArray labels, INDArray networkPredictions) {
+        eval(labels, networkPredictions, null, null);
+    }
+
+    /**
+     * See {@link IEvaluation#eval(INDArray, INDArray, INDArray)}. Safe to call from multiple threads concurrently
+     */
+    public void eval(INDArray labels, INDArray networkPredictions, INDArray maskArray) {
+        eval(labels, networkPredictions, maskArray, null);
+    }
+
+    /**
+     * See {@link IEvaluation#eval(INDArray, INDArray, INDArray, List)}. Safe to call from multiple threads concurrently
+     */
+    public void eval(INDArray labels, INDArray networkPredictions, INDArray maskArray,
+                     List<? extends Serializable> recordMetaData) {
+        int stripe = acquire();
+        try {
+            stripes[stripe].eval(labels, networkPredictions, maskArray, recordMetaData);
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    /**
+     * Merge all stripes into a new evaluation instance. Calls to eval that complete before this method is called are
+     * included in the result; calls that are concurrent with this method may or may not be included.
+     *
+     * @return Merged evaluation
+     */
+    public T getResult() {
+        T out = prototype.newInstance();
+        for (int i = 0; i < stripes.length; i++) {
+            locks[i].lock();
+            try {
+                out.merge(stripes[i]);
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Reset all stripes
+     */
+    public void reset() {
+        for (int i = 0; i < stripes.length; i++) {
+            locks[i].lock();
+            try {
+                stripes[i].reset();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * Lock a stripe for the current thread: the first stripe (starting at the thread's own stripe) that is not in use,
+     * or the thread's own stripe (waiting for it to become available) if all stripes are in use
+     */
+    private int acquire() {
+        int n = stripes.length;
+        int start = (int) (Thread.currentThread().getId() % n);
+        for (int i = 0; i < n; i++) {
+            int idx = (start + i) % n;
+            if (locks[idx].tryLock())
+                return idx;
+        }
+        locks[start].lock();
+        return start;
+    }
+}
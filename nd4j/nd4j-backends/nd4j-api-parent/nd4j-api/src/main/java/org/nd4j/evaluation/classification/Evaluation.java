@@ -33,6 +33,7 @@ import org.nd4j.evaluation.serde.ConfusionMatrixDeserializer;
 import org.nd4j.evaluation.serde.ConfusionMatrixSerializer;
 import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.DynamicCustomOp;
 import org.nd4j.linalg.api.ops.impl.reduce.longer.MatchCondition;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.indexing.conditions.Conditions;
@@ -74,6 +75,9 @@ public class Evaluation extends BaseEvaluation<Evaluation> {
 
     protected static final int CONFUSION_PRINT_MAX_CLASSES = 20;
 
+    //Pairs of classes are counted on device (nClasses^2 bins) only if there are at most this many bins per example
+    protected static final int DENSE_COUNTS_MAX_BINS_PER_EXAMPLE = 4;
+
     @EqualsAndHashCode.Exclude      //Exclude axis: otherwise 2 Evaluation instances could contain identical stats and fail equality
     protected int axis = 1;
     protected Integer binaryPositiveClass = 1;  //Used *only* for binary classification; default value here to 1 for legacy JSON loading
@@ -464,53 +468,27 @@ public class Evaluation extends BaseEvaluation<Evaluation> {
             INDArray realOutcomeIndex = Nd4j.argMax(labels2d, 1);
             val nExamples = guessIndex.length();
 
-            for (int i = 0; i < nExamples; i++) {
-                int actual = (int) realOutcomeIndex.getDouble(i);
-                int predicted = (int) guessIndex.getDouble(i);
-                confusion().add(actual, predicted);
+            //Update the confusion matrix and the TP/FP/TN/FN counts once per class, instead of once per example (and
+            // class). With few classes relative to the minibatch size, the (actual, predicted) pairs are counted on
+            // device; otherwise the class indices are copied to the host and counted there
+            int[] actual = null;
+            int[] predicted = null;
+            long nBins = (long) nCols * nCols;
+            if (nBins <= DENSE_COUNTS_MAX_BINS_PER_EXAMPLE * nExamples && nBins <= Integer.MAX_VALUE) {
+                addCounts(confusionCounts(realOutcomeIndex, guessIndex, nCols), nCols, nExamples);
+            } else {
+                actual = realOutcomeIndex.castTo(DataType.INT).toIntVector();
+                predicted = guessIndex.castTo(DataType.INT).toIntVector();
+                addCounts(actual, predicted, nCols);
+            }
 
-                if (recordMetaData != null && recordMetaData.size() > i) {
-                    Object m = recordMetaData.get(i);
-                    addToMetaConfusionMatrix(actual, predicted, m);
+            if (recordMetaData != null) {
+                if (actual == null) {
+                    actual = realOutcomeIndex.castTo(DataType.INT).toIntVector();
+                    predicted = guessIndex.castTo(DataType.INT).toIntVector();
                 }
-
-                // instead of looping through each label for confusion
-                // matrix, instead infer those values by determining if true/false negative/positive,
-                // then just add across matrix
-
-                // if actual == predicted, then it's a true positive, assign true negative to every other label
-                if (actual == predicted) {
-                    truePositives.incrementCount(actual, 1);
-                    for (int col = 0; col < nCols; col++) {
-                        if (col == actual) {
-                            continue;
-                        }
-                        trueNegatives.incrementCount(col, 1); // all cols prior
-                    }
-                } else {
-                    falsePositives.incrementCount(predicted, 1);
-                    falseNegatives.incrementCount(actual, 1);
-
-                    // first determine intervals for adding true negatives
-                    int lesserIndex, greaterIndex;
-                    if (actual < predicted) {
-                        lesserIndex = actual;
-                        greaterIndex = predicted;
-                    } else {
-                        lesserIndex = predicted;
-                        greaterIndex = actual;
-                    }
-
-                    // now loop through intervals
-                    for (int col = 0; col < lesserIndex; col++) {
-                        trueNegatives.incrementCount(col, 1); // all cols prior
-                    }
-                    for (int col = lesserIndex + 1; col < greaterIndex; col++) {
-                        trueNegatives.incrementCount(col, 1); // all cols after
-                    }
-                    for (int col = greaterIndex + 1; col < nCols; col++) {
-                        trueNegatives.incrementCount(col, 1); // all cols after
-                    }
+                for (int i = 0; i < nExamples && i < recordMetaData.size(); i++) {
+                    addToMetaConfusionMatrix(actual[i], predicted[i], recordMetaData.get(i));
                 }
             }
         }
@@ -536,6 +514,98 @@ public class Evaluation extends BaseEvaluation<Evaluation> {
         }
     }
 
+    /**
+     * Count the number of examples for each (actual, predicted) class pair, using a bincount op over the combined
+     * index actual * nClasses + predicted
+     *
+     * @param actual    Actual class indices, shape [nExamples]
+     * @param predicted Predicted class indices, shape [nExamples]
+     * @param nClasses  Number of classes. nClasses * nClasses must not exceed Integer.MAX_VALUE
+     * @return Counts, of length nClasses * nClasses: entry i * nClasses + j is the number of examples of class i
+     * predicted as class j
+     */
+    private static long[] confusionCounts(INDArray actual, INDArray predicted, int nClasses) {
+        int nBins = nClasses * nClasses;
+        //bincount only accepts INT32 indices
+        INDArray combined = actual.castTo(DataType.INT).mul(nClasses).addi(predicted.castTo(DataType.INT));
+        INDArray binCounts = Nd4j.create(DataType.LONG, nBins);
+        DynamicCustomOp op = DynamicCustomOp.builder("bincount")
+                        .addInputs(combined.reshape(combined.length()))
+                        .addIntegerArguments(nBins, nBins, DataType.LONG.toInt())
+                        .addOutputs(binCounts)
+                        .build();
+        Nd4j.getExecutioner().exec(op);
+        return binCounts.data().asLong();
+    }
+
+    /**
+     * Add (actual, predicted) pair counts to the confusion matrix, and the corresponding true/false positive/negative
+     * counts for each class. Gives the same result as calling {@link #eval(int, int)} once for each counted example.
+     *
+     * @param counts    Counts, of length nClasses * nClasses: entry i * nClasses + j is the number of examples of
+     *                  class i predicted as class j
+     * @param nClasses  Number of classes
+     * @param nExamples Total number of examples counted
+     */
+    protected void addCounts(long[] counts, int nClasses, long nExamples) {
+        long[] actualTotal = new long[nClasses];
+        long[] predictedTotal = new long[nClasses];
+        long[] correct = new long[nClasses];
+        for (int i = 0; i < nClasses; i++) {
+            for (int j = 0; j < nClasses; j++) {
+                long count = counts[i * nClasses + j];
+                if (count == 0)
+                    continue;
+                confusion().add(i, j, Math.toIntExact(count));
+                actualTotal[i] += count;
+                predictedTotal[j] += count;
+                if (i == j)
+                    correct[i] += count;
+            }
+        }
+        addClassCounts(actualTotal, predictedTotal, correct, nExamples);
+    }
+
+    /**
+     * Add the specified examples to the confusion matrix, and the corresponding true/false positive/negative counts
+     * for each class. Gives the same result as calling {@link #eval(int, int)} once for each example.
+     *
+     * @param actual    Actual class index for each example
+     * @param predicted Predicted class index for each example
+     * @param nClasses  Number of classes
+     */
+    protected void addCounts(int[] actual, int[] predicted, int nClasses) {
+        long[] actualTotal = new long[nClasses];
+        long[] predictedTotal = new long[nClasses];
+        long[] correct = new long[nClasses];
+        for (int i = 0; i < actual.length; i++) {
+            confusion().add(actual[i], predicted[i]);
+            actualTotal[actual[i]]++;
+            predictedTotal[predicted[i]]++;
+            if (actual[i] == predicted[i])
+                correct[actual[i]]++;
+        }
+        addClassCounts(actualTotal, predictedTotal, correct, actual.length);
+    }
+
+    private void addClassCounts(long[] actualTotal, long[] predictedTotal, long[] correct, long nExamples) {
+        for (int c = 0; c < correct.length; c++) {
+            long tp = correct[c];
+            long fp = predictedTotal[c] - tp;
+            long fn = actualTotal[c] - tp;
+            //True negative: neither actual nor predicted class is c
+            long tn = nExamples - tp - fp - fn;
+            if (tp > 0)
+                truePositives.incrementCount(c, tp);
+            if (fp > 0)
+                falsePositives.incrementCount(c, fp);
+            if (fn > 0)
+                falseNegatives.incrementCount(c, fn);
+            if (tn > 0)
+                trueNegatives.incrementCount(c, tn);
+        }
+    }
+
     /**
      * Evaluate a single prediction (one prediction at a time)
      *
@@ -20,6 +20,8 @@
 
 package org.nd4j.linalg.activations;
 
+import org.nd4j.common.primitives.Pair;
+import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.ndarray.INDArray;
 
 import java.util.Arrays;
@@ -37,4 +39,16 @@ public abstract class BaseActivationFunction implements IActivation {
                     + ", epsilon.shape() = " + Arrays.toString(epsilon.shape()));
         }
     }
+
+    /**
+     * The libnd4j backprop ops for most activation functions (tanh_bp, relu_bp, etc) have no BFLOAT16 kernel.
+     * This executes {@link #backprop(INDArray, INDArray)} on FLOAT copies of the arrays, and casts the gradients back
+     * to the input data type. The input array is not modified.
+     */
+    protected Pair<INDArray, INDArray> backpropAsFloat(INDArray in, INDArray epsilon) {
+        DataType dataType = in.dataType();
+        Pair<INDArray, INDArray> p = backprop(in.castTo(DataType.FLOAT), epsilon.castTo(DataType.FLOAT));
+        INDArray dLdw = p.getSecond() == null ? null : p.getSecond().castTo(dataType);
+        return new Pair<>(p.getFirst().castTo(dataType), dLdw);
+    }
 }
@@ -23,6 +23,7 @@ package org.nd4j.linalg.activations.impl;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import org.nd4j.linalg.activations.BaseActivationFunction;
+import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.api.ops.impl.transforms.gradient.EluBp;
 import org.nd4j.linalg.api.ops.impl.transforms.strict.ELU;
@@ -62,6 +63,9 @@ public class ActivationELU extends BaseActivationFunction {
     @Override
     public Pair<INDArray, INDArray> backprop(INDArray in, INDArray epsilon) {
         assertShape(in, epsilon);
+        if (in.dataType() == DataType.BFLOAT16) {
+            return backpropAsFloat(in, epsilon);
+        }
         Nd4j.getExecutioner().execAndReturn(new EluBp(in, epsilon, in));
         return new Pair<>(in, null);
     }
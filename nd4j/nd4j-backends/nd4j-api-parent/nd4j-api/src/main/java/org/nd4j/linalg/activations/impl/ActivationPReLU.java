@@ -23,6 +23,7 @@ package org.nd4j.linalg.activations.impl;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import org.nd4j.linalg.activations.BaseActivationFunction;
+import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.api.ops.DynamicCustomOp;
 import org.nd4j.linalg.factory.Nd4j;
@@ -56,6 +57,10 @@ public class ActivationPReLU extends BaseActivationFunction {
     @Override
     public Pair<INDArray, INDArray> backprop(INDArray in, INDArray epsilon) {
         assertShape(in, epsilon);
+        if (in.dataType() == DataType.BFLOAT16) {
+            //alpha is also an input of the prelu_bp op, so needs to be cast too
+            return new ActivationPReLU(alpha.castTo(DataType.FLOAT), sharedAxes).backpropAsFloat(in, epsilon);
+        }
         INDArray dLdalpha = alpha.ulike();
         INDArray outTemp = in.ulike();
         DynamicCustomOp.DynamicCustomOpsBuilder preluBp = DynamicCustomOp.builder("prelu_bp")
@@ -50,6 +50,7 @@ import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.common.primitives.AtomicBoolean;
 import org.nd4j.common.primitives.Optional;
 import org.nd4j.linalg.profiler.OpProfiler;
+import org.nd4j.linalg.profiler.OpTelemetry;
 import org.nd4j.linalg.profiler.ProfilerConfig;
 import org.nd4j.common.util.ArrayUtil;
 
@@ -64,6 +65,7 @@ public abstract class DefaultOpExecutioner implements OpExecutioner {
 
     protected AtomicBoolean verbose = new AtomicBoolean(false);
     protected AtomicBoolean debug = new AtomicBoolean(false);
+    protected final OutputShapeCache outputShapeCache = new OutputShapeCache();
 
     public DefaultOpExecutioner() {}
 
@@ -507,7 +509,28 @@ public abstract class DefaultOpExecutioner implements OpExecutioner {
     }
 
 
+    /**
+     * Record the execution time of the op with {@link OpTelemetry}, if enabled
+     */
+    public void telemetryHookOut(Op op, OpContext oc, long timeStart) {
+        if (OpTelemetry.getInstance().isEnabled())
+            OpTelemetry.getInstance().record(op, getX(op, oc), getY(op, oc), getZ(op, oc), timeStart);
+    }
+
+    /**
+     * Record the execution time of the op with {@link OpTelemetry}, if enabled
+     */
+    public void telemetryHookOut(CustomOp op, OpContext oc, long timeStart) {
+        if (OpTelemetry.getInstance().isEnabled()) {
+            List<INDArray> inputs = oc != null && oc.getInputArrays() != null && !oc.getInputArrays().isEmpty() ? oc.getInputArrays() : op.inputArguments();
+            List<INDArray> outputs = oc != null && oc.getOutputArrays() != null && !oc.getOutputArrays().isEmpty() ? oc.getOutputArrays() : op.outputArguments();
+            OpTelemetry.getInstance().record(op, inputs, outputs, timeStart);
+        }
+    }
+
     public void profilingConfigurableHookOut(Op op, OpContext oc, long timeStart) {
+        telemetryHookOut(op, oc, timeStart);
+
         if (OpProfiler.getInstance().getConfig() == null)
             return;
 
@@ -541,6 +564,8 @@ public abstract class DefaultOpExecutioner implements OpExecutioner {
     }
 
     public void profilingConfigurableHookOut(CustomOp op, OpContext oc, long timeStart) {
+        telemetryHookOut(op, oc, timeStart);
+
         if (OpProfiler.getInstance().getConfig() == null)
             return;
 
@@ -771,6 +796,11 @@ public abstract class DefaultOpExecutioner implements OpExecutioner {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public OutputShapeCache getOutputShapeCache() {
+        return outputShapeCache;
+    }
+
     @Override
     public INDArray[] allocateOutputArrays(CustomOp op){
         List<LongShapeDescriptor> shapes = calculateOutputShape(op);
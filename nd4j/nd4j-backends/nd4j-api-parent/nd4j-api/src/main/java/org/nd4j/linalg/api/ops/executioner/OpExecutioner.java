@@ -371,6 +371,14 @@ public interface OpExecutioner {
 
     List<LongShapeDescriptor> calculateOutputShape(CustomOp op, OpContext opContext);
 
+    /**
+     * Cache of custom op output shapes, used by {@link #calculateOutputShape(CustomOp, OpContext)} on backends that
+     * support it (currently nd4j-native)
+     *
+     * @return Output shape cache
+     */
+    OutputShapeCache getOutputShapeCache();
+
     /**
      * Equivalent to calli
      */
@@ -0,0 +1,336 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+
+package org.nd4j.linalg.api.ops.executioner;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.common.config.ND4JSystemProperties;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.CustomOp;
+import org.nd4j.linalg.api.ops.OpContext;
+import org.nd4j.linalg.api.shape.LongShapeDescriptor;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of custom op output shapes, used by the op executioner to avoid calling the native shape function
+ * when the same op is executed repeatedly with the same input shapes and arguments (for example, in inference loops).<br>
+ * The key consists of the op hash, the data type, shape, strides and order of each input, and the i/t/b/d arguments.
+ * <br>
+ * Output shapes of some ops depend on the values of their inputs, not only on their shapes. To handle these:
+ * <ul>
+ *     <li>Values of small (up to {@link #MAX_VALUE_KEY_LENGTH} elements) integer and boolean inputs - shape arrays,
+ *     axis arrays, begin/end indices and so on - are included in the key</li>
+ *     <li>Ops with larger integer/boolean inputs, or with UTF8 inputs, are not cached</li>
+ *     <li>Ops whose output shape depends on floating point input values (where, unique, range, etc) are never cached.
+ *     Further ops can be excluded using {@link #addBypassOp(String)}</li>
+ * </ul>
+ * The cache can be disabled (or its size changed) using the {@link ND4JSystemProperties#SHAPE_CACHE_ENABLED} and
+ * {@link ND4JSystemProperties#SHAPE_CACHE_MAX_SIZE} system properties, or {@link #setEnabled(boolean)}.
+ */
+@Slf4j
+public class OutputShapeCache {
+
+    public static final int DEFAULT_MAX_SIZE = 4096;
+    public static final int MAX_VALUE_KEY_LENGTH = 32;
+
+    /** Ops with output shapes that depend on input values */
+    private static final Set<String> DEFAULT_BYPASS_OPS = new HashSet<>(Arrays.asList(
+            "where", "where_np", "choose", "unique", "unique_with_counts", "listdiff", "dynamic_partition",
+            "non_max_suppression", "non_max_suppression_v3", "non_max_suppression_overlaps", "range", "lin_space",
+            "bincount", "sequence_mask", "compat_string_split", "split_string"));
+
+    private final Map<Key, List<LongShapeDescriptor>> cache = new ConcurrentHashMap<>();
+    private final Set<String> bypassOps = ConcurrentHashMap.newKeySet();
+    @Getter
+    private volatile boolean enabled;
+    @Getter
+    private final int maxSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bypassed = new LongAdder();
+
+    public OutputShapeCache() {
+        this(Boolean.parseBoolean(System.getProperty(ND4JSystemProperties.SHAPE_CACHE_ENABLED, "true")),
+                Integer.parseInt(System.getProperty(ND4JSystemProperties.SHAPE_CACHE_MAX_SIZE, String.valueOf(DEFAULT_MAX_SIZE))));
+    }
+
+    public OutputShapeCache(boolean enabled, int maxSize) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("Maximum cache size must be positive, got " + maxSize);
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        for (String s : DEFAULT_BYPASS_OPS)
+            bypassOps.add(s);
+    }
+
+    /**
+     * Enable or disable the cache. Disabling the cache also clears it
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled)
+            cache.clear();
+    }
+
+    /**
+     * Never cache output shapes for the op with the specified name
+     *
+     * @param opName Op name, as returned by {@link CustomOp#opName()}
+     */
+    public void addBypassOp(@NonNull String opName) {
+        bypassOps.add(opName.toLowerCase());
+        cache.clear();
+    }
+
+    /**
+     * Create the cache key for the op. The inputs and arguments are taken from the context if provided, in the same
+     * way as the op executioner does for output shape calculation.
+     *
+     * @param op        Op to create the key for
+     * @param opContext Op context (may be null)
+     * @return Key, or null if the cache is disabled or the output shapes of the op should not be cached
+     */
+    public Key key(@NonNull CustomOp op, OpContext opContext) {
+        if (!enabled)
+            return null;
+
+        if (bypassOps.contains(op.opName().toLowerCase())) {
+            bypassed.increment();
+            return null;
+        }
+
+        List<INDArray> inputs = opContext != null && opContext.getInputArrays() != null && !opContext.getInputArrays().isEmpty()
+                ? opContext.getInputArrays() : op.inputArguments();
+
+        int size = 1;
+        for (INDArray in : inputs) {
+            if (in == null || in.dataType() == DataType.UTF8) {
+                bypassed.increment();
+                return null;
+            }
+            size += 5 + 2 * in.rank();
+            if (isValueKeyed(in)) {
+                if (in.length() > MAX_VALUE_KEY_LENGTH) {
+                    bypassed.increment();
+                    return null;
+                }
+                size += in.length();
+            }
+        }
+
+        long[] iArgs;
+        double[] tArgs;
+        boolean[] bArgs;
+        DataType[] dArgs;
+        if (opContext != null) {
+            iArgs = toLongArray(opContext.getIArguments());
+            tArgs = toDoubleArray(opContext.getTArguments());
+            bArgs = toBooleanArray(opContext.getBArguments());
+            dArgs = opContext.getDArguments() == null ? new DataType[0] : opContext.getDArguments().toArray(new DataType[0]);
+        } else {
+            iArgs = op.iArgs();
+            tArgs = op.tArgs();
+            bArgs = op.bArgs();
+            dArgs = op.dArgs();
+        }
+        size += 4 + iArgs.length + tArgs.length + bArgs.length + dArgs.length;
+
+        long[] data = new long[size];
+        int p = 0;
+        data[p++] = inputs.size();
+        for (INDArray in : inputs) {
+            data[p++] = in.dataType().ordinal();
+            data[p++] = in.isEmpty() ? 1 : 0;
+            data[p++] = in.ordering();
+            long[] shape = in.shape();
+            long[] stride = in.stride();
+            data[p++] = shape.length;
+            for (long l : shape)
+                data[p++] = l;
+            for (int i = 0; i < shape.length; i++)
+                data[p++] = i < stride.length ? stride[i] : 0;
+            if (isValueKeyed(in)) {
+                int n = (int) in.length();
+                data[p++] = n;
+                for (int i = 0; i < n; i++)
+                    data[p++] = in.getLong(i);
+            } else {
+                data[p++] = -1;
+            }
+        }
+
+        data[p++] = iArgs.length;
+        for (long l : iArgs)
+            data[p++] = l;
+        data[p++] = tArgs.length;
+        for (double d : tArgs)
+            data[p++] = Double.doubleToLongBits(d);
+        data[p++] = bArgs.length;
+        for (boolean b : bArgs)
+            data[p++] = b ? 1 : 0;
+        data[p++] = dArgs.length;
+        for (DataType dt : dArgs)
+            data[p++] = dt == null ? -1 : dt.ordinal();
+
+        return new Key(op.opHash(), data);
+    }
+
+    private static boolean isValueKeyed(INDArray in) {
+        return !in.isEmpty() && (in.dataType().isIntType() || in.dataType() == DataType.BOOL);
+    }
+
+    /**
+     * @param key Key, as returned by {@link #key(CustomOp, OpContext)}
+     * @return Copy of the cached output shapes, or null if not present
+     */
+    public List<LongShapeDescriptor> get(Key key) {
+        if (key == null)
+            return null;
+        List<LongShapeDescriptor> shapes = cache.get(key);
+        if (shapes == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return new ArrayList<>(shapes);
+    }
+
+    /**
+     * Store the output shapes for the key. If the cache is full, some entries are evicted first
+     *
+     * @param key    Key, as returned by {@link #key(CustomOp, OpContext)}
+     * @param shapes Output shapes calculated for the key
+     */
+    public void put(Key key, @NonNull List<LongShapeDescriptor> shapes) {
+        if (key == null || !enabled || shapes.isEmpty())
+            return;
+
+        if (cache.size() >= maxSize) {
+            //Approximate eviction: drop about 1/4 of the entries
+            int toRemove = Math.max(1, maxSize / 4);
+            Iterator<Key> iter = cache.keySet().iterator();
+            while (toRemove-- > 0 && iter.hasNext()) {
+                iter.next();
+                iter.remove();
+            }
+        }
+        cache.put(key, Collections.unmodifiableList(new ArrayList<>(shapes)));
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return Number of lookups for ops that are not cached, due to value-dependent output shapes
+     */
+    public long getBypassed() {
+        return bypassed.sum();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Clear the cache and reset the counters
+     */
+    public void clear() {
+        cache.clear();
+        hits.reset();
+        misses.reset();
+        bypassed.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "OutputShapeCache(enabled=" + enabled + ", size=" + size() + ", maxSize=" + maxSize + ", hits="
+                + getHits() + ", misses=" + getMisses() + ", bypassed=" + getBypassed() + ")";
+    }
+
+    private static long[] toLongArray(List<Long> list) {
+        if (list == null)
+            return new long[0];
+        long[] out = new long[list.size()];
+        for (int i = 0; i < out.length; i++)
+            out[i] = list.get(i);
+        return out;
+    }
+
+    private static double[] toDoubleArray(List<Double> list) {
+        if (list == null)
+            return new double[0];
+        double[] out = new double[list.size()];
+        for (int i = 0; i < out.length; i++)
+            out[i] = list.get(i);
+        return out;
+    }
+
+    private static boolean[] toBooleanArray(List<Boolean> list) {
+        if (list == null)
+            return new boolean[0];
+        boolean[] out = new boolean[list.size()];
+        for (int i = 0; i < out.length; i++)
+            out[i] = list.get(i);
+        return out;
+    }
+
+    /**
+     * Cache key: op hash plus the encoded input descriptors and arguments
+     */
+    public static final class Key {
+        private final long opHash;
+        private final long[] data;
+        private final int hashCode;
+
+        private Key(long opHash, long[] data) {
+            this.opHash = opHash;
+            this.data = data;
+            this.hashCode = 31 * Long.hashCode(opHash) + Arrays.hashCode(data);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return opHash == k.opHash && hashCode == k.hashCode && Arrays.equals(data, k.data);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
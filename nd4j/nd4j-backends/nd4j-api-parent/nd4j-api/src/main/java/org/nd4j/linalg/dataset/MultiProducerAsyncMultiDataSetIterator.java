@@ -0,0 +1,433 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.linalg.dataset;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.memory.conf.WorkspaceConfiguration;
+import org.nd4j.linalg.api.memory.enums.AllocationPolicy;
+import org.nd4j.linalg.api.memory.enums.LearningPolicy;
+import org.nd4j.linalg.api.memory.enums.ResetPolicy;
+import org.nd4j.linalg.api.memory.enums.SpillPolicy;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.nd4j.linalg.dataset.api.MultiDataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
+import org.nd4j.linalg.dataset.callbacks.DataSetCallback;
+import org.nd4j.linalg.dataset.callbacks.DefaultCallback;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous prefetching iterator that uses multiple producer threads, one per split of the data.<br>
+ * Where {@link AsyncMultiDataSetIterator} uses a single background thread, this iterator runs one prefetch thread
+ * for each of the provided iterators (for example, one RecordReaderMultiDataSetIterator per split of the data),
+ * so that expensive {@code next()} calls of the underlying iterators are executed in parallel.<br>
+ * Each producer has its own bounded queue and its own workspace. The queues are consumed in a fixed round-robin order
+ * (split 0, split 1, ..., split N-1, split 0, ...), skipping splits that are depleted, so the order of the returned
+ * MultiDataSets is deterministic and does not depend on thread scheduling.<br>
+ * Cumulative producer wait time (blocked on a full queue) and consumer wait time (blocked on an empty queue) are
+ * available via {@link #getProducerWaitTimeMs()} and {@link #getConsumerWaitTimeMs()}: a high consumer wait time
+ * means data loading is the bottleneck, a high producer wait time means more producers won't help.
+ */
+@Slf4j
+public class MultiProducerAsyncMultiDataSetIterator implements MultiDataSetIterator {
+    protected List<MultiDataSetIterator> backedIterators;
+
+    protected MultiDataSet terminator = new org.nd4j.linalg.dataset.MultiDataSet();
+    protected MultiDataSet nextElement = null;
+    protected List<BlockingQueue<MultiDataSet>> buffers;
+    protected List<AsyncPrefetchThread> threads;
+    protected AtomicBoolean shouldWork = new AtomicBoolean(true);
+    protected volatile RuntimeException throwable = null;
+    protected boolean useWorkspace;
+    protected int prefetchSize;
+    protected String workspaceId;
+    protected Integer deviceId;
+    protected DataSetCallback callback;
+
+    protected boolean[] depleted;
+    protected int numDepleted;
+    protected int cursor;
+
+    protected AtomicLong producerWaitTime = new AtomicLong(0);
+    protected AtomicLong consumerWaitTime = new AtomicLong(0);
+
+    /**
+     * Create an iterator with one producer per split, with the default queue size of 4 per producer
+     * @param splits Underlying iterators to wrap and fetch asynchronously from, one producer thread each
+     */
+    public MultiProducerAsyncMultiDataSetIterator(@NonNull List<MultiDataSetIterator> splits) {
+        this(splits, 4);
+    }
+
+    public MultiProducerAsyncMultiDataSetIterator(@NonNull List<MultiDataSetIterator> splits,
+                                                  int queueSizePerProducer) {
+        this(splits, queueSizePerProducer, true);
+    }
+
+    public MultiProducerAsyncMultiDataSetIterator(@NonNull List<MultiDataSetIterator> splits, int queueSizePerProducer,
+                                                  boolean useWorkspace) {
+        this(splits, queueSizePerProducer, useWorkspace, new DefaultCallback(),
+                        Nd4j.getAffinityManager().getDeviceForCurrentThread());
+    }
+
+    /**
+     * @param splits               Underlying iterators to wrap and fetch asynchronously from, one producer thread each
+     * @param queueSizePerProducer Number of MultiDataSets each producer may prefetch
+     * @param useWorkspace         If true: each producer creates its MultiDataSets in its own cyclic workspace
+     * @param callback             Callback to execute on each MultiDataSet in the producer thread. May be null
+     * @param deviceId             Device to use for the producer threads
+     */
+    public MultiProducerAsyncMultiDataSetIterator(@NonNull List<MultiDataSetIterator> splits, int queueSizePerProducer,
+                                                  boolean useWorkspace, DataSetCallback callback, Integer deviceId) {
+        if (splits.isEmpty())
+            throw new IllegalArgumentException("At least one source iterator is required");
+        for (int i = 0; i < splits.size(); i++) {
+            for (int j = 0; j < i; j++) {
+                if (splits.get(i) == splits.get(j))
+                    throw new IllegalArgumentException("The same iterator instance can't be used for multiple splits");
+            }
+        }
+
+        if (queueSizePerProducer < 2)
+            queueSizePerProducer = 2;
+
+        this.backedIterators = new ArrayList<>(splits);
+        this.prefetchSize = queueSizePerProducer;
+        this.useWorkspace = useWorkspace;
+        this.callback = callback;
+        this.deviceId = deviceId;
+        this.workspaceId = "MPAMDSI_ITER-" + java.util.UUID.randomUUID().toString();
+
+        this.buffers = new ArrayList<>(splits.size());
+        for (int i = 0; i < splits.size(); i++)
+            buffers.add(new LinkedBlockingQueue<MultiDataSet>(queueSizePerProducer));
+
+        for (MultiDataSetIterator iterator : backedIterators) {
+            if (iterator.resetSupported() && !iterator.hasNext())
+                iterator.reset();
+        }
+
+        startProducers();
+    }
+
+    protected void startProducers() {
+        depleted = new boolean[backedIterators.size()];
+        numDepleted = 0;
+        cursor = 0;
+        nextElement = null;
+        shouldWork.set(true);
+
+        threads = new ArrayList<>(backedIterators.size());
+        for (int i = 0; i < backedIterators.size(); i++) {
+            AsyncPrefetchThread t = new AsyncPrefetchThread(i, buffers.get(i), backedIterators.get(i), terminator,
+                            deviceId);
+            threads.add(t);
+            t.start();
+        }
+    }
+
+    protected void stopProducers() {
+        shouldWork.set(false);
+        for (BlockingQueue<MultiDataSet> q : buffers)
+            q.clear();
+
+        for (AsyncPrefetchThread t : threads)
+            t.interrupt();
+        try {
+            for (AsyncPrefetchThread t : threads)
+                t.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        for (AsyncPrefetchThread t : threads)
+            t.shutdown();
+
+        for (BlockingQueue<MultiDataSet> q : buffers)
+            q.clear();
+    }
+
+    /**
+     * @return Number of producer threads (splits)
+     */
+    public int getNumProducers() {
+        return backedIterators.size();
+    }
+
+    /**
+     * @return Total time, in milliseconds, that producer threads spent waiting for space in their queue
+     */
+    public long getProducerWaitTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(producerWaitTime.get());
+    }
+
+    /**
+     * @return Total time, in milliseconds, that the consumer spent waiting for the next MultiDataSet
+     */
+    public long getConsumerWaitTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(consumerWaitTime.get());
+    }
+
+    /**
+     * Reset the producer and consumer wait time counters
+     */
+    public void resetWaitTimes() {
+        producerWaitTime.set(0);
+        consumerWaitTime.set(0);
+    }
+
+    @Override
+    public MultiDataSet next(int num) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean resetSupported() {
+        for (MultiDataSetIterator iterator : backedIterators) {
+            if (!iterator.resetSupported())
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        return false;
+    }
+
+    /**
+     * Resets all underlying iterators back to the beginning, and restarts the producer threads
+     */
+    @Override
+    public void reset() {
+        stopProducers();
+        for (MultiDataSetIterator iterator : backedIterators)
+            iterator.reset();
+        startProducers();
+    }
+
+    /**
+     * This method will terminate all producer threads AND will destroy their workspaces (if any)
+     *
+     * PLEASE NOTE: After shutdown() call, this instance can't be used anymore
+     */
+    public void shutdown() {
+        stopProducers();
+    }
+
+    /**
+     * Set a pre processor on all underlying iterators. Note that the pre processor is called from the producer
+     * threads, concurrently
+     *
+     * @param preProcessor a pre processor to set
+     */
+    @Override
+    public void setPreProcessor(MultiDataSetPreProcessor preProcessor) {
+        for (MultiDataSetIterator iterator : backedIterators)
+            iterator.setPreProcessor(preProcessor);
+    }
+
+    @Override
+    public MultiDataSetPreProcessor getPreProcessor() {
+        return backedIterators.get(0).getPreProcessor();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (throwable != null)
+            throw throwable;
+
+        if (nextElement != null)
+            return true;
+
+        try {
+            while (numDepleted < depleted.length) {
+                int idx = cursor;
+                cursor = (cursor + 1) % depleted.length;
+                if (depleted[idx])
+                    continue;
+
+                MultiDataSet ds = take(buffers.get(idx));
+                if (ds == terminator) {
+                    depleted[idx] = true;
+                    numDepleted++;
+                    continue;
+                }
+
+                nextElement = ds;
+                return true;
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    protected MultiDataSet take(BlockingQueue<MultiDataSet> queue) throws InterruptedException {
+        MultiDataSet ds = queue.poll();
+        if (ds != null)
+            return ds;
+
+        long start = System.nanoTime();
+        try {
+            // producers that fail don't put the terminator, so we can't block forever here
+            while (ds == null) {
+                if (throwable != null)
+                    throw throwable;
+                ds = queue.poll(10, TimeUnit.MILLISECONDS);
+            }
+            return ds;
+        } finally {
+            consumerWaitTime.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public MultiDataSet next() {
+        if (!hasNext())
+            return null;
+
+        MultiDataSet temp = nextElement;
+        nextElement = null;
+        return temp;
+    }
+
+    @Override
+    public void remove() {
+        // no-op
+    }
+
+    protected class AsyncPrefetchThread extends Thread implements Runnable {
+        private final BlockingQueue<MultiDataSet> queue;
+        private final MultiDataSetIterator iterator;
+        private final MultiDataSet terminator;
+        private boolean isShutdown = false; // locked around `this`
+        private WorkspaceConfiguration configuration = WorkspaceConfiguration.builder().minSize(10 * 1024L * 1024L)
+                        .overallocationLimit(prefetchSize + 2).policyReset(ResetPolicy.ENDOFBUFFER_REACHED)
+                        .policyLearning(LearningPolicy.FIRST_LOOP).policyAllocation(AllocationPolicy.OVERALLOCATE)
+                        .policySpill(SpillPolicy.REALLOCATE).build();
+
+        private MemoryWorkspace workspace;
+        private final int deviceId;
+
+        protected AsyncPrefetchThread(int producer, @NonNull BlockingQueue<MultiDataSet> queue,
+                                      @NonNull MultiDataSetIterator iterator, @NonNull MultiDataSet terminator,
+                                      int deviceId) {
+            this.queue = queue;
+            this.iterator = iterator;
+            this.terminator = terminator;
+            this.deviceId = deviceId;
+
+            this.setDaemon(true);
+            this.setName("MPAMDSI prefetch thread " + producer);
+        }
+
+        @Override
+        public void run() {
+            Nd4j.getAffinityManager().unsafeSetDevice(deviceId);
+            try {
+                // workspaces are thread-local, so each producer gets its own workspace for the same id
+                if (useWorkspace)
+                    workspace = Nd4j.getWorkspaceManager().getWorkspaceForCurrentThread(configuration, workspaceId);
+
+                while (shouldWork.get() && iterator.hasNext()) {
+                    MultiDataSet smth;
+
+                    if (useWorkspace) {
+                        try (MemoryWorkspace ws = workspace.notifyScopeEntered()) {
+                            smth = iterator.next();
+
+                            if (callback != null)
+                                callback.call(smth);
+                        }
+                    } else {
+                        smth = iterator.next();
+
+                        if (callback != null)
+                            callback.call(smth);
+                    }
+
+                    // we want to ensure underlying iterator finished dataset creation
+                    Nd4j.getExecutioner().commit();
+
+                    if (smth != null)
+                        put(smth);
+                }
+                put(terminator);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                shouldWork.set(false);
+            } catch (RuntimeException e) {
+                throwable = e;
+                throw e;
+            } catch (Exception e) {
+                throwable = new RuntimeException(e);
+                throw throwable;
+            } finally {
+                synchronized (this) {
+                    isShutdown = true;
+                    this.notifyAll();
+                }
+            }
+        }
+
+        private void put(MultiDataSet ds) throws InterruptedException {
+            if (queue.offer(ds))
+                return;
+
+            long start = System.nanoTime();
+            try {
+                queue.put(ds);
+            } finally {
+                producerWaitTime.addAndGet(System.nanoTime() - start);
+            }
+        }
+
+        public void shutdown() {
+            synchronized (this) {
+                while (!isShutdown) {
+                    try {
+                        this.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e);
+                    }
+                }
+            }
+
+            if (workspace != null) {
+                log.debug("Manually destroying MPAMDSI workspace");
+                workspace.destroyWorkspace(true);
+                workspace = null;
+            }
+        }
+    }
+}
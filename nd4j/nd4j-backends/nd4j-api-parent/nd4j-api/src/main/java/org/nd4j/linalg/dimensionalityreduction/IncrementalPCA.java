@@ -0,0 +1,184 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.linalg.dimensionalityreduction;
+
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+/**
+ * Incremental (streaming) PCA: calculates the top-k principal components from data provided one minibatch at a
+ * time, for example from a {@link DataSetIterator}, without ever holding the full dataset in memory
+ * (Ross, Lim, Lin and Yang, 2008).<br>
+ * After each minibatch, only the mean, the number of records seen, the k components and their singular values are
+ * kept. The next minibatch (centered on its own mean) is stacked below the current components scaled by their
+ * singular values, together with a correction row for the change in mean, and the top-k components are recovered
+ * from the SVD of that (k + batchSize + 1) x N matrix. Memory use is hence O((k + batchSize) * N), for N features.
+ * <br>
+ * The result is exact if the data has rank at most k, and otherwise a close approximation of {@link PCA}.
+ * The first minibatch must contain at least k records.
+ */
+public class IncrementalPCA {
+
+    private final int nComponents;
+    private INDArray mean, components, singularValues;
+    private long numRecords;
+
+    /**
+     * @param nComponents Number of principal components to calculate
+     */
+    public IncrementalPCA(int nComponents) {
+        Preconditions.checkArgument(nComponents > 0, "Number of components must be positive, got %s", nComponents);
+        this.nComponents = nComponents;
+    }
+
+    /**
+     * Update the principal components with all minibatches from the specified iterator. The features of each DataSet
+     * must be a matrix with one record per row. The iterator is reset first, if it supports resetting
+     * @param iterator Iterator providing the data
+     * @return This IncrementalPCA instance
+     */
+    public IncrementalPCA fit(DataSetIterator iterator) {
+        if (iterator.resetSupported())
+            iterator.reset();
+        while (iterator.hasNext()) {
+            DataSet ds = iterator.next();
+            partialFit(ds.getFeatures());
+        }
+        return this;
+    }
+
+    /**
+     * Update the principal components with a minibatch of data
+     * @param batch Minibatch of data, each row is a data record and each column is a feature
+     * @return This IncrementalPCA instance
+     */
+    public IncrementalPCA partialFit(INDArray batch) {
+        Preconditions.checkArgument(batch.rank() == 2, "Data must be a matrix, got array with shape %ndShape", batch);
+        long b = batch.rows();
+        long n = batch.columns();
+        Preconditions.checkArgument(nComponents <= n, "Number of components (%s) must not be greater than the " +
+                        "number of features (%s)", nComponents, n);
+        if (b == 0)
+            return this;
+
+        INDArray batchMean = batch.mean(0).reshape(1, n);
+        INDArray centered = batch.subRowVector(batchMean);
+        INDArray stacked;
+        if (numRecords == 0) {
+            Preconditions.checkArgument(b >= nComponents, "First minibatch must contain at least as many records as " +
+                            "the number of components (%s), got %s records", nComponents, b);
+            stacked = centered;
+        } else {
+            Preconditions.checkArgument(n == mean.columns(), "Expected data with %s features, got %s",
+                            mean.columns(), n);
+            //Correction for the difference between the mean of the previous records and the mean of this batch
+            double scale = Math.sqrt((double) numRecords * b / (numRecords + b));
+            INDArray meanCorrection = mean.sub(batchMean).muli(scale);
+            INDArray scaledComponents = components.transpose().mulColumnVector(singularValues.reshape(nComponents, 1));
+            stacked = Nd4j.vstack(scaledComponents, centered, meanCorrection.castTo(centered.dataType()));
+        }
+
+        INDArray[] svd = RandomizedPCA.svd(stacked);
+        int k = (int) Math.min(nComponents, svd[0].length());
+        this.singularValues = svd[0].get(NDArrayIndex.interval(0, k)).dup();
+        this.components = svd[2].get(NDArrayIndex.all(), NDArrayIndex.interval(0, k)).dup();
+
+        if (numRecords == 0) {
+            this.mean = batchMean;
+        } else {
+            this.mean = mean.mul(numRecords).addi(batchMean.mul(b)).divi(numRecords + b);
+        }
+        numRecords += b;
+        return this;
+    }
+
+    /**
+     * Takes a set of data on each row, with the same number of features as the fitted data
+     * and returns the data in the coordinates of the principal components, about the mean.
+     * @param data Data of the same features used to fit this IncrementalPCA
+     * @return The records in terms of the principal components, shape [records, nComponents]
+     */
+    public INDArray convertToComponents(INDArray data) {
+        checkFitted();
+        return data.subRowVector(mean).mmul(components);
+    }
+
+    /**
+     * Take the data that has been transformed to the principal components about the mean and
+     * transform it back into the original feature set.
+     * @param data Data in terms of the principal components, shape [records, nComponents]
+     * @return The records in terms of the original features
+     */
+    public INDArray convertBackToFeatures(INDArray data) {
+        checkFitted();
+        return data.mmul(components.transpose()).addiRowVector(mean);
+    }
+
+    /**
+     * @return The mean of each feature, shape [1, N]
+     */
+    public INDArray getMean() {
+        return mean;
+    }
+
+    /**
+     * @return The principal components as columns, in order of decreasing variance, shape [N, nComponents]
+     */
+    public INDArray getComponents() {
+        return components;
+    }
+
+    /**
+     * @return The singular values of the centered data for each component, shape [1, nComponents]
+     */
+    public INDArray getSingularValues() {
+        return singularValues == null ? null : singularValues.reshape(1, singularValues.length());
+    }
+
+    /**
+     * @return The variance of the data along each component, shape [1, nComponents]
+     */
+    public INDArray getExplainedVariance() {
+        if (singularValues == null)
+            return null;
+        INDArray s = getSingularValues();
+        return s.mul(s).divi(Math.max(1, numRecords - 1));
+    }
+
+    /**
+     * @return The number of records seen so far
+     */
+    public long getNumRecords() {
+        return numRecords;
+    }
+
+    public int getNComponents() {
+        return nComponents;
+    }
+
+    private void checkFitted() {
+        Preconditions.checkState(numRecords > 0, "IncrementalPCA has not been fitted: call fit or partialFit first");
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.linalg.dimensionalityreduction;
+
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.impl.transforms.custom.Svd;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+/**
+ * PCA for the top-k principal components, using randomized SVD (Halko, Martinsson and Tropp, 2011) instead of
+ * the full covariance matrix and eigendecomposition used by {@link PCA}.<br>
+ * A random projection of the (centered) data onto k + oversamples dimensions is used to find an orthonormal basis Q
+ * for the range of the data, refined by a number of power iterations. The principal components are then obtained
+ * from the SVD of the small (k + oversamples) x N matrix Q<sup>T</sup>A.<br>
+ * Memory use is O((M + N) * (k + oversamples)) in addition to the data, compared to O(N<sup>2</sup>) for the covariance
+ * matrix, for M records of N features. The data is centered implicitly, i.e. it is not copied or modified.<br>
+ * For datasets that don't fit in memory, see {@link IncrementalPCA}.
+ */
+public class RandomizedPCA {
+    public static final int DEFAULT_OVERSAMPLES = 10;
+    public static final int DEFAULT_POWER_ITERATIONS = 4;
+
+    private INDArray mean, components, singularValues, explainedVariance;
+    private long numRecords;
+
+    private RandomizedPCA() {}
+
+    /**
+     * Create a RandomizedPCA instance with the default number of oversamples and power iterations, and a random seed
+     * @param dataset     The set of data (records) of features, each row is a data record and each column is a feature
+     * @param nComponents Number of principal components to calculate
+     */
+    public RandomizedPCA(INDArray dataset, int nComponents) {
+        this(dataset, nComponents, DEFAULT_OVERSAMPLES, DEFAULT_POWER_ITERATIONS, System.currentTimeMillis());
+    }
+
+    /**
+     * Create a RandomizedPCA instance with calculated mean, principal components and singular values
+     * @param dataset         The set of data (records) of features, each row is a data record and each column is
+     *                        a feature
+     * @param nComponents     Number of principal components to calculate
+     * @param oversamples     Number of additional random projections, improving the accuracy of the components
+     * @param powerIterations Number of power iterations. More iterations improve the accuracy for data whose
+     *                        singular values decay slowly, at the cost of two matrix multiplications with the data each
+     * @param seed            Seed for the random projection
+     */
+    public RandomizedPCA(INDArray dataset, int nComponents, int oversamples, int powerIterations, long seed) {
+        Preconditions.checkArgument(dataset.rank() == 2, "Dataset must be a matrix, got array with shape %ndShape",
+                        dataset);
+        long m = dataset.rows();
+        long n = dataset.columns();
+        Preconditions.checkArgument(nComponents > 0 && nComponents <= Math.min(m, n), "Number of components must " +
+                        "be between 1 and min(rows, columns) = %s, got %s", Math.min(m, n), nComponents);
+        Preconditions.checkArgument(oversamples >= 0 && powerIterations >= 0, "Number of oversamples and power " +
+                        "iterations must be non-negative, got %s and %s", oversamples, powerIterations);
+
+        int l = (int) Math.min(nComponents + oversamples, Math.min(m, n));
+        this.numRecords = m;
+        this.mean = dataset.mean(0).reshape(1, n);
+
+        //Range finder: Q = orth(A_c * Omega), where A_c = A - 1 * mean (never materialized)
+        INDArray omega = Nd4j.randn(Nd4j.createUninitialized(dataset.dataType(), n, l), seed);
+        INDArray q = orthonormalize(centeredMmul(dataset, mean, omega));
+        for (int i = 0; i < powerIterations; i++) {
+            INDArray z = orthonormalize(centeredTransposeMmul(dataset, mean, q));
+            q = orthonormalize(centeredMmul(dataset, mean, z));
+        }
+
+        //B = Q^T * A_c: [l, n]. SVD of B gives the principal components
+        INDArray b = centeredTransposeMmul(dataset, mean, q).transpose();
+        INDArray[] svd = svd(b);
+        this.singularValues = svd[0].get(NDArrayIndex.interval(0, nComponents)).reshape(1, nComponents);
+        this.components = svd[2].get(NDArrayIndex.all(), NDArrayIndex.interval(0, nComponents)).dup();
+        this.explainedVariance = singularValues.mul(singularValues).divi(Math.max(1, m - 1));
+    }
+
+    /**
+     * Takes a set of data on each row, with the same number of features as the constructing data
+     * and returns the data in the coordinates of the principal components, about the mean.
+     * @param data Data of the same features used to construct the RandomizedPCA object
+     * @return The records in terms of the principal components, shape [records, nComponents]
+     */
+    public INDArray convertToComponents(INDArray data) {
+        return data.subRowVector(mean).mmul(components);
+    }
+
+    /**
+     * Take the data that has been transformed to the principal components about the mean and
+     * transform it back into the original feature set.
+     * @param data Data in terms of the principal components, shape [records, nComponents]
+     * @return The records in terms of the original features
+     */
+    public INDArray convertBackToFeatures(INDArray data) {
+        return data.mmul(components.transpose()).addiRowVector(mean);
+    }
+
+    /**
+     * @return The mean of each feature, shape [1, N]
+     */
+    public INDArray getMean() {
+        return mean;
+    }
+
+    /**
+     * @return The principal components as columns, in order of decreasing variance, shape [N, nComponents]
+     */
+    public INDArray getComponents() {
+        return components;
+    }
+
+    /**
+     * @return The singular values of the centered data for each component, shape [1, nComponents]
+     */
+    public INDArray getSingularValues() {
+        return singularValues;
+    }
+
+    /**
+     * @return The variance of the data along each component, shape [1, nComponents]
+     */
+    public INDArray getExplainedVariance() {
+        return explainedVariance;
+    }
+
+    /**
+     * @return The number of records used to calculate the components
+     */
+    public long getNumRecords() {
+        return numRecords;
+    }
+
+    /**
+     * (A - 1 * mean) * x
+     */
+    private static INDArray centeredMmul(INDArray a, INDArray mean, INDArray x) {
+        return a.mmul(x).subiRowVector(mean.mmul(x));
+    }
+
+    /**
+     * (A - 1 * mean)^T * x
+     */
+    private static INDArray centeredTransposeMmul(INDArray a, INDArray mean, INDArray x) {
+        INDArray colSums = x.sum(true, 0);
+        return a.transpose().mmul(x).subi(mean.transpose().mmul(colSums));
+    }
+
+    /**
+     * @return Orthonormal basis for the column space of the specified matrix (Q of the reduced QR decomposition)
+     */
+    static INDArray orthonormalize(INDArray x) {
+        return Nd4j.linalg().qr(x.dup('c'), false)[0];
+    }
+
+    /**
+     * Reduced singular value decomposition of a matrix with shape [m, n]
+     * @return Singular values (in decreasing order) with shape [k], U with shape [m, k] and V with shape [n, k],
+     * where k = min(m, n)
+     */
+    static INDArray[] svd(INDArray x) {
+        long m = x.rows();
+        long n = x.columns();
+        long k = Math.min(m, n);
+        INDArray s = Nd4j.create(x.dataType(), k);
+        INDArray u = Nd4j.create(x.dataType(), m, k);
+        INDArray v = Nd4j.create(x.dataType(), n, k);
+        Nd4j.exec(new Svd(x.dup('c'), false, s, u, v));
+        return new INDArray[] {s, u, v};
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.linalg.profiler;
+
+import jdk.jfr.*;
+
+/**
+ * JDK Flight Recorder event for a single op execution - see {@link OpTelemetry}.<br>
+ * The event is disabled by default in JFR recordings; enable it with (for example)
+ * {@code -XX:StartFlightRecording:settings=profile} plus a custom .jfc setting for {@code org.nd4j.OpExecution},
+ * or programmatically with {@code Recording.enable("org.nd4j.OpExecution")}.
+ */
+@Name(OpExecutionEvent.NAME)
+@Label("ND4J Op Execution")
+@Category({"ND4J", "Ops"})
+@Description("Execution of a single ND4J op")
+@Enabled(false)
+@StackTrace(false)
+public class OpExecutionEvent extends Event {
+
+    public static final String NAME = "org.nd4j.OpExecution";
+
+    @Label("Op Name")
+    String opName;
+
+    @Label("Op Class")
+    String opClass;
+
+    @Label("Data Type")
+    @Description("Data type of the first input (or output) array")
+    String dataType;
+
+    @Label("Input Shapes")
+    String inputShapes;
+
+    @Label("Output Shapes")
+    String outputShapes;
+
+    @Label("Bytes")
+    @Description("Total size of all input and output arrays")
+    @DataAmount
+    long bytes;
+
+    @Label("Execution Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long executionTime;
+}
@@ -0,0 +1,212 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.linalg.profiler;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.common.config.ND4JSystemProperties;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.CustomOp;
+import org.nd4j.linalg.api.ops.Op;
+import org.nd4j.linalg.profiler.data.LatencyHistogram;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Low overhead op telemetry, suitable for use in production.<br>
+ * Unlike {@link OpProfiler}, which is intended for debugging, OpTelemetry only records the execution time of each op
+ * into a lock-free per-op {@link LatencyHistogram}, and (if a JDK Flight Recorder recording has enabled it) emits an
+ * {@link OpExecutionEvent} with the op name, shapes, data type, size and execution time.<br>
+ * Telemetry is disabled by default, in which case the cost per op is a single volatile read. It can be enabled
+ * using the {@link ND4JSystemProperties#OP_TELEMETRY_ENABLED} system property, or {@link #setEnabled(boolean)}.
+ * <br>
+ * Use {@link #summary(int)} or {@link #getHistograms()} to find the ops that dominate (tail) latency.
+ */
+@Slf4j
+public class OpTelemetry {
+
+    private static final OpTelemetry INSTANCE = new OpTelemetry();
+    private static final boolean JFR_AVAILABLE = isJfrAvailable();
+
+    private volatile boolean enabled = Boolean.parseBoolean(System.getProperty(ND4JSystemProperties.OP_TELEMETRY_ENABLED, "false"));
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    private OpTelemetry() {
+    }
+
+    public static OpTelemetry getInstance() {
+        return INSTANCE;
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Record the execution of a legacy op
+     *
+     * @param op        Op that was executed
+     * @param x         X (input) array
+     * @param y         Y (input) array, may be null
+     * @param z         Z (output) array, may be null
+     * @param timeStart Start time of the execution, as returned by {@link System#nanoTime()}
+     */
+    public void record(@NonNull Op op, INDArray x, INDArray y, INDArray z, long timeStart) {
+        long time = System.nanoTime() - timeStart;
+        String name = op.opName();
+        getOrCreateHistogram(name).recordValue(time);
+
+        if (JFR_AVAILABLE) {
+            OpExecutionEvent event = new OpExecutionEvent();
+            if (event.isEnabled())
+                emitEvent(event, name, op, Arrays.asList(x, y), Collections.singletonList(z), time);
+        }
+    }
+
+    /**
+     * Record the execution of a custom op
+     *
+     * @param op        Op that was executed
+     * @param inputs    Input arrays
+     * @param outputs   Output arrays
+     * @param timeStart Start time of the execution, as returned by {@link System#nanoTime()}
+     */
+    public void record(@NonNull CustomOp op, List<INDArray> inputs, List<INDArray> outputs, long timeStart) {
+        long time = System.nanoTime() - timeStart;
+        String name = op.opName();
+        getOrCreateHistogram(name).recordValue(time);
+
+        if (JFR_AVAILABLE) {
+            OpExecutionEvent event = new OpExecutionEvent();
+            if (event.isEnabled())
+                emitEvent(event, name, op, inputs, outputs, time);
+        }
+    }
+
+    private LatencyHistogram getOrCreateHistogram(String opName) {
+        LatencyHistogram h = histograms.get(opName);
+        if (h == null)
+            h = histograms.computeIfAbsent(opName, k -> new LatencyHistogram());
+        return h;
+    }
+
+    private static void emitEvent(OpExecutionEvent event, String opName, Object op, List<INDArray> inputs,
+                                  List<INDArray> outputs, long time) {
+        long bytes = 0;
+        String dataType = null;
+        StringBuilder in = new StringBuilder();
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < 2; i++) {
+            List<INDArray> list = i == 0 ? inputs : outputs;
+            StringBuilder sb = i == 0 ? in : out;
+            if (list == null)
+                continue;
+            for (INDArray arr : list) {
+                if (arr == null)
+                    continue;
+                if (sb.length() > 0)
+                    sb.append(", ");
+                sb.append(Arrays.toString(arr.shape()));
+                if (dataType == null)
+                    dataType = arr.dataType().toString();
+                if (!arr.isEmpty())
+                    bytes += arr.length() * arr.dataType().width();
+            }
+        }
+
+        event.opName = opName;
+        event.opClass = op.getClass().getSimpleName();
+        event.dataType = dataType;
+        event.inputShapes = in.toString();
+        event.outputShapes = out.toString();
+        event.bytes = bytes;
+        event.executionTime = time;
+        event.commit();
+    }
+
+    /**
+     * @param opName Name of the op
+     * @return Latency histogram for the op, or null if no executions of the op have been recorded
+     */
+    public LatencyHistogram getHistogram(String opName) {
+        return histograms.get(opName);
+    }
+
+    /**
+     * @return Latency histograms for all ops (by op name) that have been recorded
+     */
+    public Map<String, LatencyHistogram> getHistograms() {
+        return Collections.unmodifiableMap(histograms);
+    }
+
+    /**
+     * Remove all recorded histograms
+     */
+    public void reset() {
+        histograms.clear();
+    }
+
+    /**
+     * @param maxOps Maximum number of ops to include
+     * @return Table of the ops with the highest 99th percentile latency (in microseconds), with count, mean, p50,
+     * p99, p99.9, max and total time
+     */
+    public String summary(int maxOps) {
+        List<Map.Entry<String, LatencyHistogram>> entries = new ArrayList<>(histograms.entrySet());
+        Map<String, Long> p99 = new HashMap<>();
+        for (Map.Entry<String, LatencyHistogram> e : entries)
+            p99.put(e.getKey(), e.getValue().getValueAtPercentile(99.0));
+        entries.sort((a, b) -> Long.compare(p99.get(b.getKey()), p99.get(a.getKey())));
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-32s %12s %12s %12s %12s %12s %12s %14s%n",
+                "Op", "Count", "Mean (us)", "p50 (us)", "p99 (us)", "p99.9 (us)", "Max (us)", "Total (ms)"));
+        for (int i = 0; i < entries.size() && i < maxOps; i++) {
+            String name = entries.get(i).getKey();
+            LatencyHistogram h = entries.get(i).getValue();
+            sb.append(String.format(Locale.ROOT, "%-32s %12d %12.1f %12.1f %12.1f %12.1f %12.1f %14.1f%n",
+                    name, h.getCount(), h.getMean() / 1e3, h.getValueAtPercentile(50.0) / 1e3, p99.get(name) / 1e3,
+                    h.getValueAtPercentile(99.9) / 1e3, h.getMax() / 1e3, h.getTotal() / 1e6));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Log the summary for the ops with the highest 99th percentile latency - see {@link #summary(int)}
+     */
+    public void printSummary(int maxOps) {
+        log.info("Op latency summary:\n{}", summary(maxOps));
+    }
+}
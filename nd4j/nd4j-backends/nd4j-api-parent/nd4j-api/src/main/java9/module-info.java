@@ -13,6 +13,7 @@ open module nd4j.api {
     requires flatbuffers.java;
     requires guava;
     requires jackson;
+    requires jdk.jfr;
     requires nd4j.common;
     requires neoitertools;
     requires org.bytedeco.javacpp;
@@ -45,6 +46,7 @@ open module nd4j.api {
     exports org.nd4j.autodiff.samediff.optimize.debug;
     exports org.nd4j.autodiff.samediff.optimize.optimizations;
     exports org.nd4j.autodiff.samediff.serde;
+    exports org.nd4j.autodiff.samediff.state;
     exports org.nd4j.autodiff.samediff.transform;
     exports org.nd4j.autodiff.util;
     exports org.nd4j.autodiff.validation;
@@ -501,6 +501,8 @@ public class NativeOpExecutioner extends DefaultOpExecutioner {
         if (loop.lastErrorCode() != 0)
             throw new RuntimeException(loop.lastErrorMessage());
 
+        telemetryHookOut(op, oc, st);
+
         return getZ(op, oc);
     }
 
@@ -918,6 +920,8 @@ public class NativeOpExecutioner extends DefaultOpExecutioner {
         if (loop.lastErrorCode() != 0)
             throw new RuntimeException(loop.lastErrorMessage());
 
+        telemetryHookOut(op, oc, st);
+
         return z;
     }
 
@@ -1588,6 +1592,11 @@ public class NativeOpExecutioner extends DefaultOpExecutioner {
             return Collections.emptyList();
         }
 
+        val cacheKey = outputShapeCache.key(op, opContext);
+        val cached = outputShapeCache.get(cacheKey);
+        if (cached != null)
+            return cached;
+
         val inputBuffers = new PointerPointer<>(nIn);
         val inputShapes = new PointerPointer<>(nIn);
         val inputArgs = opContext != null && opContext.getInputArrays() != null && !opContext.getInputArrays().isEmpty()
@@ -1698,6 +1707,8 @@ public class NativeOpExecutioner extends DefaultOpExecutioner {
 
         loop.deleteShapeList(ptrptr);
 
+        outputShapeCache.put(cacheKey, result);
+
         if(log.isTraceEnabled()) {/**/
             String[] arr = new String[result.size()];
             for( int i = 0; i < result.size(); i++) {
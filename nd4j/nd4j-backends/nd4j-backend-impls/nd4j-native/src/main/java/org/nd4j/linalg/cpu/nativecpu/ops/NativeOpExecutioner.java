@@ -510,6 +510,8 @@ public class NativeOpExecutioner extends DefaultOpExecutioner {
         if (loop.lastErrorCode() != 0)
             throw new RuntimeException(loop.lastErrorMessage());
 
+        telemetryHookOut(op, oc, st);
+
         return getZ(op, oc);
     }
 
@@ -927,6 +929,8 @@ public class NativeOpExecutioner extends DefaultOpExecutioner {
         if (loop.lastErrorCode() != 0)
             throw new RuntimeException(loop.lastErrorMessage());
 
+        telemetryHookOut(op, oc, st);
+
         return z;
     }
 
@@ -1597,6 +1601,11 @@ public class NativeOpExecutioner extends DefaultOpExecutioner {
             return Collections.emptyList();
         }
 
+        val cacheKey = outputShapeCache.key(op, opContext);
+        val cached = outputShapeCache.get(cacheKey);
+        if (cached != null)
+            return cached;
+
         val inputBuffers = new PointerPointer<>(nIn);
         val inputShapes = new PointerPointer<>(nIn);
         val inputArgs = opContext != null && opContext.getInputArrays() != null && !opContext.getInputArrays().isEmpty()
@@ -1707,6 +1716,8 @@ public class NativeOpExecutioner extends DefaultOpExecutioner {
 
         loop.deleteShapeList(ptrptr);
 
+        outputShapeCache.put(cacheKey, result);
+
         if(log.isTraceEnabled()) {/**/
             String[] arr = new String[result.size()];
             for( int i = 0; i < result.size(); i++) {
@@ -198,6 +198,30 @@ public class ND4JSystemProperties {
      */
     public final static String INIT_NATIVEOPS_HOLDER = "org.nd4j.nativeblas.nativeops.init";
 
+    /**
+     * Applicability: nd4j-native backend<br>
+     * Description: Whether output shapes of custom ops should be cached, keyed by op, input shapes/data types and
+     * arguments, to avoid the native shape function call on repeated execution of the same op.
+     * See {@code org.nd4j.linalg.api.ops.executioner.OutputShapeCache}<br>
+     * Default: true
+     */
+    public final static String SHAPE_CACHE_ENABLED = "org.nd4j.shapecache.enabled";
+
+    /**
+     * Applicability: nd4j-native backend<br>
+     * Description: Maximum number of entries in the custom op output shape cache<br>
+     * Default: 4096
+     */
+    public final static String SHAPE_CACHE_MAX_SIZE = "org.nd4j.shapecache.maxsize";
+
+    /**
+     * Applicability: nd4j-api<br>
+     * Description: Whether op execution times should be recorded into per-op latency histograms (and emitted as
+     * JDK Flight Recorder events, when enabled in a recording). See {@code org.nd4j.linalg.profiler.OpTelemetry}<br>
+     * Default: false
+     */
+    public final static String OP_TELEMETRY_ENABLED = "org.nd4j.telemetry.enabled";
+
 
     private ND4JSystemProperties() {
     }
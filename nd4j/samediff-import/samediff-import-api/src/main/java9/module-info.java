@@ -11,6 +11,7 @@ open module samediff.modelimport.api {
     requires nd4j.api;
     requires protobuf;
     exports org.nd4j.samediff.frameworkimport;
+    exports org.nd4j.samediff.frameworkimport.cache;
     exports org.nd4j.samediff.frameworkimport.context;
     exports org.nd4j.samediff.frameworkimport.hooks;
     exports org.nd4j.samediff.frameworkimport.hooks.annotations;
@@ -0,0 +1,192 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+package org.nd4j.samediff.frameworkimport.cache
+
+import mu.KotlinLogging
+import org.nd4j.autodiff.samediff.SameDiff
+import org.nd4j.linalg.api.ndarray.INDArray
+import org.nd4j.shade.protobuf.GeneratedMessageV3
+import java.io.File
+import java.nio.file.AtomicMoveNotSupportedException
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+
+/**
+ * Content addressed cache of imported graphs.
+ *
+ * The cache key is a SHA-256 hash of the source model file, the importer version
+ * (see [importerVersion]) and the dynamic variables passed to the import.
+ * The imported (and optimized) [SameDiff] instance - graph and weights - is stored as a flatbuffers file,
+ * which loads much faster than a full import of a large graph.
+ *
+ * Importers use the cache automatically when the [CACHE_DIRECTORY_PROPERTY] system property is set.
+ * Entries are never invalidated explicitly: a changed model file, importer or mapping rule set results in a new key.
+ * Use [clear] to remove old entries.
+ */
+class ImportCache(val directory: File) {
+
+    private val logger = KotlinLogging.logger {}
+
+    companion object {
+        /**
+         * System property to enable the import cache: the directory to store imported graphs in
+         */
+        const val CACHE_DIRECTORY_PROPERTY = "samediff.import.cachedir"
+
+        /**
+         * Incremented on changes to the cache key or file format, so that old entries are not used
+         */
+        const val FORMAT_VERSION = 1
+
+        const val FILE_EXTENSION = ".fb"
+
+        /**
+         * @return the cache configured via [CACHE_DIRECTORY_PROPERTY], or null if it is not set
+         */
+        @JvmStatic
+        fun fromSystemProperties(): ImportCache? {
+            val dir = System.getProperty(CACHE_DIRECTORY_PROPERTY)
+            if(dir == null || dir.isEmpty())
+                return null
+            return ImportCache(File(dir))
+        }
+
+        /**
+         * Computes a version string for an importer from its name, the implementation version of the
+         * importer artifact and the op descriptors and mapping rules it uses, so that cache entries
+         * are not reused after the importer or its mapping rules change.
+         */
+        @JvmStatic
+        fun importerVersion(importer: Any, vararg components: GeneratedMessageV3?): String {
+            val digest = MessageDigest.getInstance("SHA-256")
+            digest.update(importer.javaClass.name.toByteArray(Charsets.UTF_8))
+            digest.update((importer.javaClass.`package`?.implementationVersion ?: "").toByteArray(Charsets.UTF_8))
+            components.forEach { component ->
+                if(component != null)
+                    digest.update(component.toByteArray())
+            }
+            return toHex(digest.digest())
+        }
+
+        private fun toHex(bytes: ByteArray): String {
+            val sb = StringBuilder(bytes.size * 2)
+            bytes.forEach { b -> sb.append(String.format("%02x", b)) }
+            return sb.toString()
+        }
+    }
+
+    /**
+     * Computes the cache key for importing the given model file.
+     */
+    fun key(modelFile: File, importerVersion: String, dynamicVariables: Map<String, INDArray>, suggestDynamicVariables: Boolean): String {
+        val digest = MessageDigest.getInstance("SHA-256")
+        digest.update("$FORMAT_VERSION:$importerVersion:$suggestDynamicVariables".toByteArray(Charsets.UTF_8))
+
+        val buffer = ByteArray(1 shl 16)
+        modelFile.inputStream().use { input ->
+            var read = input.read(buffer)
+            while(read >= 0) {
+                digest.update(buffer, 0, read)
+                read = input.read(buffer)
+            }
+        }
+
+        dynamicVariables.toSortedMap().forEach { (name, array) ->
+            digest.update("$name:${array.dataType()}:${array.shape().contentToString()}".toByteArray(Charsets.UTF_8))
+            if(!array.isEmpty)
+                digest.update(array.dup('c').data().asBytes())
+        }
+
+        return toHex(digest.digest())
+    }
+
+    fun fileFor(key: String): File {
+        return File(directory, key + FILE_EXTENSION)
+    }
+
+    /**
+     * Load the graph for the given key.
+     * @return the cached graph, or null if there is no (readable) entry for the key
+     */
+    fun load(key: String): SameDiff? {
+        val file = fileFor(key)
+        if(!file.exists())
+            return null
+        return try {
+            SameDiff.fromFlatFile(file, false)
+        } catch(e: Exception) {
+            logger.warn(e) { "Unable to load cached graph from ${file.absolutePath}, ignoring cache entry" }
+            file.delete()
+            null
+        }
+    }
+
+    /**
+     * Store the graph for the given key. The file is written to a temporary file and then moved,
+     * so concurrent processes never read a partially written entry.
+     */
+    fun store(key: String, sameDiff: SameDiff) {
+        if(!directory.exists() && !directory.mkdirs())
+            throw IllegalStateException("Unable to create import cache directory ${directory.absolutePath}")
+
+        val target = fileFor(key)
+        val temp = File.createTempFile(key, ".tmp", directory)
+        try {
+            sameDiff.asFlatFile(temp, false)
+            try {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE)
+            } catch(e: AtomicMoveNotSupportedException) {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING)
+            }
+        } finally {
+            temp.delete()
+        }
+    }
+
+    /**
+     * Returns the cached graph for the given model file if present, otherwise runs the import and caches the result.
+     * Failures to write the cache are logged and otherwise ignored.
+     */
+    fun getOrImport(fileName: String, importerVersion: String, dynamicVariables: Map<String, INDArray>,
+                    suggestDynamicVariables: Boolean, import: () -> SameDiff): SameDiff {
+        val key = key(File(fileName), importerVersion, dynamicVariables, suggestDynamicVariables)
+        val cached = load(key)
+        if(cached != null) {
+            logger.debug { "Loaded graph for $fileName from import cache (${fileFor(key).absolutePath})" }
+            return cached
+        }
+
+        val imported = import()
+        try {
+            store(key, imported)
+        } catch(e: Exception) {
+            logger.warn(e) { "Unable to store imported graph for $fileName in import cache ${directory.absolutePath}" }
+        }
+        return imported
+    }
+
+    /**
+     * Remove all entries from the cache.
+     */
+    fun clear() {
+        directory.listFiles { f -> f.name.endsWith(FILE_EXTENSION) }?.forEach { it.delete() }
+    }
+}
@@ -24,6 +24,7 @@ import org.nd4j.autodiff.samediff.SameDiff
 import org.nd4j.linalg.api.ndarray.INDArray
 import org.nd4j.linalg.factory.Nd4j
 import org.nd4j.samediff.frameworkimport.FrameworkImporter
+import org.nd4j.samediff.frameworkimport.cache.ImportCache
 import org.nd4j.samediff.frameworkimport.ir.IRGraph
 import org.nd4j.samediff.frameworkimport.onnx.OnnxImportGraph
 import org.nd4j.samediff.frameworkimport.onnx.convertToOnnxTensors
@@ -41,6 +42,9 @@ class OnnxFrameworkImporter: FrameworkImporter {
     val loader = OpDescriptorLoaderHolder.listForFramework<Onnx.NodeProto>("onnx")
     val onnxOpDescriptorLoader = OnnxOpDescriptorLoader()
     val registry = onnxOpDescriptorLoader.createOpMappingRegistry<Onnx.GraphProto,Onnx.NodeProto,Onnx.NodeProto,Onnx.TensorProto,Onnx.AttributeProto,Onnx.AttributeProto,Onnx.TensorProto.DataType>()
+    val importerVersion: String by lazy {
+        ImportCache.importerVersion(this, onnxOpDescriptorLoader.mapperDefSet, onnxOpDescriptorLoader.nd4jOpDescriptors)
+    }
     val loadedGraphBuilder = Onnx.GraphProto.newBuilder()
     init {
         loader.values.forEach { loadedGraphBuilder.addNode(it) }
@@ -53,7 +57,21 @@ class OnnxFrameworkImporter: FrameworkImporter {
         return OnnxIRGraph(loadGraph.graph, registry)
     }
 
+    /**
+     * Runs the import, or loads the previously imported graph from the [ImportCache]
+     * if one is configured via [ImportCache.CACHE_DIRECTORY_PROPERTY].
+     */
     override fun runImport(fileName: String, dynamicVariables: Map<String, INDArray>,suggestDynamicVariables: Boolean): SameDiff {
+        val cache = ImportCache.fromSystemProperties()
+        if(cache != null) {
+            return cache.getOrImport(fileName, importerVersion, dynamicVariables, suggestDynamicVariables) {
+                importFile(fileName, dynamicVariables, suggestDynamicVariables)
+            }
+        }
+        return importFile(fileName, dynamicVariables, suggestDynamicVariables)
+    }
+
+    fun importFile(fileName: String, dynamicVariables: Map<String, INDArray>,suggestDynamicVariables: Boolean): SameDiff {
         val loadGraph = loadGraph(fileName)
         if(suggestDynamicVariables) {
             val newDynamicVariables  = suggestDynamicVariables(loadGraph as IRGraph<GeneratedMessageV3, GeneratedMessageV3, GeneratedMessageV3, GeneratedMessageV3, GeneratedMessageV3, GeneratedMessageV3, ProtocolMessageEnum>)
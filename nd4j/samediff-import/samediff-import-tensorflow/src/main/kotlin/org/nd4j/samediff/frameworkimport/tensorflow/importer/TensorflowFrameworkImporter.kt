@@ -24,6 +24,7 @@ import org.nd4j.imports.graphmapper.tf.TFGraphMapper
 import org.nd4j.linalg.api.ndarray.INDArray
 import org.nd4j.linalg.factory.Nd4j
 import org.nd4j.samediff.frameworkimport.FrameworkImporter
+import org.nd4j.samediff.frameworkimport.cache.ImportCache
 import org.nd4j.samediff.frameworkimport.ir.IRGraph
 import org.nd4j.samediff.frameworkimport.opdefs.OpDescriptorLoaderHolder
 import org.nd4j.samediff.frameworkimport.tensorflow.TensorflowImportGraph
@@ -49,6 +50,9 @@ class TensorflowFrameworkImporter: FrameworkImporter {
     val opDefList = opDefListBuilder.build()
     val registry =
         tfOpDescriptorLoader.createOpMappingRegistry<GraphDef, NodeDef, OpDef, TensorProto, OpDef.AttrDef, AttrValue, DataType>()
+    val importerVersion: String by lazy {
+        ImportCache.importerVersion(this, tfOpDescriptorLoader.mapperDefSet, tfOpDescriptorLoader.nd4jOpDescriptors)
+    }
 
     init {
         loader.values.forEach { opDef -> opDefListBuilder.addOp(opDef) }
@@ -66,7 +70,21 @@ class TensorflowFrameworkImporter: FrameworkImporter {
 
     }
 
+    /**
+     * Runs the import, or loads the previously imported graph from the [ImportCache]
+     * if one is configured via [ImportCache.CACHE_DIRECTORY_PROPERTY].
+     */
     override fun runImport(fileName: String, dynamicVariables: Map<String, INDArray>,suggestDynamicVariables: Boolean): SameDiff {
+        val cache = ImportCache.fromSystemProperties()
+        if(cache != null) {
+            return cache.getOrImport(fileName, importerVersion, dynamicVariables, suggestDynamicVariables) {
+                importFile(fileName, dynamicVariables, suggestDynamicVariables)
+            }
+        }
+        return importFile(fileName, dynamicVariables, suggestDynamicVariables)
+    }
+
+    fun importFile(fileName: String, dynamicVariables: Map<String, INDArray>,suggestDynamicVariables: Boolean): SameDiff {
         val loadGraph = GraphDef.parseFrom(Files.readAllBytes(File(fileName).toPath()))
         val irGraph = TensorflowIRGraph(loadGraph,opDefList,registry)
         return if(suggestDynamicVariables) {
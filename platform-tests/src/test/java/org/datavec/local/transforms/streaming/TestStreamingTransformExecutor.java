@@ -0,0 +1,273 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+
+package org.datavec.local.transforms.streaming;
+
+import org.datavec.api.records.reader.impl.collection.CollectionRecordReader;
+import org.datavec.api.records.reader.impl.collection.CollectionSequenceRecordReader;
+import org.datavec.api.transform.MathOp;
+import org.datavec.api.transform.ReduceOp;
+import org.datavec.api.transform.TransformProcess;
+import org.datavec.api.transform.condition.ConditionOp;
+import org.datavec.api.transform.condition.column.IntegerColumnCondition;
+import org.datavec.api.transform.reduce.Reducer;
+import org.datavec.api.transform.schema.Schema;
+import org.datavec.api.transform.schema.SequenceSchema;
+import org.datavec.api.transform.sequence.comparator.NumericalColumnComparator;
+import org.datavec.api.transform.rank.CalculateSortedRank;
+import org.datavec.api.writable.*;
+import org.datavec.api.writable.comparator.DoubleWritableComparator;
+import org.datavec.local.transforms.StreamingTransformProcessRecordReader;
+import org.datavec.local.transforms.StreamingTransformProcessSequenceRecordReader;
+import org.deeplearning4j.datasets.datavec.RecordReaderDataSetIterator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.dataset.DataSet;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag(TagNames.FILE_IO)
+@Tag(TagNames.JAVA_ONLY)
+public class TestStreamingTransformExecutor {
+
+    private static final Schema SCHEMA = new Schema.Builder()
+            .addColumnInteger("key")
+            .addColumnInteger("idx")
+            .addColumnDouble("value")
+            .build();
+
+    private static List<List<Writable>> getData(int numKeys, int n) {
+        List<List<Writable>> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            out.add(Arrays.<Writable>asList(new IntWritable(i % numKeys), new IntWritable(i), new DoubleWritable(i)));
+        }
+        return out;
+    }
+
+    private static <T> List<T> collect(Iterator<T> iter) {
+        List<T> out = new ArrayList<>();
+        while (iter.hasNext()) {
+            out.add(iter.next());
+        }
+        return out;
+    }
+
+    @Test
+    public void testStatelessOrderPreserved() {
+        List<List<Writable>> data = getData(10, 1000);
+        TransformProcess tp = new TransformProcess.Builder(SCHEMA)
+                .filter(new IntegerColumnCondition("idx", ConditionOp.LessThan, 100))
+                .doubleMathOp("value", MathOp.Multiply, 2.0)
+                .removeColumns("key")
+                .build();
+
+        StreamingTransformExecutor exec = new StreamingTransformExecutor.Builder()
+                .numWorkers(4)
+                .batchSize(7)
+                .queueCapacity(2)
+                .build();
+
+        List<List<Writable>> out = collect(exec.execute(new CollectionRecordReader(data), tp));
+        assertEquals(900, out.size());
+        for (int i = 0; i < out.size(); i++) {
+            assertEquals(100 + i, out.get(i).get(0).toInt());
+            assertEquals(2.0 * (100 + i), out.get(i).get(1).toDouble(), 0.0);
+            assertEquals(tp.execute(data.get(100 + i)), out.get(i));
+        }
+    }
+
+    @Test
+    public void testReduceWithSpill(@TempDir Path tempDir) {
+        List<List<Writable>> data = getData(13, 1000);
+        TransformProcess tp = new TransformProcess.Builder(SCHEMA)
+                .reduce(new Reducer.Builder(ReduceOp.Sum).keyColumns("key").countColumns("idx").build())
+                .build();
+
+        File spillDir = tempDir.toFile();
+        StreamingTransformExecutor exec = new StreamingTransformExecutor.Builder()
+                .numWorkers(2)
+                .numSpillPartitions(4)
+                .maxInMemoryRecords(50)
+                .spillDirectory(spillDir)
+                .build();
+
+        List<List<Writable>> out = collect(exec.execute(new CollectionRecordReader(data), tp));
+        assertEquals(13, out.size());
+        Collections.sort(out, Comparator.comparingInt(o -> o.get(0).toInt()));
+        for (int k = 0; k < 13; k++) {
+            long count = 0;
+            double sum = 0;
+            for (int i = k; i < 1000; i += 13) {
+                count++;
+                sum += i;
+            }
+            assertEquals(k, out.get(k).get(0).toInt());
+            assertEquals(count, out.get(k).get(1).toLong());
+            assertEquals(sum, out.get(k).get(2).toDouble(), 1e-6);
+        }
+
+        //Spill files should be deleted once the output is consumed
+        assertEquals(0, spillDir.listFiles().length);
+    }
+
+    @Test
+    public void testSpillingGrouper(@TempDir Path tempDir) throws Exception {
+        List<List<Writable>> data = getData(5, 100);
+        try (SpillingGrouper g = new SpillingGrouper(r -> r.get(0), tempDir.toFile(), 3, 10)) {
+            for (List<Writable> r : data) {
+                g.add(r);
+            }
+            g.finish();
+            assertTrue(g.getNumSpilledRecords() > 0);
+
+            int count = 0;
+            Set<Object> keys = new HashSet<>();
+            for (int p = 0; p < g.numPartitions(); p++) {
+                for (Map.Entry<Object, List<List<Writable>>> e : g.readPartition(p).entrySet()) {
+                    assertTrue(keys.add(e.getKey()));
+                    assertEquals(20, e.getValue().size());
+                    int last = -1;
+                    for (List<Writable> r : e.getValue()) {
+                        assertEquals(e.getKey(), r.get(0));
+                        assertTrue(r.get(1).toInt() > last);     //Insertion order is preserved within a key
+                        last = r.get(1).toInt();
+                    }
+                    count += e.getValue().size();
+                }
+            }
+            assertEquals(5, keys.size());
+            assertEquals(100, count);
+        }
+    }
+
+    @Test
+    public void testConvertToSequence(@TempDir Path tempDir) {
+        List<List<Writable>> data = getData(4, 200);
+        Collections.reverse(data);
+        TransformProcess tp = new TransformProcess.Builder(SCHEMA)
+                .convertToSequence("key", new NumericalColumnComparator("idx"))
+                .build();
+
+        StreamingTransformExecutor exec = new StreamingTransformExecutor.Builder()
+                .maxInMemoryRecords(20)
+                .spillDirectory(tempDir.toFile())
+                .build();
+
+        StreamingTransformProcessSequenceRecordReader rr =
+                new StreamingTransformProcessSequenceRecordReader(new CollectionRecordReader(data), tp, exec);
+        List<List<List<Writable>>> out = new ArrayList<>();
+        while (rr.hasNext()) {
+            out.add(rr.sequenceRecord());
+        }
+        assertEquals(4, out.size());
+        for (List<List<Writable>> seq : out) {
+            assertEquals(50, seq.size());
+            int key = seq.get(0).get(0).toInt();
+            for (int i = 0; i < seq.size(); i++) {
+                assertEquals(key, seq.get(i).get(0).toInt());
+                assertEquals(key + 4 * i, seq.get(i).get(1).toInt());
+            }
+        }
+
+        //Reset: same output again
+        rr.reset();
+        int count = 0;
+        while (rr.hasNext()) {
+            rr.sequenceRecord();
+            count++;
+        }
+        assertEquals(4, count);
+    }
+
+    @Test
+    public void testSequenceInput() {
+        Schema seqSchema = new SequenceSchema.Builder()
+                .addColumnInteger("key")
+                .addColumnInteger("idx")
+                .addColumnDouble("value")
+                .build();
+        List<List<List<Writable>>> sequences = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            sequences.add(getData(1, i + 1));
+        }
+
+        TransformProcess tp = new TransformProcess.Builder(seqSchema)
+                .doubleMathOp("value", MathOp.Add, 1.0)
+                .convertFromSequence()
+                .build();
+
+        StreamingTransformExecutor exec = new StreamingTransformExecutor.Builder().numWorkers(3).batchSize(2).build();
+        List<List<Writable>> out = collect(exec.execute(new CollectionSequenceRecordReader(sequences), tp));
+        assertEquals(55, out.size());
+        int pos = 0;
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j <= i; j++) {
+                assertEquals(j + 1.0, out.get(pos++).get(2).toDouble(), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testRecordReaderDataSetIterator() {
+        List<List<Writable>> data = getData(3, 100);
+        TransformProcess tp = new TransformProcess.Builder(SCHEMA)
+                .removeColumns("idx")
+                .build();
+
+        StreamingTransformProcessRecordReader rr = new StreamingTransformProcessRecordReader(new CollectionRecordReader(data), tp);
+        RecordReaderDataSetIterator iter = new RecordReaderDataSetIterator(rr, 32, 0, 3);
+        int count = 0;
+        while (iter.hasNext()) {
+            DataSet ds = iter.next();
+            for (int i = 0; i < ds.numExamples(); i++) {
+                assertEquals(count + i, ds.getFeatures().getDouble(i, 0), 0.0);
+                assertEquals(1.0, ds.getLabels().getDouble(i, (count + i) % 3), 0.0);
+            }
+            count += ds.numExamples();
+        }
+        assertEquals(100, count);
+
+        iter.reset();
+        assertEquals(32, iter.next().numExamples());
+    }
+
+    @Test
+    public void testErrors() {
+        TransformProcess tp = new TransformProcess.Builder(SCHEMA)
+                .calculateSortedRank("rank", "value", new DoubleWritableComparator())
+                .build();
+        StreamingTransformExecutor exec = new StreamingTransformExecutor.Builder().build();
+        assertThrows(UnsupportedOperationException.class,
+                () -> exec.execute(new CollectionRecordReader(getData(1, 10)), tp));
+
+        TransformProcess toSeq = new TransformProcess.Builder(SCHEMA)
+                .convertToSequence("key", new NumericalColumnComparator("idx"))
+                .build();
+        assertThrows(IllegalStateException.class,
+                () -> exec.execute(new CollectionRecordReader(getData(1, 10)), toSeq));
+    }
+}
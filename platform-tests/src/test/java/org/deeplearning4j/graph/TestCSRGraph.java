@@ -0,0 +1,195 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+package org.deeplearning4j.graph;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.graph.api.Edge;
+import org.deeplearning4j.graph.api.IVertexSequence;
+import org.deeplearning4j.graph.api.NoEdgeHandling;
+import org.deeplearning4j.graph.data.GraphLoader;
+import org.deeplearning4j.graph.data.impl.WeightedEdgeLineProcessor;
+import org.deeplearning4j.graph.exception.NoEdgesException;
+import org.deeplearning4j.graph.iterator.WeightedRandomWalkIterator;
+import org.deeplearning4j.graph.iterator.parallel.WeightedRandomWalkGraphIteratorProvider;
+import org.deeplearning4j.graph.iterator.GraphWalkIterator;
+import org.deeplearning4j.graph.vertexfactory.IntegerVertexFactory;
+import org.deeplearning4j.graph.vertexfactory.StringVertexFactory;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NativeTag
+@Tag(TagNames.FILE_IO)
+public class TestCSRGraph extends BaseDL4JTest {
+
+    @Test
+    public void testMatchesGraph() {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            int n = 50;
+            Graph<Integer, Double> graph = new Graph<>(n, true, new IntegerVertexFactory());
+            CSRGraph.Builder<Integer> b = new CSRGraph.Builder<>(n, new IntegerVertexFactory())
+                    .weighted(true)
+                    .offHeap(offHeap);
+
+            Random r = new Random(12345);
+            for (int i = 0; i < 300; i++) {
+                int from = r.nextInt(n);
+                int to = r.nextInt(n);
+                double w = r.nextDouble();
+                boolean directed = r.nextBoolean();
+                graph.addEdge(from, to, w, directed);
+                b.addEdge(from, to, w, directed);
+            }
+            CSRGraph<Integer> csr = b.build();
+            assertEquals(offHeap, csr.isOffHeap());
+            assertEquals(n, csr.numVertices());
+
+            long numEdges = 0;
+            for (int i = 0; i < n; i++) {
+                assertEquals(graph.getVertexDegree(i), csr.getVertexDegree(i));
+                assertArrayEquals(graph.getConnectedVertexIndices(i), csr.getConnectedVertexIndices(i));
+                assertEquals(graph.getVertex(i), csr.getVertex(i));
+
+                List<Edge<Double>> edges = graph.getEdgesOut(i);
+                float[] weights = csr.getEdgeWeights(i);
+                for (int j = 0; j < edges.size(); j++) {
+                    assertEquals(edges.get(j).getValue(), weights[j], 1e-6);
+                }
+                numEdges += csr.getVertexDegree(i);
+            }
+            assertEquals(numEdges, csr.numEdges());
+        }
+    }
+
+    @Test
+    public void testLoadEdgeListFile(@TempDir Path testDir) throws Exception {
+        File f = new File(testDir.toFile(), "edges.txt");
+        List<String> lines = new ArrayList<>();
+        lines.add("//comment");
+        Random r = new Random(12345);
+        for (int i = 0; i < 200; i++) {
+            lines.add(r.nextInt(20) + "," + r.nextInt(20) + "," + (r.nextInt(100) / 10.0));
+        }
+        Files.write(f.toPath(), lines, StandardCharsets.UTF_8);
+        String path = f.getAbsolutePath();
+
+        for (boolean directed : new boolean[]{false, true}) {
+            Graph<String, Double> graph = GraphLoader.loadWeightedEdgeListFile(path, 20, ",", directed, "//");
+            WeightedEdgeLineProcessor lp = new WeightedEdgeLineProcessor(",", directed, "//");
+            CSRGraph<String> csr = GraphLoader.loadCSRGraph(path, lp, new StringVertexFactory(), 20, true, false);
+            CSRGraph<String> fromBuilder = new CSRGraph.Builder<>(20, new StringVertexFactory())
+                    .weighted(true)
+                    .addEdges(path, lp)
+                    .build();
+
+            for (int i = 0; i < 20; i++) {
+                int[] expected = graph.getConnectedVertexIndices(i);
+                assertArrayEquals(expected, csr.getConnectedVertexIndices(i));
+                assertArrayEquals(expected, fromBuilder.getConnectedVertexIndices(i));
+                assertArrayEquals(csr.getEdgeWeights(i), fromBuilder.getEdgeWeights(i), 0.0f);
+            }
+        }
+    }
+
+    @Test
+    public void testAliasSampling() {
+        double[] weights = {1.0, 2.0, 0.0, 7.0};
+        CSRGraph.Builder<Integer> b = new CSRGraph.Builder<>(5, new IntegerVertexFactory()).weighted(true);
+        for (int i = 0; i < weights.length; i++) {
+            b.addEdge(0, i + 1, weights[i], true);
+        }
+        CSRGraph<Integer> csr = b.build();
+
+        int nSamples = 100000;
+        int[] counts = new int[5];
+        Random r = new Random(12345);
+        for (int i = 0; i < nSamples; i++) {
+            counts[csr.sampleWeightedConnectedVertex(0, r)]++;
+        }
+        assertEquals(0, counts[0]);
+        assertEquals(0, counts[3]);
+        for (int i = 0; i < weights.length; i++) {
+            assertEquals(weights[i] / 10.0, counts[i + 1] / (double) nSamples, 0.01, "Vertex " + (i + 1));
+        }
+
+        assertThrows(NoEdgesException.class, () -> csr.sampleWeightedConnectedVertex(1, r));
+        assertThrows(UnsupportedOperationException.class, () -> csr.addEdge(1, 2, 1.0, true));
+    }
+
+    @Test
+    public void testWeightedRandomWalks() {
+        int n = 100;
+        CSRGraph.Builder<Integer> b = new CSRGraph.Builder<>(n, new IntegerVertexFactory()).weighted(true);
+        Random r = new Random(12345);
+        for (int i = 0; i < n - 1; i++) {
+            //Vertex n-1 has no outgoing edges
+            b.addEdge(i, r.nextInt(n), 1.0 + r.nextInt(5), true);
+            b.addEdge(i, r.nextInt(n), 1.0 + r.nextInt(5), true);
+        }
+        CSRGraph<Integer> csr = b.build();
+
+        WeightedRandomWalkGraphIteratorProvider<Integer> provider =
+                new WeightedRandomWalkGraphIteratorProvider<>(csr, 8, 12345, NoEdgeHandling.SELF_LOOP_ON_DISCONNECTED);
+        List<GraphWalkIterator<Integer>> iterators = provider.getGraphWalkIterators(4);
+        assertEquals(4, iterators.size());
+
+        boolean[] started = new boolean[n];
+        for (GraphWalkIterator<Integer> iter : iterators) {
+            while (iter.hasNext()) {
+                IVertexSequence<Integer> seq = iter.next();
+                assertEquals(9, seq.sequenceLength());
+                int prev = seq.next().vertexID();
+                assertFalse(started[prev]);
+                started[prev] = true;
+                while (seq.hasNext()) {
+                    int curr = seq.next().vertexID();
+                    if (csr.getVertexDegree(prev) == 0) {
+                        assertEquals(prev, curr);
+                    } else {
+                        int[] connected = csr.getConnectedVertexIndices(prev);
+                        int c = curr;
+                        assertTrue(Arrays.stream(connected).anyMatch(x -> x == c));
+                    }
+                    prev = curr;
+                }
+            }
+        }
+        for (boolean s : started) {
+            assertTrue(s);
+        }
+
+        WeightedRandomWalkIterator<Integer> iter = new WeightedRandomWalkIterator<>(csr, 8, 12345,
+                NoEdgeHandling.EXCEPTION_ON_DISCONNECTED, n - 1, n);
+        assertThrows(NoEdgesException.class, iter::next);
+    }
+}
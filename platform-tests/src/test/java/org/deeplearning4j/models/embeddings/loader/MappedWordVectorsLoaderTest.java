@@ -0,0 +1,249 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+
+package org.deeplearning4j.models.embeddings.loader;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.Word2Vec;
+import org.deeplearning4j.models.word2vec.wordstore.inmemory.ReadOnlyVocabCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag(TagNames.FILE_IO)
+@NativeTag
+public class MappedWordVectorsLoaderTest extends BaseDL4JTest {
+
+    private static final int NUM_WORDS = 1000;
+    private static final int VECTOR_LENGTH = 20;
+
+    @Test
+    public void testTextFormat(@TempDir Path testDir) throws Exception {
+        String[] words = words();
+        float[][] vectors = vectors(12345);
+
+        for (boolean header : new boolean[]{true, false}) {
+            File f = new File(testDir.toFile(), "vectors_" + header + ".txt");
+            try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f), StandardCharsets.UTF_8))) {
+                if (header)
+                    w.write(NUM_WORDS + " " + VECTOR_LENGTH + "\n");
+                for (int i = 0; i < NUM_WORDS; i++) {
+                    w.write(i % 10 == 0 ? WordVectorSerializer.ReadHelper.encodeB64(words[i]) : words[i]);
+                    for (float v : vectors[i])
+                        w.write(" " + v);
+                    w.write(i == NUM_WORDS - 1 ? "" : "\n");
+                }
+            }
+
+            for (int numThreads : new int[]{1, 3, 8}) {
+                Word2Vec w2v = MappedWordVectorsLoader.loadText(f, numThreads);
+                check(w2v, words, vectors);
+            }
+        }
+    }
+
+    @Test
+    public void testBinaryFormat(@TempDir Path testDir) throws Exception {
+        String[] words = words();
+        float[][] vectors = vectors(23456);
+
+        File f = new File(testDir.toFile(), "vectors.bin");
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(f))) {
+            os.write((NUM_WORDS + " " + VECTOR_LENGTH + "\n").getBytes(StandardCharsets.UTF_8));
+            ByteBuffer bb = ByteBuffer.allocate(4 * VECTOR_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < NUM_WORDS; i++) {
+                os.write((words[i] + " ").getBytes(StandardCharsets.UTF_8));
+                bb.clear();
+                bb.asFloatBuffer().put(vectors[i]);
+                os.write(bb.array());
+                os.write('\n');
+            }
+        }
+
+        for (int numThreads : new int[]{1, 4}) {
+            check(MappedWordVectorsLoader.loadBinary(f, numThreads), words, vectors);
+        }
+
+        Word2Vec expected = WordVectorSerializer.readBinaryModel(new FileInputStream(f), true, false);
+        Word2Vec actual = MappedWordVectorsLoader.loadBinary(f);
+        assertEquals(expected.lookupTable().getWeights(), actual.lookupTable().getWeights());
+        for (int i = 0; i < NUM_WORDS; i++) {
+            assertEquals(expected.vocab().wordAtIndex(i), actual.vocab().wordAtIndex(i));
+        }
+    }
+
+    @Test
+    public void testNativeFormat(@TempDir Path testDir) throws Exception {
+        String[] words = words();
+        float[][] vectors = vectors(34567);
+
+        File txt = new File(testDir.toFile(), "vectors.txt");
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(txt), StandardCharsets.UTF_8))) {
+            for (int i = 0; i < NUM_WORDS; i++) {
+                w.write(words[i]);
+                for (float v : vectors[i])
+                    w.write(" " + v);
+                w.write("\n");
+            }
+        }
+
+        File nativeFile = new File(testDir.toFile(), "vectors.dl4jwv");
+        MappedWordVectorsLoader.convertToNative(txt, false, nativeFile);
+        assertTrue(MappedWordVectorsLoader.isNativeFormat(nativeFile));
+        assertFalse(MappedWordVectorsLoader.isNativeFormat(txt));
+        assertEquals(64 + 4L * NUM_WORDS * VECTOR_LENGTH, Files.size(nativeFile.toPath())
+                - 4L * (NUM_WORDS + 1) - String.join("", words).getBytes(StandardCharsets.UTF_8).length);
+
+        for (int numThreads : new int[]{1, 5}) {
+            check(MappedWordVectorsLoader.loadNative(nativeFile, numThreads), words, vectors);
+        }
+
+        //Format should be detected by the generic loader
+        check(WordVectorSerializer.readWord2VecModel(nativeFile), words, vectors);
+
+        //Round trip from a regular model
+        Word2Vec fromText = MappedWordVectorsLoader.loadText(txt);
+        File nativeFile2 = new File(testDir.toFile(), "vectors2.dl4jwv");
+        MappedWordVectorsLoader.writeNative(fromText, nativeFile2);
+        assertArrayEquals(Files.readAllBytes(nativeFile.toPath()), Files.readAllBytes(nativeFile2.toPath()));
+    }
+
+    @Test
+    public void testReadOnlyVocabCache() {
+        String[] words = words();
+        ReadOnlyVocabCache cache = new ReadOnlyVocabCache(words);
+
+        assertEquals(NUM_WORDS, cache.numWords());
+        for (int i = 0; i < NUM_WORDS; i++) {
+            assertEquals(i, cache.indexOf(words[i]));
+            assertTrue(cache.containsWord(words[i]));
+            assertEquals(words[i], cache.wordAtIndex(i));
+
+            VocabWord vw = cache.wordFor(words[i]);
+            assertEquals(words[i], vw.getLabel());
+            assertEquals(i, vw.getIndex());
+            assertEquals(words[i], cache.wordFor(SequenceElement.getLongHash(words[i])).getLabel());
+        }
+        assertEquals(-2, cache.indexOf("not_in_vocab"));
+        assertNull(cache.wordFor("not_in_vocab"));
+        assertFalse(cache.hasToken("not_in_vocab"));
+        assertNull(cache.wordAtIndex(NUM_WORDS));
+        assertEquals(NUM_WORDS, cache.vocabWords().size());
+
+        assertThrows(UnsupportedOperationException.class, () -> cache.addToken(new VocabWord(1.0, "new")));
+        assertThrows(UnsupportedOperationException.class, () -> cache.incrementWordCount(words[0]));
+        assertThrows(IllegalStateException.class, () -> new ReadOnlyVocabCache(new String[]{"a", "b", "a"}));
+    }
+
+    @Test
+    public void testParseFloat(@TempDir Path testDir) throws Exception {
+        Random r = new Random(12345);
+        String[] values = new String[2000];
+        for (int i = 0; i < values.length; i++) {
+            switch (i % 5) {
+                case 0:
+                    values[i] = String.valueOf((float) r.nextGaussian());
+                    break;
+                case 1:
+                    values[i] = String.format(Locale.ROOT, "%.6f", r.nextGaussian() * 10);
+                    break;
+                case 2:
+                    values[i] = String.valueOf((float) (r.nextGaussian() * 1e-7));
+                    break;
+                case 3:
+                    values[i] = String.format(Locale.ROOT, "%.12e", r.nextGaussian() * 1e20);
+                    break;
+                default:
+                    values[i] = (r.nextBoolean() ? "+" : "") + r.nextInt(1000000) + "." + r.nextInt(1000);
+            }
+        }
+        values[0] = "NaN";
+        values[1] = "-Infinity";
+        values[2] = "0";
+        values[3] = "-0.0";
+        values[4] = "1.";
+        values[5] = ".5";
+
+        File f = new File(testDir.toFile(), "floats.txt");
+        Files.write(f.toPath(), String.join(" ", values).getBytes(StandardCharsets.US_ASCII));
+
+        try (MappedWordVectorsLoader.MappedBytes bytes = new MappedWordVectorsLoader.MappedBytes(f)) {
+            long pos = 0;
+            for (String v : values) {
+                float actual = MappedWordVectorsLoader.parseFloat(bytes, pos, pos + v.length());
+                float expected = Float.parseFloat(v);
+                assertEquals(expected, actual, Float.isFinite(expected) ? Math.ulp(expected) : 0f, v);
+                pos += v.length() + 1;
+            }
+        }
+    }
+
+    private static String[] words() {
+        String[] words = new String[NUM_WORDS];
+        for (int i = 0; i < NUM_WORDS; i++) {
+            words[i] = (i % 7 == 0 ? "w\u00f6rd" : "word") + i;
+        }
+        return words;
+    }
+
+    private static float[][] vectors(long seed) {
+        Random r = new Random(seed);
+        float[][] vectors = new float[NUM_WORDS][VECTOR_LENGTH];
+        for (int i = 0; i < NUM_WORDS; i++) {
+            for (int j = 0; j < VECTOR_LENGTH; j++) {
+                vectors[i][j] = (float) r.nextGaussian();
+            }
+        }
+        return vectors;
+    }
+
+    private static void check(Word2Vec w2v, String[] words, float[][] vectors) {
+        assertEquals(NUM_WORDS, w2v.vocab().numWords());
+        INDArray syn0 = w2v.lookupTable().getWeights();
+        assertEquals(DataType.FLOAT, syn0.dataType());
+        assertArrayEquals(new long[]{NUM_WORDS, VECTOR_LENGTH}, syn0.shape());
+        assertEquals(Nd4j.createFromArray(vectors), syn0);
+
+        for (int i = 0; i < NUM_WORDS; i++) {
+            assertEquals(words[i], w2v.vocab().wordAtIndex(i));
+            assertEquals(i, w2v.vocab().indexOf(words[i]));
+        }
+        assertEquals(Nd4j.createFromArray(vectors[5]), w2v.getWordVectorMatrix(words[5]));
+    }
+}
@@ -137,6 +137,39 @@ public class Word2VecTestsSmall extends BaseDL4JTest {
         WordVectorSerializer.writeWord2VecModel(vec, tmpFile); // NullPointerException was thrown here
     }
 
+    @Test()
+    @Timeout(300000)
+    public void testMultipleCalculationThreads() throws Exception {
+        val inputFile = Resources.asFile("big/raw_sentences.txt");
+        SentenceIterator iter = ParagraphVectorsTest.getIterator(isIntegrationTests(), inputFile);
+        val t = new DefaultTokenizerFactory();
+        t.setTokenPreProcessor(new CommonPreprocessor());
+
+        val vec = new Word2Vec.Builder()
+                .minWordFrequency(1)
+                .epochs(2)
+                .layerSize(50)
+                .windowSize(5)
+                .batchSize(64)
+                .negativeSample(5)
+                .useHierarchicSoftmax(false)
+                .seed(42)
+                .iterate(iter)
+                .workers(4)
+                .calculationThreads(4)
+                .tokenizerFactory(t).build();
+
+        vec.fit();
+
+        assertTrue(vec.getVocab().numWords() > 0);
+        INDArray weights = vec.lookupTable().getWeights();
+        assertEquals(0, weights.isNaN().castTo(DataType.INT).sumNumber().intValue());
+        assertEquals(0, weights.isInfinite().castTo(DataType.INT).sumNumber().intValue());
+
+        double sim = vec.similarity("day", "night");
+        assertTrue(Double.isFinite(sim));
+    }
+
     @Test
     public void testLabelAwareIterator_1() throws Exception {
         val resource = new ClassPathResource("/labeled");
@@ -0,0 +1,220 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+package org.deeplearning4j.parallelism;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.LSTM;
+import org.deeplearning4j.nn.conf.layers.RnnOutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.parallelism.generation.ContinuousBatchingGenerator;
+import org.deeplearning4j.parallelism.generation.GenerationHandle;
+import org.deeplearning4j.parallelism.generation.InputEncoder;
+import org.deeplearning4j.parallelism.generation.TokenListener;
+import org.deeplearning4j.parallelism.generation.TokenSampler;
+import org.junit.jupiter.api.Test;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NativeTag
+public class ContinuousBatchingGeneratorTest extends BaseDL4JTest {
+    private static final int VOCAB = 8;
+
+    @Test
+    public void testMatchesSequentialGeneration() throws Exception {
+        MultiLayerNetwork net = getNet();
+        int[][] prompts = {{1}, {2, 3, 4}, {5, 6}, {7, 0, 1, 2, 3}, {4, 4}, {3}};
+        int[] maxTokens = {6, 3, 8, 2, 5, 7};
+
+        //At most 3 sequences at a time: later sequences are admitted as earlier ones complete
+        ContinuousBatchingGenerator generator = new ContinuousBatchingGenerator.Builder(net.clone())
+                .maxBatchSize(3)
+                .build();
+        try {
+            List<GenerationHandle> handles = new ArrayList<>();
+            for (int i = 0; i < prompts.length; i++) {
+                handles.add(generator.submit(prompts[i], maxTokens[i]));
+            }
+            for (int i = 0; i < prompts.length; i++) {
+                int[] expected = generateSequential(net, prompts[i], maxTokens[i], -1);
+                assertArrayEquals(expected, handles.get(i).get(30, TimeUnit.SECONDS), "Sequence " + i);
+            }
+
+            int totalTokens = 0;
+            for (int m : maxTokens)
+                totalTokens += m;
+            assertEquals(totalTokens, generator.getTokenCount());
+            assertEquals(0, generator.getActiveCount());
+            assertEquals(0, generator.getPendingCount());
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    @Test
+    public void testStreamingAndStopToken() throws Exception {
+        MultiLayerNetwork net = getNet();
+        int[] prompt = {2, 5};
+        int[] reference = generateSequential(net, prompt, 10, -1);
+        int stopToken = reference[3];
+        int[] expected = generateSequential(net, prompt, 10, stopToken);
+        assertEquals(stopToken, expected[expected.length - 1]);
+
+        ContinuousBatchingGenerator generator = new ContinuousBatchingGenerator.Builder(net.clone()).build();
+        try {
+            final List<Integer> listenerTokens = new ArrayList<>();
+            final AtomicInteger completed = new AtomicInteger();
+            GenerationHandle h = generator.submit(prompt, 10, stopToken, new TokenListener() {
+                @Override
+                public void onToken(GenerationHandle handle, int token) {
+                    listenerTokens.add(token);
+                }
+
+                @Override
+                public void onComplete(GenerationHandle handle) {
+                    completed.incrementAndGet();
+                }
+            });
+
+            List<Integer> streamed = new ArrayList<>();
+            Integer token;
+            while ((token = h.nextToken()) != null) {
+                streamed.add(token);
+            }
+
+            assertArrayEquals(expected, h.get());
+            assertEquals(toList(expected), streamed);
+            assertEquals(toList(expected), listenerTokens);
+            assertEquals(1, completed.get());
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancelAndShutdown() throws Exception {
+        ContinuousBatchingGenerator generator = new ContinuousBatchingGenerator.Builder(getNet())
+                .maxBatchSize(2)
+                .build();
+        GenerationHandle h = generator.submit(new int[]{1, 2}, Integer.MAX_VALUE);
+        assertNotNull(h.nextToken());
+        assertTrue(h.cancel(true));
+        assertThrows(CancellationException.class, () -> h.get(30, TimeUnit.SECONDS));
+
+        //Other sequences are unaffected
+        GenerationHandle h2 = generator.submit(new int[]{3}, 4);
+        assertEquals(4, h2.get(30, TimeUnit.SECONDS).length);
+
+        generator.shutdown();
+        assertThrows(IllegalStateException.class, () -> generator.submit(new int[]{1}, 1));
+    }
+
+    @Test
+    public void testComputationGraph() throws Exception {
+        MultiLayerNetwork net = getNet();
+        ComputationGraph cg = net.toComputationGraph();
+        ContinuousBatchingGenerator generator = new ContinuousBatchingGenerator.Builder(cg)
+                .inputEncoder(InputEncoder.oneHot(VOCAB))
+                .sampler(TokenSampler.greedy())
+                .maxBatchSize(2)
+                .build();
+        try {
+            int[][] prompts = {{1, 2}, {3}, {4, 5, 6}};
+            List<GenerationHandle> handles = new ArrayList<>();
+            for (int[] p : prompts) {
+                handles.add(generator.submit(p, 5));
+            }
+            for (int i = 0; i < prompts.length; i++) {
+                int[] expected = generateSequential(net, prompts[i], 5, -1);
+                assertArrayEquals(expected, handles.get(i).get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    @Test
+    public void testTemperatureSampler() {
+        TokenSampler s = TokenSampler.temperature(0.5, 12345);
+        INDArray probs = Nd4j.createFromArray(0.0, 0.0, 1.0, 0.0);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(2, s.sample(probs));
+        }
+        assertThrows(IllegalArgumentException.class, () -> TokenSampler.temperature(0.0, 12345));
+    }
+
+    private static int[] generateSequential(MultiLayerNetwork net, int[] prompt, int maxTokens, int stopToken) {
+        InputEncoder encoder = InputEncoder.oneHot(VOCAB);
+        net.rnnClearPreviousState();
+        INDArray out = null;
+        for (int t : prompt) {
+            out = net.rnnTimeStep(encoder.encode(new int[]{t}, DataType.DOUBLE));
+        }
+        List<Integer> tokens = new ArrayList<>();
+        while (tokens.size() < maxTokens) {
+            int token = out.getRow(0).argMax().getInt(0);
+            tokens.add(token);
+            if (token == stopToken)
+                break;
+            out = net.rnnTimeStep(encoder.encode(new int[]{token}, DataType.DOUBLE));
+        }
+        net.rnnClearPreviousState();
+        int[] result = new int[tokens.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = tokens.get(i);
+        return result;
+    }
+
+    private static List<Integer> toList(int[] arr) {
+        List<Integer> out = new ArrayList<>();
+        for (int i : arr)
+            out.add(i);
+        return out;
+    }
+
+    private static MultiLayerNetwork getNet() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .dataType(DataType.DOUBLE)
+                .list()
+                .layer(new LSTM.Builder().nIn(VOCAB).nOut(16).activation(Activation.TANH).build())
+                .layer(new LSTM.Builder().nIn(16).nOut(16).activation(Activation.TANH).build())
+                .layer(new RnnOutputLayer.Builder().nIn(16).nOut(VOCAB).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        return net;
+    }
+}
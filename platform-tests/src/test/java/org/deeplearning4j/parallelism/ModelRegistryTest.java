@@ -0,0 +1,180 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+package org.deeplearning4j.parallelism;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.parallelism.serving.ModelRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NativeTag
+@Tag(TagNames.FILE_IO)
+public class ModelRegistryTest extends BaseDL4JTest {
+
+    @Test
+    public void testOutputAndSharedParameters() {
+        ModelRegistry registry = new ModelRegistry.Builder().workersPerModel(3).build();
+        MultiLayerNetwork net = getNet(12345);
+        INDArray in = Nd4j.rand(5, 4);
+        INDArray expected = net.output(in);
+
+        registry.register("a", net);
+        assertEquals(expected, registry.output("a", in));
+        long bytes = registry.getResidentBytes();
+        assertEquals(net.numParams() * net.params().dataType().width(), bytes);
+
+        //Identical parameters: shared, not copied
+        registry.register("b", net.clone());
+        assertEquals(bytes, registry.getResidentBytes());
+        assertEquals(expected, registry.output("b", in));
+
+        //Different parameters
+        MultiLayerNetwork other = getNet(23456);
+        registry.register("c", other);
+        assertEquals(2 * bytes, registry.getResidentBytes());
+        assertEquals(other.output(in), registry.output("c", in));
+
+        ComputationGraph cg = other.toComputationGraph();
+        registry.register("graph", cg);
+        assertEquals(other.output(in), registry.output("graph", new INDArray[]{in}, null)[0]);
+
+        assertTrue(registry.unregister("a"));
+        assertFalse(registry.unregister("a"));
+        assertThrows(IllegalArgumentException.class, () -> registry.output("a", in));
+        assertEquals(expected, registry.output("b", in));
+
+        registry.shutdown();
+        assertTrue(registry.getModelNames().isEmpty());
+        assertEquals(0, registry.getResidentBytes());
+    }
+
+    @Test
+    public void testHotSwap() throws Exception {
+        ModelRegistry registry = new ModelRegistry.Builder().workersPerModel(2).build();
+        MultiLayerNetwork net1 = getNet(12345);
+        MultiLayerNetwork net2 = getNet(23456);
+        INDArray in = Nd4j.rand(5, 4);
+        INDArray out1 = net1.output(in);
+        INDArray out2 = net2.output(in);
+
+        assertEquals(1, registry.register("model", net1));
+
+        AtomicBoolean stop = new AtomicBoolean(false);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread t = new Thread(() -> {
+                try {
+                    while (!stop.get()) {
+                        INDArray out = registry.output("model", in);
+                        if (!out.equals(out1) && !out.equals(out2))
+                            throw new IllegalStateException("Unexpected output");
+                    }
+                } catch (Throwable th) {
+                    failure.set(th);
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+
+        Thread.sleep(100);
+        assertEquals(2, registry.register("model", net2));
+        assertEquals(out2, registry.output("model", in));
+        Thread.sleep(100);
+        stop.set(true);
+        for (Thread t : threads)
+            t.join();
+
+        assertNull(failure.get());
+        assertEquals(2, registry.getVersion("model"));
+        assertEquals(net2.numParams() * net2.params().dataType().width(), registry.getResidentBytes());
+        registry.shutdown();
+    }
+
+    @Test
+    public void testEviction(@TempDir Path tempDir) {
+        File dir = tempDir.toFile();
+        MultiLayerNetwork net1 = getNet(12345);
+        MultiLayerNetwork net2 = getNet(23456);
+        long bytes = net1.numParams() * net1.params().dataType().width();
+        INDArray in = Nd4j.rand(5, 4);
+        INDArray out1 = net1.output(in);
+        INDArray out2 = net2.output(in);
+
+        ModelRegistry registry = new ModelRegistry.Builder()
+                .workersPerModel(2)
+                .memoryBudget(bytes)
+                .spillDirectory(dir)
+                .build();
+
+        registry.register("a", net1);
+        registry.register("b", net2);
+        assertFalse(registry.isResident("a"));
+        assertTrue(registry.isResident("b"));
+        assertEquals(bytes, registry.getResidentBytes());
+        assertEquals(1, dir.listFiles().length);
+
+        //Transparently reloaded - and "b" is now the least recently used model
+        assertEquals(out1, registry.output("a", in));
+        assertTrue(registry.isResident("a"));
+        assertFalse(registry.isResident("b"));
+        assertEquals(out2, registry.output("b", in));
+        assertEquals(bytes, registry.getResidentBytes());
+
+        registry.shutdown();
+        assertEquals(0, dir.listFiles().length);
+    }
+
+    private static MultiLayerNetwork getNet(long seed) {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(seed)
+                .list()
+                .layer(new DenseLayer.Builder().nIn(4).nOut(8).activation(Activation.TANH).build())
+                .layer(new OutputLayer.Builder().nIn(8).nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        return net;
+    }
+}
@@ -34,6 +34,7 @@ import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.deeplearning4j.nn.weights.WeightInit;
 import org.deeplearning4j.spark.BaseSparkTest;
 import org.deeplearning4j.spark.impl.graph.SparkComputationGraph;
+import org.deeplearning4j.spark.impl.inference.InferenceModelCache;
 import org.deeplearning4j.spark.impl.multilayer.scoring.VaeReconstructionErrorWithKeyFunction;
 import org.deeplearning4j.spark.impl.multilayer.scoring.VaeReconstructionProbWithKeyFunction;
 import org.junit.jupiter.api.Tag;
@@ -110,6 +111,50 @@ public class TestMiscFunctions extends BaseSparkTest {
         }
     }
 
+    @Test
+    public void testInferenceMultipleWorkers() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().weightInit(WeightInit.XAVIER).list()
+                        .layer(0, new DenseLayer.Builder().nIn(4).nOut(3).build())
+                        .layer(1, new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(3).nOut(3)
+                                        .activation(Activation.SOFTMAX).build())
+                        .build();
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        DataSetIterator iter = new IrisDataSetIterator(150, 150);
+        DataSet ds = iter.next();
+        INDArray expOut = net.output(ds.getFeatures(), false);
+        INDArray expScores = net.scoreExamples((org.nd4j.linalg.dataset.DataSet) ds, false);
+
+        List<Tuple2<Integer, INDArray>> features = new ArrayList<>();
+        List<Tuple2<Integer, org.nd4j.linalg.dataset.DataSet>> examples = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            features.add(new Tuple2<>(i, ds.getFeatures().getRow(i, true)));
+            examples.add(new Tuple2<>(i, new org.nd4j.linalg.dataset.DataSet(ds.getFeatures().getRow(i, true),
+                            ds.getLabels().getRow(i, true))));
+        }
+
+        SparkDl4jMultiLayer multiLayer = new SparkDl4jMultiLayer(sc, net, null);
+        multiLayer.setInferenceWorkers(3);
+        assertEquals(3, multiLayer.getInferenceWorkers());
+
+        Map<Integer, INDArray> out = multiLayer.feedForwardWithKey(sc.parallelizePairs(features, 4), 8)
+                        .collectAsMap();
+        Map<Integer, Double> scores = multiLayer.scoreExamples(sc.parallelizePairs(examples, 4), false, 8)
+                        .collectAsMap();
+
+        assertEquals(150, out.size());
+        assertEquals(150, scores.size());
+        for (int i = 0; i < 150; i++) {
+            assertEquals(expOut.getRow(i, true), out.get(i));
+            assertEquals(expScores.getDouble(i), scores.get(i), 1e-5);
+        }
+
+        //Local mode: executor and driver are the same JVM
+        assertTrue(InferenceModelCache.getInstance().size() > 0);
+    }
+
     @Test
     public void testFeedForwardWithKeyInputMask() {
 
@@ -27,8 +27,10 @@ import org.deeplearning4j.core.storage.Persistable;
 import org.deeplearning4j.core.storage.StatsStorage;
 import org.deeplearning4j.core.storage.StatsStorageEvent;
 import org.deeplearning4j.core.storage.StatsStorageListener;
+import org.deeplearning4j.ui.model.stats.api.Histogram;
 import org.deeplearning4j.ui.model.stats.api.StatsInitializationReport;
 import org.deeplearning4j.ui.model.stats.api.StatsReport;
+import org.deeplearning4j.ui.model.stats.api.StatsType;
 import org.deeplearning4j.ui.model.stats.impl.SbeStatsInitializationReport;
 import org.deeplearning4j.ui.model.stats.impl.SbeStatsReport;
 import org.deeplearning4j.ui.model.stats.impl.java.JavaStatsInitializationReport;
@@ -36,6 +38,8 @@ import org.deeplearning4j.ui.model.stats.impl.java.JavaStatsReport;
 import org.deeplearning4j.ui.model.storage.InMemoryStatsStorage;
 import org.deeplearning4j.ui.model.storage.mapdb.MapDBStatsStorage;
 import org.deeplearning4j.ui.model.storage.sqlite.J7FileStatsStorage;
+import org.deeplearning4j.ui.model.storage.timeseries.ScalarSeries;
+import org.deeplearning4j.ui.model.storage.timeseries.TimeSeriesStatsStorage;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
@@ -363,6 +367,103 @@ public class TestStatsStorage extends BaseDL4JTest {
         }
     }
 
+    @Test
+    public void testTimeSeriesStatsStorage(@TempDir Path testDir) throws IOException {
+        File f = createTempFile(testDir, "TestTimeSeriesStatsStore", ".bin");
+        f.delete();
+        StatsStorage ss = new TimeSeriesStatsStorage.Builder(f).rawRetention(100).histogramFrequency(5)
+                .chunkSize(16).build();
+
+        CountingListener l = new CountingListener();
+        ss.registerStatsStorageListener(l);
+        ss.putStaticInfo(getInitReport(0, 0, 0, false));
+        int nUpdates = 2000;
+        long t0 = 1000000;
+        for (int i = 0; i < nUpdates; i++) {
+            StatsReport r = getReport(0, 0, 0, t0 + i, false);
+            r.reportScore(i);
+            r.reportHistograms(StatsType.Parameters,
+                    Collections.singletonMap("p0", new Histogram(0.0, 1.0, 2, new int[] {i, 1})));
+            ss.putUpdate(r);
+        }
+        assertEquals(1, l.countNewSession);
+        assertEquals(1, l.countStaticInfo);
+        assertEquals(nUpdates, l.countUpdate);
+
+        for (int reopen = 0; reopen < 2; reopen++) {
+            if (reopen == 1) {
+                ss.close();
+                assertTrue(ss.isClosed());
+                ss = new TimeSeriesStatsStorage.Builder(f).rawRetention(100).histogramFrequency(5).chunkSize(16)
+                        .build();
+            }
+            TimeSeriesStatsStorage tss = (TimeSeriesStatsStorage) ss;
+
+            assertEquals(Collections.singletonList("sid0"), ss.listSessionIDs());
+            assertEquals(getInitReport(0, 0, 0, false), ss.getStaticInfo("sid0", "tid0", "wid0"));
+
+            //Last 100 updates at full resolution; of the 1900 older ones, the index keeps the last 100 of every 10th
+            // (900 to 1890) and every 100th before that (0 to 800)
+            long[] times = ss.getAllUpdateTimes("sid0", "tid0", "wid0");
+            assertEquals(209, times.length);
+            assertEquals(209, ss.getNumUpdateRecordsFor("sid0", "tid0", "wid0"));
+            for (int i = 1; i < times.length; i++) {
+                assertTrue(times[i] > times[i - 1]);
+            }
+            assertEquals(t0, times[0]);
+            assertEquals(t0 + 800, times[8]);
+            assertEquals(t0 + 900, times[9]);
+            assertEquals(t0 + 1900, times[109]);
+            assertEquals(t0 + nUpdates - 1, times[208]);
+
+            StatsReport latest = (StatsReport) ss.getLatestUpdate("sid0", "tid0", "wid0");
+            assertEquals(nUpdates - 1, latest.getScore(), 0.0);
+            assertEquals(100, ss.getAllUpdatesAfter("sid0", "tid0", "wid0", t0 + 1899).size());
+            assertEquals(5, ss.getAllUpdatesAfter("sid0", "tid0", t0 + 1994).size());
+            assertNull(ss.getUpdate("sid0", "tid0", "wid0", t0 + 1));
+
+            //Histograms are stored only for every 5th update
+            StatsReport withHist = (StatsReport) ss.getUpdate("sid0", "tid0", "wid0", t0 + 1950);
+            assertEquals(1950, withHist.getScore(), 0.0);
+            assertTrue(withHist.hasHistograms(StatsType.Parameters));
+            assertArrayEquals(new int[] {1950, 1},
+                    withHist.getHistograms(StatsType.Parameters).get("p0").getBinCounts());
+            StatsReport noHist = (StatsReport) ss.getUpdate("sid0", "tid0", "wid0", t0 + 1951);
+            assertEquals(1951, noHist.getScore(), 0.0);
+            assertFalse(noHist.hasHistograms(StatsType.Parameters));
+
+            //Full range: only the 100x rollup covers the start of the range
+            assertEquals(Collections.singletonList(TimeSeriesStatsStorage.SCORE_SERIES),
+                    tss.listScalarSeries("sid0", "tid0", "wid0"));
+            ScalarSeries all = tss.getScalarSeries("sid0", "tid0", "wid0", TimeSeriesStatsStorage.SCORE_SERIES,
+                    0, Long.MAX_VALUE, 50);
+            assertEquals(100, all.getResolution());
+            assertEquals(20, all.size());
+            assertEquals(49.5, all.getValues()[0], 1e-9);
+            assertEquals(t0 + 99, all.getTimestamps()[0]);
+            assertEquals(1949.5, all.getValues()[19], 1e-9);
+
+            //Subsampled if there are too many values even at the coarsest resolution
+            assertEquals(10, tss.getScalarSeries("sid0", "tid0", "wid0", TimeSeriesStatsStorage.SCORE_SERIES,
+                    0, Long.MAX_VALUE, 10).size());
+
+            //Recent range: raw values
+            ScalarSeries recent = tss.getScalarSeries("sid0", "tid0", "wid0", TimeSeriesStatsStorage.SCORE_SERIES,
+                    t0 + 1950, t0 + 1999, 100);
+            assertEquals(1, recent.getResolution());
+            assertEquals(50, recent.size());
+            assertEquals(1950, recent.getValues()[0], 0.0);
+
+            //Range within the 10x rollup
+            ScalarSeries mid = tss.getScalarSeries("sid0", "tid0", "wid0", TimeSeriesStatsStorage.SCORE_SERIES,
+                    t0 + 1500, t0 + 1999, 100);
+            assertEquals(10, mid.getResolution());
+            assertEquals(50, mid.size());
+            assertEquals(1504.5, mid.getValues()[0], 1e-9);
+        }
+        ss.close();
+    }
+
     private static StatsInitializationReport getInitReport(int idNumber, int tid, int wid, boolean useJ7Storage) {
         StatsInitializationReport rep;
         if (useJ7Storage) {
@@ -0,0 +1,154 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.eclipse.deeplearning4j.dl4jcore.crossvalidation;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.crossvalidation.CrossValidationResult;
+import org.deeplearning4j.crossvalidation.KFoldCrossValidator;
+import org.deeplearning4j.datasets.iterator.impl.IrisDataSetIterator;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.evaluation.classification.Evaluation;
+import org.nd4j.evaluation.regression.RegressionEvaluation;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.ViewIterator;
+import org.nd4j.linalg.dataset.api.iterator.KFoldIterator;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NativeTag
+@Tag(TagNames.TRAINING)
+@Tag(TagNames.DL4J_OLD_API)
+public class TestKFoldCrossValidator extends BaseDL4JTest {
+
+    private static DataSet getIris() {
+        DataSet ds = new IrisDataSetIterator(150, 150).next();
+        ds.shuffle(12345);
+        return ds;
+    }
+
+    private static MultiLayerNetwork getNetwork() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                .updater(new Adam(0.01)).list()
+                .layer(new DenseLayer.Builder().nIn(4).nOut(10).activation(Activation.TANH).build())
+                .layer(new OutputLayer.Builder().nIn(10).nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        return net;
+    }
+
+    @Test
+    public void testParallelFoldsMatchSequential() {
+        DataSet ds = getIris();
+        MultiLayerNetwork net = getNetwork();
+        int k = 5;
+
+        CrossValidationResult sequential = new KFoldCrossValidator.Builder(net, ds).k(k).numEpochs(3)
+                .batchSize(32).workers(1).evaluations(new Evaluation()).build().fit();
+        CrossValidationResult parallel = new KFoldCrossValidator.Builder(net, ds).k(k).numEpochs(3)
+                .batchSize(32).workers(3).evaluations(new Evaluation()).build().fit();
+
+        assertEquals(k, sequential.getNumFolds());
+        assertEquals(k, parallel.getNumFolds());
+        for (int i = 0; i < k; i++) {
+            Evaluation s = (Evaluation) sequential.getFoldEvaluations().get(i)[0];
+            Evaluation p = (Evaluation) parallel.getFoldEvaluations().get(i)[0];
+            assertEquals(30, s.getNumRowCounter(), 0.0);
+            assertEquals(s.getConfusionMatrix(), p.getConfusionMatrix());
+        }
+
+        Evaluation merged = parallel.getEvaluation(0);
+        assertEquals(150, merged.getNumRowCounter(), 0.0);
+        assertEquals(((Evaluation) sequential.getEvaluation(0)).getConfusionMatrix(), merged.getConfusionMatrix());
+
+        //The template network should not be modified
+        assertEquals(getNetwork().params(), net.params());
+    }
+
+    @Test
+    public void testFoldsMatchKFoldIterator() {
+        DataSet ds = getIris();
+        MultiLayerNetwork net = getNetwork();
+        int k = 4;
+
+        CrossValidationResult result = new KFoldCrossValidator.Builder(net, ds).k(k).numEpochs(2)
+                .batchSize(16).workers(2).evaluations(new Evaluation()).build().fit();
+
+        KFoldIterator iter = new KFoldIterator(k, ds);
+        int fold = 0;
+        while (iter.hasNext()) {
+            DataSet train = iter.next();
+            MultiLayerNetwork foldNet = net.clone();
+            foldNet.fit(new ViewIterator(train, 16), 2);
+            Evaluation expected = foldNet.evaluate(new ViewIterator(iter.testFold(), 16));
+            Evaluation actual = (Evaluation) result.getFoldEvaluations().get(fold++)[0];
+            assertEquals(expected.getConfusionMatrix(), actual.getConfusionMatrix());
+        }
+        assertEquals(k, fold);
+    }
+
+    @Test
+    public void testComputationGraph() {
+        DataSet ds = getIris();
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                .updater(new Adam(0.01)).graphBuilder()
+                .addInputs("in")
+                .addLayer("dense", new DenseLayer.Builder().nIn(4).nOut(10).activation(Activation.TANH).build(), "in")
+                .addLayer("out", new OutputLayer.Builder().nIn(10).nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build(), "dense")
+                .setOutputs("out")
+                .build();
+        ComputationGraph graph = new ComputationGraph(conf);
+        graph.init();
+
+        CrossValidationResult result = new KFoldCrossValidator.Builder(graph, ds).k(3).workers(3)
+                .evaluations(new Evaluation(), new RegressionEvaluation(3)).build().fit();
+        assertEquals(3, result.getNumFolds());
+        assertEquals(3, result.getFoldTrainingTimesMs().length);
+        Evaluation e = result.getEvaluation(0);
+        assertEquals(150, e.getNumRowCounter(), 0.0);
+        RegressionEvaluation r = result.getEvaluation(1);
+        assertEquals(150, r.getExampleCountPerColumn().getInt(0));
+    }
+
+    @Test
+    public void testInvalidConfiguration() {
+        DataSet ds = getIris();
+        MultiLayerNetwork net = getNetwork();
+        assertThrows(IllegalStateException.class,
+                () -> new KFoldCrossValidator.Builder(net, ds).k(1).evaluations(new Evaluation()).build());
+        assertThrows(IllegalStateException.class, () -> new KFoldCrossValidator.Builder(net, ds).k(5).build());
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+package org.eclipse.deeplearning4j.dl4jcore.datasets.iterator;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.datasets.iterator.ExistingDataSetIterator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.MultiProducerAsyncDataSetIterator;
+import org.nd4j.linalg.dataset.MultiProducerAsyncMultiDataSetIterator;
+import org.nd4j.linalg.dataset.adapter.MultiDataSetIteratorAdapter;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Multi Producer Async Iterator Test")
+@NativeTag
+class MultiProducerAsyncIteratorTest extends BaseDL4JTest {
+
+    private static final int[] SPLIT_SIZES = {4, 1, 6};
+
+    @Test
+    @DisplayName("Test Deterministic Order")
+    void testDeterministicOrder() {
+        List<Integer> expected = expectedOrder();
+
+        MultiProducerAsyncDataSetIterator iter = new MultiProducerAsyncDataSetIterator(getSplits(), 2, true);
+        assertEquals(3, iter.getNumProducers());
+        for (int epoch = 0; epoch < 3; epoch++) {
+            List<Integer> actual = new ArrayList<>();
+            while (iter.hasNext()) {
+                DataSet ds = iter.next();
+                actual.add(ds.getFeatures().getInt(0));
+                assertEquals(ds.getFeatures().getInt(0) + 0.5, ds.getLabels().getDouble(0), 1e-6);
+            }
+            assertEquals(expected, actual, "Failed on epoch " + epoch);
+            assertFalse(iter.hasNext());
+            assertNull(iter.next());
+            iter.reset();
+        }
+        assertTrue(iter.getProducerWaitTimeMs() >= 0);
+        assertTrue(iter.getConsumerWaitTimeMs() >= 0);
+        iter.shutdown();
+    }
+
+    @Test
+    @DisplayName("Test Deterministic Order Multi Data Set")
+    void testDeterministicOrderMultiDataSet() {
+        List<Integer> expected = expectedOrder();
+
+        List<MultiDataSetIterator> splits = new ArrayList<>();
+        for (DataSetIterator split : getSplits()) {
+            splits.add(new MultiDataSetIteratorAdapter(split));
+        }
+
+        MultiProducerAsyncMultiDataSetIterator iter = new MultiProducerAsyncMultiDataSetIterator(splits, 2, true);
+        for (int epoch = 0; epoch < 3; epoch++) {
+            List<Integer> actual = new ArrayList<>();
+            while (iter.hasNext()) {
+                MultiDataSet mds = iter.next();
+                actual.add(mds.getFeatures(0).getInt(0));
+            }
+            assertEquals(expected, actual, "Failed on epoch " + epoch);
+            iter.reset();
+        }
+        iter.shutdown();
+    }
+
+    @Test
+    @DisplayName("Test Producer Exception")
+    void testProducerException() {
+        Iterator<DataSet> failing = new Iterator<DataSet>() {
+            private int count = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public DataSet next() {
+                if (count++ > 0) {
+                    throw new IllegalStateException("Test exception");
+                }
+                return new DataSet(Nd4j.scalar(-1.0f).reshape(1, 1), Nd4j.scalar(-0.5f).reshape(1, 1));
+            }
+        };
+
+        List<DataSetIterator> splits = new ArrayList<>(getSplits());
+        splits.set(1, new ExistingDataSetIterator(failing));
+        MultiProducerAsyncDataSetIterator iter = new MultiProducerAsyncDataSetIterator(splits, 2, false);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> {
+            while (iter.hasNext()) {
+                iter.next();
+            }
+        });
+        assertEquals("Test exception", e.getMessage());
+    }
+
+    @Test
+    @DisplayName("Test Invalid Splits")
+    void testInvalidSplits() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new MultiProducerAsyncDataSetIterator(new ArrayList<DataSetIterator>()));
+
+        DataSetIterator split = getSplits().get(0);
+        assertThrows(IllegalArgumentException.class,
+                () -> new MultiProducerAsyncDataSetIterator(Arrays.asList(split, split)));
+    }
+
+    private static List<DataSetIterator> getSplits() {
+        List<DataSetIterator> splits = new ArrayList<>();
+        for (int s = 0; s < SPLIT_SIZES.length; s++) {
+            List<DataSet> list = new ArrayList<>();
+            for (int i = 0; i < SPLIT_SIZES[s]; i++) {
+                float v = 100 * s + i;
+                list.add(new DataSet(Nd4j.scalar(v).reshape(1, 1), Nd4j.scalar(v + 0.5f).reshape(1, 1)));
+            }
+            splits.add(new ExistingDataSetIterator(list));
+        }
+        return splits;
+    }
+
+    private static List<Integer> expectedOrder() {
+        //Round robin over the splits, skipping depleted splits
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            for (int s = 0; s < SPLIT_SIZES.length; s++) {
+                if (i < SPLIT_SIZES[s]) {
+                    expected.add(100 * s + i);
+                }
+            }
+        }
+        return expected;
+    }
+}
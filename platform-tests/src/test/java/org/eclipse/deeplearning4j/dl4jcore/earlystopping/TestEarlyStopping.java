@@ -515,6 +515,68 @@ public class TestEarlyStopping extends BaseDL4JTest {
         assertEquals(bl.getIUpdater(), ((BaseLayer) mln.conf().getLayer()).getIUpdater());
     }
 
+    @Test
+    public void testAsyncEvaluation() {
+        Map<Integer, Double> syncScores = null;
+        for (boolean async : new boolean[]{false, true}) {
+            Nd4j.getRandom().setSeed(12345);
+            MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                            .seed(12345)
+                            .updater(new Sgd(0.1)).weightInit(WeightInit.XAVIER).list()
+                            .layer(0, new DenseLayer.Builder().nIn(4).nOut(5).activation(Activation.TANH).build())
+                            .layer(1, new OutputLayer.Builder().nIn(5).nOut(3)
+                                    .activation(Activation.SOFTMAX)
+                                    .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                            .build();
+            MultiLayerNetwork net = new MultiLayerNetwork(conf);
+            net.init();
+
+            //Separate iterators: the score is calculated concurrently with training when async evaluation is enabled
+            DataSetIterator trainIter = new IrisDataSetIterator(50, 150);
+            DataSetIterator testIter = new IrisDataSetIterator(150, 150);
+            EarlyStoppingConfiguration<MultiLayerNetwork> esConf =
+                            new EarlyStoppingConfiguration.Builder<MultiLayerNetwork>()
+                                            .epochTerminationConditions(new MaxEpochsTerminationCondition(5))
+                                            .scoreCalculator(new DataSetLossCalculator(testIter, true))
+                                            .modelSaver(new InMemoryModelSaver<MultiLayerNetwork>())
+                                            .asyncEvaluation(async)
+                                            .build();
+
+            LoggingEarlyStoppingListener listener = new LoggingEarlyStoppingListener();
+            IEarlyStoppingTrainer<MultiLayerNetwork> trainer =
+                            new EarlyStoppingTrainer(esConf, net, trainIter, listener);
+            EarlyStoppingResult<MultiLayerNetwork> result = trainer.fit();
+
+            assertEquals(EarlyStoppingResult.TerminationReason.EpochTerminationCondition,
+                            result.getTerminationReason());
+            assertEquals(5, result.getScoreVsEpoch().size());
+            assertEquals(5, listener.onEpochCallCount);
+            assertEquals(1, listener.onCompletionCallCount);
+            //Async: the score for the last epoch is applied at the end of the following epoch
+            assertEquals(async ? 6 : 5, result.getTotalEpochs());
+
+            double best = Double.MAX_VALUE;
+            int bestEpoch = -1;
+            for (Map.Entry<Integer, Double> e : result.getScoreVsEpoch().entrySet()) {
+                if (e.getValue() < best) {
+                    best = e.getValue();
+                    bestEpoch = e.getKey();
+                }
+            }
+            assertEquals(bestEpoch, result.getBestModelEpoch());
+            assertEquals(best, result.getBestModelScore(), 1e-6);
+
+            if (!async) {
+                syncScores = result.getScoreVsEpoch();
+            } else {
+                //Scores are calculated on a copy of the parameters at the end of each epoch: same as synchronous
+                for (int i = 0; i < 5; i++) {
+                    assertEquals(syncScores.get(i), result.getScoreVsEpoch().get(i), 1e-6);
+                }
+            }
+        }
+    }
+
     @Test
     public void testListeners() {
         MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
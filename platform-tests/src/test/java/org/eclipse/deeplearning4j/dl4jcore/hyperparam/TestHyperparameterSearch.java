@@ -0,0 +1,198 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.eclipse.deeplearning4j.dl4jcore.hyperparam;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.datasets.iterator.impl.IrisDataSetIterator;
+import org.deeplearning4j.earlystopping.scorecalc.DataSetLossCalculator;
+import org.deeplearning4j.hyperparam.*;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NativeTag
+@Tag(TagNames.TRAINING)
+@Tag(TagNames.DL4J_OLD_API)
+public class TestHyperparameterSearch extends BaseDL4JTest {
+
+    private static class IrisModelFactory implements ModelFactory {
+        @Override
+        public Model create(Map<String, Object> hyperparameters) {
+            double lr = (Double) hyperparameters.get("lr");
+            int nHidden = hyperparameters.containsKey("nHidden") ? (Integer) hyperparameters.get("nHidden") : 8;
+            MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                    .updater(new Adam(lr)).list()
+                    .layer(new DenseLayer.Builder().nIn(4).nOut(nHidden).activation(Activation.TANH).build())
+                    .layer(new OutputLayer.Builder().nIn(nHidden).nOut(3).activation(Activation.SOFTMAX)
+                            .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                    .build();
+            return new MultiLayerNetwork(conf);
+        }
+    }
+
+    private static HyperparameterSearch.Builder builder(HyperparameterSpace space) {
+        return new HyperparameterSearch.Builder(new IrisModelFactory(), space, new IrisDataSetIterator(30, 150),
+                new DataSetLossCalculator(new IrisDataSetIterator(150, 150), true)).seed(12345);
+    }
+
+    private static void assertLeaderboardSorted(SearchResult result) {
+        List<TrialResult> l = result.getLeaderboard();
+        for (int i = 1; i < l.size(); i++) {
+            double prev = l.get(i - 1).getScore();
+            double curr = l.get(i).getScore();
+            assertTrue(Double.isNaN(curr) || prev <= curr, "Leaderboard not sorted: " + l);
+        }
+    }
+
+    @Test
+    public void testHyperparameterSpace() {
+        HyperparameterSpace space = new HyperparameterSpace.Builder()
+                .logUniform("lr", 1e-4, 1e-1)
+                .integer("nHidden", 2, 10)
+                .discrete("activation", Activation.TANH, Activation.RELU, Activation.SIGMOID)
+                .build();
+        assertEquals(Arrays.asList("lr", "nHidden", "activation"), new ArrayList<>(space.getNames()));
+
+        Random r = new Random(12345);
+        for (int i = 0; i < 100; i++) {
+            Map<String, Object> m = space.sample(r);
+            double lr = (Double) m.get("lr");
+            int nHidden = (Integer) m.get("nHidden");
+            assertTrue(lr >= 1e-4 && lr <= 1e-1);
+            assertTrue(nHidden >= 2 && nHidden <= 10);
+            assertTrue(m.get("activation") instanceof Activation);
+
+            Map<String, Object> p = space.perturb(m, r, 0.2);
+            double lr2 = (Double) p.get("lr");
+            assertTrue(lr2 >= 1e-4 && lr2 <= 1e-1);
+            assertTrue(Math.abs(lr2 - lr) <= 0.2 * lr + 1e-12);
+            int nHidden2 = (Integer) p.get("nHidden");
+            assertTrue(nHidden2 >= 2 && nHidden2 <= 10 && Math.abs(nHidden2 - nHidden) <= 2);
+        }
+    }
+
+    @Test
+    public void testRandomSearch() {
+        HyperparameterSpace space = new HyperparameterSpace.Builder()
+                .logUniform("lr", 1e-3, 1e-1)
+                .integer("nHidden", 2, 10)
+                .build();
+        SearchResult result = builder(space).searchMethod(SearchMethod.RANDOM).numTrials(8).maxEpochs(3)
+                .workers(3).build().fit();
+
+        assertEquals(8, result.getLeaderboard().size());
+        assertLeaderboardSorted(result);
+        assertNotNull(result.getBestModel());
+        int completed = 0;
+        for (TrialResult t : result.getLeaderboard()) {
+            assertTrue(t.getStatus() == TrialResult.Status.Completed || t.getStatus() == TrialResult.Status.Pruned,
+                    t.toString());
+            if (t.getStatus() == TrialResult.Status.Completed) {
+                assertEquals(3, t.getEpochs());
+                completed++;
+            }
+        }
+        assertTrue(completed > 0);
+
+        //Header plus one line per trial, best trial first
+        String[] lines = result.leaderboardString().split(System.lineSeparator());
+        assertEquals(9, lines.length);
+        assertTrue(lines[0].startsWith("Rank"));
+        String[] best = lines[1].trim().split("\\s+");
+        assertEquals("1", best[0]);
+        assertEquals(String.valueOf(result.getLeaderboard().get(0).getTrialId()), best[1]);
+    }
+
+    @Test
+    public void testSuccessiveHalving() {
+        HyperparameterSpace space = new HyperparameterSpace.Builder().logUniform("lr", 1e-3, 1e-1).build();
+        SearchResult result = builder(space).searchMethod(SearchMethod.SUCCESSIVE_HALVING).numTrials(9)
+                .minEpochs(1).maxEpochs(9).reductionFactor(3).workers(4).build().fit();
+
+        //9 candidates for 1 epoch, best 3 for 3 epochs, best 1 for 9 epochs
+        List<TrialResult> l = result.getLeaderboard();
+        assertEquals(9, l.size());
+        assertEquals(6 + 2 * 3 + 9, result.getTotalEpochs());
+        assertEquals(TrialResult.Status.Completed, l.get(0).getStatus());
+        assertEquals(9, l.get(0).getEpochs());
+        int pruned = 0;
+        for (TrialResult t : l) {
+            if (t.getStatus() == TrialResult.Status.Pruned) {
+                pruned++;
+            }
+        }
+        assertEquals(8, pruned);
+        assertNotNull(result.getBestModel());
+    }
+
+    @Test
+    public void testHyperband() {
+        HyperparameterSpace space = new HyperparameterSpace.Builder().logUniform("lr", 1e-3, 1e-1).build();
+        SearchResult result = builder(space).searchMethod(SearchMethod.HYPERBAND).minEpochs(1).maxEpochs(9)
+                .reductionFactor(3).workers(4).build().fit();
+
+        //Brackets: 9 candidates from 1 epoch, 5 from 3 epochs, 3 from 9 epochs
+        assertEquals(9 + 5 + 3, result.getLeaderboard().size());
+        assertLeaderboardSorted(result);
+        assertNotNull(result.getBestModel());
+    }
+
+    @Test
+    public void testPopulationBasedTraining() {
+        HyperparameterSpace space = new HyperparameterSpace.Builder().logUniform("lr", 1e-3, 1e-1).build();
+        SearchResult result = builder(space).searchMethod(SearchMethod.POPULATION_BASED).numTrials(4)
+                .maxEpochs(4).exploitInterval(1).exploitFraction(0.25).workers(2).build().fit();
+
+        assertEquals(4, result.getLeaderboard().size());
+        for (TrialResult t : result.getLeaderboard()) {
+            assertEquals(TrialResult.Status.Completed, t.getStatus());
+            assertEquals(4, t.getEpochs());
+            assertFalse(Double.isNaN(t.getScore()));
+        }
+        assertLeaderboardSorted(result);
+        assertNotNull(result.getBestModel());
+    }
+
+    @Test
+    public void testTimeLimit() {
+        HyperparameterSpace space = new HyperparameterSpace.Builder().logUniform("lr", 1e-3, 1e-1).build();
+        SearchResult result = builder(space).numTrials(4).maxEpochs(1000000).pruneBelowMedian(false)
+                .maxTime(2, java.util.concurrent.TimeUnit.SECONDS).workers(2).build().fit();
+        assertEquals(4, result.getLeaderboard().size());
+        for (TrialResult t : result.getLeaderboard()) {
+            assertEquals(TrialResult.Status.TimeLimit, t.getStatus());
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+package org.eclipse.deeplearning4j.dl4jcore.nn.misc;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.CacheMode;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.GradientCheckpointing;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
+import org.deeplearning4j.nn.conf.graph.ElementWiseVertex;
+import org.deeplearning4j.nn.conf.graph.MergeVertex;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.conf.memory.MemoryType;
+import org.deeplearning4j.nn.conf.memory.MemoryUseMode;
+import org.deeplearning4j.nn.conf.memory.NetworkMemoryReport;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.eclipse.deeplearning4j.dl4jcore.TestUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NativeTag
+@Tag(TagNames.DL4J_OLD_API)
+@Tag(TagNames.WORKSPACES)
+public class TestGradientCheckpointing extends BaseDL4JTest {
+
+    @Test
+    public void testConfigJson() {
+        MultiLayerConfiguration conf = getMlnConf(GradientCheckpointing.everyNLayers(2), 0.0, WorkspaceMode.ENABLED);
+        MultiLayerConfiguration fromJson = MultiLayerConfiguration.fromJson(conf.toJson());
+        assertEquals(conf, fromJson);
+        assertEquals(2, fromJson.getGradientCheckpointing().getEveryNLayers());
+
+        ComputationGraphConfiguration cgConf = getGraphConf(GradientCheckpointing.atLayers("d2", "merge"), WorkspaceMode.ENABLED);
+        ComputationGraphConfiguration cgFromJson = ComputationGraphConfiguration.fromJson(cgConf.toJson());
+        assertEquals(cgConf, cgFromJson);
+        assertEquals(GradientCheckpointing.atLayers("d2", "merge"), cgFromJson.getGradientCheckpointing());
+    }
+
+    @Test
+    public void testSegmentIndices() {
+        String[] names = {"a", "b", "c", "d", "e"};
+        assertArrayEquals(new int[]{0, 0, 1, 1, 2}, GradientCheckpointing.everyNLayers(2).segmentIndices(names, null));
+        assertArrayEquals(new int[]{0, 1, 1, 1, 2}, GradientCheckpointing.atLayers("b", "e").segmentIndices(names, null));
+
+        //Non-layer vertices don't count for every N layers
+        boolean[] isLayer = {false, true, true, false, true};
+        assertArrayEquals(new int[]{0, 0, 0, 0, 1}, GradientCheckpointing.everyNLayers(2).segmentIndices(names, isLayer));
+    }
+
+    @Test
+    public void testMLNGradientsMatch() {
+        for (double dropOut : new double[]{0.0, 0.5}) {
+            for (GradientCheckpointing gc : new GradientCheckpointing[]{GradientCheckpointing.everyNLayers(1),
+                    GradientCheckpointing.everyNLayers(2), GradientCheckpointing.atLayers("layer3")}) {
+                MultiLayerNetwork net = new MultiLayerNetwork(getMlnConf(null, dropOut, WorkspaceMode.ENABLED));
+                net.init();
+                MultiLayerNetwork netCheckpointed = new MultiLayerNetwork(getMlnConf(gc, dropOut, WorkspaceMode.ENABLED));
+                netCheckpointed.init();
+                netCheckpointed.setParams(net.params().dup());
+
+                DataSet ds = getData();
+                for (MultiLayerNetwork n : new MultiLayerNetwork[]{net, netCheckpointed}) {
+                    n.setInput(ds.getFeatures());
+                    n.setLabels(ds.getLabels());
+                    Nd4j.getRandom().setSeed(12345);
+                    n.computeGradientAndScore();
+                }
+
+                String msg = "dropout=" + dropOut + ", " + gc;
+                assertEquals(net.score(), netCheckpointed.score(), 1e-6, msg);
+                assertEquals(net.getFlattenedGradients(), netCheckpointed.getFlattenedGradients(), msg);
+
+                for (int i = 0; i < 3; i++) {
+                    Nd4j.getRandom().setSeed(i);
+                    net.fit(ds);
+                    Nd4j.getRandom().setSeed(i);
+                    netCheckpointed.fit(ds);
+                }
+                assertEquals(net.params(), netCheckpointed.params(), msg);
+            }
+        }
+    }
+
+    @Test
+    public void testMLNWorkspacesNoneFallback() {
+        MultiLayerNetwork net = new MultiLayerNetwork(getMlnConf(GradientCheckpointing.everyNLayers(2), 0.0, WorkspaceMode.NONE));
+        net.init();
+        DataSet ds = getData();
+        net.fit(ds);
+        assertTrue(Double.isFinite(net.score()));
+    }
+
+    @Test
+    public void testCGGradientsMatch() {
+        for (GradientCheckpointing gc : new GradientCheckpointing[]{GradientCheckpointing.everyNLayers(1),
+                GradientCheckpointing.everyNLayers(2), GradientCheckpointing.atLayers("d2", "merge")}) {
+            ComputationGraph net = new ComputationGraph(getGraphConf(null, WorkspaceMode.ENABLED));
+            net.init();
+            ComputationGraph netCheckpointed = new ComputationGraph(getGraphConf(gc, WorkspaceMode.ENABLED));
+            netCheckpointed.init();
+            netCheckpointed.setParams(net.params().dup());
+
+            DataSet ds = getData();
+            for (ComputationGraph n : new ComputationGraph[]{net, netCheckpointed}) {
+                n.setInputs(ds.getFeatures());
+                n.setLabels(ds.getLabels());
+                Nd4j.getRandom().setSeed(12345);
+                n.computeGradientAndScore();
+            }
+
+            assertEquals(net.score(), netCheckpointed.score(), 1e-6, gc.toString());
+            assertEquals(net.getFlattenedGradients(), netCheckpointed.getFlattenedGradients(), gc.toString());
+
+            for (int i = 0; i < 3; i++) {
+                Nd4j.getRandom().setSeed(i);
+                net.fit(ds);
+                Nd4j.getRandom().setSeed(i);
+                netCheckpointed.fit(ds);
+            }
+            assertEquals(net.params(), netCheckpointed.params(), gc.toString());
+        }
+    }
+
+    @Test
+    public void testMemoryReport() {
+        NetworkMemoryReport noCheckpoint = getMlnConf(null, 0.0, WorkspaceMode.ENABLED)
+                .getMemoryReport(InputType.feedForward(4));
+        NetworkMemoryReport checkpoint = getMlnConf(GradientCheckpointing.everyNLayers(2), 0.0, WorkspaceMode.ENABLED)
+                .getMemoryReport(InputType.feedForward(4));
+
+        //Layers 0 to 5 (excluding output layer) in segments [0,1], [2,3], [4,5]: the activations of layers 0 and 2 are
+        // recomputed, one segment at a time
+        Map<String, Integer> recomputed = checkpoint.getRecomputedActivationSegments();
+        assertEquals(2, recomputed.size());
+        assertEquals(0, (int) recomputed.get("layer0"));
+        assertEquals(1, (int) recomputed.get("layer2"));
+        assertNull(noCheckpoint.getRecomputedActivationSegments());
+
+        long actNoCheckpoint = noCheckpoint.getMemoryBytes(MemoryType.ACTIVATIONS, 32, MemoryUseMode.TRAINING, CacheMode.NONE, DataType.FLOAT);
+        long actCheckpoint = checkpoint.getMemoryBytes(MemoryType.ACTIVATIONS, 32, MemoryUseMode.TRAINING, CacheMode.NONE, DataType.FLOAT);
+        //Each hidden layer has 16 activations per example: only one of the two recomputed activations is held at once
+        assertEquals(actNoCheckpoint - 32 * 16 * 4, actCheckpoint);
+        assertTrue(checkpoint.getTotalMemoryBytes(32, MemoryUseMode.TRAINING, CacheMode.NONE, DataType.FLOAT)
+                < noCheckpoint.getTotalMemoryBytes(32, MemoryUseMode.TRAINING, CacheMode.NONE, DataType.FLOAT));
+
+        //Inference: no change
+        assertEquals(noCheckpoint.getTotalMemoryBytes(32, MemoryUseMode.INFERENCE, CacheMode.NONE, DataType.FLOAT),
+                checkpoint.getTotalMemoryBytes(32, MemoryUseMode.INFERENCE, CacheMode.NONE, DataType.FLOAT));
+        assertTrue(checkpoint.toString().contains("Gradient Checkpointing"));
+
+        //ComputationGraph: segments [in, d0, d1], [d2, d3, add], [merge, d4, out]. d0 is used by the merge vertex, d1
+        // and add are the inputs to the next segment: only d2 and d3 are recomputed
+        NetworkMemoryReport cgReport = getGraphConf(GradientCheckpointing.atLayers("d2", "merge"), WorkspaceMode.ENABLED)
+                .getMemoryReport(InputType.feedForward(4));
+        Map<String, Integer> cgRecomputed = cgReport.getRecomputedActivationSegments();
+        assertEquals(2, cgRecomputed.size());
+        assertEquals(1, (int) cgRecomputed.get("d2"));
+        assertEquals(1, (int) cgRecomputed.get("d3"));
+    }
+
+    private static MultiLayerConfiguration getMlnConf(GradientCheckpointing gc, double dropOut, WorkspaceMode wsm) {
+        NeuralNetConfiguration.ListBuilder b = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .dataType(DataType.DOUBLE)
+                .updater(new Adam(1e-2))
+                .activation(Activation.TANH)
+                .trainingWorkspaceMode(wsm)
+                .gradientCheckpointing(gc)
+                .list();
+        for (int i = 0; i < 6; i++) {
+            b.layer(new DenseLayer.Builder().nIn(i == 0 ? 4 : 16).nOut(16).dropOut(dropOut > 0 ? 1.0 - dropOut : 0.0).build());
+        }
+        return b.layer(new OutputLayer.Builder().nIn(16).nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .build();
+    }
+
+    private static ComputationGraphConfiguration getGraphConf(GradientCheckpointing gc, WorkspaceMode wsm) {
+        return new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .dataType(DataType.DOUBLE)
+                .updater(new Adam(1e-2))
+                .activation(Activation.TANH)
+                .trainingWorkspaceMode(wsm)
+                .gradientCheckpointing(gc)
+                .graphBuilder()
+                .addInputs("in")
+                .addLayer("d0", new DenseLayer.Builder().nIn(4).nOut(8).build(), "in")
+                .addLayer("d1", new DenseLayer.Builder().nIn(8).nOut(8).build(), "d0")
+                .addLayer("d2", new DenseLayer.Builder().nIn(8).nOut(8).build(), "d1")
+                .addLayer("d3", new DenseLayer.Builder().nIn(8).nOut(8).build(), "d2")
+                .addVertex("add", new ElementWiseVertex(ElementWiseVertex.Op.Add), "d3", "d2")
+                .addVertex("merge", new MergeVertex(), "add", "d0")
+                .addLayer("d4", new DenseLayer.Builder().nIn(16).nOut(8).build(), "merge")
+                .addLayer("out", new OutputLayer.Builder().nIn(8).nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build(), "d4")
+                .setOutputs("out")
+                .setInputTypes(InputType.feedForward(4))
+                .build();
+    }
+
+    private static DataSet getData() {
+        Nd4j.getRandom().setSeed(12345);
+        return new DataSet(Nd4j.rand(DataType.DOUBLE, 8, 4), TestUtils.randomOneHot(8, 3).castTo(DataType.DOUBLE));
+    }
+}
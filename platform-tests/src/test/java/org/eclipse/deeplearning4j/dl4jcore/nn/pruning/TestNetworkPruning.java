@@ -0,0 +1,173 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.eclipse.deeplearning4j.dl4jcore.nn.pruning;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.datasets.iterator.ExistingDataSetIterator;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.pruning.NetworkPruner;
+import org.deeplearning4j.nn.pruning.PruningMethod;
+import org.eclipse.deeplearning4j.dl4jcore.TestUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NativeTag
+@Tag(TagNames.DL4J_OLD_API)
+public class TestNetworkPruning extends BaseDL4JTest {
+
+    @Test
+    public void testPruningMasks() {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray w = Nd4j.rand(DataType.FLOAT, 20, 10).subi(0.5);
+
+        INDArray m = NetworkPruner.magnitudeMask(w, 0.8);
+        assertEquals(40, m.sumNumber().intValue());
+        double minKept = Double.MAX_VALUE;
+        double maxPruned = 0.0;
+        for (int i = 0; i < w.length(); i++) {
+            double abs = Math.abs(w.getDouble(i));
+            if (m.getDouble(i) == 0.0) {
+                maxPruned = Math.max(maxPruned, abs);
+            } else {
+                minKept = Math.min(minKept, abs);
+            }
+        }
+        assertTrue(maxPruned < minKept);
+
+        INDArray bm = NetworkPruner.blockMask(w, 0.75, 5, 5);
+        assertEquals(50, bm.sumNumber().intValue());
+        assertEquals(1.0, NetworkPruner.sparsity(w.mul(NetworkPruner.magnitudeMask(w, 1.0))), 1e-6);
+
+        assertEquals(0.8, NetworkPruner.sparsitySchedule(0.8, 4, 4), 1e-10);
+        assertEquals(0.8 * (1 - 0.75 * 0.75 * 0.75), NetworkPruner.sparsitySchedule(0.8, 1, 4), 1e-10);
+    }
+
+    @Test
+    public void testPruneAndFineTuneMLN() {
+        MultiLayerNetwork net = getNet();
+        DataSetIterator iter = getData(4, 16);
+        net.fit(iter);
+
+        NetworkPruner pruner = new NetworkPruner.Builder()
+                .method(PruningMethod.BLOCK)
+                .blockSize(4, 4)
+                .targetSparsity(0.75)
+                .pruningSteps(3)
+                .epochsPerStep(1)
+                .build();
+        Map<String, INDArray> masks = pruner.pruneAndFineTune(net, iter);
+        assertEquals(3, masks.size());
+        assertTrue(net.getListeners().isEmpty());
+
+        Map<String, Double> sparsity = NetworkPruner.sparsity(net);
+        for (Map.Entry<String, Double> e : sparsity.entrySet()) {
+            assertEquals(0.75, e.getValue(), 1e-6, e.getKey());
+        }
+
+        //Block pruning: each 4 x 4 block of the weights is either entirely pruned or entirely kept
+        for (int i = 0; i < 3; i++) {
+            double[][] w = net.getLayer(i).getParam("W").toDoubleMatrix();
+            for (int r = 0; r < w.length; r += 4) {
+                for (int c = 0; c < w[0].length; c += 4) {
+                    int nonZero = 0;
+                    for (int j = r; j < r + 4; j++) {
+                        for (int k = c; k < c + 4; k++) {
+                            if (w[j][k] != 0.0)
+                                nonZero++;
+                        }
+                    }
+                    assertTrue(nonZero == 0 || nonZero == 16, "Layer " + i + ", block (" + r + "," + c + "): " + nonZero);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPruneCG() {
+        MultiLayerNetwork mln = getNet();
+        DataSetIterator iter = getData(2, 16);
+        mln.fit(iter);
+        ComputationGraph net = mln.toComputationGraph();
+
+        NetworkPruner pruner = new NetworkPruner.Builder()
+                .targetSparsity(0.9)
+                .excludeLayers("2")
+                .build();
+        Map<String, INDArray> masks = pruner.prune(net);
+        assertEquals(2, masks.size());
+
+        Map<String, Double> sparsity = NetworkPruner.sparsity(net);
+        assertEquals(0.9, sparsity.get("0"), 0.01);
+        assertEquals(0.9, sparsity.get("1"), 0.01);
+        assertTrue(sparsity.get("2") < 0.1);
+
+        assertTrue(NetworkPruner.isPrunable(net.getLayer("0")));
+        assertTrue(NetworkPruner.isPrunable(net.getLayer("2")));
+    }
+
+    private static MultiLayerNetwork getNet() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .dataType(DataType.FLOAT)
+                .updater(new Adam(1e-2))
+                .list()
+                .layer(new DenseLayer.Builder().nIn(20).nOut(32).activation(Activation.TANH).build())
+                .layer(new DenseLayer.Builder().nOut(32).activation(Activation.RELU).build())
+                .layer(new OutputLayer.Builder().nOut(4).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .setInputType(org.deeplearning4j.nn.conf.inputs.InputType.feedForward(20))
+                .build();
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        return net;
+    }
+
+    private static DataSetIterator getData(int nBatches, int batchSize) {
+        Nd4j.getRandom().setSeed(12345);
+        List<DataSet> l = new ArrayList<>();
+        for (int i = 0; i < nBatches; i++) {
+            l.add(new DataSet(Nd4j.rand(DataType.FLOAT, batchSize, 20), TestUtils.randomOneHot(batchSize, 4, i)));
+        }
+        return new ExistingDataSetIterator(l);
+    }
+}
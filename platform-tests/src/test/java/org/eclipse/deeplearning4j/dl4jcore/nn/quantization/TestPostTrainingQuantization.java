@@ -0,0 +1,176 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+package org.eclipse.deeplearning4j.dl4jcore.nn.quantization;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.datasets.iterator.ExistingDataSetIterator;
+import org.deeplearning4j.nn.conf.ConvolutionMode;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.*;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.quantization.Int8GemmMode;
+import org.deeplearning4j.nn.quantization.Int8Weights;
+import org.deeplearning4j.nn.quantization.PostTrainingQuantizer;
+import org.deeplearning4j.nn.quantization.QuantizationReport;
+import org.deeplearning4j.nn.quantization.FakeQuantizedLayer;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.eclipse.deeplearning4j.dl4jcore.TestUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NativeTag
+@Tag(TagNames.DL4J_OLD_API)
+public class TestPostTrainingQuantization extends BaseDL4JTest {
+
+    @Test
+    public void testInt8WeightsRoundTrip() {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray w = Nd4j.rand(DataType.FLOAT, 20, 10).subi(0.5);
+        w.getColumn(3).assign(0);
+
+        Int8Weights q = Int8Weights.quantize(w, 1);
+        assertEquals(DataType.BYTE, q.getValues().dataType());
+        assertArrayEquals(new long[]{10}, q.getScales().shape());
+
+        INDArray deq = q.dequantize();
+        INDArray maxErr = q.getScales().mul(0.5 + 1e-5);
+        for (int i = 0; i < 10; i++) {
+            double err = w.getColumn(i).sub(deq.getColumn(i)).amaxNumber().doubleValue();
+            assertTrue(err <= maxErr.getDouble(i), "Column " + i + ": " + err);
+        }
+        assertEquals(Nd4j.zeros(DataType.FLOAT, 20), deq.getColumn(3));
+    }
+
+    @Test
+    public void testQuantizeMLN() {
+        MultiLayerNetwork net = getCnnNet();
+        DataSetIterator iter = getData(4, 8, new long[]{8, 1, 12, 12});
+        net.fit(iter);
+
+        for (Int8GemmMode mode : Int8GemmMode.values()) {
+            MultiLayerNetwork q = new PostTrainingQuantizer.Builder().gemmMode(mode).build().quantize(net, iter);
+
+            assertTrue(q.getLayer(0) instanceof FakeQuantizedLayer);
+            assertFalse(q.getLayer(1) instanceof FakeQuantizedLayer);     //Subsampling
+            assertTrue(q.getLayer(2) instanceof FakeQuantizedLayer);
+            assertTrue(q.getLayer(3) instanceof FakeQuantizedLayer);
+            assertFalse(net.getLayer(0) instanceof FakeQuantizedLayer);
+
+            iter.reset();
+            INDArray in = iter.next().getFeatures();
+            INDArray exp = net.output(in);
+            INDArray act = q.output(in);
+            assertArrayEquals(exp.shape(), act.shape());
+            assertTrue(exp.sub(act).amaxNumber().doubleValue() < 0.1);
+
+            QuantizationReport r = PostTrainingQuantizer.compare(net, q, iter);
+            assertEquals(3, r.getNumQuantizedLayers());
+            assertEquals(32, r.getNumExamples());
+            assertTrue(r.getQuantizedWeightBytes() < r.getFp32WeightBytes());
+            assertTrue(r.getArgMaxDisagreement() <= 0.25, r.toString());
+            //Simulated quantization: the FP32 weights are retained, and both paths must have been timed
+            assertTrue(r.getQuantizedLayerBytes() > r.getFp32WeightBytes(), r.toString());
+            assertTrue(r.getFp32MsPerBatch() > 0.0 && r.getQuantizedMsPerBatch() > 0.0, r.toString());
+            assertTrue(r.getSpeedup() > 0.0, r.toString());
+        }
+    }
+
+    @Test
+    public void testQuantizeCG() {
+        MultiLayerNetwork mln = getCnnNet();
+        DataSetIterator iter = getData(2, 8, new long[]{8, 1, 12, 12});
+        mln.fit(iter);
+        ComputationGraph net = mln.toComputationGraph();
+
+        PostTrainingQuantizer quantizer = new PostTrainingQuantizer.Builder()
+                .excludeLayers("3")
+                .build();
+        ComputationGraph q = quantizer.quantize(net, iter);
+        assertTrue(q.getLayer("0") instanceof FakeQuantizedLayer);
+        assertTrue(q.getLayer("2") instanceof FakeQuantizedLayer);
+        assertFalse(q.getLayer("3") instanceof FakeQuantizedLayer);
+
+        iter.reset();
+        INDArray in = iter.next().getFeatures();
+        INDArray exp = net.outputSingle(in);
+        INDArray act = q.outputSingle(in);
+        assertTrue(exp.sub(act).amaxNumber().doubleValue() < 0.1);
+
+        QuantizationReport r = PostTrainingQuantizer.compare(net, q, iter);
+        assertEquals(2, r.getNumQuantizedLayers());
+        assertNotNull(r.toString());
+    }
+
+    @Test
+    public void testFakeQuantizedLayerIsInferenceOnly() {
+        MultiLayerNetwork net = getCnnNet();
+        DataSetIterator iter = getData(1, 8, new long[]{8, 1, 12, 12});
+        MultiLayerNetwork q = new PostTrainingQuantizer.Builder().build().quantize(net, iter);
+        UnsupportedOperationException e = assertThrows(UnsupportedOperationException.class,
+                () -> q.getLayer(2).backpropGradient(null, LayerWorkspaceMgr.noWorkspaces()));
+        assertTrue(e.getMessage().contains("inference only"));
+    }
+
+    private static MultiLayerNetwork getCnnNet() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .updater(new Adam(1e-2))
+                .convolutionMode(ConvolutionMode.Same)
+                .list()
+                .layer(new ConvolutionLayer.Builder().nOut(4).kernelSize(3, 3).stride(1, 1).activation(Activation.RELU).build())
+                .layer(new SubsamplingLayer.Builder().kernelSize(2, 2).stride(2, 2).build())
+                .layer(new DenseLayer.Builder().nOut(16).activation(Activation.TANH).build())
+                .layer(new OutputLayer.Builder().nOut(4).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .setInputType(InputType.convolutional(12, 12, 1))
+                .build();
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        return net;
+    }
+
+    private static DataSetIterator getData(int nBatches, int batchSize, long[] featureShape) {
+        Nd4j.getRandom().setSeed(12345);
+        List<DataSet> l = new ArrayList<>();
+        for (int i = 0; i < nBatches; i++) {
+            l.add(new DataSet(Nd4j.rand(DataType.FLOAT, featureShape), TestUtils.randomOneHot(batchSize, 4, i)));
+        }
+        return new ExistingDataSetIterator(l);
+    }
+}
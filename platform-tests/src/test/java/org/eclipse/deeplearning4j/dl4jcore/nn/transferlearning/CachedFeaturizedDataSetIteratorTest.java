@@ -0,0 +1,160 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+package org.eclipse.deeplearning4j.dl4jcore.nn.transferlearning;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.datasets.iterator.utilty.ListDataSetIterator;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.transferlearning.CachedFeaturizedDataSetIterator;
+import org.deeplearning4j.nn.transferlearning.TransferLearningHelper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Sgd;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NativeTag
+@Tag(TagNames.FILE_IO)
+public class CachedFeaturizedDataSetIteratorTest extends BaseDL4JTest {
+    private static final int N_EXAMPLES = 25;
+
+    @Test
+    public void testFeaturizeAndReuseCache(@TempDir Path testDir) throws Exception {
+        TransferLearningHelper helper = new TransferLearningHelper(getNet(), 1);
+        DataSet all = getData();
+        DataSet expected = helper.featurize(all);
+        File cacheFile = new File(testDir.toFile(), "featurized.bin");
+
+        CachedFeaturizedDataSetIterator iter = new CachedFeaturizedDataSetIterator.Builder(helper,
+                new ListDataSetIterator<>(all.asList(), 10))
+                .cacheFile(cacheFile)
+                .build();
+        assertTrue(cacheFile.exists());
+        assertEquals(N_EXAMPLES, iter.getNumExamples());
+        assertEquals(10, iter.batch());
+        assertEquals(2, iter.inputColumns());
+
+        for (int epoch = 0; epoch < 2; epoch++) {
+            List<DataSet> batches = collect(iter);
+            assertEquals(3, batches.size());
+            assertEquals(5, batches.get(2).numExamples());
+            DataSet merged = DataSet.merge(batches);
+            assertTrue(expected.getFeatures().equalsWithEps(merged.getFeatures(), 1e-5));
+            assertEquals(expected.getLabels(), merged.getLabels());
+        }
+
+        //Existing cache file: reused without featurizing the (here: empty) source iterator
+        CachedFeaturizedDataSetIterator reused = new CachedFeaturizedDataSetIterator.Builder(helper,
+                new ListDataSetIterator<>(new ArrayList<DataSet>(), 10))
+                .cacheFile(cacheFile)
+                .batchSize(N_EXAMPLES)
+                .build();
+        DataSet ds = reused.next();
+        assertFalse(reused.hasNext());
+        assertTrue(expected.getFeatures().equalsWithEps(ds.getFeatures(), 1e-5));
+        assertEquals(expected.getLabels(), ds.getLabels());
+    }
+
+    @Test
+    public void testHalfPrecisionAndShuffle(@TempDir Path testDir) throws Exception {
+        TransferLearningHelper helper = new TransferLearningHelper(getNet(), 1);
+        DataSet all = getData();
+        DataSet expected = helper.featurize(all);
+
+        CachedFeaturizedDataSetIterator iter = new CachedFeaturizedDataSetIterator.Builder(helper,
+                new ListDataSetIterator<>(all.asList(), 10))
+                .cacheFile(new File(testDir.toFile(), "featurized_half.bin"))
+                .storageDataType(DataType.HALF)
+                .batchSize(4)
+                .shuffle(12345)
+                .build();
+
+        List<List<Integer>> orders = new ArrayList<>();
+        for (int epoch = 0; epoch < 2; epoch++) {
+            List<Integer> order = new ArrayList<>();
+            for (DataSet ds : collect(iter)) {
+                for (int i = 0; i < ds.numExamples(); i++) {
+                    //First label column is the index of the example
+                    int idx = ds.getLabels().getInt(i, 0);
+                    order.add(idx);
+                    INDArray exp = expected.getFeatures().getRow(idx);
+                    INDArray act = ds.getFeatures().getRow(i);
+                    assertTrue(exp.equalsWithEps(act, 1e-2 * Math.max(1.0, exp.amaxNumber().doubleValue())));
+                    assertEquals(expected.getLabels().getRow(idx), ds.getLabels().getRow(i));
+                }
+            }
+            assertEquals(N_EXAMPLES, order.size());
+            assertEquals(N_EXAMPLES, order.stream().distinct().count());
+            orders.add(order);
+        }
+        assertNotEquals(orders.get(0), orders.get(1));
+    }
+
+    private static List<DataSet> collect(CachedFeaturizedDataSetIterator iter) {
+        iter.reset();
+        List<DataSet> out = new ArrayList<>();
+        while (iter.hasNext()) {
+            out.add(iter.next());
+        }
+        return out;
+    }
+
+    private static DataSet getData() {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray labels = Nd4j.zeros(DataType.FLOAT, N_EXAMPLES, 3);
+        for (int i = 0; i < N_EXAMPLES; i++) {
+            labels.putScalar(i, 0, i);
+        }
+        return new DataSet(Nd4j.rand(DataType.FLOAT, N_EXAMPLES, 4), labels);
+    }
+
+    private static MultiLayerNetwork getNet() {
+        MultiLayerNetwork net = new MultiLayerNetwork(new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .updater(new Sgd(0.1))
+                .activation(Activation.TANH)
+                .list()
+                .layer(new DenseLayer.Builder().nIn(4).nOut(3).build())
+                .layer(new DenseLayer.Builder().nIn(3).nOut(2).build())
+                .layer(new DenseLayer.Builder().nIn(2).nOut(3).build())
+                .layer(new OutputLayer.Builder(LossFunctions.LossFunction.MSE).activation(Activation.IDENTITY)
+                        .nIn(3).nOut(3).build())
+                .build());
+        net.init();
+        return net;
+    }
+}
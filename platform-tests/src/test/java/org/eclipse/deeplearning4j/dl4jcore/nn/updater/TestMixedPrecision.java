@@ -0,0 +1,278 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+package org.eclipse.deeplearning4j.dl4jcore.nn.updater;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.exception.DL4JInvalidConfigException;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MixedPrecision;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.gradient.Gradient;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.updater.BaseMultiLayerUpdater;
+import org.deeplearning4j.nn.updater.LossScaler;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.deeplearning4j.parallelism.ParallelWrapper;
+import org.eclipse.deeplearning4j.dl4jcore.TestUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.learning.config.Sgd;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NativeTag
+@Tag(TagNames.DL4J_OLD_API)
+public class TestMixedPrecision extends BaseDL4JTest {
+
+    @Test
+    public void testConfigJson() {
+        MultiLayerConfiguration conf = getConf(DataType.HALF, MixedPrecision.staticLossScaling(1024));
+        MultiLayerConfiguration fromJson = MultiLayerConfiguration.fromJson(conf.toJson());
+        assertEquals(conf, fromJson);
+        assertEquals(1024.0, fromJson.getMixedPrecision().getInitialLossScale(), 0.0);
+        assertFalse(fromJson.getMixedPrecision().isDynamicLossScaling());
+
+        ComputationGraphConfiguration cgConf = new NeuralNetConfiguration.Builder()
+                .dataType(DataType.BFLOAT16)
+                .mixedPrecision(MixedPrecision.dynamicLossScaling())
+                .graphBuilder()
+                .addInputs("in")
+                .addLayer("out", new OutputLayer.Builder().nIn(4).nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build(), "in")
+                .setOutputs("out")
+                .build();
+        ComputationGraphConfiguration cgFromJson = ComputationGraphConfiguration.fromJson(cgConf.toJson());
+        assertEquals(cgConf, cgFromJson);
+        assertEquals(MixedPrecision.dynamicLossScaling(), cgFromJson.getMixedPrecision());
+    }
+
+    @Test
+    public void testFp32MasterParamsAndUpdaterState() {
+        for (DataType dt : new DataType[]{DataType.HALF, DataType.BFLOAT16}) {
+            MultiLayerNetwork net = new MultiLayerNetwork(getConf(dt, MixedPrecision.dynamicLossScaling()));
+            net.init();
+
+            BaseMultiLayerUpdater<?> u = (BaseMultiLayerUpdater<?>) net.getUpdater();
+            assertTrue(u.isMixedPrecision());
+            assertEquals(DataType.FLOAT, u.getStateViewArray().dataType());
+            assertEquals(MixedPrecision.DEFAULT_INITIAL_LOSS_SCALE, net.getMixedPrecisionLossScale(), 0.0);
+
+            INDArray paramsBefore = net.params().dup();
+            DataSet ds = getData(dt);
+            for (int i = 0; i < 5; i++) {
+                net.fit(ds);
+            }
+
+            assertEquals(dt, net.params().dataType());
+            assertNotEquals(paramsBefore, net.params());
+            assertEquals(DataType.FLOAT, u.getMasterParams().dataType());
+            assertEquals(net.params(), u.getMasterParams().castTo(dt).reshape(net.params().shape()));
+            assertTrue(Double.isFinite(net.score()));
+        }
+
+        //Not used for FLOAT networks
+        MultiLayerNetwork net = new MultiLayerNetwork(getConf(DataType.FLOAT, MixedPrecision.dynamicLossScaling()));
+        net.init();
+        BaseMultiLayerUpdater<?> u = (BaseMultiLayerUpdater<?>) net.getUpdater();
+        assertFalse(u.isMixedPrecision());
+        assertEquals(1.0, net.getMixedPrecisionLossScale(), 0.0);
+    }
+
+    @Test
+    public void testOverflowSkipsUpdate() {
+        MultiLayerNetwork net = new MultiLayerNetwork(getConf(DataType.HALF, MixedPrecision.dynamicLossScaling()));
+        net.init();
+        DataSet ds = getData(DataType.HALF);
+        net.fit(ds);
+
+        BaseMultiLayerUpdater<?> u = (BaseMultiLayerUpdater<?>) net.getUpdater();
+        INDArray paramsBefore = net.params().dup();
+        INDArray updaterStateBefore = u.getStateViewArray().dup();
+        //The first fit may itself overflow in FP16 and reduce the loss scale
+        double lossScaleBefore = u.getLossScale();
+        long skippedBefore = u.getLossScaler().getSkippedSteps();
+
+        net.setInput(ds.getFeatures());
+        net.setLabels(ds.getLabels());
+        net.computeGradientAndScore();
+        net.getFlattenedGradients().putScalar(0, Double.POSITIVE_INFINITY);
+        u.update(net.gradient(), 1, 0, (int) ds.getFeatures().size(0), LayerWorkspaceMgr.noWorkspaces());
+
+        assertEquals(paramsBefore, net.params());
+        assertEquals(updaterStateBefore, u.getStateViewArray());
+        assertEquals(lossScaleBefore / 2, u.getLossScale(), 0.0);
+        assertEquals(skippedBefore + 1, u.getLossScaler().getSkippedSteps());
+        assertEquals(0.0, net.getFlattenedGradients().castTo(DataType.FLOAT).amaxNumber().doubleValue(), 0.0);
+    }
+
+    @Test
+    public void testLossScaler() {
+        MixedPrecision mp = MixedPrecision.builder()
+                .initialLossScale(8)
+                .growthInterval(3)
+                .minLossScale(2)
+                .maxLossScale(16)
+                .build();
+        LossScaler ls = new LossScaler(mp);
+
+        ls.stepSucceeded();
+        ls.stepSucceeded();
+        assertEquals(8, ls.getLossScale(), 0.0);
+        ls.stepSucceeded();
+        assertEquals(16, ls.getLossScale(), 0.0);
+        for (int i = 0; i < 3; i++) {
+            ls.stepSucceeded();
+        }
+        assertEquals(16, ls.getLossScale(), 0.0);       //Max
+
+        ls.overflow();
+        assertEquals(8, ls.getLossScale(), 0.0);
+        ls.overflow();
+        ls.overflow();
+        ls.overflow();
+        assertEquals(2, ls.getLossScale(), 0.0);        //Min
+        assertEquals(4, ls.getSkippedSteps());
+
+        LossScaler fixed = new LossScaler(MixedPrecision.staticLossScaling(128));
+        fixed.overflow();
+        for (int i = 0; i < 5000; i++) {
+            fixed.stepSucceeded();
+        }
+        assertEquals(128, fixed.getLossScale(), 0.0);
+
+        //By default, the loss scale can grow beyond the initial scale
+        LossScaler dynamic = new LossScaler(MixedPrecision.dynamicLossScaling());
+        for (int i = 0; i < MixedPrecision.DEFAULT_GROWTH_INTERVAL; i++) {
+            dynamic.stepSucceeded();
+        }
+        assertEquals(2 * MixedPrecision.DEFAULT_INITIAL_LOSS_SCALE, dynamic.getLossScale(), 0.0);
+
+        //Loss scales that can't be represented in FP16 are still applied correctly to FP16 gradients
+        INDArray eps = Nd4j.valueArrayOf(new long[]{2, 3}, Math.pow(2, -20), DataType.HALF);
+        LossScaler.scaleOutputGradients(null, new INDArray[]{eps}, Math.pow(2, 18));
+        assertEquals(Nd4j.valueArrayOf(new long[]{2, 3}, 0.25, DataType.HALF), eps);
+    }
+
+    @Test
+    public void testExternalEpsilonUpdate() {
+        //Externally provided epsilons are not loss scaled: the update should match the same network without mixed precision
+        MixedPrecision[] mixedPrecision = {MixedPrecision.dynamicLossScaling(), null};
+        INDArray[] updates = new INDArray[2];
+        for (int i = 0; i < 2; i++) {
+            MultiLayerNetwork net = new MultiLayerNetwork(new NeuralNetConfiguration.Builder()
+                    .seed(12345)
+                    .dataType(DataType.HALF)
+                    .mixedPrecision(mixedPrecision[i])
+                    .updater(new Sgd(0.1))
+                    .list()
+                    .layer(new DenseLayer.Builder().nIn(4).nOut(8).activation(Activation.TANH).build())
+                    .build());
+            net.init();
+
+            DataSet ds = getData(DataType.HALF);
+            INDArray epsilon = Nd4j.rand(DataType.HALF, 16, 8).subi(0.5);
+            INDArray paramsBefore = net.params().dup();
+
+            net.setInput(ds.getFeatures());
+            net.feedForward(true, false);
+            Gradient g = net.backpropGradient(epsilon, LayerWorkspaceMgr.noWorkspaces()).getFirst();
+            assertEquals(1.0, net.getGradientLossScale(), 0.0);
+            net.getUpdater().update(net, g, 0, 0, 16, LayerWorkspaceMgr.noWorkspaces());
+
+            if (mixedPrecision[i] != null) {
+                //Mixed precision: the updater applies the update to the master parameters and the network parameters
+                updates[i] = paramsBefore.sub(net.params()).castTo(DataType.FLOAT);
+            } else {
+                //Otherwise: the update is left in the gradient array, to be applied by the optimizer
+                updates[i] = g.gradient().castTo(DataType.FLOAT);
+            }
+        }
+
+        assertTrue(updates[1].amaxNumber().doubleValue() > 1e-3);
+        assertTrue(updates[1].equalsWithEps(updates[0], 2e-3), "Mixed precision update: " + updates[0] + "\nExpected: " + updates[1]);
+    }
+
+    @Test
+    public void testComputationGraph() {
+        MultiLayerNetwork mln = new MultiLayerNetwork(getConf(DataType.HALF, MixedPrecision.dynamicLossScaling()));
+        mln.init();
+        ComputationGraph cg = mln.toComputationGraph();
+        assertNotNull(cg.getConfiguration().getMixedPrecision());
+
+        DataSet ds = getData(DataType.HALF);
+        for (int i = 0; i < 5; i++) {
+            cg.fit(ds);
+        }
+        assertTrue(cg.getUpdater().isMixedPrecision());
+        assertEquals(DataType.FLOAT, cg.getUpdater().getStateViewArray().dataType());
+        assertTrue(Double.isFinite(cg.score()));
+    }
+
+    @Test
+    public void testParallelWrapperRequiresAveraging() throws Exception {
+        //Checked from the configuration: the networks have not been fit, so the updaters may not exist yet
+        MultiLayerNetwork net = new MultiLayerNetwork(getConf(DataType.HALF, MixedPrecision.dynamicLossScaling()));
+        net.init();
+        assertThrows(DL4JInvalidConfigException.class, () -> new ParallelWrapper.Builder<>(net)
+                .trainingMode(ParallelWrapper.TrainingMode.SHARED_GRADIENTS).build());
+
+        ComputationGraph cg = net.toComputationGraph();
+        assertThrows(DL4JInvalidConfigException.class, () -> new ParallelWrapper.Builder<>(cg)
+                .trainingMode(ParallelWrapper.TrainingMode.SHARED_GRADIENTS).build());
+
+        //FLOAT networks ignore the mixed precision configuration
+        MultiLayerNetwork fp32 = new MultiLayerNetwork(getConf(DataType.FLOAT, MixedPrecision.dynamicLossScaling()));
+        fp32.init();
+        ParallelWrapper pw = new ParallelWrapper.Builder<>(fp32)
+                .trainingMode(ParallelWrapper.TrainingMode.SHARED_GRADIENTS).build();
+        pw.close();
+    }
+
+    private static MultiLayerConfiguration getConf(DataType dataType, MixedPrecision mixedPrecision) {
+        return new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .dataType(dataType)
+                .mixedPrecision(mixedPrecision)
+                .updater(new Adam(1e-3))
+                .list()
+                .layer(new DenseLayer.Builder().nIn(4).nOut(8).activation(Activation.TANH).build())
+                .layer(new OutputLayer.Builder().nIn(8).nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .build();
+    }
+
+    private static DataSet getData(DataType dataType) {
+        Nd4j.getRandom().setSeed(12345);
+        return new DataSet(Nd4j.rand(dataType, 16, 4), TestUtils.randomOneHot(16, 3).castTo(dataType));
+    }
+}
@@ -1118,4 +1118,64 @@ public class TestUpdaters extends BaseDL4JTest {
         INDArray expView3 = viewReshape.get(interval(start3, start3 + length3));
         assertEquals(expView3.reshape(l.get(2).shape()), l.get(2));
     }
+
+    @Test
+    public void testRegularizationRuns() {
+        //Contiguous params with identical regularization should be regularized in one op
+        MultiLayerNetwork net = new MultiLayerNetwork(getRegularizationConf(1e-3, 1e-3, 0.0));
+        net.init();
+        BaseMultiLayerUpdater u = (BaseMultiLayerUpdater) net.getUpdater();
+        assertEquals(1, u.getUpdaterBlocks().size());
+        UpdaterBlock ub = (UpdaterBlock) u.getUpdaterBlocks().get(0);
+        List<UpdaterBlock.RegularizationRun> runs = ub.getRegularizationRuns();
+        assertEquals(1, runs.size());
+        assertEquals(0, runs.get(0).getParamOffsetStart());
+        assertEquals(net.numParams(), runs.get(0).getParamOffsetEnd());
+
+        //No bias regularization: one run per weight param, biases excluded
+        net = new MultiLayerNetwork(getRegularizationConf(1e-3, 0.0, 0.0));
+        net.init();
+        u = (BaseMultiLayerUpdater) net.getUpdater();
+        runs = ((UpdaterBlock) u.getUpdaterBlocks().get(0)).getRegularizationRuns();
+        assertEquals(3, runs.size());
+        assertEquals(0, runs.get(0).getParamOffsetStart());
+        assertEquals(10 * 10, runs.get(0).getParamOffsetEnd());
+        assertEquals(10 * 10 + 10, runs.get(1).getParamOffsetStart());
+        assertEquals(2 * (10 * 10) + 10, runs.get(1).getParamOffsetEnd());
+
+        //Same result as applying regularization separately for each param
+        for (double l1 : new double[]{0.0, 1e-4}) {
+            MultiLayerNetwork net1 = new MultiLayerNetwork(getRegularizationConf(1e-3, 1e-3, l1));
+            net1.init();
+            MultiLayerNetwork net2 = new MultiLayerNetwork(getRegularizationConf(1e-3, 1e-3, l1));
+            net2.init();
+            for (Object o : ((BaseMultiLayerUpdater) net2.getUpdater()).getUpdaterBlocks()) {
+                ((UpdaterBlock) o).setParamView(null);
+            }
+
+            Nd4j.getRandom().setSeed(12345);
+            INDArray f = Nd4j.rand(5, 10);
+            INDArray l = Nd4j.rand(5, 10);
+            for (int i = 0; i < 3; i++) {
+                net1.fit(f, l);
+                net2.fit(f, l);
+            }
+            assertEquals(net2.params(), net1.params());
+            assertEquals(net2.getUpdater().getStateViewArray(), net1.getUpdater().getStateViewArray());
+        }
+    }
+
+    private static MultiLayerConfiguration getRegularizationConf(double weightDecay, double weightDecayBias, double l1) {
+        return new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .updater(new Adam(1e-2))
+                .l1(l1)
+                .weightDecay(weightDecay)
+                .weightDecayBias(weightDecayBias)
+                .list()
+                .layer(new DenseLayer.Builder().nIn(10).nOut(10).build())
+                .layer(new DenseLayer.Builder().nIn(10).nOut(10).build())
+                .layer(new OutputLayer.Builder().nIn(10).nOut(10).activation(Activation.SOFTMAX).build())
+                .build();
+    }
 }
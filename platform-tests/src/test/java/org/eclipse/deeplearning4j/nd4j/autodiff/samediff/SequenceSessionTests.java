@@ -0,0 +1,140 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+package org.eclipse.deeplearning4j.nd4j.autodiff.samediff;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.nd4j.autodiff.samediff.SDVariable;
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.autodiff.samediff.state.CachedState;
+import org.nd4j.autodiff.samediff.state.GrowableStateBuffer;
+import org.nd4j.autodiff.samediff.state.SequenceSession;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.BaseNd4jTestWithBackends;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.factory.Nd4jBackend;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag(TagNames.SAMEDIFF)
+@NativeTag
+public class SequenceSessionTests extends BaseNd4jTestWithBackends {
+
+    @Override
+    public char ordering() {
+        return 'c';
+    }
+
+    @ParameterizedTest
+    @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
+    public void testGrowableStateBuffer(Nd4jBackend backend) {
+        GrowableStateBuffer b = new GrowableStateBuffer(DataType.FLOAT, new long[]{2, 0, 3}, 1, 2);
+        assertEquals(0, b.getLength());
+        assertEquals(2, b.capacity());
+        assertArrayEquals(new long[]{2, 0, 3}, b.get().shape());
+
+        INDArray all = Nd4j.linspace(DataType.FLOAT, 1, 30, 1).reshape(2, 5, 3);
+        b.append(all.get(NDArrayIndex.all(), NDArrayIndex.interval(0, 1), NDArrayIndex.all()));
+        b.append(all.get(NDArrayIndex.all(), NDArrayIndex.interval(1, 4), NDArrayIndex.all()));
+        assertEquals(4, b.getLength());
+        assertEquals(4, b.capacity());
+        b.append(all.get(NDArrayIndex.all(), NDArrayIndex.interval(4, 5), NDArrayIndex.all()));
+        assertEquals(8, b.capacity());
+        assertEquals(all, b.get());
+        assertEquals(all.get(NDArrayIndex.all(), NDArrayIndex.interval(1, 3), NDArrayIndex.all()), b.slice(1, 3));
+
+        b.truncate(2);
+        assertEquals(all.get(NDArrayIndex.all(), NDArrayIndex.interval(0, 2), NDArrayIndex.all()), b.get());
+        b.reset();
+        assertEquals(0, b.getLength());
+        assertEquals(8, b.capacity());
+
+        assertThrows(IllegalArgumentException.class, () -> b.append(Nd4j.create(DataType.FLOAT, 3, 1, 3)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
+    public void testIncrementalAttention(Nd4jBackend backend) {
+        int d = 4;
+        int numTokens = 7;
+        Nd4j.getRandom().setSeed(12345);
+
+        //Single head attention: one new token per step, attending to all previous tokens
+        SameDiff sd = SameDiff.create();
+        SDVariable x = sd.placeHolder("x", DataType.FLOAT, -1, d);
+        SDVariable pastK = sd.placeHolder("pastK", DataType.FLOAT, -1, d);
+        SDVariable pastV = sd.placeHolder("pastV", DataType.FLOAT, -1, d);
+        SDVariable wq = sd.constant("wq", Nd4j.rand(DataType.FLOAT, d, d));
+        SDVariable wk = sd.constant("wk", Nd4j.rand(DataType.FLOAT, d, d));
+        SDVariable wv = sd.constant("wv", Nd4j.rand(DataType.FLOAT, d, d));
+
+        SDVariable q = x.mmul(wq);
+        SDVariable newK = x.mmul("newK", wk);
+        SDVariable fullK = sd.concat(0, pastK, newK);
+        SDVariable fullV = sd.concat("fullV", 0, pastV, x.mmul(wv));
+        SDVariable attn = sd.nn().softmax(q.mmul(fullK.permute(1, 0)), 1);
+        attn.mmul("out", fullV);
+
+        sd.cachedState("pastK", "newK", 0);
+        sd.cachedState("pastV", "fullV", 0, CachedState.UpdateMode.FULL_STATE);
+
+        INDArray tokens = Nd4j.rand(DataType.FLOAT, numTokens, d);
+        INDArray empty = Nd4j.create(DataType.FLOAT, 0, d);
+
+        SequenceSession session = new SequenceSession(sd, 2, null);
+        for (int i = 0; i < numTokens; i++) {
+            INDArray token = tokens.get(NDArrayIndex.interval(i, i + 1), NDArrayIndex.all());
+            INDArray out = session.stepSingle(Collections.singletonMap("x", token), "out");
+            assertEquals(i + 1, session.getLength());
+
+            //Without cache: recompute over the whole prefix, and take the last token
+            Map<String, INDArray> phs = new HashMap<>();
+            phs.put("x", tokens.get(NDArrayIndex.interval(0, i + 1), NDArrayIndex.all()));
+            phs.put("pastK", empty);
+            phs.put("pastV", empty);
+            INDArray expected = sd.outputSingle(phs, "out").get(NDArrayIndex.interval(i, i + 1), NDArrayIndex.all());
+            assertEquals(expected, out, "Failed at step " + i);
+        }
+
+        assertEquals(tokens.mmul(sd.getArrForVarName("wk")), session.getState("pastK").get());
+        assertEquals(tokens.mmul(sd.getArrForVarName("wv")), session.getState("pastV").get());
+
+        session.truncate(3);
+        assertEquals(3, session.getLength());
+        session.reset();
+        assertEquals(0, session.getLength());
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            Map<String, INDArray> phs = new HashMap<>();
+            phs.put("x", tokens.get(NDArrayIndex.interval(0, 1), NDArrayIndex.all()));
+            phs.put("pastK", empty);
+            session.step(phs, "out");
+        });
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.eclipse.deeplearning4j.nd4j.evaluation;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.evaluation.ConcurrentEvaluation;
+import org.nd4j.evaluation.classification.Evaluation;
+import org.nd4j.linalg.BaseNd4jTestWithBackends;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.factory.Nd4jBackend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NativeTag
+@Tag(TagNames.EVAL_METRICS)
+public class ConcurrentEvaluationTest extends BaseNd4jTestWithBackends {
+
+    @Override
+    public char ordering() {
+        return 'c';
+    }
+
+    @ParameterizedTest
+    @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
+    public void testBulkEvalMatchesPerExample(Nd4jBackend backend) {
+        //Few classes: pairs are counted on device. Many classes: pairs are counted on the host
+        testBulkEvalMatchesPerExample(5, 200);
+        testBulkEvalMatchesPerExample(50, 20);
+    }
+
+    private static void testBulkEvalMatchesPerExample(int nClasses, int nExamples) {
+        Random r = new Random(12345);
+        INDArray labels = Nd4j.create(nExamples, nClasses);
+        INDArray predictions = Nd4j.create(nExamples, nClasses);
+        Evaluation expected = new Evaluation(nClasses);
+        List<Integer> meta = new ArrayList<>();
+        for (int i = 0; i < nExamples; i++) {
+            int actual = r.nextInt(nClasses);
+            int predicted = r.nextInt(nClasses);
+            labels.putScalar(i, actual, 1.0);
+            predictions.putScalar(i, predicted, 1.0);
+            expected.eval(predicted, actual);
+            meta.add(i);
+        }
+
+        Evaluation e = new Evaluation(nClasses);
+        e.eval(labels, predictions, meta);
+
+        assertEquals(expected.getConfusionMatrix(), e.getConfusionMatrix());
+        for (int c = 0; c < nClasses; c++) {
+            assertEquals(expected.truePositives().get(c), e.truePositives().get(c));
+            assertEquals(expected.falsePositives().get(c), e.falsePositives().get(c));
+            assertEquals(expected.trueNegatives().get(c), e.trueNegatives().get(c));
+            assertEquals(expected.falseNegatives().get(c), e.falseNegatives().get(c));
+        }
+        assertEquals(expected.accuracy(), e.accuracy(), 1e-10);
+        assertEquals(expected.f1(), e.f1(), 1e-10);
+        assertEquals(countErrors(labels, predictions), e.getPredictionErrors().size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
+    public void testConcurrentEvaluation(Nd4jBackend backend) throws Exception {
+        int nClasses = 4;
+        int nThreads = 4;
+        int nBatches = 10;
+        Nd4j.getRandom().setSeed(12345);
+        List<INDArray> labels = new ArrayList<>();
+        List<INDArray> predictions = new ArrayList<>();
+        Evaluation expected = new Evaluation(nClasses);
+        for (int i = 0; i < nThreads * nBatches; i++) {
+            INDArray l = Nd4j.create(8, nClasses);
+            for (int j = 0; j < 8; j++) {
+                l.putScalar(j, (i + j) % nClasses, 1.0);
+            }
+            INDArray p = Nd4j.rand(8, nClasses);
+            labels.add(l);
+            predictions.add(p);
+            expected.eval(l, p);
+        }
+
+        final ConcurrentEvaluation<Evaluation> eval = new ConcurrentEvaluation<>(new Evaluation(nClasses), 2);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread[] threads = new Thread[nThreads];
+        for (int t = 0; t < nThreads; t++) {
+            final int thread = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < nBatches; i++) {
+                        int idx = thread * nBatches + i;
+                        eval.eval(labels.get(idx), predictions.get(idx));
+                    }
+                } catch (Throwable e) {
+                    error.set(e);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(error.get());
+
+        Evaluation result = eval.getResult();
+        assertEquals(expected.getNumRowCounter(), result.getNumRowCounter());
+        assertEquals(expected.getConfusionMatrix(), result.getConfusionMatrix());
+        assertEquals(expected.accuracy(), result.accuracy(), 1e-10);
+        assertEquals(expected.f1(), result.f1(), 1e-10);
+
+        eval.reset();
+        assertEquals(0, eval.getResult().getNumRowCounter());
+    }
+
+    private static int countErrors(INDArray labels, INDArray predictions) {
+        int count = 0;
+        for (int i = 0; i < labels.rows(); i++) {
+            if (Nd4j.argMax(labels.getRow(i)).getInt(0) != Nd4j.argMax(predictions.getRow(i)).getInt(0))
+                count++;
+        }
+        return count;
+    }
+}
@@ -37,14 +37,19 @@ import org.nd4j.linalg.activations.impl.ActivationHardSigmoid;
 import org.nd4j.linalg.activations.impl.ActivationHardTanH;
 import org.nd4j.linalg.activations.impl.ActivationIdentity;
 import org.nd4j.linalg.activations.impl.ActivationLReLU;
+import org.nd4j.linalg.activations.impl.ActivationPReLU;
 import org.nd4j.linalg.activations.impl.ActivationRReLU;
 import org.nd4j.linalg.activations.impl.ActivationRationalTanh;
 import org.nd4j.linalg.activations.impl.ActivationReLU;
+import org.nd4j.linalg.activations.impl.ActivationReLU6;
+import org.nd4j.linalg.activations.impl.ActivationRectifiedTanh;
+import org.nd4j.linalg.activations.impl.ActivationSELU;
 import org.nd4j.linalg.activations.impl.ActivationSigmoid;
 import org.nd4j.linalg.activations.impl.ActivationSoftPlus;
 import org.nd4j.linalg.activations.impl.ActivationSoftSign;
 import org.nd4j.linalg.activations.impl.ActivationSoftmax;
 import org.nd4j.linalg.activations.impl.ActivationTanH;
+import org.nd4j.linalg.activations.impl.ActivationThresholdedReLU;
 import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
@@ -135,6 +140,42 @@ public class TestActivation extends BaseNd4jTestWithBackends {
         }
     }
 
+    @ParameterizedTest
+    @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
+    public void testBfloat16Backprop(Nd4jBackend backend) {
+        //Most of the libnd4j activation backprop ops have no BFLOAT16 kernel: these are executed in FP32 instead
+        IActivation[] activations = new IActivation[] {new ActivationCube(), new ActivationELU(0.25),
+                new ActivationHardSigmoid(), new ActivationHardTanH(), new ActivationLReLU(0.25),
+                new ActivationPReLU(Nd4j.valueArrayOf(new long[]{4}, 0.25, DataType.BFLOAT16), null),
+                new ActivationRationalTanh(), new ActivationReLU(), new ActivationReLU6(), new ActivationRectifiedTanh(),
+                new ActivationSELU(), new ActivationSigmoid(), new ActivationSoftPlus(), new ActivationSoftSign(),
+                new ActivationTanH(), new ActivationThresholdedReLU()};
+
+        Nd4j.getRandom().setSeed(12345);
+        INDArray in = Nd4j.rand(DataType.BFLOAT16, 3, 4).subi(0.5).muli(4);
+        INDArray eps = Nd4j.rand(DataType.BFLOAT16, 3, 4).subi(0.5);
+
+        for (IActivation a : activations) {
+            Pair<INDArray, INDArray> exp = backpropFloat(a, in, eps);
+            Pair<INDArray, INDArray> act = a.backprop(in.dup(), eps.dup());
+
+            assertEquals(DataType.BFLOAT16, act.getFirst().dataType());
+            assertTrue(exp.getFirst().equalsWithEps(act.getFirst().castTo(DataType.FLOAT), 0.05), a.toString());
+            if (exp.getSecond() != null) {
+                assertEquals(DataType.BFLOAT16, act.getSecond().dataType());
+                assertTrue(exp.getSecond().equalsWithEps(act.getSecond().castTo(DataType.FLOAT), 0.05), a.toString());
+            }
+        }
+    }
+
+    private static Pair<INDArray, INDArray> backpropFloat(IActivation a, INDArray in, INDArray eps) {
+        if (a instanceof ActivationPReLU) {
+            ActivationPReLU p = (ActivationPReLU) a;
+            a = new ActivationPReLU(p.getAlpha().castTo(DataType.FLOAT), p.getSharedAxes());
+        }
+        return a.backprop(in.castTo(DataType.FLOAT), eps.castTo(DataType.FLOAT));
+    }
+
     @ParameterizedTest
     @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
     @Tag(TagNames.JACKSON_SERDE)
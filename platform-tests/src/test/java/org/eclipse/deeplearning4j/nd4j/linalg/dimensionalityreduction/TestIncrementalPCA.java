@@ -0,0 +1,118 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+package org.eclipse.deeplearning4j.nd4j.linalg.dimensionalityreduction;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.BaseNd4jTestWithBackends;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.ViewIterator;
+import org.nd4j.linalg.dimensionalityreduction.IncrementalPCA;
+import org.nd4j.linalg.dimensionalityreduction.PCA;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.factory.Nd4jBackend;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag(TagNames.NDARRAY_ETL)
+@NativeTag
+public class TestIncrementalPCA extends BaseNd4jTestWithBackends {
+
+    @ParameterizedTest
+    @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
+    public void testMatchesFullPCA(Nd4jBackend backend) {
+        INDArray data = lowRankData(200, 40);
+        INDArray expected = PCA.pca_factor(data.dup('f'), 3, true);
+
+        IncrementalPCA pca = new IncrementalPCA(3);
+        pca.fit(new ViewIterator(new DataSet(data, Nd4j.zeros(DataType.DOUBLE, 200, 1)), 32));
+
+        assertEquals(200, pca.getNumRecords());
+        assertArrayEquals(new long[]{40, 3}, pca.getComponents().shape());
+        assertEquals(data.mean(0).reshape(1, 40), pca.getMean());
+        assertTrue(projection(expected).equalsWithEps(projection(pca.getComponents()), 1e-3));
+
+        INDArray reconstructed = pca.convertBackToFeatures(pca.convertToComponents(data));
+        assertEquals(0.0, reconstructed.sub(data).amaxNumber().doubleValue(), 0.1);
+    }
+
+    @ParameterizedTest
+    @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
+    public void testMatchesSingleBatch(Nd4jBackend backend) {
+        //Fitting in minibatches gives the same variance as fitting on all data at once, for low rank data
+        INDArray data = lowRankData(100, 20);
+        IncrementalPCA all = new IncrementalPCA(3).partialFit(data);
+        IncrementalPCA batched = new IncrementalPCA(3);
+        for (int i = 0; i < 100; i += 25) {
+            batched.partialFit(data.get(NDArrayIndex.interval(i, i + 25), NDArrayIndex.all()));
+        }
+
+        assertEquals(all.getMean(), batched.getMean());
+        for (int i = 0; i < 3; i++) {
+            double expVar = all.getExplainedVariance().getDouble(i);
+            assertEquals(expVar, batched.getExplainedVariance().getDouble(i), 1e-3 * expVar);
+        }
+        assertTrue(projection(all.getComponents()).equalsWithEps(projection(batched.getComponents()), 1e-3));
+    }
+
+    @ParameterizedTest
+    @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
+    public void testInvalidUsage(Nd4jBackend backend) {
+        IncrementalPCA pca = new IncrementalPCA(5);
+        assertThrows(IllegalStateException.class, () -> pca.convertToComponents(Nd4j.rand(DataType.DOUBLE, 2, 10)));
+        //First minibatch smaller than the number of components
+        assertThrows(IllegalArgumentException.class, () -> pca.partialFit(Nd4j.rand(DataType.DOUBLE, 3, 10)));
+        pca.partialFit(Nd4j.rand(DataType.DOUBLE, 8, 10));
+        pca.partialFit(Nd4j.rand(DataType.DOUBLE, 1, 10));
+        assertEquals(9, pca.getNumRecords());
+        assertThrows(IllegalArgumentException.class, () -> pca.partialFit(Nd4j.rand(DataType.DOUBLE, 8, 11)));
+    }
+
+    /**
+     * Low rank (rank 3) data with a small amount of noise, with non-zero mean
+     */
+    private static INDArray lowRankData(int m, int n) {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray u = Nd4j.randn(DataType.DOUBLE, m, 3);
+        INDArray w = Nd4j.randn(DataType.DOUBLE, 3, n).muliColumnVector(Nd4j.createFromArray(10.0, 5.0, 2.0)
+                .reshape(3, 1));
+        return u.mmul(w).addi(Nd4j.randn(DataType.DOUBLE, m, n).muli(0.01)).addiRowVector(Nd4j.linspace(
+                DataType.DOUBLE, 1, n, 1).reshape(1, n));
+    }
+
+    /**
+     * Projection matrix onto the column space of the specified (orthonormal) components: invariant to the sign and
+     * order of the components
+     */
+    private static INDArray projection(INDArray components) {
+        return components.mmul(components.transpose());
+    }
+
+    @Override
+    public char ordering() {
+        return 'c';
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+package org.eclipse.deeplearning4j.nd4j.linalg.dimensionalityreduction;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.BaseNd4jTestWithBackends;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dimensionalityreduction.RandomizedPCA;
+import org.nd4j.linalg.dimensionalityreduction.PCA;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.factory.Nd4jBackend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag(TagNames.NDARRAY_ETL)
+@NativeTag
+public class TestRandomizedPCA extends BaseNd4jTestWithBackends {
+
+    @ParameterizedTest
+    @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
+    public void testMatchesFullPCA(Nd4jBackend backend) {
+        INDArray data = lowRankData(200, 60);
+        INDArray dataCopy = data.dup();
+        INDArray expected = PCA.pca_factor(data.dup('f'), 3, true);
+
+        RandomizedPCA pca = new RandomizedPCA(data, 3, 10, 2, 12345);
+        assertEquals(dataCopy, data);       //Not modified
+        assertArrayEquals(new long[]{60, 3}, pca.getComponents().shape());
+        assertEquals(data.mean(0).reshape(1, 60), pca.getMean());
+        assertTrue(projection(expected).equalsWithEps(projection(pca.getComponents()), 1e-3));
+
+        //Components are orthonormal, singular values in decreasing order
+        assertEquals(Nd4j.eye(3).castTo(DataType.DOUBLE), pca.getComponents().transpose().mmul(pca.getComponents()));
+        INDArray s = pca.getSingularValues();
+        assertTrue(s.getDouble(0) >= s.getDouble(1) && s.getDouble(1) >= s.getDouble(2));
+        assertEquals(s.mul(s).divi(199), pca.getExplainedVariance());
+
+        //Reconstruction from 3 components recovers the (rank 3 + noise) data
+        INDArray reconstructed = pca.convertBackToFeatures(pca.convertToComponents(data));
+        assertEquals(0.0, reconstructed.sub(data).amaxNumber().doubleValue(), 0.1);
+    }
+
+    @ParameterizedTest
+    @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
+    public void testInvalidArguments(Nd4jBackend backend) {
+        INDArray data = Nd4j.rand(DataType.DOUBLE, 10, 5);
+        assertThrows(IllegalArgumentException.class, () -> new RandomizedPCA(data, 0));
+        assertThrows(IllegalArgumentException.class, () -> new RandomizedPCA(data, 6));
+        assertThrows(IllegalArgumentException.class, () -> new RandomizedPCA(data, 2, -1, 2, 12345));
+    }
+
+    /**
+     * Low rank (rank 3) data with a small amount of noise, with non-zero mean
+     */
+    private static INDArray lowRankData(int m, int n) {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray u = Nd4j.randn(DataType.DOUBLE, m, 3);
+        INDArray w = Nd4j.randn(DataType.DOUBLE, 3, n).muliColumnVector(Nd4j.createFromArray(10.0, 5.0, 2.0)
+                .reshape(3, 1));
+        return u.mmul(w).addi(Nd4j.randn(DataType.DOUBLE, m, n).muli(0.01)).addiRowVector(Nd4j.linspace(
+                DataType.DOUBLE, 1, n, 1).reshape(1, n));
+    }
+
+    /**
+     * Projection matrix onto the column space of the specified (orthonormal) components: invariant to the sign and
+     * order of the components
+     */
+    private static INDArray projection(INDArray components) {
+        return components.mmul(components.transpose());
+    }
+
+    @Override
+    public char ordering() {
+        return 'c';
+    }
+}
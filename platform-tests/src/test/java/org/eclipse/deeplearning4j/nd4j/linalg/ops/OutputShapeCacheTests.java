@@ -0,0 +1,143 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.eclipse.deeplearning4j.nd4j.linalg.ops;
+
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.linalg.BaseNd4jTestWithBackends;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.DynamicCustomOp;
+import org.nd4j.linalg.api.ops.executioner.OutputShapeCache;
+import org.nd4j.linalg.api.shape.LongShapeDescriptor;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.factory.Nd4jBackend;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NativeTag
+@Execution(ExecutionMode.SAME_THREAD)
+public class OutputShapeCacheTests extends BaseNd4jTestWithBackends {
+
+    @ParameterizedTest
+    @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
+    public void testKeys(Nd4jBackend backend) {
+        OutputShapeCache cache = new OutputShapeCache(true, 16);
+
+        OutputShapeCache.Key k1 = cache.key(reshape(Nd4j.rand(DataType.FLOAT, 3, 4), 4, 3), null);
+        OutputShapeCache.Key k2 = cache.key(reshape(Nd4j.rand(DataType.FLOAT, 3, 4), 4, 3), null);
+        assertNotNull(k1);
+        assertEquals(k1, k2);
+        assertEquals(k1.hashCode(), k2.hashCode());
+
+        //Different data type, shape, order and arguments
+        assertNotEquals(k1, cache.key(reshape(Nd4j.rand(DataType.DOUBLE, 3, 4), 4, 3), null));
+        assertNotEquals(k1, cache.key(reshape(Nd4j.rand(DataType.FLOAT, 4, 3), 4, 3), null));
+        assertNotEquals(k1, cache.key(reshape(Nd4j.rand(DataType.FLOAT, 'f', 3, 4), 4, 3), null));
+        assertNotEquals(k1, cache.key(reshape(Nd4j.rand(DataType.FLOAT, 3, 4), 2, 6), null));
+
+        //Values of small integer inputs are part of the key
+        INDArray in = Nd4j.rand(DataType.FLOAT, 3, 4);
+        OutputShapeCache.Key s1 = cache.key(shapeInput(in, Nd4j.createFromArray(4L, 3L)), null);
+        OutputShapeCache.Key s2 = cache.key(shapeInput(in, Nd4j.createFromArray(4L, 3L)), null);
+        OutputShapeCache.Key s3 = cache.key(shapeInput(in, Nd4j.createFromArray(2L, 6L)), null);
+        assertEquals(s1, s2);
+        assertNotEquals(s1, s3);
+        assertEquals(0, cache.getBypassed());
+
+        //Large integer inputs, and ops with value-dependent output shapes, are not cached
+        assertNull(cache.key(shapeInput(in, Nd4j.zeros(DataType.LONG, OutputShapeCache.MAX_VALUE_KEY_LENGTH + 1)), null));
+        assertNull(cache.key(DynamicCustomOp.builder("where_np").addInputs(Nd4j.rand(DataType.FLOAT, 5)).build(), null));
+        cache.addBypassOp("reshape");
+        assertNull(cache.key(reshape(in, 4, 3), null));
+        assertEquals(3, cache.getBypassed());
+
+        cache.setEnabled(false);
+        assertNull(cache.key(DynamicCustomOp.builder("permute").addInputs(in).build(), null));
+    }
+
+    @ParameterizedTest
+    @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
+    public void testGetPutEviction(Nd4jBackend backend) {
+        OutputShapeCache cache = new OutputShapeCache(true, 8);
+        List<LongShapeDescriptor> shapes = Collections.singletonList(
+                LongShapeDescriptor.fromShape(new long[]{4, 3}, DataType.FLOAT));
+
+        OutputShapeCache.Key k = cache.key(reshape(Nd4j.rand(DataType.FLOAT, 3, 4), 4, 3), null);
+        assertNull(cache.get(k));
+        cache.put(k, shapes);
+        List<LongShapeDescriptor> out = cache.get(k);
+        assertEquals(shapes, out);
+        out.clear();                                        //Returned list is a copy
+        assertEquals(shapes, cache.get(k));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        for (int i = 1; i <= 20; i++) {
+            cache.put(cache.key(reshape(Nd4j.rand(DataType.FLOAT, i, 12), 12, i), null), shapes);
+        }
+        assertTrue(cache.size() <= 8);
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits());
+    }
+
+    @ParameterizedTest
+    @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
+    public void testExecutioner(Nd4jBackend backend) {
+        OutputShapeCache cache = Nd4j.getExecutioner().getOutputShapeCache();
+        if (!cache.isEnabled())
+            return;
+        INDArray in = Nd4j.rand(DataType.FLOAT, 5, 7);
+        List<LongShapeDescriptor> first = Nd4j.getExecutioner().calculateOutputShape(reshape(in, 7, 5));
+        long hits = cache.getHits();
+        List<LongShapeDescriptor> second = Nd4j.getExecutioner().calculateOutputShape(reshape(in, 7, 5));
+        assertEquals(first, second);
+        assertEquals(hits + 1, cache.getHits());
+        assertArrayEquals(new long[]{7, 5}, second.get(0).getShape());
+    }
+
+    private static DynamicCustomOp reshape(INDArray in, int... shape) {
+        return DynamicCustomOp.builder("reshape")
+                .addInputs(in)
+                .addIntegerArguments('c')
+                .addIntegerArguments(shape)
+                .build();
+    }
+
+    private static DynamicCustomOp shapeInput(INDArray in, INDArray shape) {
+        return DynamicCustomOp.builder("reshape")
+                .addInputs(in, shape)
+                .build();
+    }
+
+    @Override
+    public char ordering() {
+        return 'c';
+    }
+}
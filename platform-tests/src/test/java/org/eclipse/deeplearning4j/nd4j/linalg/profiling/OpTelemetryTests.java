@@ -0,0 +1,150 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.eclipse.deeplearning4j.nd4j.linalg.profiling;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.linalg.BaseNd4jTestWithBackends;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.factory.Nd4jBackend;
+import org.nd4j.linalg.ops.transforms.Transforms;
+import org.nd4j.linalg.profiler.OpExecutionEvent;
+import org.nd4j.linalg.profiler.OpTelemetry;
+import org.nd4j.linalg.profiler.data.LatencyHistogram;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NativeTag
+@Execution(ExecutionMode.SAME_THREAD)
+public class OpTelemetryTests extends BaseNd4jTestWithBackends {
+
+    @BeforeEach
+    public void setUp() {
+        OpTelemetry.getInstance().reset();
+        OpTelemetry.getInstance().setEnabled(true);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        OpTelemetry.getInstance().setEnabled(false);
+        OpTelemetry.getInstance().reset();
+    }
+
+    @ParameterizedTest
+    @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
+    public void testLatencyHistogram(Nd4jBackend backend) {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getValueAtPercentile(99));
+
+        for (long i = 1; i <= 1000; i++) {
+            h.recordValue(i * 1000);
+        }
+        assertEquals(1000, h.getCount());
+        assertEquals(1_000_000, h.getMax());
+        assertEquals(500_500.0, h.getMean(), 1e-6);
+
+        //Relative error is at most 1/32
+        long p50 = h.getValueAtPercentile(50);
+        long p99 = h.getValueAtPercentile(99);
+        assertEquals(500_000, p50, 500_000 / 32.0);
+        assertEquals(990_000, p99, 990_000 / 32.0);
+        assertEquals(1_000_000, h.getValueAtPercentile(100));
+        assertTrue(p50 <= p99);
+
+        //Small values are exact; very large values are clamped to the last bucket
+        h.reset();
+        h.recordValue(7);
+        assertEquals(7, h.getValueAtPercentile(50));
+        h.recordValue(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, h.getMax());
+        assertEquals(2, h.getCount());
+    }
+
+    @ParameterizedTest
+    @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
+    public void testRecording(Nd4jBackend backend) {
+        INDArray x = Nd4j.rand(DataType.FLOAT, 8, 8);
+        for (int i = 0; i < 10; i++) {
+            Transforms.tanh(x, false);
+            x.sum();
+            x.mmul(x);
+        }
+
+        LatencyHistogram tanh = OpTelemetry.getInstance().getHistogram("tanh");
+        assertNotNull(tanh);
+        assertEquals(10, tanh.getCount());
+        assertNotNull(OpTelemetry.getInstance().getHistogram("reduce_sum"));
+        assertNotNull(OpTelemetry.getInstance().getHistogram("matmul"));
+
+        String summary = OpTelemetry.getInstance().summary(10);
+        assertTrue(summary.contains("tanh"), summary);
+
+        //Nothing is recorded when disabled
+        OpTelemetry.getInstance().setEnabled(false);
+        Transforms.tanh(x, false);
+        assertEquals(10, tanh.getCount());
+    }
+
+    @ParameterizedTest
+    @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
+    public void testJfrEvents(Nd4jBackend backend, @TempDir Path dir) throws Exception {
+        INDArray x = Nd4j.rand(DataType.FLOAT, 3, 4);
+        Path f = dir.resolve("ops.jfr");
+        try (Recording r = new Recording()) {
+            r.enable(OpExecutionEvent.NAME);
+            r.start();
+            Transforms.tanh(x, false);
+            r.stop();
+            r.dump(f);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(f);
+        RecordedEvent tanh = null;
+        for (RecordedEvent e : events) {
+            if ("tanh".equals(e.getString("opName")))
+                tanh = e;
+        }
+        assertNotNull(tanh);
+        assertEquals("FLOAT", tanh.getString("dataType"));
+        assertEquals("[3, 4]", tanh.getString("outputShapes"));
+        assertEquals(2 * 12 * 4, tanh.getLong("bytes"));
+        assertTrue(tanh.getDuration("executionTime").toNanos() > 0);
+    }
+
+    @Override
+    public char ordering() {
+        return 'c';
+    }
+}
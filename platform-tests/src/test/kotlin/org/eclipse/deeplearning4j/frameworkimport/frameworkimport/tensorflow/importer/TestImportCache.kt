@@ -0,0 +1,140 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+package org.eclipse.deeplearning4j.frameworkimport.frameworkimport.tensorflow.importer
+
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Tag
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.nd4j.autodiff.samediff.SameDiff
+import org.nd4j.autodiff.samediff.VariableType
+import org.nd4j.common.io.ClassPathResource
+import org.nd4j.common.tests.tags.TagNames
+import org.nd4j.linalg.api.buffer.DataType
+import org.nd4j.linalg.api.ndarray.INDArray
+import org.nd4j.linalg.factory.Nd4j
+import org.nd4j.samediff.frameworkimport.FrameworkImporter
+import org.nd4j.samediff.frameworkimport.cache.ImportCache
+import org.nd4j.samediff.frameworkimport.onnx.*
+import org.nd4j.samediff.frameworkimport.onnx.importer.OnnxFrameworkImporter
+import org.nd4j.samediff.frameworkimport.tensorflow.importer.TensorflowFrameworkImporter
+import java.io.File
+
+class TestImportCache {
+
+    @Test
+    @Tag(TagNames.TENSORFLOW)
+    fun testCachedTensorflowImport(@TempDir tempDir: File) {
+        val tfFile = ClassPathResource("lenet_frozen.pb").file
+        val importer = TensorflowFrameworkImporter()
+        val dynamicVariables = mapOf("input" to Nd4j.ones(1,784).castTo(DataType.FLOAT))
+        val input = mapOf("input" to Nd4j.rand(DataType.FLOAT, 1, 784))
+        val cache = testCachedImport(tempDir, importer, importer.importerVersion, tfFile, dynamicVariables, input) { sd ->
+            sd.ops().last().outputVariablesNames()[0]
+        }
+
+        //Different dynamic variables: different key
+        val key = cache.key(tfFile, importer.importerVersion, dynamicVariables, false)
+        val otherKey = cache.key(tfFile, importer.importerVersion, mapOf("input" to Nd4j.ones(2,784).castTo(DataType.FLOAT)), false)
+        assertNotEquals(key, otherKey)
+        assertNull(cache.load(otherKey))
+
+        cache.clear()
+        assertNull(cache.load(key))
+    }
+
+    @Test
+    @Tag(TagNames.ONNX)
+    fun testCachedOnnxImport(@TempDir tempDir: File) {
+        //Dense layer with relu activation: MatMul + Add + Relu, with the weights as initializers
+        Nd4j.getRandom().setSeed(12345)
+        val input = Nd4j.rand(DataType.FLOAT, 2, 4)
+        val graph = GraphProto {
+            name = "dense"
+            Initializer(convertToOnnxTensor(Nd4j.rand(DataType.FLOAT, 4, 3).subi(0.5), "W"))
+            Initializer(convertToOnnxTensor(Nd4j.rand(DataType.FLOAT, 3).subi(0.5), "b"))
+            Node(NodeProto {
+                name = "matmul"
+                opType = "MatMul"
+                Input("input")
+                Input("W")
+                Output("matmul")
+            })
+            Node(NodeProto {
+                name = "add"
+                opType = "Add"
+                Input("matmul")
+                Input("b")
+                Output("add")
+            })
+            Node(NodeProto {
+                name = "relu"
+                opType = "Relu"
+                Input("add")
+                Output("output")
+            })
+            Input(createValueInfoFromTensor(input, "input", false))
+            Output(createValueInfoFromTensor(Nd4j.ones(DataType.FLOAT, 2, 3), "output", false))
+        }
+        val onnxFile = File(tempDir, "dense.onnx")
+        onnxFile.writeBytes(ModelProto {
+            OpSetImport(OperatorSetIdProto { version = 13 })
+            this.graph = graph
+        }.toByteArray())
+
+        val importer = OnnxFrameworkImporter()
+        val cache = testCachedImport(tempDir, importer, importer.importerVersion, onnxFile, mapOf("input" to input), mapOf("input" to input)) { "output" }
+        cache.clear()
+    }
+
+    /**
+     * Imports the model twice with the import cache enabled, and checks that the second import is loaded from
+     * the flatbuffers file written by the first, with the same variables, weights and output.
+     */
+    private fun testCachedImport(tempDir: File, importer: FrameworkImporter, importerVersion: String, modelFile: File,
+                                 dynamicVariables: Map<String, INDArray>, input: Map<String, INDArray>,
+                                 outputName: (SameDiff) -> String): ImportCache {
+        val cacheDir = File(tempDir, "cache")
+        System.setProperty(ImportCache.CACHE_DIRECTORY_PROPERTY, cacheDir.absolutePath)
+        try {
+            val imported = importer.runImport(modelFile.absolutePath, dynamicVariables)
+            assertEquals(1, cacheDir.listFiles { f -> f.name.endsWith(ImportCache.FILE_EXTENSION) }!!.size)
+
+            val cache = ImportCache(cacheDir)
+            val key = cache.key(modelFile, importerVersion, dynamicVariables, false)
+            assertTrue(cache.fileFor(key).exists())
+            //Unreadable entries are discarded (and re-imported) silently, so check the entry can be loaded directly
+            assertNotNull(cache.load(key))
+
+            val fromCache = importer.runImport(modelFile.absolutePath, dynamicVariables)
+            assertNotSame(imported, fromCache)
+            assertEquals(imported.variables().map { it.name() }.toSet(), fromCache.variables().map { it.name() }.toSet())
+            imported.variables().filter { it.variableType == VariableType.VARIABLE || it.variableType == VariableType.CONSTANT }.forEach { v ->
+                assertEquals(v.arr, fromCache.getArrForVarName(v.name()))
+            }
+
+            val output = outputName(imported)
+            assertEquals(imported.outputSingle(input, output), fromCache.outputSingle(input, output))
+            return cache
+        } finally {
+            System.clearProperty(ImportCache.CACHE_DIRECTORY_PROPERTY)
+        }
+    }
+}
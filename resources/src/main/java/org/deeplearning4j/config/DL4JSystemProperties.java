@@ -106,6 +106,14 @@ public class DL4JSystemProperties {
      */
     public static final String TIMESOURCE_CLASSNAME_PROPERTY = "org.deeplearning4j.spark.time.TimeSource";
 
+    /**
+     * Applicability: dl4j-spark_2.xx - {@code org.deeplearning4j.spark.impl.inference.InferenceModelCache}, used for
+     * scoring and feed forward (SparkDl4jMultiLayer.scoreExamples, feedForwardWithKey etc)<br>
+     * Description: This sets the maximum number of networks (one per parameters broadcast) cached on each executor.
+     * Should be set on the executors, for example via spark.executor.extraJavaOptions. Default: 4
+     */
+    public static final String SPARK_INFERENCE_MODEL_CACHE_SIZE_PROPERTY = "org.deeplearning4j.spark.inference.cachesize";
+
 
     /**
      * Applicability: {@code org.deeplearning4j.nn.layers.HelperUtils}